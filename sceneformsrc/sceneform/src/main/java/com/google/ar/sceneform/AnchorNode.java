@@ -27,6 +27,10 @@ public class AnchorNode extends Node {
 
   private boolean wasTracking;
 
+  // Reused every frame to update the pose of the node without allocating.
+  private final Vector3 trackedPosition = new Vector3();
+  private final Quaternion trackedRotation = new Quaternion();
+
   private static final float SMOOTH_FACTOR = 12.0f;
 
   /** Create an AnchorNode with no anchor. */
@@ -184,22 +188,18 @@ public class AnchorNode extends Node {
     }
 
     Pose pose = anchor.getPose();
-    Vector3 desiredPosition = ArHelpers.extractPositionFromPose(pose);
-    Quaternion desiredRotation = ArHelpers.extractRotationFromPose(pose);
+    ArHelpers.extractPositionFromPose(pose, trackedPosition);
+    ArHelpers.extractRotationFromPose(pose, trackedRotation);
 
     if (isSmoothed && !forceImmediate) {
-      Vector3 position = getWorldPosition();
       float lerpFactor = MathHelper.clamp(deltaSeconds * SMOOTH_FACTOR, 0, 1);
-      position.set(Vector3.lerp(position, desiredPosition, lerpFactor));
-      super.setWorldPosition(position);
-
-      Quaternion rotation = Quaternion.slerp(getWorldRotation(), desiredRotation, lerpFactor);
-      super.setWorldRotation(rotation);
-    } else {
-      super.setWorldPosition(desiredPosition);
-      super.setWorldRotation(desiredRotation);
+      Vector3.lerp(getWorldPositionInternal(), trackedPosition, lerpFactor, trackedPosition);
+      Quaternion.slerp(getWorldRotationInternal(), trackedRotation, lerpFactor, trackedRotation);
     }
 
+    super.setWorldPosition(trackedPosition);
+    super.setWorldRotation(trackedRotation);
+
     wasTracking = isTracking;
   }
 
@@ -6,15 +6,13 @@ import com.google.ar.sceneform.math.Vector3;
 
 /** Helper class for utility functions for interacting with the ARCore API. */
 class ArHelpers {
-  /** Returns a Sceneform {@link Vector3} representing the position from an ARCore {@link Pose}. */
-  static Vector3 extractPositionFromPose(Pose pose) {
-    return new Vector3(pose.tx(), pose.ty(), pose.tz());
+  /** Sets a Sceneform {@link Vector3} to the position from an ARCore {@link Pose}. */
+  static void extractPositionFromPose(Pose pose, Vector3 dest) {
+    dest.set(pose.tx(), pose.ty(), pose.tz());
   }
 
-  /**
-   * Returns a Sceneform {@link Quaternion} representing the rotation from an ARCore {@link Pose}.
-   */
-  static Quaternion extractRotationFromPose(Pose pose) {
-    return new Quaternion(pose.qx(), pose.qy(), pose.qz(), pose.qw());
+  /** Sets a Sceneform {@link Quaternion} to the rotation from an ARCore {@link Pose}. */
+  static void extractRotationFromPose(Pose pose, Quaternion dest) {
+    dest.set(pose.qx(), pose.qy(), pose.qz(), pose.qw());
   }
 }
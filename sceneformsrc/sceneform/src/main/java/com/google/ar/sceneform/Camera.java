@@ -41,6 +41,10 @@ public class Camera extends Node implements CameraProvider {
   private final Matrix viewMatrix = new Matrix();
   private final Matrix projectionMatrix = new Matrix();
 
+  // Reused every frame to update the pose of the camera without allocating.
+  private final Vector3 trackedPosition = new Vector3();
+  private final Quaternion trackedRotation = new Quaternion();
+
   private static final float DEFAULT_NEAR_PLANE = 0.01f;
   private static final float DEFAULT_FAR_PLANE = 30.0f;
   private static final int FALLBACK_VIEW_WIDTH = 1920;
@@ -192,10 +196,10 @@ public class Camera extends Node implements CameraProvider {
 
     // Update the node's transformation properties to match the tracked pose.
     Pose pose = camera.getDisplayOrientedPose();
-    Vector3 position = ArHelpers.extractPositionFromPose(pose);
-    Quaternion rotation = ArHelpers.extractRotationFromPose(pose);
-    super.setWorldPosition(position);
-    super.setWorldRotation(rotation);
+    ArHelpers.extractPositionFromPose(pose, trackedPosition);
+    ArHelpers.extractRotationFromPose(pose, trackedRotation);
+    super.setWorldPosition(trackedPosition);
+    super.setWorldRotation(trackedRotation);
 
     areMatricesInitialized = true;
   }
@@ -389,7 +393,7 @@ public class Camera extends Node implements CameraProvider {
     }
 
     w = 1.0f / w;
-    dest.set(dest.scaled(w));
+    dest.scaled(w, dest);
     return true;
   }
 
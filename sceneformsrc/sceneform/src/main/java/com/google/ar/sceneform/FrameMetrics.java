@@ -0,0 +1,112 @@
+package com.google.ar.sceneform;
+
+/**
+ * Measurements taken by a {@link SceneView} while updating and rendering a single frame.
+ *
+ * <p>The same instance is reused for every frame, so listeners must copy any values they want to
+ * keep instead of holding on to it.
+ *
+ * @see SceneView#addFrameMetricsListener(FrameMetricsListener)
+ */
+public class FrameMetrics {
+  /** Value of {@link #getAllocationCount()} when allocation counting is disabled. */
+  public static final int ALLOCATION_COUNT_UNAVAILABLE = -1;
+
+  long frameTimeNanos;
+  long updateNanos;
+  long renderNanos;
+  long totalNanos;
+  int updatedNodeCount;
+  int renderableInstanceCount;
+  int lightInstanceCount;
+  int hitTestCount;
+  int colliderTestCount;
+  long reclaimedResourceCount;
+  float bufferPoolHitRate;
+  long bufferPoolOutstandingBytes;
+  int allocationCount = ALLOCATION_COUNT_UNAVAILABLE;
+
+  /** FrameMetrics is only created internally. Frame metrics listeners provide access to it. */
+  FrameMetrics() {}
+
+  /** Returns the timestamp of the frame, as passed to {@link SceneView#doFrame(long)}. */
+  public long getFrameTimeNanos() {
+    return frameTimeNanos;
+  }
+
+  /** Returns the time spent updating the scene, in nanoseconds. */
+  public long getUpdateNanos() {
+    return updateNanos;
+  }
+
+  /** Returns the time spent rendering the scene, in nanoseconds. */
+  public long getRenderNanos() {
+    return renderNanos;
+  }
+
+  /** Returns the total time spent on the frame, in nanoseconds. */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  /** Returns the number of nodes that were updated. */
+  public int getUpdatedNodeCount() {
+    return updatedNodeCount;
+  }
+
+  /** Returns the number of renderable instances submitted to the renderer. */
+  public int getRenderableInstanceCount() {
+    return renderableInstanceCount;
+  }
+
+  /** Returns the number of lights submitted to the renderer. */
+  public int getLightInstanceCount() {
+    return lightInstanceCount;
+  }
+
+  /** Returns the number of raycasts and intersection queries made since the previous frame. */
+  public int getHitTestCount() {
+    return hitTestCount;
+  }
+
+  /** Returns the number of colliders tested by the hit tests made since the previous frame. */
+  public int getColliderTestCount() {
+    return colliderTestCount;
+  }
+
+  /**
+   * Returns the average number of colliders tested per hit test made since the previous frame, or
+   * 0 if there weren't any hit tests.
+   */
+  public float getCollidersTestedPerHitTest() {
+    return hitTestCount == 0 ? 0.0f : (float) colliderTestCount / hitTestCount;
+  }
+
+  /** Returns the number of rendering resources released after being garbage collected. */
+  public long getReclaimedResourceCount() {
+    return reclaimedResourceCount;
+  }
+
+  /**
+   * Returns the fraction of the geometry buffers acquired so far that were served by reusing a
+   * released buffer.
+   */
+  public float getBufferPoolHitRate() {
+    return bufferPoolHitRate;
+  }
+
+  /** Returns the number of bytes held by geometry buffers that haven't been released yet. */
+  public long getBufferPoolOutstandingBytes() {
+    return bufferPoolOutstandingBytes;
+  }
+
+  /**
+   * Returns the number of objects allocated on the UI thread during the frame, or {@link
+   * #ALLOCATION_COUNT_UNAVAILABLE} if allocation counting is disabled.
+   *
+   * @see SceneView#setAllocationCountingEnabled(boolean)
+   */
+  public int getAllocationCount() {
+    return allocationCount;
+  }
+}
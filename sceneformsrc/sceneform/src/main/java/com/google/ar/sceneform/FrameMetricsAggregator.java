@@ -0,0 +1,144 @@
+package com.google.ar.sceneform;
+
+import com.google.ar.sceneform.utilities.DurationHistogram;
+
+/**
+ * Accumulates the {@link FrameMetrics} of many frames so that they can be reported periodically,
+ * for example to an analytics backend.
+ *
+ * <p>Frame times are recorded into histograms so that percentiles can be read at any time, and the
+ * counts are summed so that averages can be computed. Call {@link #reset()} after reporting to
+ * start a new period. Recording a frame doesn't allocate.
+ */
+public class FrameMetricsAggregator implements FrameMetricsListener {
+  private final DurationHistogram updateHistogram = new DurationHistogram();
+  private final DurationHistogram renderHistogram = new DurationHistogram();
+  private final DurationHistogram totalHistogram = new DurationHistogram();
+
+  private long frameCount;
+  private long updatedNodeCount;
+  private long renderableInstanceCount;
+  private long lightInstanceCount;
+  private long hitTestCount;
+  private long colliderTestCount;
+  private long reclaimedResourceCount;
+  private long allocationCount;
+  private long allocationCountedFrameCount;
+
+  @Override
+  public void onFrameMetrics(FrameMetrics frameMetrics) {
+    updateHistogram.recordNanoseconds(frameMetrics.getUpdateNanos());
+    renderHistogram.recordNanoseconds(frameMetrics.getRenderNanos());
+    totalHistogram.recordNanoseconds(frameMetrics.getTotalNanos());
+
+    frameCount++;
+    updatedNodeCount += frameMetrics.getUpdatedNodeCount();
+    renderableInstanceCount += frameMetrics.getRenderableInstanceCount();
+    lightInstanceCount += frameMetrics.getLightInstanceCount();
+    hitTestCount += frameMetrics.getHitTestCount();
+    colliderTestCount += frameMetrics.getColliderTestCount();
+    reclaimedResourceCount += frameMetrics.getReclaimedResourceCount();
+
+    int frameAllocationCount = frameMetrics.getAllocationCount();
+    if (frameAllocationCount != FrameMetrics.ALLOCATION_COUNT_UNAVAILABLE) {
+      allocationCount += frameAllocationCount;
+      allocationCountedFrameCount++;
+    }
+  }
+
+  /** Returns the number of frames recorded since the aggregator was created or reset. */
+  public long getFrameCount() {
+    return frameCount;
+  }
+
+  /**
+   * Returns the update time in milliseconds that the given percentage of frames didn't exceed.
+   *
+   * @param percentile the percentage of frames, between 0 and 100
+   */
+  public double getUpdateMillisPercentile(double percentile) {
+    return updateHistogram.getPercentileMilliseconds(percentile);
+  }
+
+  /**
+   * Returns the render time in milliseconds that the given percentage of frames didn't exceed.
+   *
+   * @param percentile the percentage of frames, between 0 and 100
+   */
+  public double getRenderMillisPercentile(double percentile) {
+    return renderHistogram.getPercentileMilliseconds(percentile);
+  }
+
+  /**
+   * Returns the total frame time in milliseconds that the given percentage of frames didn't exceed.
+   *
+   * @param percentile the percentage of frames, between 0 and 100
+   */
+  public double getFrameMillisPercentile(double percentile) {
+    return totalHistogram.getPercentileMilliseconds(percentile);
+  }
+
+  /** Returns the longest total frame time recorded, in milliseconds. */
+  public double getMaxFrameMillis() {
+    return totalHistogram.getMaxMilliseconds();
+  }
+
+  /** Returns the average number of nodes updated per frame. */
+  public double getAverageUpdatedNodeCount() {
+    return average(updatedNodeCount, frameCount);
+  }
+
+  /** Returns the average number of renderable instances submitted per frame. */
+  public double getAverageRenderableInstanceCount() {
+    return average(renderableInstanceCount, frameCount);
+  }
+
+  /** Returns the average number of lights submitted per frame. */
+  public double getAverageLightInstanceCount() {
+    return average(lightInstanceCount, frameCount);
+  }
+
+  /** Returns the total number of raycasts and intersection queries made. */
+  public long getHitTestCount() {
+    return hitTestCount;
+  }
+
+  /** Returns the average number of colliders tested per hit test. */
+  public double getAverageCollidersTestedPerHitTest() {
+    return average(colliderTestCount, hitTestCount);
+  }
+
+  /** Returns the total number of rendering resources released after being garbage collected. */
+  public long getReclaimedResourceCount() {
+    return reclaimedResourceCount;
+  }
+
+  /**
+   * Returns the average number of objects allocated per frame, counting only the frames for which
+   * allocation counting was enabled.
+   */
+  public double getAverageAllocationCount() {
+    return average(allocationCount, allocationCountedFrameCount);
+  }
+
+  /** Removes all of the recorded frames. */
+  public void reset() {
+    updateHistogram.reset();
+    renderHistogram.reset();
+    totalHistogram.reset();
+
+    frameCount = 0;
+    updatedNodeCount = 0;
+    renderableInstanceCount = 0;
+    lightInstanceCount = 0;
+    hitTestCount = 0;
+    colliderTestCount = 0;
+    reclaimedResourceCount = 0;
+    allocationCount = 0;
+    allocationCountedFrameCount = 0;
+  }
+
+  private static double average(long total, long count) {
+    return count == 0 ? 0.0 : (double) total / count;
+  }
+}
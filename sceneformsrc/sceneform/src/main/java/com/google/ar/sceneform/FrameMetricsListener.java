@@ -0,0 +1,20 @@
+package com.google.ar.sceneform;
+
+/**
+ * Interface definition for a callback to be invoked once per frame with the measurements taken by a
+ * {@link SceneView} while updating and rendering it.
+ *
+ * <p>The measurements are only taken while at least one listener is added, so a view without
+ * listeners doesn't pay for them.
+ *
+ * @see SceneView#addFrameMetricsListener(FrameMetricsListener)
+ * @see FrameMetricsAggregator
+ */
+public interface FrameMetricsListener {
+  /**
+   * Called on the UI thread after each frame has been rendered.
+   *
+   * @param frameMetrics the measurements of the frame, only valid for the duration of the call
+   */
+  void onFrameMetrics(FrameMetrics frameMetrics);
+}
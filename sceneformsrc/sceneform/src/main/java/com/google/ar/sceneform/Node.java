@@ -6,6 +6,7 @@ import android.view.ViewConfiguration;
 
 import com.google.ar.sceneform.collision.Collider;
 import com.google.ar.sceneform.collision.CollisionShape;
+import com.google.ar.sceneform.collision.CollisionSystem;
 import com.google.ar.sceneform.collision.Ray;
 import com.google.ar.sceneform.common.TransformProvider;
 import com.google.ar.sceneform.math.Matrix;
@@ -209,6 +210,7 @@ public class Node extends NodeParent implements TransformProvider {
   // Collision fields.
   @Nullable private CollisionShape collisionShape;
   @Nullable private Collider collider;
+  private int collisionLayer = Collider.DEFAULT_LAYER;
 
   // Listeners.
   @Nullable private OnTouchListener onTouchListener;
@@ -546,6 +548,18 @@ public class Node extends NodeParent implements TransformProvider {
     return new Vector3(localPosition);
   }
 
+  /**
+   * Gets the nodes position relative to its parent (local-space) without allocating.
+   *
+   * @see #getLocalPosition()
+   * @param dest the vector that receives the node's local-space position
+   */
+  public final void getLocalPosition(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+
+    dest.set(localPosition);
+  }
+
   /**
    * Gets a copy of the nodes rotation relative to its parent (local-space). If {@link
    * #isTopLevel()} is true, then this is the same as {@link #getWorldRotation()}.
@@ -557,6 +571,18 @@ public class Node extends NodeParent implements TransformProvider {
     return new Quaternion(localRotation);
   }
 
+  /**
+   * Gets the nodes rotation relative to its parent (local-space) without allocating.
+   *
+   * @see #getLocalRotation()
+   * @param dest the quaternion that receives the node's local-space rotation
+   */
+  public final void getLocalRotation(Quaternion dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+
+    dest.set(localRotation);
+  }
+
   /**
    * Gets a copy of the nodes scale relative to its parent (local-space). If {@link #isTopLevel()}
    * is true, then this is the same as {@link #getWorldScale()}.
@@ -578,6 +604,18 @@ public class Node extends NodeParent implements TransformProvider {
     return new Vector3(getWorldPositionInternal());
   }
 
+  /**
+   * Gets the nodes world-space position without allocating.
+   *
+   * @see #getWorldPosition()
+   * @param dest the vector that receives the node's world-space position
+   */
+  public final void getWorldPosition(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+
+    dest.set(getWorldPositionInternal());
+  }
+
   /**
    * Gets a copy of the nodes world-space rotation.
    *
@@ -588,6 +626,18 @@ public class Node extends NodeParent implements TransformProvider {
     return new Quaternion(getWorldRotationInternal());
   }
 
+  /**
+   * Gets the nodes world-space rotation without allocating.
+   *
+   * @see #getWorldRotation()
+   * @param dest the quaternion that receives the node's world-space rotation
+   */
+  public final void getWorldRotation(Quaternion dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+
+    dest.set(getWorldRotationInternal());
+  }
+
   /**
    * Gets a copy of the nodes world-space scale. Some precision will be lost if the node is skewed.
    *
@@ -652,7 +702,7 @@ public class Node extends NodeParent implements TransformProvider {
     if (parentAsNode == null) {
       localPosition.set(position);
     } else {
-      localPosition.set(parentAsNode.worldToLocalPoint(position));
+      parentAsNode.getWorldModelMatrixInverseInternal().transformPoint(position, localPosition);
     }
 
     markTransformChangedRecursively(LOCAL_DIRTY_FLAGS, this);
@@ -675,8 +725,8 @@ public class Node extends NodeParent implements TransformProvider {
     if (parentAsNode == null) {
       localRotation.set(rotation);
     } else {
-      localRotation.set(
-          Quaternion.multiply(parentAsNode.getWorldRotationInternal().inverted(), rotation));
+      parentAsNode.getWorldRotationInternal().inverted(localRotation);
+      Quaternion.multiply(localRotation, rotation, localRotation);
     }
 
     markTransformChangedRecursively(LOCAL_DIRTY_FLAGS, this);
@@ -703,7 +753,8 @@ public class Node extends NodeParent implements TransformProvider {
       // Disallow dispatch transform changed here so we don't send the event multiple times
       // during setWorldScale.
       allowDispatchTransformChangedListeners = false;
-      setLocalScale(Vector3.one());
+      localScale.setOne();
+      setLocalScale(localScale);
       allowDispatchTransformChangedListeners = true;
       Matrix localModelMatrix = getLocalModelMatrixInternal();
 
@@ -742,6 +793,18 @@ public class Node extends NodeParent implements TransformProvider {
     return getWorldModelMatrixInternal().transformPoint(point);
   }
 
+  /**
+   * Converts a point in the local-space of this node to world-space without allocating.
+   *
+   * @param point the point in local-space to convert
+   * @param dest the vector that receives the point in world-space, may be point
+   */
+  public final void localToWorldPoint(Vector3 point, Vector3 dest) {
+    Preconditions.checkNotNull(point, "Parameter \"point\" was null.");
+
+    getWorldModelMatrixInternal().transformPoint(point, dest);
+  }
+
   /**
    * Converts a point in world-space to the local-space of this node.
    *
@@ -754,6 +817,18 @@ public class Node extends NodeParent implements TransformProvider {
     return getWorldModelMatrixInverseInternal().transformPoint(point);
   }
 
+  /**
+   * Converts a point in world-space to the local-space of this node without allocating.
+   *
+   * @param point the point in world-space to convert
+   * @param dest the vector that receives the point in local-space, may be point
+   */
+  public final void worldToLocalPoint(Vector3 point, Vector3 dest) {
+    Preconditions.checkNotNull(point, "Parameter \"point\" was null.");
+
+    getWorldModelMatrixInverseInternal().transformPoint(point, dest);
+  }
+
   /**
    * Converts a direction from the local-space of this node to world-space. Not impacted by the
    * position or scale of the node.
@@ -767,6 +842,18 @@ public class Node extends NodeParent implements TransformProvider {
     return Quaternion.rotateVector(getWorldRotationInternal(), direction);
   }
 
+  /**
+   * Converts a direction from the local-space of this node to world-space without allocating.
+   *
+   * @param direction the direction in local-space to convert
+   * @param dest the vector that receives the direction in world-space, may be direction
+   */
+  public final void localToWorldDirection(Vector3 direction, Vector3 dest) {
+    Preconditions.checkNotNull(direction, "Parameter \"direction\" was null.");
+
+    Quaternion.rotateVector(getWorldRotationInternal(), direction, dest);
+  }
+
   /**
    * Converts a direction from world-space to the local-space of this node. Not impacted by the
    * position or scale of the node.
@@ -780,13 +867,39 @@ public class Node extends NodeParent implements TransformProvider {
     return Quaternion.inverseRotateVector(getWorldRotationInternal(), direction);
   }
 
+  /**
+   * Converts a direction from world-space to the local-space of this node without allocating.
+   *
+   * @param direction the direction in world-space to convert
+   * @param dest the vector that receives the direction in local-space, may be direction
+   */
+  public final void worldToLocalDirection(Vector3 direction, Vector3 dest) {
+    Preconditions.checkNotNull(direction, "Parameter \"direction\" was null.");
+
+    Quaternion.inverseRotateVector(getWorldRotationInternal(), direction, dest);
+  }
+
   /**
    * Gets the world-space forward vector (-z) of this node.
    *
    * @return a new vector that represents the node's forward direction in world-space
    */
   public final Vector3 getForward() {
-    return localToWorldDirection(Vector3.forward());
+    Vector3 result = new Vector3();
+    getForward(result);
+    return result;
+  }
+
+  /**
+   * Gets the world-space forward vector (-z) of this node without allocating.
+   *
+   * @param dest the vector that receives the node's forward direction in world-space
+   */
+  public final void getForward(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+
+    dest.setForward();
+    Quaternion.rotateVector(getWorldRotationInternal(), dest, dest);
   }
 
   /**
@@ -795,7 +908,21 @@ public class Node extends NodeParent implements TransformProvider {
    * @return a new vector that represents the node's back direction in world-space
    */
   public final Vector3 getBack() {
-    return localToWorldDirection(Vector3.back());
+    Vector3 result = new Vector3();
+    getBack(result);
+    return result;
+  }
+
+  /**
+   * Gets the world-space back vector (+z) of this node without allocating.
+   *
+   * @param dest the vector that receives the node's back direction in world-space
+   */
+  public final void getBack(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+
+    dest.setBack();
+    Quaternion.rotateVector(getWorldRotationInternal(), dest, dest);
   }
 
   /**
@@ -804,7 +931,21 @@ public class Node extends NodeParent implements TransformProvider {
    * @return a new vector that represents the node's right direction in world-space
    */
   public final Vector3 getRight() {
-    return localToWorldDirection(Vector3.right());
+    Vector3 result = new Vector3();
+    getRight(result);
+    return result;
+  }
+
+  /**
+   * Gets the world-space right vector (+x) of this node without allocating.
+   *
+   * @param dest the vector that receives the node's right direction in world-space
+   */
+  public final void getRight(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+
+    dest.setRight();
+    Quaternion.rotateVector(getWorldRotationInternal(), dest, dest);
   }
 
   /**
@@ -813,7 +954,21 @@ public class Node extends NodeParent implements TransformProvider {
    * @return a new vector that represents the node's left direction in world-space
    */
   public final Vector3 getLeft() {
-    return localToWorldDirection(Vector3.left());
+    Vector3 result = new Vector3();
+    getLeft(result);
+    return result;
+  }
+
+  /**
+   * Gets the world-space left vector (-x) of this node without allocating.
+   *
+   * @param dest the vector that receives the node's left direction in world-space
+   */
+  public final void getLeft(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+
+    dest.setLeft();
+    Quaternion.rotateVector(getWorldRotationInternal(), dest, dest);
   }
 
   /**
@@ -822,7 +977,21 @@ public class Node extends NodeParent implements TransformProvider {
    * @return a new vector that represents the node's up direction in world-space
    */
   public final Vector3 getUp() {
-    return localToWorldDirection(Vector3.up());
+    Vector3 result = new Vector3();
+    getUp(result);
+    return result;
+  }
+
+  /**
+   * Gets the world-space up vector (+y) of this node without allocating.
+   *
+   * @param dest the vector that receives the node's up direction in world-space
+   */
+  public final void getUp(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+
+    dest.setUp();
+    Quaternion.rotateVector(getWorldRotationInternal(), dest, dest);
   }
 
   /**
@@ -831,7 +1000,21 @@ public class Node extends NodeParent implements TransformProvider {
    * @return a new vector that represents the node's down direction in world-space
    */
   public final Vector3 getDown() {
-    return localToWorldDirection(Vector3.down());
+    Vector3 result = new Vector3();
+    getDown(result);
+    return result;
+  }
+
+  /**
+   * Gets the world-space down vector (-y) of this node without allocating.
+   *
+   * @param dest the vector that receives the node's down direction in world-space
+   */
+  public final void getDown(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+
+    dest.setDown();
+    Quaternion.rotateVector(getWorldRotationInternal(), dest, dest);
   }
 
   /**
@@ -925,6 +1108,39 @@ public class Node extends NodeParent implements TransformProvider {
     return null;
   }
 
+  /**
+   * Sets the collision layer of this node. Hit tests take a bit mask of the layers to test, and
+   * nodes in layers excluded by the mask are skipped without testing their collision shapes.
+   *
+   * @see Scene#hitTest(Ray, int)
+   * @see Scene#hitTestAll(Ray, int)
+   * @see Scene#setTouchLayerMask(int)
+   * @param layer the layer, between 0 and 31. The default layer is 0.
+   */
+  public void setCollisionLayer(int layer) {
+    AndroidPreconditions.checkUiThread();
+
+    if (layer < 0 || layer >= CollisionSystem.LAYER_COUNT) {
+      throw new IllegalArgumentException(
+          "Parameter \"layer\" must be between 0 and " + (CollisionSystem.LAYER_COUNT - 1) + ".");
+    }
+
+    collisionLayer = layer;
+    if (collider != null) {
+      collider.setLayer(layer);
+    }
+  }
+
+  /**
+   * Gets the collision layer of this node.
+   *
+   * @see #setCollisionLayer(int)
+   * @return the layer, between 0 and 31
+   */
+  public int getCollisionLayer() {
+    return collisionLayer;
+  }
+
   /**
    * Sets the {@link Light} to display. To use, first create a {@link Light} using {@link
    * Light.Builder}. Set the parameters you care about and then attach it to the node using this
@@ -1219,6 +1435,11 @@ public class Node extends NodeParent implements TransformProvider {
       renderableId = renderable.getId().get();
     }
 
+    // Collision shapes may be modified in place, make sure the collision system picks it up.
+    if (collider != null) {
+      collider.checkShapeChanged();
+    }
+
     onUpdate(frameTime);
 
     for (LifecycleListener lifecycleListener : lifecycleListeners) {
@@ -1276,6 +1497,14 @@ public class Node extends NodeParent implements TransformProvider {
   final void setSceneRecursively(@Nullable Scene scene) {
     AndroidPreconditions.checkUiThread();
 
+    // The flattened hierarchy of both the old and new scene must be rebuilt.
+    if (this.scene != null) {
+      this.scene.transformSystem.markHierarchyChanged();
+    }
+    if (scene != null) {
+      scene.transformSystem.markHierarchyChanged();
+    }
+
     // First, set the scene of this node and all child nodes.
     setSceneRecursivelyInternal(scene);
 
@@ -1313,6 +1542,21 @@ public class Node extends NodeParent implements TransformProvider {
     return cachedLocalModelMatrix;
   }
 
+  /** Returns true if the world model matrix must be recalculated. */
+  boolean isWorldTransformDirty() {
+    return (dirtyTransformFlags & WORLD_TRANSFORM_DIRTY) == WORLD_TRANSFORM_DIRTY;
+  }
+
+  /**
+   * Sets the cached world model matrix to one calculated by {@link TransformSystem}, which must
+   * equal the parent's world model matrix multiplied by the local model matrix.
+   */
+  void setWorldModelMatrixInternal(float[] data, int offset) {
+    float[] worldData = cachedWorldModelMatrix.data;
+    System.arraycopy(data, offset, worldData, 0, worldData.length);
+    dirtyTransformFlags &= ~WORLD_TRANSFORM_DIRTY;
+  }
+
   Matrix getWorldModelMatrixInverseInternal() {
     if ((dirtyTransformFlags & WORLD_INVERSE_TRANSFORM_DIRTY) == WORLD_INVERSE_TRANSFORM_DIRTY) {
       // Cache the inverse of the world model matrix.
@@ -1446,6 +1690,7 @@ public class Node extends NodeParent implements TransformProvider {
       // Create the collider if it doesn't already exist.
       if (collider == null) {
         collider = new Collider(this, finalCollisionShape);
+        collider.setLayer(collisionLayer);
 
         // Attach the collider to the collision system if the node is already active.
         if (active && scene != null) {
@@ -1496,11 +1741,11 @@ public class Node extends NodeParent implements TransformProvider {
    * Internal Convenience function for accessing cachedWorldPosition that ensures the cached value
    * is updated before it is accessed. Used internally instead of getWorldPosition because
    * getWorldPosition is written to be immutable and therefore requires allocating a new Vector for
-   * each use.
+   * each use. The returned vector must not be modified.
    *
    * @return The cachedWorldPosition.
    */
-  private Vector3 getWorldPositionInternal() {
+  Vector3 getWorldPositionInternal() {
     if ((dirtyTransformFlags & WORLD_POSITION_DIRTY) == WORLD_POSITION_DIRTY) {
       if (parentAsNode != null) {
         getWorldModelMatrixInternal().decomposeTranslation(cachedWorldPosition);
@@ -1517,11 +1762,11 @@ public class Node extends NodeParent implements TransformProvider {
    * Internal Convenience function for accessing cachedWorldRotation that ensures the cached value
    * is updated before it is accessed. Used internally instead of getWorldRotation because
    * getWorldRotation is written to be immutable and therefore requires allocating a new Quaternion
-   * for each use.
+   * for each use. The returned quaternion must not be modified.
    *
    * @return The cachedWorldRotation.
    */
-  private Quaternion getWorldRotationInternal() {
+  Quaternion getWorldRotationInternal() {
     if ((dirtyTransformFlags & WORLD_ROTATION_DIRTY) == WORLD_ROTATION_DIRTY) {
       if (parentAsNode != null) {
         getWorldModelMatrixInternal()
@@ -17,6 +17,7 @@ import com.google.ar.sceneform.utilities.EnvironmentalHdrParameters;
 import com.google.ar.sceneform.utilities.LoadHelper;
 import com.google.ar.sceneform.utilities.Preconditions;
 import java.util.ArrayList;
+import java.util.function.BiConsumer;
 
 /**
  * The Sceneform Scene maintains the scene graph, a hierarchical organization of a scene's content.
@@ -86,6 +87,9 @@ public class Scene extends NodeParent {
   public static final EnvironmentalHdrParameters DEFAULT_HDR_PARAMETERS =
       EnvironmentalHdrParameters.makeDefault();
 
+  /** Layer mask used by hit tests to include nodes in every collision layer. */
+  public static final int ALL_LAYERS = CollisionSystem.ALL_LAYERS;
+
   private final Camera camera;
   @Nullable private final Sun sunlightNode;
   @Nullable private final SceneView view;
@@ -96,9 +100,18 @@ public class Scene extends NodeParent {
   // Systems.
   final CollisionSystem collisionSystem = new CollisionSystem();
   private final TouchEventSystem touchEventSystem = new TouchEventSystem();
+  final TransformSystem transformSystem = new TransformSystem(this);
 
   private final ArrayList<OnUpdateListener> onUpdateListeners = new ArrayList<>();
 
+  // Collision layers that can be touched.
+  private int touchLayerMask = ALL_LAYERS;
+
+  private boolean transformSystemEnabled = false;
+
+  // Number of nodes that were updated by the last call to dispatchUpdate.
+  private int lastUpdatedNodeCount;
+
   @SuppressWarnings("VisibleForTestingUsed")
   @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
   Scene() {
@@ -278,6 +291,21 @@ public class Scene extends NodeParent {
    *     information about where the motion event hit the node in world-space
    */
   public HitTestResult hitTest(MotionEvent motionEvent) {
+    return hitTest(motionEvent, ALL_LAYERS);
+  }
+
+  /**
+   * Tests to see if a motion event is touching any nodes in the given collision layers, based on a
+   * ray hit test whose origin is the screen position of the motion event, and outputs a
+   * HitTestResult containing the node closest to the screen.
+   *
+   * @see Node#setCollisionLayer(int)
+   * @param motionEvent the motion event to use for the test
+   * @param layerMask bit mask of the collision layers to test. Nodes in other layers are skipped.
+   * @return the result includes the first node that was hit by the motion event (may be null), and
+   *     information about where the motion event hit the node in world-space
+   */
+  public HitTestResult hitTest(MotionEvent motionEvent, int layerMask) {
     Preconditions.checkNotNull(motionEvent, "Parameter \"motionEvent\" was null.");
 
     if (camera == null) {
@@ -285,7 +313,7 @@ public class Scene extends NodeParent {
     }
 
     Ray ray = camera.motionEventToRay(motionEvent);
-    return hitTest(ray);
+    return hitTest(ray, layerMask);
   }
 
   /**
@@ -298,10 +326,25 @@ public class Scene extends NodeParent {
    *     information about where the ray hit the node in world-space
    */
   public HitTestResult hitTest(Ray ray) {
+    return hitTest(ray, ALL_LAYERS);
+  }
+
+  /**
+   * Tests to see if a ray is hitting any nodes in the given collision layers and outputs a
+   * HitTestResult containing the node closest to the ray origin that intersects with the ray.
+   *
+   * @see Camera#screenPointToRay(float, float)
+   * @see Node#setCollisionLayer(int)
+   * @param ray the ray to use for the test
+   * @param layerMask bit mask of the collision layers to test. Nodes in other layers are skipped.
+   * @return the result includes the first node that was hit by the ray (may be null), and
+   *     information about where the ray hit the node in world-space
+   */
+  public HitTestResult hitTest(Ray ray, int layerMask) {
     Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
 
     HitTestResult result = new HitTestResult();
-    Collider collider = collisionSystem.raycast(ray, result);
+    Collider collider = collisionSystem.raycast(ray, layerMask, result);
     if (collider != null) {
       result.setNode((Node) collider.getTransformProvider());
     }
@@ -318,13 +361,27 @@ public class Scene extends NodeParent {
    *     no nodes were hit.
    */
   public ArrayList<HitTestResult> hitTestAll(MotionEvent motionEvent) {
+    return hitTestAll(motionEvent, ALL_LAYERS);
+  }
+
+  /**
+   * Tests to see if a motion event is touching any nodes in the given collision layers and returns
+   * a list of HitTestResults containing all of the nodes that were hit, sorted by distance.
+   *
+   * @see Node#setCollisionLayer(int)
+   * @param motionEvent The motion event to use for the test.
+   * @param layerMask Bit mask of the collision layers to test. Nodes in other layers are skipped.
+   * @return Populated with a HitTestResult for each node that was hit sorted by distance. Empty if
+   *     no nodes were hit.
+   */
+  public ArrayList<HitTestResult> hitTestAll(MotionEvent motionEvent, int layerMask) {
     Preconditions.checkNotNull(motionEvent, "Parameter \"motionEvent\" was null.");
 
     if (camera == null) {
       return new ArrayList<>();
     }
     Ray ray = camera.motionEventToRay(motionEvent);
-    return hitTestAll(ray);
+    return hitTestAll(ray, layerMask);
   }
 
   /**
@@ -337,12 +394,28 @@ public class Scene extends NodeParent {
    *     no nodes were hit.
    */
   public ArrayList<HitTestResult> hitTestAll(Ray ray) {
+    return hitTestAll(ray, ALL_LAYERS);
+  }
+
+  /**
+   * Tests to see if a ray is hitting any nodes in the given collision layers and returns a list of
+   * HitTestResults containing all of the nodes that were hit, sorted by distance.
+   *
+   * @see Camera#screenPointToRay(float, float)
+   * @see Node#setCollisionLayer(int)
+   * @param ray The ray to use for the test.
+   * @param layerMask Bit mask of the collision layers to test. Nodes in other layers are skipped.
+   * @return Populated with a HitTestResult for each node that was hit sorted by distance. Empty if
+   *     no nodes were hit.
+   */
+  public ArrayList<HitTestResult> hitTestAll(Ray ray, int layerMask) {
     Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
 
     ArrayList<HitTestResult> results = new ArrayList<>();
 
     collisionSystem.raycastAll(
         ray,
+        layerMask,
         results,
         (result, collider) -> result.setNode((Node) collider.getTransformProvider()),
         () -> new HitTestResult());
@@ -350,6 +423,77 @@ public class Scene extends NodeParent {
     return results;
   }
 
+  /**
+   * Sets the collision layers that touch events are dispatched to. Nodes in other layers can't be
+   * touched and are skipped by the hit test performed for each touch event. Defaults to {@link
+   * #ALL_LAYERS}.
+   *
+   * @see Node#setCollisionLayer(int)
+   * @param layerMask bit mask of the collision layers that can be touched
+   */
+  public void setTouchLayerMask(int layerMask) {
+    touchLayerMask = layerMask;
+  }
+
+  /**
+   * Gets the collision layers that touch events are dispatched to.
+   *
+   * @see #setTouchLayerMask(int)
+   */
+  public int getTouchLayerMask() {
+    return touchLayerMask;
+  }
+
+  /**
+   * Sets whether the world transforms of all nodes are updated together in a single pass at the end
+   * of each frame's update, instead of lazily the first time they are accessed.
+   *
+   * <p>The pass keeps the nodes flattened in depth-first order with their world matrices stored
+   * contiguously, and only recomputes the parts of the hierarchy whose transforms changed. This
+   * avoids walking up the hierarchy for each node and is faster for scenes with many nodes or deep
+   * hierarchies. Transforms are always correct when accessed, whether or not this is enabled.
+   * Disabled by default.
+   *
+   * @param enabled true to update the transforms of all nodes once per frame
+   */
+  public void setTransformSystemEnabled(boolean enabled) {
+    transformSystemEnabled = enabled;
+  }
+
+  /**
+   * Returns true if the world transforms of all nodes are updated in a single pass each frame.
+   *
+   * @see #setTransformSystemEnabled(boolean)
+   */
+  public boolean isTransformSystemEnabled() {
+    return transformSystemEnabled;
+  }
+
+  /**
+   * Sets whether the single transform pass of large scenes is split across the top-level nodes of
+   * the scene and run on a thread pool. Each child of the scene, such as an {@code AnchorNode}, and
+   * its descendants are updated independently of the others. The frame waits for the whole pass to
+   * complete before rendering, and scenes with fewer than about a thousand nodes are always
+   * updated on the calling thread. Has no effect unless {@link #setTransformSystemEnabled(boolean)}
+   * is enabled. Disabled by default.
+   *
+   * <p>Nodes must not be modified from other threads while the pass runs.
+   *
+   * @param enabled true to update large scenes in parallel
+   */
+  public void setParallelTransformsEnabled(boolean enabled) {
+    transformSystem.setParallelEnabled(enabled);
+  }
+
+  /**
+   * Returns true if the transform pass of large scenes runs in parallel.
+   *
+   * @see #setParallelTransformsEnabled(boolean)
+   */
+  public boolean isParallelTransformsEnabled() {
+    return transformSystem.isParallelEnabled();
+  }
+
   /**
    * Tests to see if the given node's collision shape overlaps the collision shape of any other
    * nodes in the scene using {@link Node#getCollisionShape()}. The node used for testing does not
@@ -363,6 +507,24 @@ public class Scene extends NodeParent {
    */
   @Nullable
   public Node overlapTest(Node node) {
+    return overlapTest(node, ALL_LAYERS);
+  }
+
+  /**
+   * Tests to see if the given node's collision shape overlaps the collision shape of any other
+   * nodes in the given collision layers using {@link Node#getCollisionShape()}. The node used for
+   * testing does not need to be active.
+   *
+   * @see #overlapTestAll(Node, int)
+   * @see Node#setCollisionLayer(int)
+   * @param node The node to use for the test.
+   * @param layerMask Bit mask of the collision layers to test. Nodes in other layers are skipped.
+   * @return A node that is overlapping the test node. If no node is overlapping the test node, then
+   *     this is null. If multiple nodes are overlapping the test node, then this could be any of
+   *     them.
+   */
+  @Nullable
+  public Node overlapTest(Node node, int layerMask) {
     Preconditions.checkNotNull(node, "Parameter \"node\" was null.");
 
     Collider collider = node.getCollider();
@@ -370,7 +532,7 @@ public class Scene extends NodeParent {
       return null;
     }
 
-    Collider intersectedCollider = collisionSystem.intersects(collider);
+    Collider intersectedCollider = collisionSystem.intersects(collider, layerMask);
     if (intersectedCollider == null) {
       return null;
     }
@@ -388,6 +550,21 @@ public class Scene extends NodeParent {
    *     test node, then the list is empty.
    */
   public ArrayList<Node> overlapTestAll(Node node) {
+    return overlapTestAll(node, ALL_LAYERS);
+  }
+
+  /**
+   * Tests to see if a node is overlapping any other nodes in the given collision layers using
+   * {@link Node#getCollisionShape()}. The node used for testing does not need to be active.
+   *
+   * @see #overlapTest(Node, int)
+   * @see Node#setCollisionLayer(int)
+   * @param node The node to use for the test.
+   * @param layerMask Bit mask of the collision layers to test. Nodes in other layers are skipped.
+   * @return A list of all nodes that are overlapping the test node. If no node is overlapping the
+   *     test node, then the list is empty.
+   */
+  public ArrayList<Node> overlapTestAll(Node node, int layerMask) {
     Preconditions.checkNotNull(node, "Parameter \"node\" was null.");
 
     ArrayList<Node> results = new ArrayList<>();
@@ -399,12 +576,57 @@ public class Scene extends NodeParent {
 
     collisionSystem.intersectsAll(
         collider,
+        layerMask,
         (Collider intersectedCollider) ->
             results.add((Node) intersectedCollider.getTransformProvider()));
 
     return results;
   }
 
+  /**
+   * Finds every pair of active nodes in the scene whose collision shapes overlap, using {@link
+   * Node#getCollisionShape()}. Each pair is reported once, in no particular order.
+   *
+   * <p>This is much cheaper than calling {@link #overlapTestAll(Node)} for every node, which makes
+   * it suitable for checking proximity between many moving nodes every frame.
+   *
+   * @param processPair called once for each pair of overlapping nodes
+   */
+  @SuppressWarnings("AndroidApiChecker")
+  public void overlapTestAllPairs(BiConsumer<Node, Node> processPair) {
+    overlapTestAllPairs(ALL_LAYERS, processPair);
+  }
+
+  /**
+   * Finds every pair of active nodes in the given collision layers whose collision shapes overlap,
+   * using {@link Node#getCollisionShape()}. Each pair is reported once, in no particular order.
+   *
+   * @see Node#setCollisionLayer(int)
+   * @param layerMask Bit mask of the collision layers to test. Pairs with a node in another layer
+   *     are skipped.
+   * @param processPair called once for each pair of overlapping nodes
+   */
+  @SuppressWarnings("AndroidApiChecker")
+  public void overlapTestAllPairs(int layerMask, BiConsumer<Node, Node> processPair) {
+    Preconditions.checkNotNull(processPair, "Parameter \"processPair\" was null.");
+
+    collisionSystem.findAllOverlappingPairs(
+        layerMask,
+        (colliderA, colliderB) ->
+            processPair.accept(
+                (Node) colliderA.getTransformProvider(), (Node) colliderB.getTransformProvider()));
+  }
+
+  /**
+   * Returns the collision system that performs the scene's hit and overlap tests. Used to read the
+   * per-frame collision statistics.
+   *
+   * @hide
+   */
+  public CollisionSystem getCollisionSystem() {
+    return collisionSystem;
+  }
+
   /** Returns true if this Scene was created by a test. */
   boolean isUnderTesting() {
     return isUnderTesting;
@@ -493,9 +715,7 @@ public class Scene extends NodeParent {
   void onTouchEvent(MotionEvent motionEvent) {
     Preconditions.checkNotNull(motionEvent, "Parameter \"motionEvent\" was null.");
 
-    // TODO: Investigate API for controlling what node's can be hit by the hitTest.
-    // i.e. layers, disabling collision shapes.
-    HitTestResult hitTestResult = hitTest(motionEvent);
+    HitTestResult hitTestResult = hitTest(motionEvent, touchLayerMask);
     touchEventSystem.onTouchEvent(hitTestResult, motionEvent);
   }
 
@@ -504,7 +724,25 @@ public class Scene extends NodeParent {
       onUpdateListener.onUpdate(frameTime);
     }
 
-    callOnHierarchy(node -> node.dispatchUpdate(frameTime));
+    lastUpdatedNodeCount = 0;
+    callOnHierarchy(
+        node -> {
+          node.dispatchUpdate(frameTime);
+          lastUpdatedNodeCount++;
+        });
+
+    if (transformSystemEnabled) {
+      transformSystem.update();
+    }
+
+    // Refit everything that moved this frame in one batch, so that it isn't done lazily by the
+    // first hit test after the update.
+    collisionSystem.flushDirtyColliders();
+  }
+
+  /** Returns the number of nodes that were updated during the last frame. */
+  int getLastUpdatedNodeCount() {
+    return lastUpdatedNodeCount;
   }
 
   @SuppressWarnings({"AndroidApiChecker", "FutureReturnValueIgnored"})
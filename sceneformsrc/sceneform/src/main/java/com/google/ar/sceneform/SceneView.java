@@ -4,6 +4,7 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Debug;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
 import android.util.Log;
@@ -17,14 +18,21 @@ import com.google.ar.core.exceptions.CameraNotAvailableException;
 
 import com.google.ar.sceneform.rendering.Color;
 import com.google.ar.sceneform.rendering.Renderer;
+import com.google.ar.sceneform.rendering.ResourceManager;
+import com.google.ar.sceneform.rendering.ThreadPools;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
-import com.google.ar.sceneform.utilities.MovingAverageMillisecondsTracker;
+import com.google.ar.sceneform.utilities.DirectBufferPool;
 import com.google.ar.sceneform.utilities.Preconditions;
+import com.google.ar.sceneform.utilities.SceneformBufferUtils;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 
 /** A Sceneform SurfaceView that manages rendering and interaction with the scene. */
 public class SceneView extends SurfaceView implements Choreographer.FrameCallback {
   private static final String TAG = SceneView.class.getSimpleName();
+  private static final long DEBUG_METRICS_LOG_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
 
   @Nullable private Renderer renderer = null;
   private final FrameTime frameTime = new FrameTime();
@@ -40,13 +48,13 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
 
 
 
-  // Used to track high-level performance metrics for Sceneform
-  private final MovingAverageMillisecondsTracker frameTotalTracker =
-      new MovingAverageMillisecondsTracker();
-  private final MovingAverageMillisecondsTracker frameUpdateTracker =
-      new MovingAverageMillisecondsTracker();
-  private final MovingAverageMillisecondsTracker frameRenderTracker =
-      new MovingAverageMillisecondsTracker();
+  // Used to track high-level performance metrics for Sceneform. The metrics are only measured
+  // while there are listeners or debugging is enabled.
+  private final ArrayList<FrameMetricsListener> frameMetricsListeners = new ArrayList<>();
+  private final FrameMetrics frameMetrics = new FrameMetrics();
+  private final FrameMetricsAggregator debugFrameMetrics = new FrameMetricsAggregator();
+  private long lastDebugMetricsLogNanos = 0;
+  private boolean allocationCountingEnabled = false;
 
   /**
    * Defines a transform from {@link Choreographer} time to animation time. Used to control the
@@ -216,6 +224,59 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
     return debugEnabled;
   }
 
+  /**
+   * Adds a listener that will be called once per frame with the time spent updating and rendering
+   * the frame and counts of the work done. The listeners will be called in the order in which they
+   * were added.
+   *
+   * <p>The metrics are only measured while at least one listener is added.
+   *
+   * @param frameMetricsListener the frame metrics listener to add
+   */
+  public void addFrameMetricsListener(FrameMetricsListener frameMetricsListener) {
+    Preconditions.checkNotNull(
+        frameMetricsListener, "Parameter \"frameMetricsListener\" was null.");
+    if (!frameMetricsListeners.contains(frameMetricsListener)) {
+      frameMetricsListeners.add(frameMetricsListener);
+    }
+  }
+
+  /**
+   * Removes a listener that was called once per frame with the metrics of the frame.
+   *
+   * @param frameMetricsListener the frame metrics listener to remove
+   */
+  public void removeFrameMetricsListener(FrameMetricsListener frameMetricsListener) {
+    Preconditions.checkNotNull(
+        frameMetricsListener, "Parameter \"frameMetricsListener\" was null.");
+    frameMetricsListeners.remove(frameMetricsListener);
+  }
+
+  /**
+   * Sets whether the number of objects allocated on the UI thread is counted for each frame and
+   * reported by {@link FrameMetrics#getAllocationCount()}. Allocation counting is process wide and
+   * slows down every allocation, so it should only be enabled while profiling. Disabled by
+   * default.
+   */
+  @SuppressWarnings("deprecation") // Allocation counting is deprecated but still supported.
+  public void setAllocationCountingEnabled(boolean enabled) {
+    if (allocationCountingEnabled == enabled) {
+      return;
+    }
+
+    allocationCountingEnabled = enabled;
+    if (enabled) {
+      Debug.startAllocCounting();
+    } else {
+      Debug.stopAllocCounting();
+    }
+  }
+
+  /** Returns true if the number of objects allocated during each frame is counted. */
+  public boolean isAllocationCountingEnabled() {
+    return allocationCountingEnabled;
+  }
+
   /**
    * Returns the renderer used for this view, or null if the renderer is not setup.
    *
@@ -325,31 +386,116 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
    * @hide
    */
   public void doFrameNoRepost(long frameTimeNanos) {
-    // TODO: Display the tracked performance metrics in debug mode.
+    // Finish queued loads within the frame budget before updating the scene.
+    ThreadPools.runMainExecutorFrame(frameTimeNanos);
+
+    boolean debugEnabled = this.debugEnabled;
+    if (!debugEnabled && frameMetricsListeners.isEmpty()) {
+      if (onBeginFrame(frameTimeNanos)) {
+        doUpdate(frameTimeNanos);
+        doRender();
+      }
+      return;
+    }
+
+    doMeasuredFrame(frameTimeNanos);
+
+    // Uses for instead of foreach to avoid unecessary allocations.
+    for (int i = 0; i < frameMetricsListeners.size(); i++) {
+      frameMetricsListeners.get(i).onFrameMetrics(frameMetrics);
+    }
+
     if (debugEnabled) {
-      frameTotalTracker.beginSample();
+      logDebugFrameMetrics();
     }
+  }
+
+  @SuppressWarnings("deprecation") // Allocation counting is deprecated but still supported.
+  private void doMeasuredFrame(long frameTimeNanos) {
+    FrameMetrics metrics = frameMetrics;
+    ResourceManager resourceManager = ResourceManager.getInstance();
+    boolean countAllocations = allocationCountingEnabled;
+    int startAllocationCount = countAllocations ? Debug.getThreadAllocCount() : 0;
+    long startReclaimedResourceCount = resourceManager.getReclaimedResourceCount();
+    long frameStartNanos = System.nanoTime();
+    long updateStartNanos = frameStartNanos;
+    long renderStartNanos = frameStartNanos;
+    long renderEndNanos = frameStartNanos;
 
     if (onBeginFrame(frameTimeNanos)) {
+      updateStartNanos = System.nanoTime();
       doUpdate(frameTimeNanos);
+      renderStartNanos = System.nanoTime();
       doRender();
+      renderEndNanos = System.nanoTime();
     }
 
-    if (debugEnabled) {
-      frameTotalTracker.endSample();
-      if ((System.currentTimeMillis() / 1000) % 60 == 0) {
-        Log.d(TAG, " PERF COUNTER: frameRender: " + frameRenderTracker.getAverage());
-        Log.d(TAG, " PERF COUNTER: frameTotal: " + frameTotalTracker.getAverage());
-        Log.d(TAG, " PERF COUNTER: frameUpdate: " + frameUpdateTracker.getAverage());
-      }
-    }
+    long frameEndNanos = System.nanoTime();
+
+    metrics.frameTimeNanos = frameTimeNanos;
+    metrics.updateNanos = renderStartNanos - updateStartNanos;
+    metrics.renderNanos = renderEndNanos - renderStartNanos;
+    metrics.totalNanos = frameEndNanos - frameStartNanos;
+    metrics.updatedNodeCount = scene.getLastUpdatedNodeCount();
+    metrics.hitTestCount = scene.collisionSystem.getLastFrameQueryCount();
+    metrics.colliderTestCount = scene.collisionSystem.getLastFrameColliderTestCount();
+
+    Renderer renderer = this.renderer;
+    metrics.renderableInstanceCount = renderer != null ? renderer.getRenderableInstanceCount() : 0;
+    metrics.lightInstanceCount = renderer != null ? renderer.getLightInstanceCount() : 0;
+    metrics.reclaimedResourceCount =
+        resourceManager.getReclaimedResourceCount() - startReclaimedResourceCount;
+
+    DirectBufferPool bufferPool = SceneformBufferUtils.getBufferPool();
+    metrics.bufferPoolHitRate = bufferPool.getHitRate();
+    metrics.bufferPoolOutstandingBytes = bufferPool.getOutstandingBytes();
+    metrics.allocationCount =
+        countAllocations
+            ? Debug.getThreadAllocCount() - startAllocationCount
+            : FrameMetrics.ALLOCATION_COUNT_UNAVAILABLE;
   }
 
-  private void doUpdate(long frameTimeNanos) {
-    if (debugEnabled) {
-      frameUpdateTracker.beginSample();
+  private void logDebugFrameMetrics() {
+    FrameMetricsAggregator aggregator = debugFrameMetrics;
+    aggregator.onFrameMetrics(frameMetrics);
+
+    long nowNanos = System.nanoTime();
+    if (lastDebugMetricsLogNanos == 0) {
+      lastDebugMetricsLogNanos = nowNanos;
     }
+    if (nowNanos - lastDebugMetricsLogNanos < DEBUG_METRICS_LOG_INTERVAL_NANOS) {
+      return;
+    }
+
+    Log.d(
+        TAG,
+        String.format(
+            Locale.US,
+            "Frame metrics over %d frames (p50/p90/p99 ms): update %.2f/%.2f/%.2f,"
+                + " render %.2f/%.2f/%.2f, total %.2f/%.2f/%.2f; avg nodes updated %.1f,"
+                + " avg renderables %.1f, avg lights %.1f, colliders per hit test %.1f,"
+                + " resources reclaimed %d",
+            aggregator.getFrameCount(),
+            aggregator.getUpdateMillisPercentile(50),
+            aggregator.getUpdateMillisPercentile(90),
+            aggregator.getUpdateMillisPercentile(99),
+            aggregator.getRenderMillisPercentile(50),
+            aggregator.getRenderMillisPercentile(90),
+            aggregator.getRenderMillisPercentile(99),
+            aggregator.getFrameMillisPercentile(50),
+            aggregator.getFrameMillisPercentile(90),
+            aggregator.getFrameMillisPercentile(99),
+            aggregator.getAverageUpdatedNodeCount(),
+            aggregator.getAverageRenderableInstanceCount(),
+            aggregator.getAverageLightInstanceCount(),
+            aggregator.getAverageCollidersTestedPerHitTest(),
+            aggregator.getReclaimedResourceCount()));
+
+    aggregator.reset();
+    lastDebugMetricsLogNanos = nowNanos;
+  }
 
+  private void doUpdate(long frameTimeNanos) {
     frameTime.update(frameTimeNanos);
 
     // Update the AnimationEngine, this should be done before the hierarchy is updated
@@ -357,10 +503,6 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
     updateAnimation(frameTimeNanos);
 
     scene.dispatchUpdate(frameTime);
-
-    if (debugEnabled) {
-      frameUpdateTracker.endSample();
-    }
   }
 
   
@@ -394,15 +536,7 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
       return;
     }
 
-    if (debugEnabled) {
-      frameRenderTracker.beginSample();
-    }
-
     renderer.render(debugEnabled);
-
-    if (debugEnabled) {
-      frameRenderTracker.endSample();
-    }
   }
 
   
@@ -0,0 +1,160 @@
+package com.google.ar.sceneform;
+
+import com.google.ar.sceneform.math.Matrix;
+import com.google.ar.sceneform.rendering.GeometryBatch;
+import com.google.ar.sceneform.rendering.Material;
+import com.google.ar.sceneform.rendering.RenderableDefinition;
+import com.google.ar.sceneform.utilities.AndroidPreconditions;
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Draws the geometry of many static nodes with a single renderable. A scene with hundreds of
+ * nodes that never move, such as the tiles of a floor, is drawn with one draw call and one
+ * transform per batch instead of one per node.
+ *
+ * <p>Each node is added with the {@link RenderableDefinition} it displays. The geometry of the
+ * definition is transformed by the node and merged with the geometry of the other nodes, and all
+ * of it is drawn with the material of the batch. The nodes must not have a renderable of their
+ * own, and all of the definitions must have the same vertex attributes.
+ *
+ * <p>The nodes are expected to stay still. When a node moves, only its geometry is transformed and
+ * uploaded again, on the next frame. The geometry always stays with the nodes: moving the batch
+ * doesn't move it, but rewrites and uploads the geometry of every node that didn't move along with
+ * the batch, so the batch itself should stay still as well.
+ *
+ * <p>The nodes have no renderable, so they can't be hit on their own. The collision shape of the
+ * batch is a single box around the geometry of all of its nodes, and a hit on any of them returns
+ * the batch node.
+ *
+ * <pre>{@code
+ * StaticBatch batch = new StaticBatch(material);
+ * batch.setParent(scene);
+ * for (Vector3 position : tilePositions) {
+ *   Node tile = new Node();
+ *   tile.setParent(scene);
+ *   tile.setWorldPosition(position);
+ *   batch.addNode(tile, tileDefinition);
+ * }
+ * }</pre>
+ */
+public class StaticBatch extends Node {
+  private final GeometryBatch geometryBatch;
+  private final ArrayList<Node> nodes = new ArrayList<>();
+  private final Node.TransformChangedListener nodeTransformListener = this::onNodeTransformChanged;
+  private final Matrix nodeTransform = new Matrix();
+  private boolean isDirty = false;
+
+  /**
+   * Creates a batch that draws its nodes with a material.
+   *
+   * @param material the material used for the geometry of all of the nodes
+   */
+  public StaticBatch(Material material) {
+    Preconditions.checkNotNull(material, "Parameter \"material\" was null.");
+    geometryBatch = new GeometryBatch(material);
+  }
+
+  /** Returns the material used for the geometry of all of the nodes. */
+  public Material getMaterial() {
+    return geometryBatch.getMaterial();
+  }
+
+  /** Returns the nodes drawn by this batch. */
+  public List<Node> getNodes() {
+    return Collections.unmodifiableList(nodes);
+  }
+
+  /**
+   * Adds a node to the batch, or replaces its geometry if it was already added. The materials of
+   * the definition are ignored.
+   *
+   * @param node the node whose transform is applied to the geometry
+   * @param definition the geometry displayed by the node
+   * @throws IllegalArgumentException if the definition has different vertex attributes than the
+   *     geometry of the other nodes, the node keeps the geometry it was previously added with
+   */
+  public void addNode(Node node, RenderableDefinition definition) {
+    AndroidPreconditions.checkUiThread();
+    Preconditions.checkNotNull(node, "Parameter \"node\" was null.");
+    Preconditions.checkNotNull(definition, "Parameter \"definition\" was null.");
+
+    try {
+      geometryBatch.add(node, definition, getNodeTransform(node));
+    } finally {
+      // The batch may have dropped the previous geometry of the node if adding it failed.
+      isDirty = true;
+      if (!geometryBatch.contains(node)) {
+        forgetNode(node);
+      }
+    }
+
+    if (!nodes.contains(node)) {
+      nodes.add(node);
+      node.addTransformChangedListener(nodeTransformListener);
+    }
+  }
+
+  /** Removes a node from the batch, returns false if it wasn't in the batch. */
+  public boolean removeNode(Node node) {
+    AndroidPreconditions.checkUiThread();
+    Preconditions.checkNotNull(node, "Parameter \"node\" was null.");
+
+    if (!geometryBatch.remove(node)) {
+      return false;
+    }
+    forgetNode(node);
+    isDirty = true;
+    return true;
+  }
+
+  @Override
+  public void onUpdate(FrameTime frameTime) {
+    super.onUpdate(frameTime);
+
+    // The changes of all of the nodes are uploaded at most once per frame.
+    if (isDirty) {
+      isDirty = false;
+      setRenderable(geometryBatch.update());
+    }
+  }
+
+  @Override
+  public void onTransformChange(Node originatingNode) {
+    super.onTransformChange(originatingNode);
+
+    // The geometry is relative to the batch, so it must be written again when the batch moves.
+    // The nodes below the originating node moved along with the batch and keep their geometry.
+    for (int i = 0; i < nodes.size(); i++) {
+      Node node = nodes.get(i);
+      if (node != originatingNode && !node.isDescendantOf(originatingNode)) {
+        geometryBatch.setTransform(node, getNodeTransform(node));
+        isDirty = true;
+      }
+    }
+  }
+
+  private void onNodeTransformChanged(Node node, Node originatingNode) {
+    // When the batch moved along with the node, the geometry relative to the batch is the same.
+    if (originatingNode == this || isDescendantOf(originatingNode)) {
+      return;
+    }
+
+    geometryBatch.setTransform(node, getNodeTransform(node));
+    isDirty = true;
+  }
+
+  private void forgetNode(Node node) {
+    nodes.remove(node);
+    node.removeTransformChangedListener(nodeTransformListener);
+  }
+
+  /** Returns the transform of the node relative to the batch. */
+  private Matrix getNodeTransform(Node node) {
+    Matrix.multiply(
+        getWorldModelMatrixInverseInternal(), node.getWorldModelMatrix(), nodeTransform);
+    return nodeTransform;
+  }
+}
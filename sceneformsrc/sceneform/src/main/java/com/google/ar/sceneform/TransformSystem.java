@@ -0,0 +1,212 @@
+package com.google.ar.sceneform;
+
+import com.google.ar.sceneform.math.MatrixBatch;
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Updates the world transforms of all the nodes in a scene in a single linear pass per frame.
+ *
+ * <p>The nodes are flattened into arrays in depth-first order, so every node comes after its
+ * parent and the descendants of a node form a contiguous range that directly follows it. The world
+ * matrices are stored back to back in one {@code float[]}. A pass walks the arrays once and
+ * recomputes only the ranges below nodes whose world transform is dirty, reading the parent's
+ * world matrix from the same array instead of recursing up the hierarchy. The results are written
+ * to the nodes' cached world matrices, so the public getters of {@link Node} read them without
+ * any further work.
+ *
+ * <p>The flattened order is rebuilt lazily the next time a pass runs after nodes were added to,
+ * removed from or moved within the scene.
+ *
+ * <p>The subtrees below the top-level nodes of the scene don't depend on each other, so for large
+ * scenes the pass can optionally be split across them and run on the common {@link ForkJoinPool}.
+ * The calling thread blocks until every subtree has been updated, so the transforms are complete
+ * when {@link #update()} returns, regardless of how it was run.
+ */
+class TransformSystem {
+  private static final int MATRIX_SIZE = MatrixBatch.MATRIX_SIZE;
+
+  /** Scenes with fewer nodes than this are always updated on the calling thread. */
+  private static final int PARALLEL_NODE_THRESHOLD = 1024;
+
+  /** Parallel tasks stop splitting the top-level subtrees once they cover this many nodes. */
+  private static final int MIN_NODES_PER_TASK = 256;
+
+  private final Scene scene;
+
+  // Nodes in depth-first order.
+  private Node[] nodes = new Node[0];
+  // Index of the parent of each node, or -1 if the node is a child of the scene.
+  private int[] parentIndices = new int[0];
+  // Exclusive end of the range occupied by each node and its descendants.
+  private int[] subtreeEnds = new int[0];
+  // World model matrix of each node, MATRIX_SIZE floats per node.
+  private float[] worldMatrices = new float[0];
+  private int nodeCount;
+  // Indices of the nodes that are children of the scene, in increasing order.
+  private int[] rootIndices = new int[0];
+  private int rootCount;
+  private boolean isHierarchyDirty = true;
+  private boolean parallelEnabled = false;
+
+  TransformSystem(Scene scene) {
+    Preconditions.checkNotNull(scene, "Parameter \"scene\" was null.");
+    this.scene = scene;
+  }
+
+  /** Called when a node is added to, removed from or moved within the scene. */
+  void markHierarchyChanged() {
+    isHierarchyDirty = true;
+  }
+
+  /** Sets whether large scenes are updated in parallel, one task per group of top-level nodes. */
+  void setParallelEnabled(boolean enabled) {
+    parallelEnabled = enabled;
+  }
+
+  boolean isParallelEnabled() {
+    return parallelEnabled;
+  }
+
+  /** Recompute the world transforms of all the nodes whose transform has changed. */
+  void update() {
+    if (isHierarchyDirty) {
+      rebuild();
+    }
+
+    if (parallelEnabled && rootCount > 1 && nodeCount >= PARALLEL_NODE_THRESHOLD) {
+      // Blocks until all of the tasks have completed.
+      ForkJoinPool.commonPool().invoke(new UpdateRootsTask(0, rootCount));
+    } else {
+      updateDirtyRanges(0, nodeCount);
+    }
+  }
+
+  /**
+   * Recompute the dirty ranges within [start, end), which must consist of whole top-level
+   * subtrees.
+   */
+  private void updateDirtyRanges(int start, int end) {
+    int index = start;
+    while (index < end) {
+      if (nodes[index].isWorldTransformDirty()) {
+        // The descendants of a dirty node are dirty as well, update the entire range at once.
+        int rangeEnd = subtreeEnds[index];
+        updateRange(index, rangeEnd);
+        index = rangeEnd;
+      } else {
+        index++;
+      }
+    }
+  }
+
+  /**
+   * Recompute the world transforms of the nodes in the range [start, end), which must be a node
+   * followed by all of its descendants.
+   */
+  private void updateRange(int start, int end) {
+    float[] world = worldMatrices;
+    for (int i = start; i < end; i++) {
+      Node node = nodes[i];
+      float[] local = node.getLocalModelMatrixInternal().data;
+      int parentIndex = parentIndices[i];
+      int offset = i * MATRIX_SIZE;
+
+      if (parentIndex < 0) {
+        System.arraycopy(local, 0, world, offset, MATRIX_SIZE);
+      } else if (i == start) {
+        // The parent of the first node in the range is outside of it and wasn't recomputed by this
+        // pass, so its cached matrix is up to date but might not be in the array yet.
+        float[] parentWorld = nodes[parentIndex].getWorldModelMatrix().data;
+        MatrixBatch.multiply(parentWorld, 0, local, 0, world, offset, 1);
+      } else {
+        MatrixBatch.multiply(world, parentIndex * MATRIX_SIZE, local, 0, world, offset, 1);
+      }
+
+      node.setWorldModelMatrixInternal(world, offset);
+    }
+  }
+
+  private void rebuild() {
+    Arrays.fill(nodes, 0, nodeCount, null);
+    nodeCount = 0;
+
+    List<Node> rootNodes = scene.getChildren();
+    rootCount = rootNodes.size();
+    if (rootIndices.length < rootCount) {
+      rootIndices = new int[rootCount];
+    }
+
+    // Uses for instead of foreach to avoid unecessary allocations.
+    for (int i = 0; i < rootCount; i++) {
+      rootIndices[i] = nodeCount;
+      appendSubtree(rootNodes.get(i), -1);
+    }
+
+    isHierarchyDirty = false;
+  }
+
+  private void appendSubtree(Node node, int parentIndex) {
+    int index = nodeCount++;
+    ensureCapacity(nodeCount);
+    nodes[index] = node;
+    parentIndices[index] = parentIndex;
+
+    List<Node> children = node.getChildren();
+    for (int i = 0; i < children.size(); i++) {
+      appendSubtree(children.get(i), index);
+    }
+
+    subtreeEnds[index] = nodeCount;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= nodes.length) {
+      return;
+    }
+
+    int newCapacity = Math.max(capacity, nodes.length * 2);
+    nodes = Arrays.copyOf(nodes, newCapacity);
+    parentIndices = Arrays.copyOf(parentIndices, newCapacity);
+    subtreeEnds = Arrays.copyOf(subtreeEnds, newCapacity);
+    worldMatrices = Arrays.copyOf(worldMatrices, newCapacity * MATRIX_SIZE);
+  }
+
+  /**
+   * Updates the top-level subtrees in [firstRoot, endRoot), splitting them in two halves with
+   * roughly the same number of nodes until they are small enough.
+   */
+  private final class UpdateRootsTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int firstRoot;
+    private final int endRoot;
+
+    UpdateRootsTask(int firstRoot, int endRoot) {
+      this.firstRoot = firstRoot;
+      this.endRoot = endRoot;
+    }
+
+    @Override
+    protected void compute() {
+      int start = rootIndices[firstRoot];
+      int end = subtreeEnds[rootIndices[endRoot - 1]];
+      if (endRoot - firstRoot == 1 || end - start <= MIN_NODES_PER_TASK) {
+        updateDirtyRanges(start, end);
+        return;
+      }
+
+      // Split at the first root past the middle node, keeping at least one root on each side.
+      int splitRoot = Arrays.binarySearch(rootIndices, firstRoot, endRoot, (start + end) >>> 1);
+      if (splitRoot < 0) {
+        splitRoot = -splitRoot - 1;
+      }
+      splitRoot = Math.max(firstRoot + 1, Math.min(splitRoot, endRoot - 1));
+
+      invokeAll(new UpdateRootsTask(firstRoot, splitRoot), new UpdateRootsTask(splitRoot, endRoot));
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package com.google.ar.sceneform.collision;
+
+import com.google.ar.sceneform.utilities.Preconditions;
+
+/**
+ * Axis aligned bounding box in world-space. Used by the collision system to cheaply reject
+ * colliders before performing exact intersection tests against their collision shapes.
+ *
+ * <p>Stored as primitive floats so that it can be updated every frame without allocating.
+ */
+final class Aabb {
+  float minX;
+  float minY;
+  float minZ;
+  float maxX;
+  float maxY;
+  float maxZ;
+
+  void set(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+    this.minX = minX;
+    this.minY = minY;
+    this.minZ = minZ;
+    this.maxX = maxX;
+    this.maxY = maxY;
+    this.maxZ = maxZ;
+  }
+
+  void set(Aabb other) {
+    Preconditions.checkNotNull(other, "Parameter \"other\" was null.");
+    set(other.minX, other.minY, other.minZ, other.maxX, other.maxY, other.maxZ);
+  }
+
+  /** Sets this box to the smallest box that contains both a and b. a or b may be this box. */
+  void setUnion(Aabb a, Aabb b) {
+    set(
+        Math.min(a.minX, b.minX),
+        Math.min(a.minY, b.minY),
+        Math.min(a.minZ, b.minZ),
+        Math.max(a.maxX, b.maxX),
+        Math.max(a.maxY, b.maxY),
+        Math.max(a.maxZ, b.maxZ));
+  }
+
+  /** Grows the box by the given margin on every side. */
+  void expand(float margin) {
+    minX -= margin;
+    minY -= margin;
+    minZ -= margin;
+    maxX += margin;
+    maxY += margin;
+    maxZ += margin;
+  }
+
+  boolean contains(Aabb other) {
+    return minX <= other.minX
+        && minY <= other.minY
+        && minZ <= other.minZ
+        && other.maxX <= maxX
+        && other.maxY <= maxY
+        && other.maxZ <= maxZ;
+  }
+
+  boolean overlaps(Aabb other) {
+    return minX <= other.maxX
+        && other.minX <= maxX
+        && minY <= other.maxY
+        && other.minY <= maxY
+        && minZ <= other.maxZ
+        && other.minZ <= maxZ;
+  }
+
+  /** Half of the surface area of the box. Used as the insertion cost heuristic. */
+  float perimeter() {
+    float dx = maxX - minX;
+    float dy = maxY - minY;
+    float dz = maxZ - minZ;
+    return dx * dy + dy * dz + dz * dx;
+  }
+
+  /** Returns the perimeter of the union of a and b without modifying either box. */
+  static float unionPerimeter(Aabb a, Aabb b) {
+    float dx = Math.max(a.maxX, b.maxX) - Math.min(a.minX, b.minX);
+    float dy = Math.max(a.maxY, b.maxY) - Math.min(a.minY, b.minY);
+    float dz = Math.max(a.maxZ, b.maxZ) - Math.min(a.minZ, b.minZ);
+    return dx * dy + dy * dz + dz * dx;
+  }
+
+  /**
+   * Slab test of a ray against the box.
+   *
+   * @param originX the x component of the ray's origin
+   * @param originY the y component of the ray's origin
+   * @param originZ the z component of the ray's origin
+   * @param dirX the x component of the ray's normalized direction
+   * @param dirY the y component of the ray's normalized direction
+   * @param dirZ the z component of the ray's normalized direction
+   * @param maxDistance hits farther than this distance along the ray are ignored
+   * @return true if the ray enters the box between the ray's origin and maxDistance
+   */
+  boolean rayIntersects(
+      float originX,
+      float originY,
+      float originZ,
+      float dirX,
+      float dirY,
+      float dirZ,
+      float maxDistance) {
+    float tMin = 0.0f;
+    float tMax = maxDistance;
+
+    if (dirX == 0.0f) {
+      if (originX < minX || originX > maxX) {
+        return false;
+      }
+    } else {
+      float inverse = 1.0f / dirX;
+      float t1 = (minX - originX) * inverse;
+      float t2 = (maxX - originX) * inverse;
+      tMin = Math.max(tMin, Math.min(t1, t2));
+      tMax = Math.min(tMax, Math.max(t1, t2));
+      if (tMin > tMax) {
+        return false;
+      }
+    }
+
+    if (dirY == 0.0f) {
+      if (originY < minY || originY > maxY) {
+        return false;
+      }
+    } else {
+      float inverse = 1.0f / dirY;
+      float t1 = (minY - originY) * inverse;
+      float t2 = (maxY - originY) * inverse;
+      tMin = Math.max(tMin, Math.min(t1, t2));
+      tMax = Math.min(tMax, Math.max(t1, t2));
+      if (tMin > tMax) {
+        return false;
+      }
+    }
+
+    if (dirZ == 0.0f) {
+      if (originZ < minZ || originZ > maxZ) {
+        return false;
+      }
+    } else {
+      float inverse = 1.0f / dirZ;
+      float t1 = (minZ - originZ) * inverse;
+      float t2 = (maxZ - originZ) * inverse;
+      tMin = Math.max(tMin, Math.min(t1, t2));
+      tMax = Math.min(tMax, Math.max(t1, t2));
+      if (tMin > tMax) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "[Min:(" + minX + ", " + minY + ", " + minZ + "), Max:(" + maxX + ", " + maxY + ", "
+        + maxZ + ")]";
+  }
+}
@@ -138,6 +138,24 @@ public class Box extends CollisionShape {
     return rotationMatrix;
   }
 
+  /**
+   * Get the raw center of the box. Do not modify directly. Instead, use setCenter.
+   *
+   * @return a reference to the box's raw center
+   */
+  Vector3 getRawCenter() {
+    return center;
+  }
+
+  /**
+   * Get the raw size of the box. Do not modify directly. Instead, use setSize.
+   *
+   * @return a reference to the box's raw size
+   */
+  Vector3 getRawSize() {
+    return size;
+  }
+
   /** @hide protected method */
   @Override
   protected boolean rayIntersection(Ray ray, RayHit result) {
@@ -301,4 +319,31 @@ public class Box extends CollisionShape {
     modelMatrix.decomposeRotation(worldScale, resultBox.rotationMatrix);
     Matrix.multiply(rotationMatrix, resultBox.rotationMatrix, resultBox.rotationMatrix);
   }
+
+  @Override
+  void computeAabb(Aabb result) {
+    Preconditions.checkNotNull(result, "Parameter \"result\" was null.");
+
+    // Project the oriented extents of the box onto each world axis. The columns of the rotation
+    // matrix are the box's local axes.
+    float[] axes = rotationMatrix.data;
+    float extentX = Math.abs(size.x) * 0.5f;
+    float extentY = Math.abs(size.y) * 0.5f;
+    float extentZ = Math.abs(size.z) * 0.5f;
+
+    float worldExtentX =
+        Math.abs(axes[0]) * extentX + Math.abs(axes[4]) * extentY + Math.abs(axes[8]) * extentZ;
+    float worldExtentY =
+        Math.abs(axes[1]) * extentX + Math.abs(axes[5]) * extentY + Math.abs(axes[9]) * extentZ;
+    float worldExtentZ =
+        Math.abs(axes[2]) * extentX + Math.abs(axes[6]) * extentY + Math.abs(axes[10]) * extentZ;
+
+    result.set(
+        center.x - worldExtentX,
+        center.y - worldExtentY,
+        center.z - worldExtentZ,
+        center.x + worldExtentX,
+        center.y + worldExtentY,
+        center.z + worldExtentZ);
+  }
 }
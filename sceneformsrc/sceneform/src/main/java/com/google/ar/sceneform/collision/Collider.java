@@ -12,15 +12,26 @@ import com.google.ar.sceneform.utilities.Preconditions;
  * @hide
  */
 public class Collider {
+  /** The collision layer that colliders belong to unless specified otherwise. */
+  public static final int DEFAULT_LAYER = 0;
+
   private TransformProvider transformProvider;
   @Nullable private CollisionSystem attachedCollisionSystem;
 
   private CollisionShape localShape;
   @Nullable private CollisionShape cachedWorldShape;
 
+  private int layer = DEFAULT_LAYER;
   private boolean isWorldShapeDirty;
   private int shapeId = ChangeId.EMPTY_ID;
 
+  // State owned by the attached collision system's spatial index.
+  @Nullable DynamicAabbTree.TreeNode treeProxy;
+  int treeProxyLayer;
+  boolean isQueuedForRefit;
+  final Aabb worldAabb = new Aabb();
+  boolean hasWorldAabb;
+
   /** @hide */
   @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
   public Collider(TransformProvider transformProvider, CollisionShape localCollisionShape) {
@@ -37,6 +48,7 @@ public class Collider {
 
     localShape = localCollisionShape;
     cachedWorldShape = null;
+    markWorldShapeDirty();
   }
 
   /** @hide */
@@ -44,6 +56,36 @@ public class Collider {
     return localShape;
   }
 
+  /**
+   * Set the collision layer of this collider. Ray queries can use a layer mask to only test
+   * colliders in specific layers.
+   *
+   * @param layer the layer, between 0 and {@link CollisionSystem#LAYER_COUNT} - 1
+   * @hide
+   */
+  public void setLayer(int layer) {
+    if (layer < 0 || layer >= CollisionSystem.LAYER_COUNT) {
+      throw new IllegalArgumentException(
+          "Layer must be between 0 and " + (CollisionSystem.LAYER_COUNT - 1) + ".");
+    }
+
+    if (this.layer == layer) {
+      return;
+    }
+
+    this.layer = layer;
+
+    // Let the collision system move the collider to the index of the new layer.
+    if (attachedCollisionSystem != null) {
+      attachedCollisionSystem.markColliderDirty(this);
+    }
+  }
+
+  /** @hide */
+  public int getLayer() {
+    return layer;
+  }
+
   public TransformProvider getTransformProvider() {
     return transformProvider;
   }
@@ -71,6 +113,23 @@ public class Collider {
   /** @hide */
   public void markWorldShapeDirty() {
     isWorldShapeDirty = true;
+
+    if (attachedCollisionSystem != null) {
+      attachedCollisionSystem.markColliderDirty(this);
+    }
+  }
+
+  /**
+   * Marks the world shape as dirty if the local shape was modified since the world shape was last
+   * computed. Shapes may be shared between colliders and have no way to notify them directly, so
+   * this is polled once per frame by the owner of the collider.
+   *
+   * @hide
+   */
+  public void checkShapeChanged() {
+    if (localShape.getId().checkChanged(shapeId)) {
+      markWorldShapeDirty();
+    }
   }
 
   private boolean doesCachedWorldShapeNeedUpdate() {
@@ -95,5 +154,6 @@ public class Collider {
 
     ChangeId changeId = localShape.getId();
     shapeId = changeId.get();
+    isWorldShapeDirty = false;
   }
 }
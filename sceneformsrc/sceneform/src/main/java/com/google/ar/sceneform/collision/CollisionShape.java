@@ -42,4 +42,7 @@ public abstract class CollisionShape {
   abstract CollisionShape transform(TransformProvider transformProvider);
 
   abstract void transform(TransformProvider transformProvider, CollisionShape result);
+
+  /** Calculate the axis aligned bounding box that fully contains this shape. */
+  abstract void computeAabb(Aabb result);
 }
@@ -1,6 +1,7 @@
 package com.google.ar.sceneform.collision;
 
 import android.support.annotation.Nullable;
+import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.utilities.Preconditions;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -11,33 +12,306 @@ import java.util.function.Supplier;
 /**
  * Manages all of the colliders within a scene.
  *
+ * <p>By default colliders are indexed in a bounding volume hierarchy so that queries only run exact
+ * intersection tests against colliders whose bounding box is hit. When a collider's world shape is
+ * marked dirty, it is queued instead of being updated immediately. The queue is refit in one batch
+ * at the end of each frame by {@link #flushDirtyColliders()}, or before a query if it happens
+ * earlier.
+ *
+ * <p>Each collider belongs to one of {@link #LAYER_COUNT} collision layers, and ray queries take a
+ * mask of the layers to test. Every layer has its own hierarchy, so layers that are excluded by the
+ * mask are skipped entirely.
+ *
+ * <p>All overlapping pairs of colliders are found with a sweep and prune pass over the colliders'
+ * bounding boxes, see {@link #findAllOverlappingPairs(BiConsumer)}.
+ *
  * @hide
  */
 public class CollisionSystem {
   private static final String TAG = CollisionSystem.class.getSimpleName();
 
-  // TODO: Store things in some spatial partition or another.
+  /** The number of collision layers. Layers are numbered from 0 to LAYER_COUNT - 1. */
+  public static final int LAYER_COUNT = 32;
+
+  /** Layer mask that includes every collision layer. */
+  public static final int ALL_LAYERS = 0xFFFFFFFF;
+
   private final ArrayList<Collider> colliders = new ArrayList<>();
 
+  // Created lazily the first time a collider is added to the layer.
+  private final DynamicAabbTree[] layerTrees = new DynamicAabbTree[LAYER_COUNT];
+  private final SweepAndPrune sweepAndPrune = new SweepAndPrune();
+  private final ArrayList<Collider> dirtyColliders = new ArrayList<>();
+  private final Aabb tempAabb = new Aabb();
+  private final RayHit tempRayHit = new RayHit();
+  private final ClosestRayHitCallback closestRayHitCallback = new ClosestRayHitCallback();
+  private boolean isAabbTreeEnabled = true;
+
+  // Counters for the work done to keep the bounding boxes up to date.
+  private int refitCount;
+  private int reinsertCount;
+  private int lastFrameRefitCount;
+  private int lastFrameReinsertCount;
+
+  // Counters for the queries made since the last frame.
+  private int queryCount;
+  private int colliderTestCount;
+  private int lastFrameQueryCount;
+  private int lastFrameColliderTestCount;
+
   public void addCollider(Collider collider) {
     Preconditions.checkNotNull(collider, "Parameter \"collider\" was null.");
     colliders.add(collider);
+    sweepAndPrune.add(collider);
+    markColliderDirty(collider);
   }
 
   public void removeCollider(Collider collider) {
     Preconditions.checkNotNull(collider, "Parameter \"collider\" was null.");
     colliders.remove(collider);
+    sweepAndPrune.remove(collider);
+    collider.hasWorldAabb = false;
+
+    if (collider.isQueuedForRefit) {
+      dirtyColliders.remove(collider);
+      collider.isQueuedForRefit = false;
+    }
+
+    removeTreeProxy(collider);
+  }
+
+  /**
+   * Enable or disable the bounding volume hierarchies used to accelerate queries. When disabled,
+   * every query tests every collider. Enabled by default.
+   */
+  public void setAabbTreeEnabled(boolean enabled) {
+    if (isAabbTreeEnabled == enabled) {
+      return;
+    }
+
+    isAabbTreeEnabled = enabled;
+
+    if (enabled) {
+      // The refit inserts the queued colliders, the others are inserted here.
+      refitDirtyColliders();
+
+      for (int i = 0; i < colliders.size(); i++) {
+        Collider collider = colliders.get(i);
+        if (collider.hasWorldAabb && collider.treeProxy == null) {
+          insertTreeProxy(collider);
+        }
+      }
+    } else {
+      for (int i = 0; i < colliders.size(); i++) {
+        colliders.get(i).treeProxy = null;
+      }
+      for (int i = 0; i < LAYER_COUNT; i++) {
+        if (layerTrees[i] != null) {
+          layerTrees[i].clear();
+        }
+      }
+    }
+  }
+
+  public boolean isAabbTreeEnabled() {
+    return isAabbTreeEnabled;
+  }
+
+  /**
+   * Refit all colliders that were marked dirty since the last refit in one batch, and record the
+   * refit counters for the frame. Called once per frame by the scene after it has been updated so
+   * that the cost of moving colliders isn't paid by the first hit test of the next frame.
+   *
+   * @see #getLastFrameRefitCount()
+   * @see #getLastFrameReinsertCount()
+   * @see #getLastFrameQueryCount()
+   * @see #getLastFrameColliderTestCount()
+   */
+  public void flushDirtyColliders() {
+    refitDirtyColliders();
+
+    lastFrameRefitCount = refitCount;
+    lastFrameReinsertCount = reinsertCount;
+    refitCount = 0;
+    reinsertCount = 0;
+
+    lastFrameQueryCount = queryCount;
+    lastFrameColliderTestCount = colliderTestCount;
+    queryCount = 0;
+    colliderTestCount = 0;
+  }
+
+  /**
+   * Returns the number of colliders whose world shape and bounding box were recomputed during the
+   * last frame, including colliders refit early because of a query.
+   */
+  public int getLastFrameRefitCount() {
+    return lastFrameRefitCount;
+  }
+
+  /**
+   * Returns the number of colliders that moved outside of their bounding volume during the last
+   * frame and had to be reinserted into the hierarchy.
+   */
+  public int getLastFrameReinsertCount() {
+    return lastFrameReinsertCount;
+  }
+
+  /**
+   * Returns the number of raycasts and intersection queries made between the last two frames. Pair
+   * queries made with {@link #findAllOverlappingPairs(BiConsumer)} aren't included.
+   */
+  public int getLastFrameQueryCount() {
+    return lastFrameQueryCount;
+  }
+
+  /**
+   * Returns the number of colliders whose shape was tested by the queries made between the last
+   * two frames. Divide by {@link #getLastFrameQueryCount()} to get the average per query.
+   */
+  public int getLastFrameColliderTestCount() {
+    return lastFrameColliderTestCount;
+  }
+
+  /** Returns the number of colliders currently waiting to be refit. */
+  public int getDirtyColliderCount() {
+    return dirtyColliders.size();
+  }
+
+  /**
+   * Queue a collider so that its bounding box is refit before the next query. Also used when the
+   * collider moves to a different collision layer.
+   */
+  void markColliderDirty(Collider collider) {
+    if (collider.isQueuedForRefit) {
+      return;
+    }
+
+    collider.isQueuedForRefit = true;
+    dirtyColliders.add(collider);
+  }
+
+  private void refitDirtyColliders() {
+    // Uses for instead of foreach to avoid unecessary allocations.
+    int dirtyCount = dirtyColliders.size();
+    for (int i = 0; i < dirtyCount; i++) {
+      Collider collider = dirtyColliders.get(i);
+      collider.isQueuedForRefit = false;
+
+      CollisionShape collisionShape = collider.getTransformedShape();
+      if (collisionShape == null) {
+        collider.hasWorldAabb = false;
+        removeTreeProxy(collider);
+        continue;
+      }
+
+      collisionShape.computeAabb(collider.worldAabb);
+      collider.hasWorldAabb = true;
+
+      if (!isAabbTreeEnabled) {
+        continue;
+      }
+
+      if (collider.treeProxy != null && collider.treeProxyLayer != collider.getLayer()) {
+        removeTreeProxy(collider);
+      }
+
+      if (collider.treeProxy == null) {
+        insertTreeProxy(collider);
+      } else if (layerTrees[collider.treeProxyLayer].update(
+          collider.treeProxy, collider.worldAabb)) {
+        reinsertCount++;
+      }
+    }
+
+    refitCount += dirtyCount;
+    dirtyColliders.clear();
+  }
+
+  private void insertTreeProxy(Collider collider) {
+    int layer = collider.getLayer();
+    DynamicAabbTree tree = layerTrees[layer];
+    if (tree == null) {
+      tree = new DynamicAabbTree();
+      layerTrees[layer] = tree;
+    }
+
+    collider.treeProxy = tree.insert(collider, collider.worldAabb);
+    collider.treeProxyLayer = layer;
+  }
+
+  private void removeTreeProxy(Collider collider) {
+    if (collider.treeProxy == null) {
+      return;
+    }
+
+    layerTrees[collider.treeProxyLayer].remove(collider.treeProxy);
+    collider.treeProxy = null;
+  }
+
+  private static boolean isLayerInMask(int layer, int layerMask) {
+    return (layerMask & (1 << layer)) != 0;
   }
 
   @Nullable
   public Collider raycast(Ray ray, RayHit resultHit) {
+    return raycast(ray, ALL_LAYERS, resultHit);
+  }
+
+  /**
+   * Find the closest collider hit by the ray.
+   *
+   * @param ray the ray to test
+   * @param layerMask bit mask of the collision layers to test, colliders in other layers are
+   *     ignored
+   * @param resultHit set to the closest hit, or reset if nothing was hit
+   * @return the collider that was hit, or null if nothing was hit
+   */
+  @Nullable
+  public Collider raycast(Ray ray, int layerMask, RayHit resultHit) {
     Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
     Preconditions.checkNotNull(resultHit, "Parameter \"resultHit\" was null.");
 
     resultHit.reset();
+    queryCount++;
+
+    if (isAabbTreeEnabled) {
+      refitDirtyColliders();
+
+      Vector3 origin = ray.getOrigin();
+      Vector3 direction = ray.getDirection();
+      ClosestRayHitCallback callback = closestRayHitCallback;
+      callback.begin(ray, resultHit);
+
+      for (int layer = 0; layer < LAYER_COUNT; layer++) {
+        DynamicAabbTree tree = layerTrees[layer];
+        if (tree == null || !isLayerInMask(layer, layerMask)) {
+          continue;
+        }
+
+        // Hits in previously tested layers also prune this layer.
+        tree.raycast(
+            origin.x,
+            origin.y,
+            origin.z,
+            direction.x,
+            direction.y,
+            direction.z,
+            resultHit.getDistance(),
+            callback);
+      }
+
+      return callback.end();
+    }
+
+    RayHit tempResult = tempRayHit;
     Collider result = null;
-    RayHit tempResult = new RayHit();
     for (Collider collider : colliders) {
+      if (!isLayerInMask(collider.getLayer(), layerMask)) {
+        continue;
+      }
+
+      colliderTestCount++;
       CollisionShape collisionShape = collider.getTransformedShape();
       if (collisionShape == null) {
         continue;
@@ -60,36 +334,84 @@ public class CollisionSystem {
       ArrayList<T> resultBuffer,
       @Nullable BiConsumer<T, Collider> processResult,
       Supplier<T> allocateResult) {
+    return raycastAll(ray, ALL_LAYERS, resultBuffer, processResult, allocateResult);
+  }
+
+  /**
+   * Find all colliders hit by the ray, sorted by distance.
+   *
+   * @param ray the ray to test
+   * @param layerMask bit mask of the collision layers to test, colliders in other layers are
+   *     ignored
+   * @param resultBuffer filled with the hits. Existing entries are reused.
+   * @param processResult optionally called for each hit with the collider that was hit
+   * @param allocateResult used to allocate new entries when the buffer is too small
+   * @return the number of hits
+   */
+  @SuppressWarnings("AndroidApiChecker")
+  public <T extends RayHit> int raycastAll(
+      Ray ray,
+      int layerMask,
+      ArrayList<T> resultBuffer,
+      @Nullable BiConsumer<T, Collider> processResult,
+      Supplier<T> allocateResult) {
     Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
     Preconditions.checkNotNull(resultBuffer, "Parameter \"resultBuffer\" was null.");
     Preconditions.checkNotNull(allocateResult, "Parameter \"allocateResult\" was null.");
 
     RayHit tempResult = new RayHit();
     int hitCount = 0;
+    queryCount++;
 
-    // Check the ray against all the colliders.
-    for (Collider collider : colliders) {
-      CollisionShape collisionShape = collider.getTransformedShape();
-      if (collisionShape == null) {
-        continue;
-      }
+    if (isAabbTreeEnabled) {
+      refitDirtyColliders();
 
-      if (collisionShape.rayIntersection(ray, tempResult)) {
-        hitCount++;
-        T result = null;
-        if (resultBuffer.size() >= hitCount) {
-          result = resultBuffer.get(hitCount - 1);
-        } else {
-          result = allocateResult.get();
-          resultBuffer.add(result);
-        }
+      Vector3 origin = ray.getOrigin();
+      Vector3 direction = ray.getDirection();
+      int[] hitCountHolder = new int[1];
+      DynamicAabbTree.RayCallback callback =
+          (collider, maxDistance) -> {
+            colliderTestCount++;
+            hitCountHolder[0] =
+                processRayHit(
+                    collider,
+                    ray,
+                    tempResult,
+                    hitCountHolder[0],
+                    resultBuffer,
+                    processResult,
+                    allocateResult);
+            return maxDistance;
+          };
 
-        result.reset();
-        result.set(tempResult);
+      for (int layer = 0; layer < LAYER_COUNT; layer++) {
+        DynamicAabbTree tree = layerTrees[layer];
+        if (tree == null || !isLayerInMask(layer, layerMask)) {
+          continue;
+        }
 
-        if (processResult != null) {
-          processResult.accept(result, collider);
+        tree.raycast(
+            origin.x,
+            origin.y,
+            origin.z,
+            direction.x,
+            direction.y,
+            direction.z,
+            Float.MAX_VALUE,
+            callback);
+      }
+      hitCount = hitCountHolder[0];
+    } else {
+      // Check the ray against all the colliders.
+      for (Collider collider : colliders) {
+        if (!isLayerInMask(collider.getLayer(), layerMask)) {
+          continue;
         }
+
+        colliderTestCount++;
+        hitCount =
+            processRayHit(
+                collider, ray, tempResult, hitCount, resultBuffer, processResult, allocateResult);
       }
     }
 
@@ -104,8 +426,56 @@ public class CollisionSystem {
     return hitCount;
   }
 
+  @SuppressWarnings("AndroidApiChecker")
+  private static <T extends RayHit> int processRayHit(
+      Collider collider,
+      Ray ray,
+      RayHit tempResult,
+      int hitCount,
+      ArrayList<T> resultBuffer,
+      @Nullable BiConsumer<T, Collider> processResult,
+      Supplier<T> allocateResult) {
+    CollisionShape collisionShape = collider.getTransformedShape();
+    if (collisionShape == null) {
+      return hitCount;
+    }
+
+    if (collisionShape.rayIntersection(ray, tempResult)) {
+      hitCount++;
+      T result = null;
+      if (resultBuffer.size() >= hitCount) {
+        result = resultBuffer.get(hitCount - 1);
+      } else {
+        result = allocateResult.get();
+        resultBuffer.add(result);
+      }
+
+      result.reset();
+      result.set(tempResult);
+
+      if (processResult != null) {
+        processResult.accept(result, collider);
+      }
+    }
+
+    return hitCount;
+  }
+
   @Nullable
   public Collider intersects(Collider collider) {
+    return intersects(collider, ALL_LAYERS);
+  }
+
+  /**
+   * Find a collider whose shape intersects the shape of the given collider.
+   *
+   * @param collider the collider to test, it is never returned itself
+   * @param layerMask bit mask of the collision layers to test, colliders in other layers are
+   *     ignored
+   * @return any intersecting collider, or null if there is none
+   */
+  @Nullable
+  public Collider intersects(Collider collider, int layerMask) {
     Preconditions.checkNotNull(collider, "Parameter \"collider\" was null.");
 
     CollisionShape collisionShape = collider.getTransformedShape();
@@ -113,17 +483,34 @@ public class CollisionSystem {
       return null;
     }
 
-    for (Collider otherCollider : colliders) {
-      if (otherCollider == collider) {
-        continue;
-      }
+    queryCount++;
 
-      CollisionShape otherCollisionShape = otherCollider.getTransformedShape();
-      if (otherCollisionShape == null) {
-        continue;
+    if (isAabbTreeEnabled) {
+      refitDirtyColliders();
+      collisionShape.computeAabb(tempAabb);
+
+      Collider[] result = new Collider[1];
+      DynamicAabbTree.OverlapCallback callback =
+          otherCollider -> {
+            if (shapesIntersect(collider, collisionShape, otherCollider)) {
+              result[0] = otherCollider;
+              return false;
+            }
+            return true;
+          };
+
+      for (int layer = 0; layer < LAYER_COUNT && result[0] == null; layer++) {
+        if (layerTrees[layer] != null && isLayerInMask(layer, layerMask)) {
+          layerTrees[layer].query(tempAabb, callback);
+        }
       }
 
-      if (collisionShape.shapeIntersection(otherCollisionShape)) {
+      return result[0];
+    }
+
+    for (Collider otherCollider : colliders) {
+      if (isLayerInMask(otherCollider.getLayer(), layerMask)
+          && shapesIntersect(collider, collisionShape, otherCollider)) {
         return otherCollider;
       }
     }
@@ -133,6 +520,19 @@ public class CollisionSystem {
 
   @SuppressWarnings("AndroidApiChecker")
   public void intersectsAll(Collider collider, Consumer<Collider> processResult) {
+    intersectsAll(collider, ALL_LAYERS, processResult);
+  }
+
+  /**
+   * Find every collider whose shape intersects the shape of the given collider.
+   *
+   * @param collider the collider to test, it is never reported itself
+   * @param layerMask bit mask of the collision layers to test, colliders in other layers are
+   *     ignored
+   * @param processResult called for each intersecting collider
+   */
+  @SuppressWarnings("AndroidApiChecker")
+  public void intersectsAll(Collider collider, int layerMask, Consumer<Collider> processResult) {
     Preconditions.checkNotNull(collider, "Parameter \"collider\" was null.");
     Preconditions.checkNotNull(processResult, "Parameter \"processResult\" was null.");
 
@@ -141,19 +541,139 @@ public class CollisionSystem {
       return;
     }
 
-    for (Collider otherCollider : colliders) {
-      if (otherCollider == collider) {
-        continue;
-      }
+    queryCount++;
 
-      CollisionShape otherCollisionShape = otherCollider.getTransformedShape();
-      if (otherCollisionShape == null) {
-        continue;
+    if (isAabbTreeEnabled) {
+      refitDirtyColliders();
+      collisionShape.computeAabb(tempAabb);
+
+      DynamicAabbTree.OverlapCallback callback =
+          otherCollider -> {
+            if (shapesIntersect(collider, collisionShape, otherCollider)) {
+              processResult.accept(otherCollider);
+            }
+            return true;
+          };
+
+      for (int layer = 0; layer < LAYER_COUNT; layer++) {
+        if (layerTrees[layer] != null && isLayerInMask(layer, layerMask)) {
+          layerTrees[layer].query(tempAabb, callback);
+        }
       }
+      return;
+    }
 
-      if (collisionShape.shapeIntersection(otherCollisionShape)) {
+    for (Collider otherCollider : colliders) {
+      if (isLayerInMask(otherCollider.getLayer(), layerMask)
+          && shapesIntersect(collider, collisionShape, otherCollider)) {
         processResult.accept(otherCollider);
       }
     }
   }
+
+  /**
+   * Find every pair of colliders in the collision system whose shapes intersect. Each pair is
+   * reported once, in no particular order.
+   *
+   * <p>Candidate pairs are found with a sweep and prune over the colliders' world-space bounding
+   * boxes, which are kept sorted incrementally as colliders move. This makes it much cheaper than
+   * calling {@link #intersectsAll(Collider, Consumer)} for every collider.
+   *
+   * @param processResult called once for each pair of intersecting colliders
+   */
+  @SuppressWarnings("AndroidApiChecker")
+  public void findAllOverlappingPairs(BiConsumer<Collider, Collider> processResult) {
+    findAllOverlappingPairs(ALL_LAYERS, processResult);
+  }
+
+  /**
+   * Find every pair of colliders in the given collision layers whose shapes intersect. Each pair is
+   * reported once, in no particular order.
+   *
+   * @param layerMask bit mask of the collision layers to test, pairs with a collider in another
+   *     layer are ignored
+   * @param processResult called once for each pair of intersecting colliders
+   */
+  @SuppressWarnings("AndroidApiChecker")
+  public void findAllOverlappingPairs(int layerMask, BiConsumer<Collider, Collider> processResult) {
+    Preconditions.checkNotNull(processResult, "Parameter \"processResult\" was null.");
+
+    refitDirtyColliders();
+
+    sweepAndPrune.findOverlappingPairs(
+        (colliderA, colliderB) -> {
+          if (!isLayerInMask(colliderA.getLayer(), layerMask)
+              || !isLayerInMask(colliderB.getLayer(), layerMask)) {
+            return;
+          }
+
+          CollisionShape shapeA = colliderA.getTransformedShape();
+          CollisionShape shapeB = colliderB.getTransformedShape();
+          if (shapeA == null || shapeB == null) {
+            return;
+          }
+
+          if (shapeA.shapeIntersection(shapeB)) {
+            processResult.accept(colliderA, colliderB);
+          }
+        });
+  }
+
+  private boolean shapesIntersect(
+      Collider collider, CollisionShape collisionShape, Collider otherCollider) {
+    if (otherCollider == collider) {
+      return false;
+    }
+
+    colliderTestCount++;
+    CollisionShape otherCollisionShape = otherCollider.getTransformedShape();
+    if (otherCollisionShape == null) {
+      return false;
+    }
+
+    return collisionShape.shapeIntersection(otherCollisionShape);
+  }
+
+  /**
+   * Keeps the closest collider hit by a ray while the trees are traversed. A single instance is
+   * reused by every {@link #raycast(Ray, int, RayHit)}, so that queries don't allocate.
+   */
+  private final class ClosestRayHitCallback implements DynamicAabbTree.RayCallback {
+    @Nullable private Ray ray;
+    @Nullable private RayHit resultHit;
+    @Nullable private Collider result;
+
+    void begin(Ray ray, RayHit resultHit) {
+      this.ray = ray;
+      this.resultHit = resultHit;
+      result = null;
+    }
+
+    @Nullable
+    Collider end() {
+      Collider result = this.result;
+      ray = null;
+      resultHit = null;
+      this.result = null;
+      return result;
+    }
+
+    @Override
+    public float onLeafHit(Collider collider, float maxDistance) {
+      Ray ray = Preconditions.checkNotNull(this.ray);
+      RayHit resultHit = Preconditions.checkNotNull(this.resultHit);
+
+      colliderTestCount++;
+      CollisionShape collisionShape = collider.getTransformedShape();
+      if (collisionShape != null
+          && collisionShape.rayIntersection(ray, tempRayHit)
+          && tempRayHit.getDistance() < resultHit.getDistance()) {
+        resultHit.set(tempRayHit);
+        result = collider;
+        return tempRayHit.getDistance();
+      }
+
+      return maxDistance;
+    }
+  }
 }
@@ -0,0 +1,423 @@
+package com.google.ar.sceneform.collision;
+
+import android.support.annotation.Nullable;
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.util.ArrayList;
+
+/**
+ * Bounding volume hierarchy of colliders used as the broadphase of the {@link CollisionSystem}.
+ *
+ * <p>Each collider is stored in a leaf with a "fat" bounding box that is slightly larger than the
+ * collider's world-space shape. Small movements of a collider that stay within its fat box do not
+ * modify the tree. The tree is kept height balanced using rotations so that queries are O(log n).
+ *
+ * <p>Queries reuse an internal traversal stack, so callbacks must not start another query.
+ */
+final class DynamicAabbTree {
+  /** How far (in meters) the bounding box of a leaf is grown beyond the collider's shape. */
+  private static final float FAT_AABB_MARGIN = 0.05f;
+
+  /** Callback invoked for each leaf whose bounding box is hit by a ray. */
+  interface RayCallback {
+    /**
+     * @param collider the collider stored in the leaf
+     * @param maxDistance the current max distance of the query
+     * @return the new max distance of the query. Return maxDistance to leave it unchanged.
+     */
+    float onLeafHit(Collider collider, float maxDistance);
+  }
+
+  /** Callback invoked for each leaf whose bounding box overlaps the query box. */
+  interface OverlapCallback {
+    /**
+     * @param collider the collider stored in the leaf
+     * @return true to continue the query, false to stop it
+     */
+    boolean onLeafOverlap(Collider collider);
+  }
+
+  static final class TreeNode {
+    final Aabb aabb = new Aabb();
+    @Nullable TreeNode parent;
+    @Nullable TreeNode child1;
+    @Nullable TreeNode child2;
+    @Nullable Collider collider;
+    // Leaves have a height of 0.
+    int height;
+
+    boolean isLeaf() {
+      return child1 == null;
+    }
+  }
+
+  @Nullable private TreeNode root;
+  private int leafCount;
+
+  // Reused between queries and node removals to avoid allocations.
+  private final ArrayList<TreeNode> freeNodes = new ArrayList<>();
+  private TreeNode[] stack = new TreeNode[64];
+
+  /**
+   * Insert a collider into the tree.
+   *
+   * @param collider the collider to insert
+   * @param aabb the world-space bounding box of the collider's shape
+   * @return the leaf that represents the collider. Used to update or remove the collider.
+   */
+  TreeNode insert(Collider collider, Aabb aabb) {
+    Preconditions.checkNotNull(collider, "Parameter \"collider\" was null.");
+    Preconditions.checkNotNull(aabb, "Parameter \"aabb\" was null.");
+
+    TreeNode leaf = allocateNode();
+    leaf.collider = collider;
+    leaf.aabb.set(aabb);
+    leaf.aabb.expand(FAT_AABB_MARGIN);
+    insertLeaf(leaf);
+    leafCount++;
+    return leaf;
+  }
+
+  void remove(TreeNode leaf) {
+    Preconditions.checkNotNull(leaf, "Parameter \"leaf\" was null.");
+
+    removeLeaf(leaf);
+    freeNode(leaf);
+    leafCount--;
+  }
+
+  /**
+   * Update the bounding box of a leaf. The tree is only restructured if the new box is no longer
+   * contained by the leaf's fat box.
+   *
+   * @return true if the leaf was moved within the tree
+   */
+  boolean update(TreeNode leaf, Aabb aabb) {
+    Preconditions.checkNotNull(leaf, "Parameter \"leaf\" was null.");
+    Preconditions.checkNotNull(aabb, "Parameter \"aabb\" was null.");
+
+    if (leaf.aabb.contains(aabb)) {
+      return false;
+    }
+
+    removeLeaf(leaf);
+    leaf.aabb.set(aabb);
+    leaf.aabb.expand(FAT_AABB_MARGIN);
+    insertLeaf(leaf);
+    return true;
+  }
+
+  void clear() {
+    root = null;
+    leafCount = 0;
+  }
+
+  int getLeafCount() {
+    return leafCount;
+  }
+
+  int getHeight() {
+    return root == null ? 0 : root.height;
+  }
+
+  /**
+   * Find all leaves whose bounding box is hit by the ray before maxDistance. The callback may
+   * shrink maxDistance to prune the rest of the query, which is used to find the closest hit.
+   */
+  void raycast(
+      float originX,
+      float originY,
+      float originZ,
+      float dirX,
+      float dirY,
+      float dirZ,
+      float maxDistance,
+      RayCallback callback) {
+    Preconditions.checkNotNull(callback, "Parameter \"callback\" was null.");
+
+    if (root == null) {
+      return;
+    }
+
+    int stackSize = 0;
+    stack[stackSize++] = root;
+
+    while (stackSize > 0) {
+      TreeNode node = stack[--stackSize];
+      stack[stackSize] = null;
+
+      if (!node.aabb.rayIntersects(originX, originY, originZ, dirX, dirY, dirZ, maxDistance)) {
+        continue;
+      }
+
+      if (node.isLeaf()) {
+        maxDistance = callback.onLeafHit(Preconditions.checkNotNull(node.collider), maxDistance);
+      } else {
+        ensureStackCapacity(stackSize + 2);
+        stack[stackSize++] = node.child1;
+        stack[stackSize++] = node.child2;
+      }
+    }
+  }
+
+  /** Find all leaves whose bounding box overlaps the given box. */
+  void query(Aabb aabb, OverlapCallback callback) {
+    Preconditions.checkNotNull(aabb, "Parameter \"aabb\" was null.");
+    Preconditions.checkNotNull(callback, "Parameter \"callback\" was null.");
+
+    if (root == null) {
+      return;
+    }
+
+    int stackSize = 0;
+    stack[stackSize++] = root;
+
+    while (stackSize > 0) {
+      TreeNode node = stack[--stackSize];
+      stack[stackSize] = null;
+
+      if (!node.aabb.overlaps(aabb)) {
+        continue;
+      }
+
+      if (node.isLeaf()) {
+        if (!callback.onLeafOverlap(Preconditions.checkNotNull(node.collider))) {
+          for (int i = 0; i < stackSize; i++) {
+            stack[i] = null;
+          }
+          return;
+        }
+      } else {
+        ensureStackCapacity(stackSize + 2);
+        stack[stackSize++] = node.child1;
+        stack[stackSize++] = node.child2;
+      }
+    }
+  }
+
+  private void ensureStackCapacity(int capacity) {
+    if (capacity > stack.length) {
+      TreeNode[] newStack = new TreeNode[stack.length * 2];
+      System.arraycopy(stack, 0, newStack, 0, stack.length);
+      stack = newStack;
+    }
+  }
+
+  private TreeNode allocateNode() {
+    if (freeNodes.isEmpty()) {
+      return new TreeNode();
+    }
+
+    return freeNodes.remove(freeNodes.size() - 1);
+  }
+
+  private void freeNode(TreeNode node) {
+    node.parent = null;
+    node.child1 = null;
+    node.child2 = null;
+    node.collider = null;
+    node.height = 0;
+    freeNodes.add(node);
+  }
+
+  private void insertLeaf(TreeNode leaf) {
+    if (root == null) {
+      root = leaf;
+      leaf.parent = null;
+      return;
+    }
+
+    // Find the best sibling for the new leaf using the surface area heuristic.
+    Aabb leafAabb = leaf.aabb;
+    TreeNode index = root;
+    while (!index.isLeaf()) {
+      TreeNode child1 = Preconditions.checkNotNull(index.child1);
+      TreeNode child2 = Preconditions.checkNotNull(index.child2);
+
+      float area = index.aabb.perimeter();
+      float combinedArea = Aabb.unionPerimeter(index.aabb, leafAabb);
+
+      // Cost of creating a new parent for this node and the new leaf.
+      float cost = 2.0f * combinedArea;
+
+      // Minimum cost of pushing the leaf further down the tree.
+      float inheritanceCost = 2.0f * (combinedArea - area);
+
+      float cost1 = descendCost(child1, leafAabb) + inheritanceCost;
+      float cost2 = descendCost(child2, leafAabb) + inheritanceCost;
+
+      if (cost < cost1 && cost < cost2) {
+        break;
+      }
+
+      index = cost1 < cost2 ? child1 : child2;
+    }
+
+    TreeNode sibling = index;
+
+    // Create a new parent for the sibling and the new leaf.
+    TreeNode oldParent = sibling.parent;
+    TreeNode newParent = allocateNode();
+    newParent.parent = oldParent;
+    newParent.aabb.setUnion(leafAabb, sibling.aabb);
+    newParent.height = sibling.height + 1;
+
+    if (oldParent != null) {
+      if (oldParent.child1 == sibling) {
+        oldParent.child1 = newParent;
+      } else {
+        oldParent.child2 = newParent;
+      }
+    } else {
+      root = newParent;
+    }
+
+    newParent.child1 = sibling;
+    newParent.child2 = leaf;
+    sibling.parent = newParent;
+    leaf.parent = newParent;
+
+    refitAncestors(leaf.parent);
+  }
+
+  private static float descendCost(TreeNode child, Aabb leafAabb) {
+    if (child.isLeaf()) {
+      return Aabb.unionPerimeter(child.aabb, leafAabb);
+    }
+
+    return Aabb.unionPerimeter(child.aabb, leafAabb) - child.aabb.perimeter();
+  }
+
+  private void removeLeaf(TreeNode leaf) {
+    if (leaf == root) {
+      root = null;
+      return;
+    }
+
+    TreeNode parent = Preconditions.checkNotNull(leaf.parent);
+    TreeNode grandParent = parent.parent;
+    TreeNode sibling =
+        Preconditions.checkNotNull(parent.child1 == leaf ? parent.child2 : parent.child1);
+
+    if (grandParent != null) {
+      // Destroy the parent and connect the sibling to the grand parent.
+      if (grandParent.child1 == parent) {
+        grandParent.child1 = sibling;
+      } else {
+        grandParent.child2 = sibling;
+      }
+      sibling.parent = grandParent;
+      freeNode(parent);
+
+      refitAncestors(grandParent);
+    } else {
+      root = sibling;
+      sibling.parent = null;
+      freeNode(parent);
+    }
+
+    leaf.parent = null;
+  }
+
+  /** Walk back up the tree fixing heights and bounding boxes, rebalancing along the way. */
+  private void refitAncestors(@Nullable TreeNode node) {
+    while (node != null) {
+      node = balance(node);
+
+      TreeNode child1 = Preconditions.checkNotNull(node.child1);
+      TreeNode child2 = Preconditions.checkNotNull(node.child2);
+      node.height = 1 + Math.max(child1.height, child2.height);
+      node.aabb.setUnion(child1.aabb, child2.aabb);
+
+      node = node.parent;
+    }
+  }
+
+  /**
+   * Perform a left or right rotation if node a is imbalanced.
+   *
+   * @return the new root of the subtree
+   */
+  private TreeNode balance(TreeNode a) {
+    if (a.isLeaf() || a.height < 2) {
+      return a;
+    }
+
+    TreeNode b = Preconditions.checkNotNull(a.child1);
+    TreeNode c = Preconditions.checkNotNull(a.child2);
+    int balance = c.height - b.height;
+
+    // Rotate c up.
+    if (balance > 1) {
+      TreeNode f = Preconditions.checkNotNull(c.child1);
+      TreeNode g = Preconditions.checkNotNull(c.child2);
+
+      c.child1 = a;
+      c.parent = a.parent;
+      a.parent = c;
+      replaceChild(c.parent, a, c);
+
+      if (f.height > g.height) {
+        c.child2 = f;
+        a.child2 = g;
+        g.parent = a;
+        a.aabb.setUnion(b.aabb, g.aabb);
+        c.aabb.setUnion(a.aabb, f.aabb);
+        a.height = 1 + Math.max(b.height, g.height);
+        c.height = 1 + Math.max(a.height, f.height);
+      } else {
+        c.child2 = g;
+        a.child2 = f;
+        f.parent = a;
+        a.aabb.setUnion(b.aabb, f.aabb);
+        c.aabb.setUnion(a.aabb, g.aabb);
+        a.height = 1 + Math.max(b.height, f.height);
+        c.height = 1 + Math.max(a.height, g.height);
+      }
+
+      return c;
+    }
+
+    // Rotate b up.
+    if (balance < -1) {
+      TreeNode d = Preconditions.checkNotNull(b.child1);
+      TreeNode e = Preconditions.checkNotNull(b.child2);
+
+      b.child1 = a;
+      b.parent = a.parent;
+      a.parent = b;
+      replaceChild(b.parent, a, b);
+
+      if (d.height > e.height) {
+        b.child2 = d;
+        a.child1 = e;
+        e.parent = a;
+        a.aabb.setUnion(c.aabb, e.aabb);
+        b.aabb.setUnion(a.aabb, d.aabb);
+        a.height = 1 + Math.max(c.height, e.height);
+        b.height = 1 + Math.max(a.height, d.height);
+      } else {
+        b.child2 = e;
+        a.child1 = d;
+        d.parent = a;
+        a.aabb.setUnion(c.aabb, d.aabb);
+        b.aabb.setUnion(a.aabb, e.aabb);
+        a.height = 1 + Math.max(c.height, d.height);
+        b.height = 1 + Math.max(a.height, e.height);
+      }
+
+      return b;
+    }
+
+    return a;
+  }
+
+  private void replaceChild(@Nullable TreeNode parent, TreeNode oldChild, TreeNode newChild) {
+    if (parent == null) {
+      root = newChild;
+    } else if (parent.child1 == oldChild) {
+      parent.child1 = newChild;
+    } else {
+      parent.child2 = newChild;
+    }
+  }
+}
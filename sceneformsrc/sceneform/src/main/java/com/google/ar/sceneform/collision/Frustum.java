@@ -0,0 +1,77 @@
+package com.google.ar.sceneform.collision;
+
+import com.google.ar.sceneform.math.Matrix;
+import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.utilities.Preconditions;
+
+/**
+ * View frustum of a camera, made of six planes extracted from its view projection matrix. Used to
+ * cull objects that are outside of the view of the camera.
+ *
+ * <p>Stored as primitive floats so that it can be updated every frame without allocating.
+ *
+ * @hide
+ */
+public class Frustum {
+  private static final int PLANE_COUNT = 6;
+  private static final int PLANE_SIZE = 4;
+
+  // Each plane is stored as (a, b, c, d), points inside the frustum satisfy ax + by + cz + d >= 0.
+  // The normals (a, b, c) are normalized so that the planes give the distance to a point.
+  private final float[] planes = new float[PLANE_COUNT * PLANE_SIZE];
+
+  /**
+   * Extracts the planes from the view projection matrix, which is the projection matrix multiplied
+   * by the view matrix. Objects tested against the frustum must then be in world space.
+   */
+  public void setViewProjection(Matrix viewProjection) {
+    Preconditions.checkNotNull(viewProjection, "Parameter \"viewProjection\" was null.");
+
+    // A point is inside the clip volume when -w <= x, y, z <= w. Each plane is the sum or the
+    // difference of the last row of the matrix and one of the other rows.
+    float[] data = viewProjection.data;
+    int plane = 0;
+    for (int row = 0; row < 3; row++) {
+      setPlane(plane++, data, row, 1.0f);
+      setPlane(plane++, data, row, -1.0f);
+    }
+  }
+
+  /** Returns false if the sphere is entirely outside of the frustum. */
+  public boolean intersectsSphere(Vector3 center, float radius) {
+    Preconditions.checkNotNull(center, "Parameter \"center\" was null.");
+
+    for (int i = 0; i < planes.length; i += PLANE_SIZE) {
+      float distance =
+          planes[i] * center.x
+              + planes[i + 1] * center.y
+              + planes[i + 2] * center.z
+              + planes[i + 3];
+      if (distance < -radius) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void setPlane(int plane, float[] data, int row, float sign) {
+    // The matrix is stored in column major order.
+    final int lastRow = 3;
+    int offset = plane * PLANE_SIZE;
+    for (int column = 0; column < PLANE_SIZE; column++) {
+      planes[offset + column] = data[column * 4 + lastRow] + sign * data[column * 4 + row];
+    }
+
+    float length =
+        (float)
+            Math.sqrt(
+                planes[offset] * planes[offset]
+                    + planes[offset + 1] * planes[offset + 1]
+                    + planes[offset + 2] * planes[offset + 2]);
+    if (length > 0.0f) {
+      for (int column = 0; column < PLANE_SIZE; column++) {
+        planes[offset + column] /= length;
+      }
+    }
+  }
+}
@@ -1,208 +1,244 @@
 package com.google.ar.sceneform.collision;
 
-import static com.google.ar.sceneform.math.Vector3.add;
-import static com.google.ar.sceneform.math.Vector3.subtract;
-
 import com.google.ar.sceneform.math.MathHelper;
-import com.google.ar.sceneform.math.Matrix;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.utilities.Preconditions;
-import java.util.ArrayList;
-import java.util.List;
 
-/** Implementation of common intersection tests used for collision detection. */
+/**
+ * Implementation of common intersection tests used for collision detection.
+ *
+ * <p>These tests run for every candidate pair of an overlap query, so they work directly on the raw
+ * floats of the shapes and never allocate.
+ */
 class Intersections {
-  private static final int NUM_VERTICES_PER_BOX = 8;
-  private static final int NUM_TEST_AXES = 15;
+  /**
+   * Added to the absolute values of the rotation terms of the box-box test to counteract
+   * arithmetic errors when two edges are parallel and their cross product is (near) zero.
+   */
+  private static final float PARALLEL_EPSILON = 1.0e-6f;
 
   /** Determine if two spheres intersect with each other. */
   static boolean sphereSphereIntersection(Sphere sphere1, Sphere sphere2) {
     Preconditions.checkNotNull(sphere1, "Parameter \"sphere1\" was null.");
     Preconditions.checkNotNull(sphere2, "Parameter \"sphere2\" was null.");
 
+    Vector3 center1 = sphere1.getRawCenter();
+    Vector3 center2 = sphere2.getRawCenter();
     float combinedRadius = sphere1.getRadius() + sphere2.getRadius();
     float combinedRadiusSquared = combinedRadius * combinedRadius;
-    Vector3 difference = Vector3.subtract(sphere2.getCenter(), sphere1.getCenter());
-    float differenceLengthSquared = Vector3.dot(difference, difference);
+    float differenceX = center2.x - center1.x;
+    float differenceY = center2.y - center1.y;
+    float differenceZ = center2.z - center1.z;
+    float differenceLengthSquared =
+        differenceX * differenceX + differenceY * differenceY + differenceZ * differenceZ;
 
     return differenceLengthSquared - combinedRadiusSquared <= 0.0f
         && differenceLengthSquared != 0.0f;
   }
 
-  /** Determine if two boxes intersect with each other. */
+  /**
+   * Determine if two boxes intersect with each other using the separating axis theorem. The boxes
+   * are tested against the 15 potential separating axes: the 3 face normals of each box and the 9
+   * cross products of their edges.
+   */
   static boolean boxBoxIntersection(Box box1, Box box2) {
     Preconditions.checkNotNull(box1, "Parameter \"box1\" was null.");
     Preconditions.checkNotNull(box2, "Parameter \"box2\" was null.");
 
-    // Get the vertices of the boxes.
-    List<Vector3> box1Vertices = getVerticesFromBox(box1);
-    List<Vector3> box2Vertices = getVerticesFromBox(box2);
-
-    // Determine the test axes
-    Matrix box1Rotation = box1.getRawRotationMatrix();
-    Matrix box2Rotation = box2.getRawRotationMatrix();
-    ArrayList<Vector3> testAxes = new ArrayList<>(NUM_TEST_AXES);
-    testAxes.add(extractXAxisFromRotationMatrix(box1Rotation));
-    testAxes.add(extractYAxisFromRotationMatrix(box1Rotation));
-    testAxes.add(extractZAxisFromRotationMatrix(box1Rotation));
-    testAxes.add(extractXAxisFromRotationMatrix(box2Rotation));
-    testAxes.add(extractYAxisFromRotationMatrix(box2Rotation));
-    testAxes.add(extractZAxisFromRotationMatrix(box2Rotation));
-
-    for (int i = 0; i < 3; i++) {
-      testAxes.add(Vector3.cross(testAxes.get(i), testAxes.get(0)));
-      testAxes.add(Vector3.cross(testAxes.get(i), testAxes.get(1)));
-      testAxes.add(Vector3.cross(testAxes.get(i), testAxes.get(2)));
-    }
-
-    // Attempt to find a separating axis.
-    for (int i = 0; i < testAxes.size(); i++) {
-      if (!testSeparatingAxis(box1Vertices, box2Vertices, testAxes.get(i))) {
-        return false;
-      }
+    Vector3 center1 = box1.getRawCenter();
+    Vector3 center2 = box2.getRawCenter();
+    Vector3 size1 = box1.getRawSize();
+    Vector3 size2 = box2.getRawSize();
+
+    float a0 = Math.abs(size1.x) * 0.5f;
+    float a1 = Math.abs(size1.y) * 0.5f;
+    float a2 = Math.abs(size1.z) * 0.5f;
+    float b0 = Math.abs(size2.x) * 0.5f;
+    float b1 = Math.abs(size2.y) * 0.5f;
+    float b2 = Math.abs(size2.z) * 0.5f;
+
+    // Translation between the centers of the boxes in world-space.
+    float tx = center2.x - center1.x;
+    float ty = center2.y - center1.y;
+    float tz = center2.z - center1.z;
+
+    // Early out if the bounding spheres of the boxes don't intersect.
+    float radius1 = (float) Math.sqrt(a0 * a0 + a1 * a1 + a2 * a2);
+    float radius2 = (float) Math.sqrt(b0 * b0 + b1 * b1 + b2 * b2);
+    float combinedRadius = radius1 + radius2;
+    if (tx * tx + ty * ty + tz * tz > combinedRadius * combinedRadius) {
+      return false;
     }
 
-    return true;
-  }
+    // The columns of the rotation matrices are the local axes of the boxes.
+    float[] m1 = box1.getRawRotationMatrix().data;
+    float[] m2 = box2.getRawRotationMatrix().data;
+
+    // Rotation matrix expressing box2 in box1's coordinate frame, rij = dot(axis1_i, axis2_j).
+    float r00 = m1[0] * m2[0] + m1[1] * m2[1] + m1[2] * m2[2];
+    float r01 = m1[0] * m2[4] + m1[1] * m2[5] + m1[2] * m2[6];
+    float r02 = m1[0] * m2[8] + m1[1] * m2[9] + m1[2] * m2[10];
+    float r10 = m1[4] * m2[0] + m1[5] * m2[1] + m1[6] * m2[2];
+    float r11 = m1[4] * m2[4] + m1[5] * m2[5] + m1[6] * m2[6];
+    float r12 = m1[4] * m2[8] + m1[5] * m2[9] + m1[6] * m2[10];
+    float r20 = m1[8] * m2[0] + m1[9] * m2[1] + m1[10] * m2[2];
+    float r21 = m1[8] * m2[4] + m1[9] * m2[5] + m1[10] * m2[6];
+    float r22 = m1[8] * m2[8] + m1[9] * m2[9] + m1[10] * m2[10];
+
+    float absR00 = Math.abs(r00) + PARALLEL_EPSILON;
+    float absR01 = Math.abs(r01) + PARALLEL_EPSILON;
+    float absR02 = Math.abs(r02) + PARALLEL_EPSILON;
+    float absR10 = Math.abs(r10) + PARALLEL_EPSILON;
+    float absR11 = Math.abs(r11) + PARALLEL_EPSILON;
+    float absR12 = Math.abs(r12) + PARALLEL_EPSILON;
+    float absR20 = Math.abs(r20) + PARALLEL_EPSILON;
+    float absR21 = Math.abs(r21) + PARALLEL_EPSILON;
+    float absR22 = Math.abs(r22) + PARALLEL_EPSILON;
+
+    // Translation expressed in box1's coordinate frame.
+    float t0 = tx * m1[0] + ty * m1[1] + tz * m1[2];
+    float t1 = tx * m1[4] + ty * m1[5] + tz * m1[6];
+    float t2 = tx * m1[8] + ty * m1[9] + tz * m1[10];
+
+    // Test the axes of box1.
+    if (Math.abs(t0) > a0 + b0 * absR00 + b1 * absR01 + b2 * absR02) {
+      return false;
+    }
+    if (Math.abs(t1) > a1 + b0 * absR10 + b1 * absR11 + b2 * absR12) {
+      return false;
+    }
+    if (Math.abs(t2) > a2 + b0 * absR20 + b1 * absR21 + b2 * absR22) {
+      return false;
+    }
 
-  /** Determine if a sphere and a box intersect with each other. */
-  static boolean sphereBoxIntersection(Sphere sphere, Box box) {
-    Preconditions.checkNotNull(sphere, "Parameter \"sphere\" was null.");
-    Preconditions.checkNotNull(box, "Parameter \"box\" was null.");
+    // Test the axes of box2.
+    if (Math.abs(t0 * r00 + t1 * r10 + t2 * r20)
+        > a0 * absR00 + a1 * absR10 + a2 * absR20 + b0) {
+      return false;
+    }
+    if (Math.abs(t0 * r01 + t1 * r11 + t2 * r21)
+        > a0 * absR01 + a1 * absR11 + a2 * absR21 + b1) {
+      return false;
+    }
+    if (Math.abs(t0 * r02 + t1 * r12 + t2 * r22)
+        > a0 * absR02 + a1 * absR12 + a2 * absR22 + b2) {
+      return false;
+    }
 
-    Vector3 point = closestPointOnBox(sphere.getCenter(), box);
-    Vector3 sphereDiff = Vector3.subtract(point, sphere.getCenter());
-    float sphereDiffLengthSquared = Vector3.dot(sphereDiff, sphereDiff);
+    // Test the cross products of box1's axis 0 with the axes of box2.
+    if (Math.abs(t2 * r10 - t1 * r20)
+        > a1 * absR20 + a2 * absR10 + b1 * absR02 + b2 * absR01) {
+      return false;
+    }
+    if (Math.abs(t2 * r11 - t1 * r21)
+        > a1 * absR21 + a2 * absR11 + b0 * absR02 + b2 * absR00) {
+      return false;
+    }
+    if (Math.abs(t2 * r12 - t1 * r22)
+        > a1 * absR22 + a2 * absR12 + b0 * absR01 + b1 * absR00) {
+      return false;
+    }
 
-    if (sphereDiffLengthSquared > sphere.getRadius() * sphere.getRadius()) {
+    // Test the cross products of box1's axis 1 with the axes of box2.
+    if (Math.abs(t0 * r20 - t2 * r00)
+        > a0 * absR20 + a2 * absR00 + b1 * absR12 + b2 * absR11) {
+      return false;
+    }
+    if (Math.abs(t0 * r21 - t2 * r01)
+        > a0 * absR21 + a2 * absR01 + b0 * absR12 + b2 * absR10) {
+      return false;
+    }
+    if (Math.abs(t0 * r22 - t2 * r02)
+        > a0 * absR22 + a2 * absR02 + b0 * absR11 + b1 * absR10) {
       return false;
     }
 
-    if (MathHelper.almostEqualRelativeAndAbs(sphereDiffLengthSquared, 0.0f)) {
-      Vector3 boxDiff = Vector3.subtract(point, box.getCenter());
-      float boxDiffLengthSquared = Vector3.dot(boxDiff, boxDiff);
-      if (MathHelper.almostEqualRelativeAndAbs(boxDiffLengthSquared, 0.0f)) {
-        return false;
-      }
+    // Test the cross products of box1's axis 2 with the axes of box2.
+    if (Math.abs(t1 * r00 - t0 * r10)
+        > a0 * absR10 + a1 * absR00 + b1 * absR22 + b2 * absR21) {
+      return false;
+    }
+    if (Math.abs(t1 * r01 - t0 * r11)
+        > a0 * absR11 + a1 * absR01 + b0 * absR22 + b2 * absR20) {
+      return false;
+    }
+    if (Math.abs(t1 * r02 - t0 * r12)
+        > a0 * absR12 + a1 * absR02 + b0 * absR21 + b1 * absR20) {
+      return false;
     }
 
+    // No separating axis was found.
     return true;
   }
 
-  private static Vector3 closestPointOnBox(Vector3 point, Box box) {
-    Vector3 result = new Vector3(box.getCenter());
-    Vector3 diff = Vector3.subtract(point, box.getCenter());
-    Matrix boxRotation = box.getRawRotationMatrix();
-    Vector3 boxExtents = box.getExtents();
-
-    // x-axis
-    {
-      Vector3 axis = extractXAxisFromRotationMatrix(boxRotation);
-      float distance = Vector3.dot(diff, axis);
-
-      if (distance > boxExtents.x) {
-        distance = boxExtents.x;
-      } else if (distance < -boxExtents.x) {
-        distance = -boxExtents.x;
-      }
+  /** Determine if a sphere and a box intersect with each other. */
+  static boolean sphereBoxIntersection(Sphere sphere, Box box) {
+    Preconditions.checkNotNull(sphere, "Parameter \"sphere\" was null.");
+    Preconditions.checkNotNull(box, "Parameter \"box\" was null.");
 
-      result = Vector3.add(result, axis.scaled(distance));
-    }
+    Vector3 sphereCenter = sphere.getRawCenter();
+    Vector3 boxCenter = box.getRawCenter();
+    Vector3 boxSize = box.getRawSize();
+    float radius = sphere.getRadius();
 
-    // y-axis
-    {
-      Vector3 axis = extractYAxisFromRotationMatrix(boxRotation);
-      float distance = Vector3.dot(diff, axis);
+    float extentX = boxSize.x * 0.5f;
+    float extentY = boxSize.y * 0.5f;
+    float extentZ = boxSize.z * 0.5f;
 
-      if (distance > boxExtents.y) {
-        distance = boxExtents.y;
-      } else if (distance < -boxExtents.y) {
-        distance = -boxExtents.y;
-      }
+    float diffX = sphereCenter.x - boxCenter.x;
+    float diffY = sphereCenter.y - boxCenter.y;
+    float diffZ = sphereCenter.z - boxCenter.z;
 
-      result = Vector3.add(result, axis.scaled(distance));
+    // Early out if the sphere doesn't intersect the bounding sphere of the box.
+    float boxRadiusSquared = extentX * extentX + extentY * extentY + extentZ * extentZ;
+    float combinedRadius = (float) Math.sqrt(boxRadiusSquared) + Math.abs(radius);
+    if (diffX * diffX + diffY * diffY + diffZ * diffZ > combinedRadius * combinedRadius) {
+      return false;
     }
 
-    // z-axis
-    {
-      Vector3 axis = extractZAxisFromRotationMatrix(boxRotation);
-      float distance = Vector3.dot(diff, axis);
+    // Find the point on the box closest to the center of the sphere, relative to the box center.
+    // The columns of the rotation matrix are the local axes of the box.
+    float[] axes = box.getRawRotationMatrix().data;
 
-      if (distance > boxExtents.z) {
-        distance = boxExtents.z;
-      } else if (distance < -boxExtents.z) {
-        distance = -boxExtents.z;
-      }
+    float distanceX =
+        clampToExtent(diffX * axes[0] + diffY * axes[1] + diffZ * axes[2], extentX);
+    float distanceY =
+        clampToExtent(diffX * axes[4] + diffY * axes[5] + diffZ * axes[6], extentY);
+    float distanceZ =
+        clampToExtent(diffX * axes[8] + diffY * axes[9] + diffZ * axes[10], extentZ);
 
-      result = Vector3.add(result, axis.scaled(distance));
-    }
+    float boxDiffX = axes[0] * distanceX + axes[4] * distanceY + axes[8] * distanceZ;
+    float boxDiffY = axes[1] * distanceX + axes[5] * distanceY + axes[9] * distanceZ;
+    float boxDiffZ = axes[2] * distanceX + axes[6] * distanceY + axes[10] * distanceZ;
 
-    return result;
-  }
+    float sphereDiffX = boxDiffX - diffX;
+    float sphereDiffY = boxDiffY - diffY;
+    float sphereDiffZ = boxDiffZ - diffZ;
+    float sphereDiffLengthSquared =
+        sphereDiffX * sphereDiffX + sphereDiffY * sphereDiffY + sphereDiffZ * sphereDiffZ;
 
-  private static boolean testSeparatingAxis(
-      List<Vector3> vertices1, List<Vector3> vertices2, Vector3 axis) {
-    float min1 = Float.MAX_VALUE;
-    float max1 = Float.MIN_VALUE;
-    for (int i = 0; i < vertices1.size(); ++i) {
-      float projection = Vector3.dot(axis, vertices1.get(i));
-      min1 = Math.min(projection, min1);
-      max1 = Math.max(projection, max1);
+    if (sphereDiffLengthSquared > radius * radius) {
+      return false;
     }
 
-    float min2 = Float.MAX_VALUE;
-    float max2 = Float.MIN_VALUE;
-    for (int i = 0; i < vertices2.size(); i++) {
-      float projection = Vector3.dot(axis, vertices2.get(i));
-      min2 = Math.min(projection, min2);
-      max2 = Math.max(projection, max2);
+    if (MathHelper.almostEqualRelativeAndAbs(sphereDiffLengthSquared, 0.0f)) {
+      float boxDiffLengthSquared =
+          boxDiffX * boxDiffX + boxDiffY * boxDiffY + boxDiffZ * boxDiffZ;
+      if (MathHelper.almostEqualRelativeAndAbs(boxDiffLengthSquared, 0.0f)) {
+        return false;
+      }
     }
 
-    return min2 <= max1 && min1 <= max2;
-  }
-
-  /** Converts a box into an array of 8 vertices that represent the corners of the box. */
-  private static List<Vector3> getVerticesFromBox(Box box) {
-    Preconditions.checkNotNull(box, "Parameter \"box\" was null.");
-
-    // Get the properties of the box.
-    Vector3 center = box.getCenter();
-    Vector3 extents = box.getExtents();
-    Matrix rotation = box.getRawRotationMatrix();
-
-    // Get the rotation axes of the box.
-    Vector3 xAxis = extractXAxisFromRotationMatrix(rotation);
-    Vector3 yAxis = extractYAxisFromRotationMatrix(rotation);
-    Vector3 zAxis = extractZAxisFromRotationMatrix(rotation);
-
-    // Scale the rotation axes by the extents.
-    Vector3 xScaled = xAxis.scaled(extents.x);
-    Vector3 yScaled = yAxis.scaled(extents.y);
-    Vector3 zScaled = zAxis.scaled(extents.z);
-
-    // Calculate the 8 vertices of the box.
-    ArrayList<Vector3> vertices = new ArrayList<>(NUM_VERTICES_PER_BOX);
-    vertices.add(add(add(add(center, xScaled), yScaled), zScaled));
-    vertices.add(add(add(subtract(center, xScaled), yScaled), zScaled));
-    vertices.add(add(subtract(add(center, xScaled), yScaled), zScaled));
-    vertices.add(subtract(add(add(center, xScaled), yScaled), zScaled));
-    vertices.add(subtract(subtract(subtract(center, xScaled), yScaled), zScaled));
-    vertices.add(subtract(subtract(add(center, xScaled), yScaled), zScaled));
-    vertices.add(subtract(add(subtract(center, xScaled), yScaled), zScaled));
-    vertices.add(add(subtract(subtract(center, xScaled), yScaled), zScaled));
-
-    return vertices;
-  }
-
-  private static Vector3 extractXAxisFromRotationMatrix(Matrix matrix) {
-    return new Vector3(matrix.data[0], matrix.data[4], matrix.data[8]);
+    return true;
   }
 
-  private static Vector3 extractYAxisFromRotationMatrix(Matrix matrix) {
-    return new Vector3(matrix.data[1], matrix.data[5], matrix.data[9]);
-  }
+  private static float clampToExtent(float distance, float extent) {
+    if (distance > extent) {
+      return extent;
+    } else if (distance < -extent) {
+      return -extent;
+    }
 
-  private static Vector3 extractZAxisFromRotationMatrix(Matrix matrix) {
-    return new Vector3(matrix.data[2], matrix.data[6], matrix.data[10]);
+    return distance;
   }
 }
@@ -86,6 +86,15 @@ public class Sphere extends CollisionShape {
     return radius;
   }
 
+  /**
+   * Get the raw center of the sphere. Do not modify directly. Instead, use setCenter.
+   *
+   * @return a reference to the sphere's raw center
+   */
+  Vector3 getRawCenter() {
+    return center;
+  }
+
   @Override
   public Sphere makeCopy() {
     return new Sphere(getRadius(), getCenter());
@@ -182,4 +191,18 @@ public class Sphere extends CollisionShape {
             Math.max(Math.max(worldScale.x, worldScale.y), worldScale.z));
     resultSphere.radius = radius * maxScale;
   }
+
+  @Override
+  void computeAabb(Aabb result) {
+    Preconditions.checkNotNull(result, "Parameter \"result\" was null.");
+
+    float absRadius = Math.abs(radius);
+    result.set(
+        center.x - absRadius,
+        center.y - absRadius,
+        center.z - absRadius,
+        center.x + absRadius,
+        center.y + absRadius,
+        center.z + absRadius);
+  }
 }
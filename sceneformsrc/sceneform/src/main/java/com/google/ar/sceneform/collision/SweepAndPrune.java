@@ -0,0 +1,197 @@
+package com.google.ar.sceneform.collision;
+
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sweep and prune broadphase used to find all pairs of colliders whose bounding boxes overlap.
+ *
+ * <p>Colliders are kept sorted by the minimum of their bounding box along a sweep axis. Because
+ * colliders only move a little between frames, the list stays nearly sorted and is re-sorted
+ * incrementally with an insertion sort. The sweep axis is the axis along which the colliders are
+ * spread out the most, so that as few intervals as possible overlap along it.
+ */
+final class SweepAndPrune {
+  /** Another axis must be this much more spread out than the current one before switching. */
+  private static final float SWEEP_AXIS_HYSTERESIS = 1.2f;
+
+  /** Callback invoked for each pair of colliders whose bounding boxes overlap. */
+  interface PairCallback {
+    void onPair(Collider colliderA, Collider colliderB);
+  }
+
+  private static final List<Comparator<Collider>> AXIS_COMPARATORS =
+      Arrays.asList(
+          (a, b) -> Float.compare(getMin(a, 0), getMin(b, 0)),
+          (a, b) -> Float.compare(getMin(a, 1), getMin(b, 1)),
+          (a, b) -> Float.compare(getMin(a, 2), getMin(b, 2)));
+
+  private Collider[] colliders = new Collider[16];
+  private int colliderCount;
+  private int sweepAxis;
+
+  void add(Collider collider) {
+    Preconditions.checkNotNull(collider, "Parameter \"collider\" was null.");
+
+    if (colliderCount == colliders.length) {
+      colliders = Arrays.copyOf(colliders, colliderCount * 2);
+    }
+
+    // Appended at the end, the next sweep will move it to its sorted position.
+    colliders[colliderCount++] = collider;
+  }
+
+  void remove(Collider collider) {
+    Preconditions.checkNotNull(collider, "Parameter \"collider\" was null.");
+
+    for (int i = 0; i < colliderCount; i++) {
+      if (colliders[i] == collider) {
+        // Shift instead of swapping with the last element to keep the list sorted.
+        System.arraycopy(colliders, i + 1, colliders, i, colliderCount - i - 1);
+        colliders[--colliderCount] = null;
+        return;
+      }
+    }
+  }
+
+  void clear() {
+    Arrays.fill(colliders, 0, colliderCount, null);
+    colliderCount = 0;
+  }
+
+  /**
+   * Report every pair of colliders whose world-space bounding boxes overlap. Each pair is reported
+   * once. The bounding boxes of the colliders must be up to date.
+   */
+  void findOverlappingPairs(PairCallback callback) {
+    Preconditions.checkNotNull(callback, "Parameter \"callback\" was null.");
+
+    updateSweepAxis();
+    insertionSort();
+
+    int axis = sweepAxis;
+    for (int i = 0; i < colliderCount; i++) {
+      Collider colliderA = colliders[i];
+      if (!colliderA.hasWorldAabb) {
+        // Colliders without a bounding box are sorted to the end of the list.
+        break;
+      }
+
+      float maxA = getMax(colliderA, axis);
+      for (int j = i + 1; j < colliderCount; j++) {
+        Collider colliderB = colliders[j];
+        if (getMin(colliderB, axis) > maxA) {
+          break;
+        }
+
+        if (colliderA.worldAabb.overlaps(colliderB.worldAabb)) {
+          callback.onPair(colliderA, colliderB);
+        }
+      }
+    }
+  }
+
+  /** Choose the axis with the largest variance of bounding box centers. */
+  private void updateSweepAxis() {
+    float sumX = 0.0f;
+    float sumY = 0.0f;
+    float sumZ = 0.0f;
+    float sumSquaredX = 0.0f;
+    float sumSquaredY = 0.0f;
+    float sumSquaredZ = 0.0f;
+    int count = 0;
+
+    for (int i = 0; i < colliderCount; i++) {
+      Collider collider = colliders[i];
+      if (!collider.hasWorldAabb) {
+        continue;
+      }
+
+      Aabb aabb = collider.worldAabb;
+      float centerX = (aabb.minX + aabb.maxX) * 0.5f;
+      float centerY = (aabb.minY + aabb.maxY) * 0.5f;
+      float centerZ = (aabb.minZ + aabb.maxZ) * 0.5f;
+      sumX += centerX;
+      sumY += centerY;
+      sumZ += centerZ;
+      sumSquaredX += centerX * centerX;
+      sumSquaredY += centerY * centerY;
+      sumSquaredZ += centerZ * centerZ;
+      count++;
+    }
+
+    if (count < 2) {
+      return;
+    }
+
+    float varianceX = sumSquaredX - sumX * sumX / count;
+    float varianceY = sumSquaredY - sumY * sumY / count;
+    float varianceZ = sumSquaredZ - sumZ * sumZ / count;
+    float currentVariance =
+        sweepAxis == 0 ? varianceX : (sweepAxis == 1 ? varianceY : varianceZ);
+
+    int bestAxis = sweepAxis;
+    float bestVariance = currentVariance * SWEEP_AXIS_HYSTERESIS;
+    if (varianceX > bestVariance) {
+      bestAxis = 0;
+      bestVariance = varianceX;
+    }
+    if (varianceY > bestVariance) {
+      bestAxis = 1;
+      bestVariance = varianceY;
+    }
+    if (varianceZ > bestVariance) {
+      bestAxis = 2;
+    }
+
+    if (bestAxis != sweepAxis) {
+      sweepAxis = bestAxis;
+      // The list is not sorted along the new axis at all, so don't use the insertion sort.
+      Arrays.sort(colliders, 0, colliderCount, AXIS_COMPARATORS.get(sweepAxis));
+    }
+  }
+
+  private void insertionSort() {
+    int axis = sweepAxis;
+    for (int i = 1; i < colliderCount; i++) {
+      Collider collider = colliders[i];
+      float min = getMin(collider, axis);
+      int j = i - 1;
+      while (j >= 0 && getMin(colliders[j], axis) > min) {
+        colliders[j + 1] = colliders[j];
+        j--;
+      }
+      colliders[j + 1] = collider;
+    }
+  }
+
+  private static float getMin(Collider collider, int axis) {
+    if (!collider.hasWorldAabb) {
+      return Float.POSITIVE_INFINITY;
+    }
+
+    Aabb aabb = collider.worldAabb;
+    switch (axis) {
+      case 0:
+        return aabb.minX;
+      case 1:
+        return aabb.minY;
+      default:
+        return aabb.minZ;
+    }
+  }
+
+  private static float getMax(Collider collider, int axis) {
+    Aabb aabb = collider.worldAabb;
+    switch (axis) {
+      case 0:
+        return aabb.maxX;
+      case 1:
+        return aabb.maxY;
+      default:
+        return aabb.maxZ;
+    }
+  }
+}
@@ -57,12 +57,9 @@ public class Matrix {
   }
 
   public void decomposeScale(Vector3 destScale) {
-    Vector3 temp = new Vector3(data[0], data[1], data[2]);
-    destScale.x = temp.length();
-    temp.set(data[4], data[5], data[6]);
-    destScale.y = temp.length();
-    temp.set(data[8], data[9], data[10]);
-    destScale.z = temp.length();
+    destScale.x = (float) Math.sqrt(data[0] * data[0] + data[1] * data[1] + data[2] * data[2]);
+    destScale.y = (float) Math.sqrt(data[4] * data[4] + data[5] * data[5] + data[6] * data[6]);
+    destScale.z = (float) Math.sqrt(data[8] * data[8] + data[9] * data[9] + data[10] * data[10]);
   }
 
   public void decomposeRotation(Vector3 decomposedScale, Quaternion destRotation) {
@@ -338,27 +335,37 @@ public class Matrix {
   }
 
   public Vector3 transformPoint(Vector3 vector) {
+    Vector3 result = new Vector3();
+    transformPoint(vector, result);
+    return result;
+  }
+
+  /**
+   * Transforms a point without allocating.
+   *
+   * @param dest the Vector3 that receives the transformed point, may be vector
+   */
+  public void transformPoint(Vector3 vector, Vector3 dest) {
     Preconditions.checkNotNull(vector, "Parameter \"vector\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
 
-    Vector3 result = new Vector3();
     float vx = vector.x;
     float vy = vector.y;
     float vz = vector.z;
-    result.x = data[0] * vx;
-    result.x += data[4] * vy;
-    result.x += data[8] * vz;
-    result.x += data[12]; // *1
-
-    result.y = data[1] * vx;
-    result.y += data[5] * vy;
-    result.y += data[9] * vz;
-    result.y += data[13]; // *1
-
-    result.z = data[2] * vx;
-    result.z += data[6] * vy;
-    result.z += data[10] * vz;
-    result.z += data[14]; // *1
-    return result;
+    dest.x = data[0] * vx;
+    dest.x += data[4] * vy;
+    dest.x += data[8] * vz;
+    dest.x += data[12]; // *1
+
+    dest.y = data[1] * vx;
+    dest.y += data[5] * vy;
+    dest.y += data[9] * vz;
+    dest.y += data[13]; // *1
+
+    dest.z = data[2] * vx;
+    dest.z += data[6] * vy;
+    dest.z += data[10] * vz;
+    dest.z += data[14]; // *1
   }
 
   /**
@@ -372,24 +379,35 @@ public class Matrix {
    * case the matrix used should be the inverse transpose of the incoming matrix.
    */
   public Vector3 transformDirection(Vector3 vector) {
+    Vector3 result = new Vector3();
+    transformDirection(vector, result);
+    return result;
+  }
+
+  /**
+   * Transforms a direction by ignoring any translation, without allocating.
+   *
+   * @see #transformDirection(Vector3)
+   * @param dest the Vector3 that receives the transformed direction, may be vector
+   */
+  public void transformDirection(Vector3 vector, Vector3 dest) {
     Preconditions.checkNotNull(vector, "Parameter \"vector\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
 
-    Vector3 result = new Vector3();
     float vx = vector.x;
     float vy = vector.y;
     float vz = vector.z;
-    result.x = data[0] * vx;
-    result.x += data[4] * vy;
-    result.x += data[8] * vz;
+    dest.x = data[0] * vx;
+    dest.x += data[4] * vy;
+    dest.x += data[8] * vz;
 
-    result.y = data[1] * vx;
-    result.y += data[5] * vy;
-    result.y += data[9] * vz;
+    dest.y = data[1] * vx;
+    dest.y += data[5] * vy;
+    dest.y += data[9] * vz;
 
-    result.z = data[2] * vx;
-    result.z += data[6] * vy;
-    result.z += data[10] * vz;
-    return result;
+    dest.z = data[2] * vx;
+    dest.z += data[6] * vy;
+    dest.z += data[10] * vz;
   }
 
   public static boolean invert(Matrix matrix, Matrix dest) {
@@ -0,0 +1,491 @@
+package com.google.ar.sceneform.math;
+
+import android.support.annotation.Nullable;
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.nio.FloatBuffer;
+
+/**
+ * Bulk versions of the {@link Matrix} operations for many matrices, points or directions packed
+ * back to back in float arrays.
+ *
+ * <p>Matrices are column major with 16 floats each, the same layout as {@link Matrix#data}.
+ * Points, directions and scales are 3 floats each, and rotations are quaternions stored as 4 floats
+ * in x, y, z, w order. Offsets are in floats, counts are in elements.
+ *
+ * <p>The loops keep any shared matrix in locals and have no calls or branches in their bodies, and
+ * the ranges are checked once up front. This lets the JIT hoist the bounds checks and unroll or
+ * vectorize the loops, which makes these much faster than calling the {@link Matrix} methods once
+ * per element.
+ *
+ * <p>The results are the same as the equivalent {@link Matrix} operations. The destination may be
+ * the same array as the source only if the source and destination ranges start at the same offset.
+ *
+ * @hide
+ */
+public final class MatrixBatch {
+  public static final int MATRIX_SIZE = 16;
+  public static final int VECTOR_SIZE = 3;
+  public static final int QUATERNION_SIZE = 4;
+
+  private MatrixBatch() {}
+
+  /**
+   * Multiplies count pairs of matrices, dest[i] = lhs[i] * rhs[i].
+   *
+   * @see Matrix#multiply(Matrix, Matrix, Matrix)
+   */
+  public static void multiply(
+      float[] lhs,
+      int lhsOffset,
+      float[] rhs,
+      int rhsOffset,
+      float[] dest,
+      int destOffset,
+      int count) {
+    checkRange(lhs, lhsOffset, count, MATRIX_SIZE, "lhs");
+    checkRange(rhs, rhsOffset, count, MATRIX_SIZE, "rhs");
+    checkRange(dest, destOffset, count, MATRIX_SIZE, "dest");
+
+    for (int i = 0; i < count; i++) {
+      int l = lhsOffset + i * MATRIX_SIZE;
+      int r = rhsOffset + i * MATRIX_SIZE;
+      int d = destOffset + i * MATRIX_SIZE;
+
+      float l0 = lhs[l];
+      float l1 = lhs[l + 1];
+      float l2 = lhs[l + 2];
+      float l3 = lhs[l + 3];
+      float l4 = lhs[l + 4];
+      float l5 = lhs[l + 5];
+      float l6 = lhs[l + 6];
+      float l7 = lhs[l + 7];
+      float l8 = lhs[l + 8];
+      float l9 = lhs[l + 9];
+      float l10 = lhs[l + 10];
+      float l11 = lhs[l + 11];
+      float l12 = lhs[l + 12];
+      float l13 = lhs[l + 13];
+      float l14 = lhs[l + 14];
+      float l15 = lhs[l + 15];
+
+      // Each column of the result only depends on the same column of rhs, so it is safe to write
+      // it back before reading the next one.
+      for (int column = 0; column < 16; column += 4) {
+        float r0 = rhs[r + column];
+        float r1 = rhs[r + column + 1];
+        float r2 = rhs[r + column + 2];
+        float r3 = rhs[r + column + 3];
+        dest[d + column] = l0 * r0 + l4 * r1 + l8 * r2 + l12 * r3;
+        dest[d + column + 1] = l1 * r0 + l5 * r1 + l9 * r2 + l13 * r3;
+        dest[d + column + 2] = l2 * r0 + l6 * r1 + l10 * r2 + l14 * r3;
+        dest[d + column + 3] = l3 * r0 + l7 * r1 + l11 * r2 + l15 * r3;
+      }
+    }
+  }
+
+  /**
+   * Multiplies one matrix with count matrices, dest[i] = lhs * rhs[i]. For example to move many
+   * local transforms into the space of a common parent.
+   *
+   * @see Matrix#multiply(Matrix, Matrix, Matrix)
+   */
+  public static void multiply(
+      Matrix lhs, float[] rhs, int rhsOffset, float[] dest, int destOffset, int count) {
+    Preconditions.checkNotNull(lhs, "Parameter \"lhs\" was null.");
+    checkRange(rhs, rhsOffset, count, MATRIX_SIZE, "rhs");
+    checkRange(dest, destOffset, count, MATRIX_SIZE, "dest");
+
+    float[] m = lhs.data;
+    float l0 = m[0];
+    float l1 = m[1];
+    float l2 = m[2];
+    float l3 = m[3];
+    float l4 = m[4];
+    float l5 = m[5];
+    float l6 = m[6];
+    float l7 = m[7];
+    float l8 = m[8];
+    float l9 = m[9];
+    float l10 = m[10];
+    float l11 = m[11];
+    float l12 = m[12];
+    float l13 = m[13];
+    float l14 = m[14];
+    float l15 = m[15];
+
+    // Every column of every matrix is transformed the same way, so treat them as one long list of
+    // columns.
+    int columnCount = count * 4;
+    for (int i = 0; i < columnCount; i++) {
+      int r = rhsOffset + i * 4;
+      int d = destOffset + i * 4;
+      float r0 = rhs[r];
+      float r1 = rhs[r + 1];
+      float r2 = rhs[r + 2];
+      float r3 = rhs[r + 3];
+      dest[d] = l0 * r0 + l4 * r1 + l8 * r2 + l12 * r3;
+      dest[d + 1] = l1 * r0 + l5 * r1 + l9 * r2 + l13 * r3;
+      dest[d + 2] = l2 * r0 + l6 * r1 + l10 * r2 + l14 * r3;
+      dest[d + 3] = l3 * r0 + l7 * r1 + l11 * r2 + l15 * r3;
+    }
+  }
+
+  /**
+   * Transforms count points by a matrix.
+   *
+   * @see Matrix#transformPoint(Vector3, Vector3)
+   */
+  public static void transformPoints(
+      Matrix matrix, float[] points, int pointsOffset, float[] dest, int destOffset, int count) {
+    Preconditions.checkNotNull(matrix, "Parameter \"matrix\" was null.");
+    checkRange(points, pointsOffset, count, VECTOR_SIZE, "points");
+    checkRange(dest, destOffset, count, VECTOR_SIZE, "dest");
+
+    float[] m = matrix.data;
+    float m0 = m[0];
+    float m1 = m[1];
+    float m2 = m[2];
+    float m4 = m[4];
+    float m5 = m[5];
+    float m6 = m[6];
+    float m8 = m[8];
+    float m9 = m[9];
+    float m10 = m[10];
+    float m12 = m[12];
+    float m13 = m[13];
+    float m14 = m[14];
+
+    for (int i = 0; i < count; i++) {
+      int p = pointsOffset + i * VECTOR_SIZE;
+      int d = destOffset + i * VECTOR_SIZE;
+      float x = points[p];
+      float y = points[p + 1];
+      float z = points[p + 2];
+      dest[d] = m0 * x + m4 * y + m8 * z + m12;
+      dest[d + 1] = m1 * x + m5 * y + m9 * z + m13;
+      dest[d + 2] = m2 * x + m6 * y + m10 * z + m14;
+    }
+  }
+
+  /**
+   * Transforms count points by a matrix, reading from and writing to the buffers at absolute
+   * indices starting at their positions. The positions of the buffers are not changed.
+   *
+   * @see Matrix#transformPoint(Vector3, Vector3)
+   */
+  public static void transformPoints(
+      Matrix matrix, FloatBuffer points, FloatBuffer dest, int count) {
+    Preconditions.checkNotNull(matrix, "Parameter \"matrix\" was null.");
+    checkRange(points, count, "points");
+    checkRange(dest, count, "dest");
+
+    if (points.hasArray() && dest.hasArray()) {
+      transformPoints(
+          matrix,
+          points.array(),
+          points.arrayOffset() + points.position(),
+          dest.array(),
+          dest.arrayOffset() + dest.position(),
+          count);
+      return;
+    }
+
+    float[] m = matrix.data;
+    float m0 = m[0];
+    float m1 = m[1];
+    float m2 = m[2];
+    float m4 = m[4];
+    float m5 = m[5];
+    float m6 = m[6];
+    float m8 = m[8];
+    float m9 = m[9];
+    float m10 = m[10];
+    float m12 = m[12];
+    float m13 = m[13];
+    float m14 = m[14];
+
+    int pointsOffset = points.position();
+    int destOffset = dest.position();
+    for (int i = 0; i < count; i++) {
+      int p = pointsOffset + i * VECTOR_SIZE;
+      int d = destOffset + i * VECTOR_SIZE;
+      float x = points.get(p);
+      float y = points.get(p + 1);
+      float z = points.get(p + 2);
+      dest.put(d, m0 * x + m4 * y + m8 * z + m12);
+      dest.put(d + 1, m1 * x + m5 * y + m9 * z + m13);
+      dest.put(d + 2, m2 * x + m6 * y + m10 * z + m14);
+    }
+  }
+
+  /**
+   * Transforms count directions by a matrix, ignoring any translation.
+   *
+   * @see Matrix#transformDirection(Vector3, Vector3)
+   */
+  public static void transformDirections(
+      Matrix matrix,
+      float[] directions,
+      int directionsOffset,
+      float[] dest,
+      int destOffset,
+      int count) {
+    Preconditions.checkNotNull(matrix, "Parameter \"matrix\" was null.");
+    checkRange(directions, directionsOffset, count, VECTOR_SIZE, "directions");
+    checkRange(dest, destOffset, count, VECTOR_SIZE, "dest");
+
+    float[] m = matrix.data;
+    float m0 = m[0];
+    float m1 = m[1];
+    float m2 = m[2];
+    float m4 = m[4];
+    float m5 = m[5];
+    float m6 = m[6];
+    float m8 = m[8];
+    float m9 = m[9];
+    float m10 = m[10];
+
+    for (int i = 0; i < count; i++) {
+      int p = directionsOffset + i * VECTOR_SIZE;
+      int d = destOffset + i * VECTOR_SIZE;
+      float x = directions[p];
+      float y = directions[p + 1];
+      float z = directions[p + 2];
+      dest[d] = m0 * x + m4 * y + m8 * z;
+      dest[d + 1] = m1 * x + m5 * y + m9 * z;
+      dest[d + 2] = m2 * x + m6 * y + m10 * z;
+    }
+  }
+
+  /**
+   * Transforms count directions by a matrix ignoring any translation, reading from and writing to
+   * the buffers at absolute indices starting at their positions. The positions of the buffers are
+   * not changed.
+   *
+   * @see Matrix#transformDirection(Vector3, Vector3)
+   */
+  public static void transformDirections(
+      Matrix matrix, FloatBuffer directions, FloatBuffer dest, int count) {
+    Preconditions.checkNotNull(matrix, "Parameter \"matrix\" was null.");
+    checkRange(directions, count, "directions");
+    checkRange(dest, count, "dest");
+
+    if (directions.hasArray() && dest.hasArray()) {
+      transformDirections(
+          matrix,
+          directions.array(),
+          directions.arrayOffset() + directions.position(),
+          dest.array(),
+          dest.arrayOffset() + dest.position(),
+          count);
+      return;
+    }
+
+    float[] m = matrix.data;
+    float m0 = m[0];
+    float m1 = m[1];
+    float m2 = m[2];
+    float m4 = m[4];
+    float m5 = m[5];
+    float m6 = m[6];
+    float m8 = m[8];
+    float m9 = m[9];
+    float m10 = m[10];
+
+    int directionsOffset = directions.position();
+    int destOffset = dest.position();
+    for (int i = 0; i < count; i++) {
+      int p = directionsOffset + i * VECTOR_SIZE;
+      int d = destOffset + i * VECTOR_SIZE;
+      float x = directions.get(p);
+      float y = directions.get(p + 1);
+      float z = directions.get(p + 2);
+      dest.put(d, m0 * x + m4 * y + m8 * z);
+      dest.put(d + 1, m1 * x + m5 * y + m9 * z);
+      dest.put(d + 2, m2 * x + m6 * y + m10 * z);
+    }
+  }
+
+  /**
+   * Decomposes count matrices into their translations, rotations and scales. Any of the
+   * destinations may be null if that part isn't needed.
+   *
+   * @see Matrix#decomposeTranslation(Vector3)
+   * @see Matrix#decomposeRotation(Vector3, Quaternion)
+   * @see Matrix#decomposeScale(Vector3)
+   */
+  public static void decompose(
+      float[] matrices,
+      int matricesOffset,
+      @Nullable float[] destTranslations,
+      int translationsOffset,
+      @Nullable float[] destRotations,
+      int rotationsOffset,
+      @Nullable float[] destScales,
+      int scalesOffset,
+      int count) {
+    checkRange(matrices, matricesOffset, count, MATRIX_SIZE, "matrices");
+
+    if (destTranslations != null) {
+      checkRange(destTranslations, translationsOffset, count, VECTOR_SIZE, "destTranslations");
+      for (int i = 0; i < count; i++) {
+        int m = matricesOffset + i * MATRIX_SIZE;
+        int t = translationsOffset + i * VECTOR_SIZE;
+        destTranslations[t] = matrices[m + 12];
+        destTranslations[t + 1] = matrices[m + 13];
+        destTranslations[t + 2] = matrices[m + 14];
+      }
+    }
+
+    if (destRotations == null && destScales == null) {
+      return;
+    }
+
+    if (destRotations != null) {
+      checkRange(destRotations, rotationsOffset, count, QUATERNION_SIZE, "destRotations");
+    }
+    if (destScales != null) {
+      checkRange(destScales, scalesOffset, count, VECTOR_SIZE, "destScales");
+    }
+
+    for (int i = 0; i < count; i++) {
+      int m = matricesOffset + i * MATRIX_SIZE;
+      float m0 = matrices[m];
+      float m1 = matrices[m + 1];
+      float m2 = matrices[m + 2];
+      float m4 = matrices[m + 4];
+      float m5 = matrices[m + 5];
+      float m6 = matrices[m + 6];
+      float m8 = matrices[m + 8];
+      float m9 = matrices[m + 9];
+      float m10 = matrices[m + 10];
+
+      float scaleX = (float) Math.sqrt(m0 * m0 + m1 * m1 + m2 * m2);
+      float scaleY = (float) Math.sqrt(m4 * m4 + m5 * m5 + m6 * m6);
+      float scaleZ = (float) Math.sqrt(m8 * m8 + m9 * m9 + m10 * m10);
+
+      if (destScales != null) {
+        int s = scalesOffset + i * VECTOR_SIZE;
+        destScales[s] = scaleX;
+        destScales[s + 1] = scaleY;
+        destScales[s + 2] = scaleZ;
+      }
+
+      if (destRotations == null) {
+        continue;
+      }
+
+      // Remove the scale, a zero scale leaves the axis as it is like Matrix.decomposeRotation.
+      if (scaleX != 0.0f) {
+        m0 /= scaleX;
+        m1 /= scaleX;
+        m2 /= scaleX;
+      }
+      if (scaleY != 0.0f) {
+        m4 /= scaleY;
+        m5 /= scaleY;
+        m6 /= scaleY;
+      }
+      if (scaleZ != 0.0f) {
+        m8 /= scaleZ;
+        m9 /= scaleZ;
+        m10 /= scaleZ;
+      }
+
+      int r = rotationsOffset + i * QUATERNION_SIZE;
+      extractQuaternion(m0, m1, m2, m4, m5, m6, m8, m9, m10, destRotations, r);
+    }
+  }
+
+  /** Same as {@link Matrix#extractQuaternion(Quaternion)} on the given rotation matrix. */
+  private static void extractQuaternion(
+      float m0,
+      float m1,
+      float m2,
+      float m4,
+      float m5,
+      float m6,
+      float m8,
+      float m9,
+      float m10,
+      float[] dest,
+      int destOffset) {
+    float x;
+    float y;
+    float z;
+    float w;
+    float trace = m0 + m5 + m10;
+
+    if (trace > 0) {
+      float s = (float) Math.sqrt(trace + 1.0) * 2.0f;
+      w = 0.25f * s;
+      x = (m6 - m9) / s;
+      y = (m8 - m2) / s;
+      z = (m1 - m4) / s;
+    } else if ((m0 > m5) && (m0 > m10)) {
+      float s = (float) Math.sqrt(1.0f + m0 - m5 - m10) * 2.0f;
+      w = (m6 - m9) / s;
+      x = 0.25f * s;
+      y = (m4 + m1) / s;
+      z = (m8 + m2) / s;
+    } else if (m5 > m10) {
+      float s = (float) Math.sqrt(1.0f + m5 - m0 - m10) * 2.0f;
+      w = (m8 - m2) / s;
+      x = (m4 + m1) / s;
+      y = 0.25f * s;
+      z = (m9 + m6) / s;
+    } else {
+      float s = (float) Math.sqrt(1.0f + m10 - m0 - m5) * 2.0f;
+      w = (m1 - m4) / s;
+      x = (m8 + m2) / s;
+      y = (m9 + m6) / s;
+      z = 0.25f * s;
+    }
+
+    // Normalize like Quaternion.normalize.
+    float normSquared = x * x + y * y + z * z + w * w;
+    if (MathHelper.almostEqualRelativeAndAbs(normSquared, 0.0f)) {
+      x = 0.0f;
+      y = 0.0f;
+      z = 0.0f;
+      w = 1.0f;
+    } else if (normSquared != 1) {
+      float norm = (float) (1.0 / Math.sqrt(normSquared));
+      x *= norm;
+      y *= norm;
+      z *= norm;
+      w *= norm;
+    }
+
+    dest[destOffset] = x;
+    dest[destOffset + 1] = y;
+    dest[destOffset + 2] = z;
+    dest[destOffset + 3] = w;
+  }
+
+  private static void checkRange(float[] array, int offset, int count, int stride, String name) {
+    if (array == null) {
+      throw new NullPointerException("Parameter \"" + name + "\" was null.");
+    }
+    if (count < 0) {
+      throw new IllegalArgumentException("Parameter \"count\" was negative.");
+    }
+    if (count > 0) {
+      Preconditions.checkElementIndex(offset, array.length, name);
+      Preconditions.checkElementIndex(offset + count * stride - 1, array.length, name);
+    }
+  }
+
+  private static void checkRange(FloatBuffer buffer, int count, String name) {
+    if (buffer == null) {
+      throw new NullPointerException("Parameter \"" + name + "\" was null.");
+    }
+    if (count < 0) {
+      throw new IllegalArgumentException("Parameter \"count\" was negative.");
+    }
+    if (count > 0) {
+      int last = buffer.position() + count * VECTOR_SIZE - 1;
+      Preconditions.checkElementIndex(last, buffer.limit(), name);
+    }
+  }
+}
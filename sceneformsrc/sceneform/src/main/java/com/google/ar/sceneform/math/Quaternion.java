@@ -48,7 +48,7 @@ public class Quaternion {
   @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
   public Quaternion(Vector3 axis, float angle) {
     Preconditions.checkNotNull(axis, "Parameter \"axis\" was null.");
-    set(Quaternion.axisAngle(axis, angle));
+    axisAngle(axis, angle, this);
   }
 
   /**
@@ -76,7 +76,7 @@ public class Quaternion {
   /** Update this Quaternion using an axis/angle to define the rotation */
   public void set(Vector3 axis, float angle) {
     Preconditions.checkNotNull(axis, "Parameter \"axis\" was null.");
-    set(Quaternion.axisAngle(axis, angle));
+    axisAngle(axis, angle, this);
   }
 
   /** Set each value and normalize the Quaternion */
@@ -131,6 +131,17 @@ public class Quaternion {
     return result;
   }
 
+  /**
+   * Set dest to a Quaternion with a matching rotation but scaled to unit length, without
+   * allocating.
+   *
+   * @param dest the Quaternion that receives the result, may be this Quaternion
+   */
+  public void normalized(Quaternion dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(this);
+  }
+
   /**
    * Get a Quaternion with the opposite rotation
    *
@@ -140,6 +151,16 @@ public class Quaternion {
     return new Quaternion(-this.x, -this.y, -this.z, this.w);
   }
 
+  /**
+   * Set dest to a Quaternion with the opposite rotation, without allocating.
+   *
+   * @param dest the Quaternion that receives the result, may be this Quaternion
+   */
+  public void inverted(Quaternion dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(-x, -y, -z, w);
+  }
+
   /**
    * Flips the sign of the Quaternion, but represents the same rotation.
    *
@@ -160,9 +181,20 @@ public class Quaternion {
    * @return The rotated vector
    */
   public static Vector3 rotateVector(Quaternion q, Vector3 src) {
+    Vector3 result = new Vector3();
+    rotateVector(q, src, result);
+    return result;
+  }
+
+  /**
+   * Rotates a Vector3 by a Quaternion without allocating.
+   *
+   * @param dest the Vector3 that receives the rotated vector, may be src
+   */
+  public static void rotateVector(Quaternion q, Vector3 src, Vector3 dest) {
     Preconditions.checkNotNull(q, "Parameter \"q\" was null.");
     Preconditions.checkNotNull(src, "Parameter \"src\" was null.");
-    Vector3 result = new Vector3();
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
     float w2 = q.w * q.w;
     float x2 = q.x * q.x;
     float y2 = q.y * q.y;
@@ -185,16 +217,26 @@ public class Quaternion {
     float sx = src.x;
     float sy = src.y;
     float sz = src.z;
-    result.x = m00 * sx + m10 * sy + m20 * sz;
-    result.y = m01 * sx + m11 * sy + m21 * sz;
-    result.z = m02 * sx + m12 * sy + m22 * sz;
-    return result;
+    dest.x = m00 * sx + m10 * sy + m20 * sz;
+    dest.y = m01 * sx + m11 * sy + m21 * sz;
+    dest.z = m02 * sx + m12 * sy + m22 * sz;
   }
 
   public static Vector3 inverseRotateVector(Quaternion q, Vector3 src) {
+    Vector3 result = new Vector3();
+    inverseRotateVector(q, src, result);
+    return result;
+  }
+
+  /**
+   * Rotates a Vector3 by the inverse of a Quaternion without allocating.
+   *
+   * @param dest the Vector3 that receives the rotated vector, may be src
+   */
+  public static void inverseRotateVector(Quaternion q, Vector3 src, Vector3 dest) {
     Preconditions.checkNotNull(q, "Parameter \"q\" was null.");
     Preconditions.checkNotNull(src, "Parameter \"src\" was null.");
-    Vector3 result = new Vector3();
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
     float w2 = q.w * q.w;
     float x2 = -q.x * -q.x;
     float y2 = -q.y * -q.y;
@@ -218,10 +260,9 @@ public class Quaternion {
     float sx = src.x;
     float sy = src.y;
     float sz = src.z;
-    result.x = m00 * sx + m10 * sy + m20 * sz;
-    result.y = m01 * sx + m11 * sy + m21 * sz;
-    result.z = m02 * sx + m12 * sy + m22 * sz;
-    return result;
+    dest.x = m00 * sx + m10 * sy + m20 * sz;
+    dest.y = m01 * sx + m11 * sy + m21 * sz;
+    dest.z = m02 * sx + m12 * sy + m22 * sz;
   }
 
   /**
@@ -231,8 +272,20 @@ public class Quaternion {
    * @return The combined rotation
    */
   public static Quaternion multiply(Quaternion lhs, Quaternion rhs) {
+    Quaternion result = new Quaternion();
+    multiply(lhs, rhs, result);
+    return result;
+  }
+
+  /**
+   * Combine two Quaternions without allocating, see {@link #multiply(Quaternion, Quaternion)}.
+   *
+   * @param dest the Quaternion that receives the combined rotation, may be lhs or rhs
+   */
+  public static void multiply(Quaternion lhs, Quaternion rhs, Quaternion dest) {
     Preconditions.checkNotNull(lhs, "Parameter \"lhs\" was null.");
     Preconditions.checkNotNull(rhs, "Parameter \"rhs\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
     float lx = lhs.x;
     float ly = lhs.y;
     float lz = lhs.z;
@@ -242,13 +295,11 @@ public class Quaternion {
     float rz = rhs.z;
     float rw = rhs.w;
 
-    Quaternion result =
-        new Quaternion(
-            lw * rx + lx * rw + ly * rz - lz * ry,
-            lw * ry - lx * rz + ly * rw + lz * rx,
-            lw * rz + lx * ry - ly * rx + lz * rw,
-            lw * rw - lx * rx - ly * ry - lz * rz);
-    return result;
+    dest.set(
+        lw * rx + lx * rw + ly * rz - lz * ry,
+        lw * ry - lx * rz + ly * rw + lz * rx,
+        lw * rz + lx * ry - ly * rx + lz * rw,
+        lw * rw - lx * rx - ly * ry - lz * rz);
   }
 
   /**
@@ -316,23 +367,68 @@ public class Quaternion {
    * @return interpolated value between the two floats
    */
   public static Quaternion slerp(final Quaternion start, final Quaternion end, float t) {
+    Quaternion result = new Quaternion();
+    slerp(start, end, t, result);
+    return result;
+  }
+
+  /**
+   * Spherical linear interpolation between two orientations without allocating, see {@link
+   * #slerp(Quaternion, Quaternion, float)}.
+   *
+   * @param dest the Quaternion that receives the interpolated value, may be start or end
+   */
+  public static void slerp(
+      final Quaternion start, final Quaternion end, float t, final Quaternion dest) {
     Preconditions.checkNotNull(start, "Parameter \"start\" was null.");
     Preconditions.checkNotNull(end, "Parameter \"end\" was null.");
-    Quaternion orientation0 = start.normalized();
-    Quaternion orientation1 = end.normalized();
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+
+    // Normalize copies of the rotations, a zero rotation is treated as identity.
+    float startX = 0.0f;
+    float startY = 0.0f;
+    float startZ = 0.0f;
+    float startW = 1.0f;
+    float startScale = normalizationScale(Quaternion.dot(start, start));
+    if (startScale != 0.0f) {
+      startX = start.x * startScale;
+      startY = start.y * startScale;
+      startZ = start.z * startScale;
+      startW = start.w * startScale;
+    }
+
+    float endX = 0.0f;
+    float endY = 0.0f;
+    float endZ = 0.0f;
+    float endW = 1.0f;
+    float endScale = normalizationScale(Quaternion.dot(end, end));
+    if (endScale != 0.0f) {
+      endX = end.x * endScale;
+      endY = end.y * endScale;
+      endZ = end.z * endScale;
+      endW = end.w * endScale;
+    }
 
     // cosTheta0 provides the angle between the rotations at t=0
-    double cosTheta0 = Quaternion.dot(orientation0, orientation1);
+    double cosTheta0 = startX * endX + startY * endY + startZ * endZ + startW * endW;
 
     // Flip end rotation to get shortest path if needed
     if (cosTheta0 < 0.0f) {
-      orientation1 = orientation1.negated();
+      endX = -endX;
+      endY = -endY;
+      endZ = -endZ;
+      endW = -endW;
       cosTheta0 = -cosTheta0;
     }
 
     // Small rotations should just use lerp
     if (cosTheta0 > SLERP_THRESHOLD) {
-      return lerp(orientation0, orientation1, t);
+      dest.set(
+          MathHelper.lerp(startX, endX, t),
+          MathHelper.lerp(startY, endY, t),
+          MathHelper.lerp(startZ, endZ, t),
+          MathHelper.lerp(startW, endW, t));
+      return;
     }
 
     // Cosine function range is -1,1. Clamp larger rotations.
@@ -342,12 +438,14 @@ public class Quaternion {
     double thetaT = theta0 * t; // theta0 scaled to current t
 
     // s0 = sin(theta0 - thetaT) / sin(theta0)
-    double s0 = (Math.cos(thetaT) - cosTheta0 * Math.sin(thetaT) / Math.sin(theta0));
-    double s1 = (Math.sin(thetaT) / Math.sin(theta0));
-    // result = s0*start + s1*end
-    Quaternion result =
-        Quaternion.add(orientation0.scaled((float) s0), orientation1.scaled((float) s1));
-    return result.normalized();
+    float s0 = (float) (Math.cos(thetaT) - cosTheta0 * Math.sin(thetaT) / Math.sin(theta0));
+    float s1 = (float) (Math.sin(thetaT) / Math.sin(theta0));
+    // result = s0*start + s1*end, normalized by set
+    dest.set(
+        startX * s0 + endX * s1,
+        startY * s0 + endY * s1,
+        startZ * s0 + endZ * s1,
+        startW * s0 + endW * s1);
   }
 
   /**
@@ -357,17 +455,34 @@ public class Quaternion {
    * @param degrees Angle size in degrees
    */
   public static Quaternion axisAngle(Vector3 axis, float degrees) {
-    Preconditions.checkNotNull(axis, "Parameter \"axis\" was null.");
     Quaternion dest = new Quaternion();
+    axisAngle(axis, degrees, dest);
+    return dest;
+  }
+
+  /**
+   * Set dest to a rotation defined by an axis/angle without allocating.
+   *
+   * @param axis Sets rotation direction
+   * @param degrees Angle size in degrees
+   * @param dest the Quaternion that receives the rotation
+   */
+  public static void axisAngle(Vector3 axis, float degrees, Quaternion dest) {
+    Preconditions.checkNotNull(axis, "Parameter \"axis\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    axisAngle(axis.x, axis.y, axis.z, degrees, dest);
+  }
+
+  private static void axisAngle(
+      float axisX, float axisY, float axisZ, float degrees, Quaternion dest) {
     double angle = Math.toRadians(degrees);
     double factor = Math.sin(angle / 2.0);
 
-    dest.x = (float) (axis.x * factor);
-    dest.y = (float) (axis.y * factor);
-    dest.z = (float) (axis.z * factor);
+    dest.x = (float) (axisX * factor);
+    dest.y = (float) (axisY * factor);
+    dest.z = (float) (axisZ * factor);
     dest.w = (float) Math.cos(angle / 2.0);
     dest.normalize();
-    return dest;
   }
 
   /**
@@ -390,37 +505,74 @@ public class Quaternion {
 
   /** Get a new Quaternion representing the rotation from one vector to another. */
   public static Quaternion rotationBetweenVectors(Vector3 start, Vector3 end) {
+    Quaternion result = new Quaternion();
+    rotationBetweenVectors(start, end, result);
+    return result;
+  }
+
+  /**
+   * Set dest to the rotation from one vector to another without allocating.
+   *
+   * @param dest the Quaternion that receives the rotation
+   */
+  public static void rotationBetweenVectors(Vector3 start, Vector3 end, Quaternion dest) {
     Preconditions.checkNotNull(start, "Parameter \"start\" was null.");
     Preconditions.checkNotNull(end, "Parameter \"end\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    rotationBetweenVectors(start.x, start.y, start.z, end.x, end.y, end.z, dest);
+  }
 
-    start = start.normalized();
-    end = end.normalized();
-
-    float cosTheta = Vector3.dot(start, end);
-    Vector3 rotationAxis;
+  private static void rotationBetweenVectors(
+      float startX,
+      float startY,
+      float startZ,
+      float endX,
+      float endY,
+      float endZ,
+      Quaternion dest) {
+    float startScale = normalizationScale(startX * startX + startY * startY + startZ * startZ);
+    startX *= startScale;
+    startY *= startScale;
+    startZ *= startScale;
+    float endScale = normalizationScale(endX * endX + endY * endY + endZ * endZ);
+    endX *= endScale;
+    endY *= endScale;
+    endZ *= endScale;
+
+    float cosTheta = startX * endX + startY * endY + startZ * endZ;
 
     if (cosTheta < -1.0f + 0.001f) {
       // special case when vectors in opposite directions:
       // there is no "ideal" rotation axis
       // So guess one; any will do as long as it's perpendicular to start
-      rotationAxis = Vector3.cross(Vector3.back(), start);
-      if (rotationAxis.lengthSquared() < 0.01f) { // bad luck, they were parallel, try again!
-        rotationAxis = Vector3.cross(Vector3.right(), start);
+      // cross(back, start)
+      float axisX = -startY;
+      float axisY = startX;
+      float axisZ = 0.0f;
+      if (axisX * axisX + axisY * axisY < 0.01f) { // bad luck, they were parallel, try again!
+        // cross(right, start)
+        axisX = 0.0f;
+        axisY = -startZ;
+        axisZ = startY;
       }
 
-      rotationAxis = rotationAxis.normalized();
-      return axisAngle(rotationAxis, 180.0f);
+      float axisScale = normalizationScale(axisX * axisX + axisY * axisY + axisZ * axisZ);
+      axisAngle(axisX * axisScale, axisY * axisScale, axisZ * axisScale, 180.0f, dest);
+      return;
     }
 
-    rotationAxis = Vector3.cross(start, end);
+    // cross(start, end)
+    float axisX = startY * endZ - startZ * endY;
+    float axisY = startZ * endX - startX * endZ;
+    float axisZ = startX * endY - startY * endX;
 
     float squareLength = (float) Math.sqrt((1.0 + cosTheta) * 2.0);
     float inverseSquareLength = 1.0f / squareLength;
 
-    return new Quaternion(
-        rotationAxis.x * inverseSquareLength,
-        rotationAxis.y * inverseSquareLength,
-        rotationAxis.z * inverseSquareLength,
+    dest.set(
+        axisX * inverseSquareLength,
+        axisY * inverseSquareLength,
+        axisZ * inverseSquareLength,
         squareLength * 0.5f);
   }
 
@@ -429,22 +581,61 @@ public class Quaternion {
    * upInWorld is orthogonal to forwardInWorld, then the Y axis is aligned with desiredUpInWorld.
    */
   public static Quaternion lookRotation(Vector3 forwardInWorld, Vector3 desiredUpInWorld) {
+    Quaternion result = new Quaternion();
+    lookRotation(forwardInWorld, desiredUpInWorld, result);
+    return result;
+  }
+
+  /**
+   * Set dest to a rotation towards a specified forward direction without allocating, see {@link
+   * #lookRotation(Vector3, Vector3)}.
+   *
+   * @param dest the Quaternion that receives the rotation
+   */
+  public static void lookRotation(
+      Vector3 forwardInWorld, Vector3 desiredUpInWorld, Quaternion dest) {
     Preconditions.checkNotNull(forwardInWorld, "Parameter \"forwardInWorld\" was null.");
     Preconditions.checkNotNull(desiredUpInWorld, "Parameter \"desiredUpInWorld\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    float forwardX = forwardInWorld.x;
+    float forwardY = forwardInWorld.y;
+    float forwardZ = forwardInWorld.z;
+    float upX = desiredUpInWorld.x;
+    float upY = desiredUpInWorld.y;
+    float upZ = desiredUpInWorld.z;
 
     // Find the rotation between the world forward and the forward to look at.
-    Quaternion rotateForwardToDesiredForward =
-        rotationBetweenVectors(Vector3.forward(), forwardInWorld);
+    rotationBetweenVectors(0.0f, 0.0f, -1.0f, forwardX, forwardY, forwardZ, dest);
+    float rx = dest.x;
+    float ry = dest.y;
+    float rz = dest.z;
+    float rw = dest.w;
 
     // Recompute upwards so that it's perpendicular to the direction
-    Vector3 rightInWorld = Vector3.cross(forwardInWorld, desiredUpInWorld);
-    desiredUpInWorld = Vector3.cross(rightInWorld, forwardInWorld);
-
-    // Find the rotation between the "up" of the rotated object, and the desired up
-    Vector3 newUp = Quaternion.rotateVector(rotateForwardToDesiredForward, Vector3.up());
-    Quaternion rotateNewUpToUpwards = rotationBetweenVectors(newUp, desiredUpInWorld);
-
-    return Quaternion.multiply(rotateNewUpToUpwards, rotateForwardToDesiredForward);
+    float rightX = forwardY * upZ - forwardZ * upY;
+    float rightY = forwardZ * upX - forwardX * upZ;
+    float rightZ = forwardX * upY - forwardY * upX;
+    upX = rightY * forwardZ - rightZ * forwardY;
+    upY = rightZ * forwardX - rightX * forwardZ;
+    upZ = rightX * forwardY - rightY * forwardX;
+
+    // Find the rotation between the "up" of the rotated object, and the desired up. The rotated up
+    // is the second column of the rotation matrix, see rotateVector.
+    float newUpX = 2.0f * (rx * ry - rz * rw);
+    float newUpY = ry * ry - rz * rz + rw * rw - rx * rx;
+    float newUpZ = 2.0f * (ry * rz + rx * rw);
+    rotationBetweenVectors(newUpX, newUpY, newUpZ, upX, upY, upZ, dest);
+
+    // multiply(rotateNewUpToUpwards, rotateForwardToDesiredForward)
+    float lx = dest.x;
+    float ly = dest.y;
+    float lz = dest.z;
+    float lw = dest.w;
+    dest.set(
+        lw * rx + lx * rw + ly * rz - lz * ry,
+        lw * ry - lx * rz + ly * rw + lz * rx,
+        lw * rz + lx * ry - ly * rx + lz * rw,
+        lw * rw - lx * rx - ly * ry - lz * rz);
   }
 
   /**
@@ -487,6 +678,19 @@ public class Quaternion {
     return result;
   }
 
+  /**
+   * Returns the factor that scales a vector with the given squared length to unit length, or zero
+   * if the vector can't be normalized.
+   */
+  private static float normalizationScale(float lengthSquared) {
+    if (MathHelper.almostEqualRelativeAndAbs(lengthSquared, 0.0f)) {
+      return 0.0f;
+    } else if (lengthSquared != 1) {
+      return (float) (1.0 / Math.sqrt(lengthSquared));
+    }
+    return 1.0f;
+  }
+
   /** Get a Quaternion set to identity */
   public static Quaternion identity() {
     return new Quaternion();
@@ -47,42 +47,42 @@ public class Vector3 {
   }
 
   /** Set each value to zero */
-  void setZero() {
+  public void setZero() {
     set(0, 0, 0);
   }
 
   /** Set each value to one */
-  void setOne() {
+  public void setOne() {
     set(1, 1, 1);
   }
 
   /** Forward into the screen is the negative Z direction */
-  void setForward() {
+  public void setForward() {
     set(0, 0, -1);
   }
 
   /** Back out of the screen is the positive Z direction */
-  void setBack() {
+  public void setBack() {
     set(0, 0, 1);
   }
 
   /** Up is the positive Y direction */
-  void setUp() {
+  public void setUp() {
     set(0, 1, 0);
   }
 
   /** Down is the negative Y direction */
-  void setDown() {
+  public void setDown() {
     set(0, -1, 0);
   }
 
   /** Right is the positive X direction */
-  void setRight() {
+  public void setRight() {
     set(1, 0, 0);
   }
 
   /** Left is the negative X direction */
-  void setLeft() {
+  public void setLeft() {
     set(-1, 0, 0);
   }
 
@@ -101,16 +101,28 @@ public class Vector3 {
 
   /** Scales the Vector3 to the unit length */
   public Vector3 normalized() {
-    Vector3 result = new Vector3(this);
+    Vector3 result = new Vector3();
+    normalized(result);
+    return result;
+  }
+
+  /**
+   * Scales the Vector3 to the unit length without allocating.
+   *
+   * @param dest the Vector3 that receives the result, may be this Vector3
+   */
+  public void normalized(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
     float normSquared = Vector3.dot(this, this);
 
     if (MathHelper.almostEqualRelativeAndAbs(normSquared, 0.0f)) {
-      result.setZero();
+      dest.setZero();
     } else if (normSquared != 1) {
       float norm = (float) (1.0 / Math.sqrt(normSquared));
-      result.set(this.scaled(norm));
+      dest.set(x * norm, y * norm, z * norm);
+    } else {
+      dest.set(this);
     }
-    return result;
   }
 
   /**
@@ -122,6 +134,16 @@ public class Vector3 {
     return new Vector3(x * a, y * a, z * a);
   }
 
+  /**
+   * Uniformly scales a Vector3 without allocating.
+   *
+   * @param dest the Vector3 that receives the result, may be this Vector3
+   */
+  public void scaled(float a, Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(x * a, y * a, z * a);
+  }
+
   /**
    * Negates a Vector3
    *
@@ -131,6 +153,16 @@ public class Vector3 {
     return new Vector3(-x, -y, -z);
   }
 
+  /**
+   * Negates a Vector3 without allocating.
+   *
+   * @param dest the Vector3 that receives the result, may be this Vector3
+   */
+  public void negated(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(-x, -y, -z);
+  }
+
   /**
    * Adds two Vector3's
    *
@@ -142,6 +174,18 @@ public class Vector3 {
     return new Vector3(lhs.x + rhs.x, lhs.y + rhs.y, lhs.z + rhs.z);
   }
 
+  /**
+   * Adds two Vector3's without allocating.
+   *
+   * @param dest the Vector3 that receives the result, may be lhs or rhs
+   */
+  public static void add(Vector3 lhs, Vector3 rhs, Vector3 dest) {
+    Preconditions.checkNotNull(lhs, "Parameter \"lhs\" was null.");
+    Preconditions.checkNotNull(rhs, "Parameter \"rhs\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(lhs.x + rhs.x, lhs.y + rhs.y, lhs.z + rhs.z);
+  }
+
   /**
    * Subtract two Vector3
    *
@@ -153,6 +197,18 @@ public class Vector3 {
     return new Vector3(lhs.x - rhs.x, lhs.y - rhs.y, lhs.z - rhs.z);
   }
 
+  /**
+   * Subtract two Vector3 without allocating.
+   *
+   * @param dest the Vector3 that receives the result, may be lhs or rhs
+   */
+  public static void subtract(Vector3 lhs, Vector3 rhs, Vector3 dest) {
+    Preconditions.checkNotNull(lhs, "Parameter \"lhs\" was null.");
+    Preconditions.checkNotNull(rhs, "Parameter \"rhs\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(lhs.x - rhs.x, lhs.y - rhs.y, lhs.z - rhs.z);
+  }
+
   /**
    * Get dot product of two Vector3's
    *
@@ -170,16 +226,27 @@ public class Vector3 {
    * @return A Vector3 perpendicular to Vector3's
    */
   public static Vector3 cross(Vector3 lhs, Vector3 rhs) {
+    Vector3 result = new Vector3();
+    cross(lhs, rhs, result);
+    return result;
+  }
+
+  /**
+   * Get cross product of two Vector3's without allocating.
+   *
+   * @param dest the Vector3 that receives the result, may be lhs or rhs
+   */
+  public static void cross(Vector3 lhs, Vector3 rhs, Vector3 dest) {
     Preconditions.checkNotNull(lhs, "Parameter \"lhs\" was null.");
     Preconditions.checkNotNull(rhs, "Parameter \"rhs\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
     float lhsX = lhs.x;
     float lhsY = lhs.y;
     float lhsZ = lhs.z;
     float rhsX = rhs.x;
     float rhsY = rhs.y;
     float rhsZ = rhs.z;
-    return new Vector3(
-        lhsY * rhsZ - lhsZ * rhsY, lhsZ * rhsX - lhsX * rhsZ, lhsX * rhsY - lhsY * rhsX);
+    dest.set(lhsY * rhsZ - lhsZ * rhsY, lhsZ * rhsX - lhsX * rhsZ, lhsX * rhsY - lhsY * rhsX);
   }
 
   /** Get a Vector3 with each value set to the element wise minimum of two Vector3's values */
@@ -189,6 +256,18 @@ public class Vector3 {
     return new Vector3(Math.min(lhs.x, rhs.x), Math.min(lhs.y, rhs.y), Math.min(lhs.z, rhs.z));
   }
 
+  /**
+   * Set dest to the element wise minimum of two Vector3's values without allocating.
+   *
+   * @param dest the Vector3 that receives the result, may be lhs or rhs
+   */
+  public static void min(Vector3 lhs, Vector3 rhs, Vector3 dest) {
+    Preconditions.checkNotNull(lhs, "Parameter \"lhs\" was null.");
+    Preconditions.checkNotNull(rhs, "Parameter \"rhs\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(Math.min(lhs.x, rhs.x), Math.min(lhs.y, rhs.y), Math.min(lhs.z, rhs.z));
+  }
+
   /** Get a Vector3 with each value set to the element wise maximum of two Vector3's values */
   public static Vector3 max(Vector3 lhs, Vector3 rhs) {
     Preconditions.checkNotNull(lhs, "Parameter \"lhs\" was null.");
@@ -196,6 +275,18 @@ public class Vector3 {
     return new Vector3(Math.max(lhs.x, rhs.x), Math.max(lhs.y, rhs.y), Math.max(lhs.z, rhs.z));
   }
 
+  /**
+   * Set dest to the element wise maximum of two Vector3's values without allocating.
+   *
+   * @param dest the Vector3 that receives the result, may be lhs or rhs
+   */
+  public static void max(Vector3 lhs, Vector3 rhs, Vector3 dest) {
+    Preconditions.checkNotNull(lhs, "Parameter \"lhs\" was null.");
+    Preconditions.checkNotNull(rhs, "Parameter \"rhs\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(Math.max(lhs.x, rhs.x), Math.max(lhs.y, rhs.y), Math.max(lhs.z, rhs.z));
+  }
+
   /** Get the maximum value in a single Vector3 */
   static float componentMax(Vector3 a) {
     Preconditions.checkNotNull(a, "Parameter \"a\" was null.");
@@ -223,6 +314,22 @@ public class Vector3 {
         MathHelper.lerp(a.x, b.x, t), MathHelper.lerp(a.y, b.y, t), MathHelper.lerp(a.z, b.z, t));
   }
 
+  /**
+   * Linearly interpolates between a and b without allocating.
+   *
+   * @param a the beginning value
+   * @param b the ending value
+   * @param t ratio between the two floats.
+   * @param dest the Vector3 that receives the interpolated value, may be a or b
+   */
+  public static void lerp(Vector3 a, Vector3 b, float t, Vector3 dest) {
+    Preconditions.checkNotNull(a, "Parameter \"a\" was null.");
+    Preconditions.checkNotNull(b, "Parameter \"b\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(
+        MathHelper.lerp(a.x, b.x, t), MathHelper.lerp(a.y, b.y, t), MathHelper.lerp(a.z, b.z, t));
+  }
+
   /**
    * Returns the shortest angle in degrees between two vectors. The result is never greater than 180
    * degrees.
@@ -15,8 +15,7 @@ import com.google.ar.core.CameraIntrinsics;
 import com.google.ar.core.Frame;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
 import com.google.ar.sceneform.utilities.Preconditions;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import com.google.ar.sceneform.utilities.SceneformBufferUtils;
 import java.nio.FloatBuffer;
 import java.nio.ShortBuffer;
 import java.util.concurrent.CompletableFuture;
@@ -71,7 +70,7 @@ public class CameraStream {
     IEngine engine = EngineInstance.getEngine();
 
     // create screen quad geometry to camera stream to
-    ShortBuffer indexBufferData = ShortBuffer.allocate(CAMERA_INDICES.length);
+    ShortBuffer indexBufferData = SceneformBufferUtils.acquireShortBuffer(CAMERA_INDICES.length);
     indexBufferData.put(CAMERA_INDICES);
     final int indexCount = indexBufferData.capacity();
     cameraIndexBuffer =
@@ -81,13 +80,19 @@ public class CameraStream {
             .build(engine.getFilamentEngine());
     indexBufferData.rewind();
     Preconditions.checkNotNull(cameraIndexBuffer)
-        .setBuffer(engine.getFilamentEngine(), indexBufferData);
+        .setBuffer(
+            engine.getFilamentEngine(),
+            indexBufferData,
+            0,
+            indexCount,
+            ThreadPools.getMainExecutor(),
+            () -> SceneformBufferUtils.releaseBuffer(indexBufferData));
 
     // Note: ARCore expects the UV buffers to be direct or will assert in transformDisplayUvCoords.
     cameraUvCoords = createCameraUVBuffer();
     transformedCameraUvCoords = createCameraUVBuffer();
 
-    FloatBuffer vertexBufferData = FloatBuffer.allocate(CAMERA_VERTICES.length);
+    FloatBuffer vertexBufferData = SceneformBufferUtils.acquireFloatBuffer(CAMERA_VERTICES.length);
     vertexBufferData.put(CAMERA_VERTICES);
 
     cameraVertexBuffer =
@@ -110,7 +115,14 @@ public class CameraStream {
 
     vertexBufferData.rewind();
     Preconditions.checkNotNull(cameraVertexBuffer)
-        .setBufferAt(engine.getFilamentEngine(), POSITION_BUFFER_INDEX, vertexBufferData);
+        .setBufferAt(
+            engine.getFilamentEngine(),
+            POSITION_BUFFER_INDEX,
+            vertexBufferData,
+            0,
+            CAMERA_VERTICES.length,
+            ThreadPools.getMainExecutor(),
+            () -> SceneformBufferUtils.releaseBuffer(vertexBufferData));
 
     adjustCameraUvsForOpenGL();
     cameraVertexBuffer.setBufferAt(
@@ -233,10 +245,8 @@ public class CameraStream {
   }
 
   private static FloatBuffer createCameraUVBuffer() {
-    FloatBuffer buffer =
-        ByteBuffer.allocateDirect(CAMERA_UVS.length * FLOAT_SIZE_IN_BYTES)
-            .order(ByteOrder.nativeOrder())
-            .asFloatBuffer();
+    // Pooled buffers are direct and in native order. Released when the camera stream is cleaned up.
+    FloatBuffer buffer = SceneformBufferUtils.acquireFloatBuffer(CAMERA_UVS.length);
     buffer.put(CAMERA_UVS);
     buffer.rewind();
 
@@ -268,7 +278,12 @@ public class CameraStream {
         .register(
             this,
             new CleanupCallback(
-                scene, cameraStreamRenderable, cameraIndexBuffer, cameraVertexBuffer));
+                scene,
+                cameraStreamRenderable,
+                cameraIndexBuffer,
+                cameraVertexBuffer,
+                cameraUvCoords,
+                transformedCameraUvCoords));
   }
 
   /** Cleanup filament objects after garbage collection */
@@ -277,16 +292,22 @@ public class CameraStream {
     private final int cameraStreamRenderable;
     private final IndexBuffer cameraIndexBuffer;
     private final VertexBuffer cameraVertexBuffer;
+    private final FloatBuffer cameraUvCoords;
+    private final FloatBuffer transformedCameraUvCoords;
 
     CleanupCallback(
         Scene scene,
         int cameraStreamRenderable,
         IndexBuffer cameraIndexBuffer,
-        VertexBuffer cameraVertexBuffer) {
+        VertexBuffer cameraVertexBuffer,
+        FloatBuffer cameraUvCoords,
+        FloatBuffer transformedCameraUvCoords) {
       this.scene = scene;
       this.cameraStreamRenderable = cameraStreamRenderable;
       this.cameraIndexBuffer = cameraIndexBuffer;
       this.cameraVertexBuffer = cameraVertexBuffer;
+      this.cameraUvCoords = cameraUvCoords;
+      this.transformedCameraUvCoords = transformedCameraUvCoords;
     }
 
     @Override
@@ -304,6 +325,8 @@ public class CameraStream {
 
       engine.destroyIndexBuffer(cameraIndexBuffer);
       engine.destroyVertexBuffer(cameraVertexBuffer);
+      SceneformBufferUtils.releaseBuffer(cameraUvCoords);
+      SceneformBufferUtils.releaseBuffer(transformedCameraUvCoords);
     }
   }
 }
@@ -13,6 +13,7 @@ public class CleanupRegistry<T> implements ResourceHolder {
 
   private final java.util.HashSet<CleanupItem<T>> cleanupItemHashSet;
   private final ReferenceQueue<T> referenceQueue;
+  private long reclaimedCount;
 
   public CleanupRegistry() {
     this(new HashSet<>(), new ReferenceQueue<>());
@@ -48,12 +49,21 @@ public class CleanupRegistry<T> implements ResourceHolder {
       if (cleanupItemHashSet.contains(ref)) {
         ref.run();
         cleanupItemHashSet.remove(ref);
+        reclaimedCount++;
       }
       ref = (CleanupItem<T>) referenceQueue.poll();
     }
     return cleanupItemHashSet.size();
   }
 
+  /**
+   * Returns the total number of resources released by {@link #reclaimReleasedResources()} after
+   * being garbage collected.
+   */
+  public long getReclaimedCount() {
+    return reclaimedCount;
+  }
+
   /** Ignores reference count and releases any associated resources */
   @Override
   public void destroyAllResources() {
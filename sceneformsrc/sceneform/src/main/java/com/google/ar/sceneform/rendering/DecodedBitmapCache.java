@@ -0,0 +1,124 @@
+package com.google.ar.sceneform.rendering;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.google.ar.sceneform.utilities.DiskCache;
+import com.google.ar.sceneform.utilities.Preconditions;
+import com.google.ar.sceneform.utilities.SceneformBufferUtils;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.Callable;
+
+/**
+ * On-disk cache of decoded texture bitmaps, keyed by the hash of the encoded image.
+ *
+ * <p>Decoding the images embedded in an SFB is the most expensive step of loading it. The cache
+ * stores the decoded pixels in a memory mappable format, so that later loads of the same image,
+ * including after the app restarts, copy the pixels straight into a bitmap instead of decoding
+ * the image again. Mip levels aren't stored since Filament generates them on the GPU. Loads only
+ * use the cache when it is enabled on the builder with {@code setDecodedTextureCacheEnabled}.
+ *
+ * <p>An entry is a header followed by the pixels of an ARGB_8888 bitmap as returned by {@link
+ * Bitmap#copyPixelsToBuffer(java.nio.Buffer)}. The header holds, as little endian ints, a magic
+ * number, the width, the height and whether the pixels are premultiplied. Changing the format
+ * requires incrementing {@link #FORMAT_VERSION}, which discards the existing entries.
+ */
+class DecodedBitmapCache {
+  private static final String TAG = DecodedBitmapCache.class.getSimpleName();
+  private static final String DIRECTORY_NAME = "sceneform_bitmaps";
+  private static final int FORMAT_VERSION = 1;
+  private static final long MAX_SIZE_BYTES = 128 << 20;
+
+  private static final int MAGIC = 0x53464254; // "SFBT"
+  // The header is padded so that the pixels are aligned.
+  private static final int HEADER_SIZE_BYTES = 16;
+  private static final int BYTES_PER_PIXEL = 4;
+
+  @Nullable private static DecodedBitmapCache instance = null;
+
+  private final DiskCache diskCache;
+
+  /** Returns the cache stored in the cache directory of the application. */
+  static synchronized DecodedBitmapCache getInstance(Context context) {
+    if (instance == null) {
+      File directory = new File(context.getApplicationContext().getCacheDir(), DIRECTORY_NAME);
+      instance = new DecodedBitmapCache(new DiskCache(directory, FORMAT_VERSION, MAX_SIZE_BYTES));
+    }
+    return instance;
+  }
+
+  DecodedBitmapCache(DiskCache diskCache) {
+    this.diskCache = Preconditions.checkNotNull(diskCache, "Parameter \"diskCache\" was null.");
+  }
+
+  /**
+   * Returns the bitmap decoded from the encoded image, reading it from the cache if it was decoded
+   * before and otherwise decoding it and storing it in the cache. Failing to use the cache never
+   * fails the decode.
+   *
+   * @param encodedImage the encoded image, used as the key
+   * @param premultiplied whether the decoder premultiplies the pixels, also part of the key
+   * @param decoder decodes the image into an ARGB_8888 bitmap
+   */
+  Bitmap getOrDecode(ByteBuffer encodedImage, boolean premultiplied, Callable<Bitmap> decoder)
+      throws Exception {
+    String key = DiskCache.hashKey(encodedImage) + (premultiplied ? "p" : "s");
+
+    ByteBuffer entry = diskCache.get(key);
+    if (entry != null) {
+      Bitmap bitmap = readBitmap(entry);
+      if (bitmap != null) {
+        return bitmap;
+      }
+      Log.w(TAG, "Ignoring invalid cache entry " + key);
+    }
+
+    Bitmap bitmap = decoder.call();
+    if (bitmap.getConfig() == Bitmap.Config.ARGB_8888) {
+      ByteBuffer newEntry = writeBitmap(bitmap);
+      diskCache.put(key, newEntry);
+      SceneformBufferUtils.releaseBuffer(newEntry);
+    }
+    return bitmap;
+  }
+
+  @Nullable
+  private static Bitmap readBitmap(ByteBuffer entry) {
+    entry.order(ByteOrder.LITTLE_ENDIAN);
+    if (entry.remaining() < HEADER_SIZE_BYTES || entry.getInt(0) != MAGIC) {
+      return null;
+    }
+
+    int width = entry.getInt(4);
+    int height = entry.getInt(8);
+    boolean premultiplied = entry.getInt(12) != 0;
+    if (width <= 0
+        || height <= 0
+        || entry.remaining() != HEADER_SIZE_BYTES + (long) width * height * BYTES_PER_PIXEL) {
+      return null;
+    }
+
+    Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    // The stored pixels are already in the right form, this only changes how they are interpreted.
+    bitmap.setPremultiplied(premultiplied);
+    entry.position(HEADER_SIZE_BYTES);
+    bitmap.copyPixelsFromBuffer(entry);
+    return bitmap;
+  }
+
+  private static ByteBuffer writeBitmap(Bitmap bitmap) {
+    ByteBuffer entry =
+        SceneformBufferUtils.acquireDirectBuffer(HEADER_SIZE_BYTES + bitmap.getByteCount())
+            .order(ByteOrder.LITTLE_ENDIAN);
+    entry.putInt(MAGIC);
+    entry.putInt(bitmap.getWidth());
+    entry.putInt(bitmap.getHeight());
+    entry.putInt(bitmap.isPremultiplied() ? 1 : 0);
+    bitmap.copyPixelsToBuffer(entry);
+    entry.flip();
+    return entry;
+  }
+}
@@ -0,0 +1,215 @@
+package com.google.ar.sceneform.rendering;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link Executor} for the main thread that spreads queued work across frames.
+ *
+ * <p>Work can be queued from any thread. It is run on the main thread by {@link #runFrame(long)},
+ * which the {@link com.google.ar.sceneform.SceneView} calls at the start of every frame. Each frame
+ * runs queued work until the frame budget is used up, so finishing a large load doesn't cause a
+ * hitch. Work that doesn't fit in the budget is carried over to the next frame. At least one task
+ * is run per frame regardless of the budget, so that the queue always makes progress.
+ *
+ * <p>Tasks with a higher priority are run first. Tasks with the same priority are run in the order
+ * in which they were queued.
+ *
+ * <p>While no frames are being run, for example before a view is resumed, the queued work is run
+ * from the handler instead, still in budgeted batches.
+ *
+ * @hide
+ */
+public class FrameBudgetedExecutor implements Executor {
+  /** Priority of the work queued with {@link #execute(Runnable)}. */
+  public static final int DEFAULT_PRIORITY = 0;
+
+  private static final long DEFAULT_FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(4);
+  // Frames are considered stopped when none has run for this long.
+  private static final long IDLE_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+  private static final long IDLE_CHECK_DELAY_MILLIS = 16;
+
+  private final LongSupplier clock;
+  @Nullable private final Handler handler;
+  private final Runnable idleRunnable = this::runIfIdle;
+
+  // Guarded by this.
+  private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+  private long nextSequence;
+  private boolean isIdleRunnablePosted;
+  private long lastFrameNanos;
+  private boolean hasRunFrame;
+
+  // Only accessed on the main thread.
+  private long frameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+  private long lastFrameTimeNanos = Long.MIN_VALUE;
+
+  /** Creates an executor for the main looper using the system clock. */
+  public FrameBudgetedExecutor() {
+    this(System::nanoTime, new Handler(Looper.getMainLooper()));
+  }
+
+  /**
+   * Creates an executor with the given clock.
+   *
+   * @param clock returns the current time in nanoseconds, used to measure the budget
+   * @param handler runs the queued work while no frames are being run, or null to only run it from
+   *     {@link #runFrame(long)}
+   */
+  public FrameBudgetedExecutor(LongSupplier clock, @Nullable Handler handler) {
+    this.clock = Preconditions.checkNotNull(clock, "Parameter \"clock\" was null.");
+    this.handler = handler;
+  }
+
+  /**
+   * Sets the maximum time spent running queued work per frame. Defaults to 4 milliseconds.
+   *
+   * @param budget the maximum time, or 0 to run a single task per frame
+   * @param unit the unit of the budget
+   */
+  public void setFrameBudget(long budget, TimeUnit unit) {
+    frameBudgetNanos = unit.toNanos(budget);
+  }
+
+  /** Queues work with {@link #DEFAULT_PRIORITY}. */
+  @Override
+  public void execute(Runnable runnable) {
+    execute(runnable, DEFAULT_PRIORITY);
+  }
+
+  /**
+   * Queues work with the given priority.
+   *
+   * @param runnable the work to run on the main thread
+   * @param priority tasks with a higher priority are run first
+   */
+  public void execute(Runnable runnable, int priority) {
+    Preconditions.checkNotNull(runnable, "Parameter \"runnable\" was null.");
+
+    boolean postIdleRunnable;
+    boolean isIdle;
+    synchronized (this) {
+      tasks.add(new Task(runnable, priority, nextSequence++));
+      postIdleRunnable = handler != null && !isIdleRunnablePosted;
+      isIdleRunnablePosted |= postIdleRunnable;
+      isIdle = isIdle();
+    }
+
+    if (postIdleRunnable) {
+      postIdleRunnable(isIdle);
+    }
+  }
+
+  /** Returns an {@link Executor} that queues work on this executor with the given priority. */
+  public Executor withPriority(int priority) {
+    return runnable -> execute(runnable, priority);
+  }
+
+  /** Returns the number of tasks waiting to be run. */
+  public synchronized int getPendingTaskCount() {
+    return tasks.size();
+  }
+
+  /**
+   * Runs queued work for the frame up to the frame budget. Calls with the same frame time as the
+   * previous call are ignored, so that several views can drive the same executor.
+   *
+   * @param frameTimeNanos the time of the frame, as passed to the choreographer callback
+   */
+  public void runFrame(long frameTimeNanos) {
+    if (frameTimeNanos == lastFrameTimeNanos) {
+      return;
+    }
+    lastFrameTimeNanos = frameTimeNanos;
+
+    synchronized (this) {
+      lastFrameNanos = clock.getAsLong();
+      hasRunFrame = true;
+    }
+    runTasks();
+  }
+
+  /** Runs queued work up to the frame budget. Returns true if work is left in the queue. */
+  private boolean runTasks() {
+    long startNanos = clock.getAsLong();
+    while (true) {
+      Task task;
+      synchronized (this) {
+        task = tasks.poll();
+      }
+      if (task == null) {
+        return false;
+      }
+
+      task.runnable.run();
+
+      if (clock.getAsLong() - startNanos >= frameBudgetNanos) {
+        synchronized (this) {
+          return !tasks.isEmpty();
+        }
+      }
+    }
+  }
+
+  private void runIfIdle() {
+    boolean isIdle;
+    synchronized (this) {
+      isIdle = isIdle();
+    }
+
+    // While frames are running they will drain the queue, only keep checking in case they stop.
+    boolean hasMoreTasks = true;
+    try {
+      hasMoreTasks = isIdle ? runTasks() : getPendingTaskCount() > 0;
+    } finally {
+      synchronized (this) {
+        isIdleRunnablePosted = hasMoreTasks;
+        isIdle = isIdle();
+      }
+
+      if (hasMoreTasks) {
+        postIdleRunnable(isIdle);
+      }
+    }
+  }
+
+  private void postIdleRunnable(boolean isIdle) {
+    Handler handler = Preconditions.checkNotNull(this.handler);
+    if (isIdle) {
+      handler.post(idleRunnable);
+    } else {
+      handler.postDelayed(idleRunnable, IDLE_CHECK_DELAY_MILLIS);
+    }
+  }
+
+  /** Returns true if no frame has been run recently. Must be called while holding the lock. */
+  private boolean isIdle() {
+    return !hasRunFrame || clock.getAsLong() - lastFrameNanos >= IDLE_THRESHOLD_NANOS;
+  }
+
+  private static final class Task implements Comparable<Task> {
+    private final Runnable runnable;
+    private final int priority;
+    private final long sequence;
+
+    Task(Runnable runnable, int priority, long sequence) {
+      this.runnable = runnable;
+      this.priority = priority;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int compareTo(Task other) {
+      if (priority != other.priority) {
+        return Integer.compare(other.priority, priority);
+      }
+      return Long.compare(sequence, other.sequence);
+    }
+  }
+}
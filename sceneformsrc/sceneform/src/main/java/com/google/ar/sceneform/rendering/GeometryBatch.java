@@ -0,0 +1,313 @@
+package com.google.ar.sceneform.rendering;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import com.google.ar.sceneform.math.Matrix;
+import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.rendering.RenderableDefinition.Submesh;
+import com.google.ar.sceneform.rendering.Vertex.UvCoordinate;
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Merges the geometry of many {@link RenderableDefinition}s into a single renderable that is drawn
+ * with one material.
+ *
+ * <p>The vertices of each definition are transformed on the CPU and written to a range of one
+ * shared mesh. Changing the transform of a definition rewrites its range, and removing a
+ * definition collapses the triangles of its range, so that only the changed ranges are uploaded.
+ * The mesh is compacted once most of its vertices belong to removed definitions.
+ *
+ * @hide Used by StaticBatch, not part of the external API.
+ */
+public class GeometryBatch {
+  /** The range of the shared mesh used by a definition. */
+  private static final class Member {
+    final RenderableDefinition definition;
+    final Matrix transform = new Matrix();
+    int vertexStart;
+    int triangleStart;
+    int triangleCount;
+
+    Member(RenderableDefinition definition) {
+      this.definition = definition;
+    }
+  }
+
+  private final LinkedHashMap<Object, Member> members = new LinkedHashMap<>();
+  private final MeshBuilder mesh = new MeshBuilder();
+  private final RenderableDefinition renderableDefinition;
+  private final Submesh submesh;
+
+  @Nullable private ModelRenderable renderable;
+
+  // The vertices of removed definitions that are still in the mesh.
+  private int unusedVertexCount;
+  private boolean isDirty;
+
+  // Reused while writing vertices to avoid allocations.
+  private final Matrix normalMatrix = new Matrix();
+  private final Vector3 position = new Vector3();
+  private final Vector3 normal = new Vector3();
+  private final UvCoordinate uvCoordinate = new UvCoordinate(0.0f, 0.0f);
+  private final Color color = new Color();
+
+  public GeometryBatch(Material material) {
+    Preconditions.checkNotNull(material, "Parameter \"material\" was null.");
+
+    submesh =
+        Submesh.builder()
+            .setTriangleIndices(mesh.getTriangleIndices())
+            .setMaterial(material)
+            .build();
+    renderableDefinition = RenderableDefinition.builder().setMesh(mesh).build();
+    renderableDefinition.getSubmeshes().add(submesh);
+  }
+
+  public Material getMaterial() {
+    return submesh.getMaterial();
+  }
+
+  public int getMemberCount() {
+    return members.size();
+  }
+
+  public boolean isEmpty() {
+    return members.isEmpty();
+  }
+
+  @VisibleForTesting
+  MeshBuilder getMesh() {
+    return mesh;
+  }
+
+  /**
+   * Adds the geometry of a definition to the batch, replacing the geometry previously added with
+   * the same key. The materials of the definition are ignored.
+   *
+   * @param key identifies the definition when it is transformed or removed
+   * @param definition the geometry to add, which must have the same vertex attributes as the
+   *     geometry of the other keys
+   * @param transform the transform applied to the vertices of the definition
+   * @throws IllegalArgumentException if the definition has different vertex attributes, the
+   *     geometry previously added with the key is kept
+   */
+  public void add(Object key, RenderableDefinition definition, Matrix transform) {
+    Preconditions.checkNotNull(key, "Parameter \"key\" was null.");
+    Preconditions.checkNotNull(definition, "Parameter \"definition\" was null.");
+    Preconditions.checkNotNull(transform, "Parameter \"transform\" was null.");
+
+    validateAttributes(key, definition);
+    remove(key);
+
+    // The mesh may still hold the vertices of removed definitions with other attributes.
+    if (!hasMeshAttributes(definition)) {
+      compact();
+    }
+
+    Member member = new Member(definition);
+    member.transform.set(transform);
+    try {
+      appendMember(member);
+    } catch (RuntimeException ex) {
+      // Drop the vertices that were appended before the definition was found to be invalid.
+      compact();
+      isDirty = true;
+      throw ex;
+    }
+    members.put(key, member);
+    isDirty = true;
+  }
+
+  /** Returns true if geometry was added with the key. */
+  public boolean contains(Object key) {
+    return members.containsKey(key);
+  }
+
+  /** Moves the geometry added with the key, rewriting only its range. */
+  public void setTransform(Object key, Matrix transform) {
+    Preconditions.checkNotNull(transform, "Parameter \"transform\" was null.");
+
+    Member member = members.get(key);
+    if (member == null) {
+      throw new IllegalArgumentException("No geometry was added with this key.");
+    }
+
+    member.transform.set(transform);
+    writeVertices(member);
+    isDirty = true;
+  }
+
+  /** Removes the geometry added with the key, returns false if there is none. */
+  public boolean remove(Object key) {
+    Member member = members.remove(key);
+    if (member == null) {
+      return false;
+    }
+
+    int triangleEnd = member.triangleStart + member.triangleCount;
+    for (int i = member.triangleStart; i < triangleEnd; i++) {
+      mesh.setTriangle(i, member.vertexStart, member.vertexStart, member.vertexStart);
+    }
+    unusedVertexCount += member.definition.getVertexCount();
+    isDirty = true;
+    return true;
+  }
+
+  /**
+   * Uploads the changes made since the last update.
+   *
+   * @return the renderable drawing the batch, or null if the batch has no geometry
+   */
+  @Nullable
+  @SuppressWarnings("AndroidApiChecker")
+  public ModelRenderable update() {
+    if (!isDirty) {
+      return hasGeometry() ? renderable : null;
+    }
+    isDirty = false;
+
+    if (unusedVertexCount > mesh.getVertexCount() / 2) {
+      compact();
+    }
+
+    if (!hasGeometry()) {
+      return null;
+    }
+
+    if (renderable == null) {
+      try {
+        renderable = ModelRenderable.builder().setSource(renderableDefinition).build().get();
+        // Creating a Renderable is immediate when using RenderableDefinition.
+      } catch (InterruptedException | ExecutionException ex) {
+        throw new AssertionError("Unable to create batch renderable.", ex);
+      }
+    } else {
+      renderable.updateFromDefinition(renderableDefinition);
+    }
+    return renderable;
+  }
+
+  private boolean hasGeometry() {
+    return !members.isEmpty() && mesh.getIndexCount() > 0;
+  }
+
+  /** Compares the definition with the geometry of the other keys, ignoring the one it replaces. */
+  private void validateAttributes(Object key, RenderableDefinition definition) {
+    if (definition.getVertexCount() == 0) {
+      return;
+    }
+
+    for (Map.Entry<Object, Member> entry : members.entrySet()) {
+      RenderableDefinition other = entry.getValue().definition;
+      if (entry.getKey().equals(key) || other.getVertexCount() == 0) {
+        continue;
+      }
+
+      // All of the other definitions were validated the same way, comparing with one is enough.
+      if (hasNormals(definition) != hasNormals(other)
+          || hasUvCoordinates(definition) != hasUvCoordinates(other)
+          || hasColors(definition) != hasColors(other)) {
+        throw new IllegalArgumentException(
+            "All of the geometry in a batch must have the same vertex attributes.");
+      }
+      return;
+    }
+  }
+
+  private boolean hasMeshAttributes(RenderableDefinition definition) {
+    return definition.getVertexCount() == 0
+        || mesh.getVertexCount() == 0
+        || (hasNormals(definition) == mesh.hasNormals()
+            && hasUvCoordinates(definition) == mesh.hasUvCoordinates()
+            && hasColors(definition) == mesh.hasColors());
+  }
+
+  private boolean hasNormals(RenderableDefinition definition) {
+    return definition.getVertexNormal(0, normal) != null;
+  }
+
+  private boolean hasUvCoordinates(RenderableDefinition definition) {
+    return definition.getVertexUvCoordinate(0, uvCoordinate) != null;
+  }
+
+  private boolean hasColors(RenderableDefinition definition) {
+    return definition.getVertexColor(0, color) != null;
+  }
+
+  /** Rebuilds the mesh from the remaining definitions, dropping the unused vertices. */
+  private void compact() {
+    mesh.clear();
+    unusedVertexCount = 0;
+    for (Member member : members.values()) {
+      appendMember(member);
+    }
+  }
+
+  private void appendMember(Member member) {
+    RenderableDefinition definition = member.definition;
+    int vertexCount = definition.getVertexCount();
+
+    // The positions and normals depend on the transform, they are written below.
+    member.vertexStart = mesh.getVertexCount();
+    for (int i = 0; i < vertexCount; i++) {
+      mesh.addVertex(0.0f, 0.0f, 0.0f);
+      if (definition.getVertexNormal(i, normal) != null) {
+        mesh.setNormal(0.0f, 1.0f, 0.0f);
+      }
+      if (definition.getVertexUvCoordinate(i, uvCoordinate) != null) {
+        mesh.setUvCoordinate(uvCoordinate.x, uvCoordinate.y);
+      }
+      if (definition.getVertexColor(i, color) != null) {
+        mesh.setColor(color.r, color.g, color.b, color.a);
+      }
+    }
+    writeVertices(member);
+
+    member.triangleStart = mesh.getIndexCount() / 3;
+    for (Submesh definitionSubmesh : definition.getSubmeshes()) {
+      List<Integer> indices = definitionSubmesh.getTriangleIndices();
+      for (int i = 0; i + 2 < indices.size(); i += 3) {
+        mesh.addTriangle(
+            member.vertexStart + indices.get(i),
+            member.vertexStart + indices.get(i + 1),
+            member.vertexStart + indices.get(i + 2));
+      }
+    }
+    member.triangleCount = mesh.getIndexCount() / 3 - member.triangleStart;
+  }
+
+  private void writeVertices(Member member) {
+    RenderableDefinition definition = member.definition;
+    Matrix transform = member.transform;
+
+    // Normals are transformed by the inverse transpose, so that scaling keeps them perpendicular.
+    boolean hasNormals = mesh.hasNormals();
+    if (hasNormals) {
+      Matrix.invert(transform, normalMatrix);
+    }
+    float[] inverse = normalMatrix.data;
+
+    for (int i = 0; i < definition.getVertexCount(); i++) {
+      int vertex = member.vertexStart + i;
+      definition.getVertexPosition(i, position);
+      transform.transformPoint(position, position);
+      mesh.setPosition(vertex, position.x, position.y, position.z);
+
+      if (hasNormals && definition.getVertexNormal(i, normal) != null) {
+        float x = normal.x;
+        float y = normal.y;
+        float z = normal.z;
+        normal.set(
+            inverse[0] * x + inverse[1] * y + inverse[2] * z,
+            inverse[4] * x + inverse[5] * y + inverse[6] * z,
+            inverse[8] * x + inverse[9] * y + inverse[10] * z);
+        normal.normalized(normal);
+        mesh.setNormal(vertex, normal.x, normal.y, normal.z);
+      }
+    }
+  }
+}
@@ -0,0 +1,235 @@
+package com.google.ar.sceneform.rendering;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+import com.google.ar.sceneform.utilities.LoadHelper;
+import com.google.ar.sceneform.utilities.Preconditions;
+import com.google.ar.sceneform.utilities.SceneformBufferUtils;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Reads a glTF or GLB file from a stream and fetches its external resources.
+ *
+ * <p>Everything happens on the thread pool. A GLB file is parsed chunk by chunk as it arrives, so
+ * that the external buffers and images referenced by the JSON chunk start downloading while the
+ * binary chunk is still being read. The external resources are fetched concurrently. Resources
+ * that fail to download are logged and left out, {@link RenderableInstance} then retries them.
+ */
+@SuppressWarnings("AndroidApiChecker") // CompletableFuture
+class GltfStreamLoader {
+  private static final String TAG = GltfStreamLoader.class.getSimpleName();
+
+  // See the GLB file format in the glTF 2.0 specification.
+  private static final int GLB_MAGIC = 0x46546C67; // "glTF"
+  private static final int GLB_HEADER_SIZE_BYTES = 12;
+  private static final int GLB_CHUNK_HEADER_SIZE_BYTES = 8;
+  private static final int GLB_CHUNK_TYPE_JSON = 0x4E4F534A; // "JSON"
+  private static final String DATA_URI_PREFIX = "data:";
+
+  /** The loaded file along with the external resources that were fetched for it. */
+  static final class Result {
+    final ByteBuffer gltfByteBuffer;
+    final boolean isGltfBinary;
+    final Map<String, Buffer> resources;
+
+    Result(ByteBuffer gltfByteBuffer, boolean isGltfBinary, Map<String, Buffer> resources) {
+      this.gltfByteBuffer = gltfByteBuffer;
+      this.isGltfBinary = isGltfBinary;
+      this.resources = resources;
+    }
+  }
+
+  private final Context context;
+  private final Function<String, Uri> urlResolver;
+
+  // Filled while reading the file and collected once it has been read, a loader is used once.
+  private final Map<String, CompletableFuture<ByteBuffer>> pendingResources = new HashMap<>();
+
+  /**
+   * @param context used to open the external resources
+   * @param urlResolver resolves the uris of the external resources relative to the file
+   */
+  GltfStreamLoader(Context context, Function<String, Uri> urlResolver) {
+    this.context = Preconditions.checkNotNull(context, "Parameter \"context\" was null.");
+    this.urlResolver =
+        Preconditions.checkNotNull(urlResolver, "Parameter \"urlResolver\" was null.");
+  }
+
+  /**
+   * Reads the file on the thread pool. The returned future completes once the file and all of its
+   * external resources have been read.
+   */
+  CompletableFuture<Result> load(Callable<InputStream> inputStreamCreator) {
+    Preconditions.checkNotNull(inputStreamCreator, "Parameter \"inputStreamCreator\" was null.");
+
+    return CompletableFuture.supplyAsync(
+            () -> {
+              try (InputStream input = inputStreamCreator.call()) {
+                return read(input);
+              } catch (Exception e) {
+                throw new CompletionException(e);
+              }
+            },
+            ThreadPools.getThreadPoolExecutor())
+        .thenCompose(
+            result ->
+                CompletableFuture.allOf(pendingResources.values().toArray(new CompletableFuture[0]))
+                    .thenApply(unused -> collectResources(result)));
+  }
+
+  private Result read(InputStream input) throws IOException {
+    byte[] magic = new byte[4];
+    int magicLength = readUpTo(input, magic, 0, magic.length);
+    if (magicLength == magic.length && getInt(magic, 0) == GLB_MAGIC) {
+      return readBinary(input, magic);
+    }
+
+    // A JSON file can only be parsed once it has been read completely.
+    byte[] rest = SceneformBufferUtils.inputStreamToByteArray(input);
+    byte[] json = new byte[magicLength + rest.length];
+    System.arraycopy(magic, 0, json, 0, magicLength);
+    System.arraycopy(rest, 0, json, magicLength, rest.length);
+    fetchResources(json, 0, json.length);
+    return new Result(ByteBuffer.wrap(json), false, new HashMap<>());
+  }
+
+  private Result readBinary(InputStream input, byte[] magic) throws IOException {
+    byte[] header = new byte[GLB_HEADER_SIZE_BYTES];
+    System.arraycopy(magic, 0, header, 0, magic.length);
+    readFully(input, header, magic.length, GLB_HEADER_SIZE_BYTES - magic.length);
+
+    // The header holds the total length, so the file is read into a single array without copies.
+    int length = getInt(header, 8);
+    if (length < GLB_HEADER_SIZE_BYTES + GLB_CHUNK_HEADER_SIZE_BYTES) {
+      throw new IOException("Invalid GLB length " + length);
+    }
+    byte[] glb = new byte[length];
+    System.arraycopy(header, 0, glb, 0, GLB_HEADER_SIZE_BYTES);
+    int offset = GLB_HEADER_SIZE_BYTES;
+
+    // The JSON chunk is always the first one.
+    readFully(input, glb, offset, GLB_CHUNK_HEADER_SIZE_BYTES);
+    int chunkLength = getInt(glb, offset);
+    int chunkType = getInt(glb, offset + 4);
+    offset += GLB_CHUNK_HEADER_SIZE_BYTES;
+    if (chunkType != GLB_CHUNK_TYPE_JSON || chunkLength < 0 || chunkLength > length - offset) {
+      throw new IOException("Invalid GLB JSON chunk");
+    }
+    readFully(input, glb, offset, chunkLength);
+    fetchResources(glb, offset, chunkLength);
+    offset += chunkLength;
+
+    // The binary chunk is read while the external resources download.
+    readFully(input, glb, offset, length - offset);
+    return new Result(ByteBuffer.wrap(glb), true, new HashMap<>());
+  }
+
+  /** Starts fetching the external buffers and images referenced by the JSON. */
+  private void fetchResources(byte[] json, int offset, int length) {
+    Set<String> uris = new LinkedHashSet<>();
+    try {
+      JSONObject root = new JSONObject(new String(json, offset, length, StandardCharsets.UTF_8));
+      addUris(root.optJSONArray("buffers"), uris);
+      addUris(root.optJSONArray("images"), uris);
+    } catch (JSONException e) {
+      // Let gltfio report the error, the resources are then fetched when the asset is created.
+      Log.w(TAG, "Failed to parse glTF JSON", e);
+      return;
+    }
+
+    for (String uri : uris) {
+      pendingResources.put(uri, fetchResource(uri));
+    }
+  }
+
+  private CompletableFuture<ByteBuffer> fetchResource(String uri) {
+    return CompletableFuture.supplyAsync(
+            () -> {
+              Uri dataUri = urlResolver.apply(uri);
+              try {
+                Callable<InputStream> callable = LoadHelper.fromUri(context, dataUri);
+                byte[] bytes = SceneformBufferUtils.inputStreamCallableToByteArray(callable);
+                return ByteBuffer.wrap(bytes);
+              } catch (Exception e) {
+                throw new CompletionException(e);
+              }
+            },
+            ThreadPools.getThreadPoolExecutor())
+        .exceptionally(
+            throwable -> {
+              Log.w(TAG, "Failed to download uri " + uri, throwable);
+              return null;
+            });
+  }
+
+  private Result collectResources(Result result) {
+    for (Map.Entry<String, CompletableFuture<ByteBuffer>> entry : pendingResources.entrySet()) {
+      ByteBuffer resource = entry.getValue().join();
+      if (resource != null) {
+        result.resources.put(entry.getKey(), resource);
+      }
+    }
+    pendingResources.clear();
+    return result;
+  }
+
+  private static void addUris(JSONArray array, Set<String> uris) {
+    if (array == null) {
+      return;
+    }
+
+    for (int i = 0; i < array.length(); i++) {
+      JSONObject object = array.optJSONObject(i);
+      String uri = object != null ? object.optString("uri", null) : null;
+      // Data uris are decoded by gltfio itself.
+      if (uri != null && !uri.isEmpty() && !uri.startsWith(DATA_URI_PREFIX)) {
+        uris.add(uri);
+      }
+    }
+  }
+
+  private static int getInt(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xFF)
+        | (bytes[offset + 1] & 0xFF) << 8
+        | (bytes[offset + 2] & 0xFF) << 16
+        | (bytes[offset + 3] & 0xFF) << 24;
+  }
+
+  private static void readFully(InputStream input, byte[] bytes, int offset, int length)
+      throws IOException {
+    if (readUpTo(input, bytes, offset, length) != length) {
+      throw new EOFException("Unexpected end of glTF stream");
+    }
+  }
+
+  /** Reads until the length is reached or the stream ends, returns the number of bytes read. */
+  private static int readUpTo(InputStream input, byte[] bytes, int offset, int length)
+      throws IOException {
+    int total = 0;
+    while (total < length) {
+      int count = input.read(bytes, offset + total, length - total);
+      if (count < 0) {
+        break;
+      }
+      total += count;
+    }
+    return total;
+  }
+}
@@ -8,6 +8,7 @@ import com.google.android.filament.VertexBuffer;
 
 
 import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.rendering.RenderableInternalData.LevelOfDetailData;
 import com.google.ar.sceneform.rendering.RenderableInternalData.MeshData;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
@@ -39,6 +40,8 @@ interface IRenderableInternalData {
 
   ArrayList<MeshData> getMeshes();
 
+  List<LevelOfDetailData> getLevelsOfDetail();
+
   void setIndexBuffer(@Nullable IndexBuffer indexBuffer);
 
   @Nullable
@@ -74,6 +77,17 @@ interface IRenderableInternalData {
   @Nullable
   FloatBuffer getRawColorBuffer();
 
+  /**
+   * Sets the mesh whose contents are in the buffers, and the version of the mesh that was uploaded.
+   * Null when the buffers weren't uploaded from a mesh.
+   */
+  void setSyncedMesh(@Nullable MeshBuilder mesh, int version);
+
+  @Nullable
+  MeshBuilder getSyncedMesh();
+
+  int getSyncedMeshVersion();
+
   void setAnimationNames(@NonNull List<String> animationNames);
 
   @NonNull
@@ -6,13 +6,10 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import com.google.android.filament.gltfio.ResourceLoader;
 import com.google.ar.sceneform.utilities.Preconditions;
-import com.google.ar.sceneform.utilities.SceneformBufferUtils;
 import java.io.InputStream;
 import java.net.URI;
-import java.nio.ByteBuffer;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 
 /** Task for initializing a renderable with glTF data loaded with gltfio. */
@@ -45,27 +42,21 @@ public class LoadRenderableFromFilamentGltfTask<T extends Renderable> {
   public CompletableFuture<T> downloadAndProcessRenderable(
       Callable<InputStream> inputStreamCreator) {
 
-    return CompletableFuture.supplyAsync(
-            // Download byte buffer via thread pool
-            () -> {
-              try {
-                return SceneformBufferUtils.inputStreamCallableToByteArray(inputStreamCreator);
-              } catch (Exception e) {
-                throw new CompletionException(e);
-              }
-            },
-            ThreadPools.getThreadPoolExecutor())
+    // Parse the file and fetch its external resources on the thread pool, so that only creating
+    // the asset is left for the main thread.
+    GltfStreamLoader loader =
+        new GltfStreamLoader(
+            renderableData.context, Preconditions.checkNotNull(renderableData.urlResolver));
+    return loader
+        .load(inputStreamCreator)
         .thenApplyAsync(
-            gltfByteBuffer -> {
-              // Check for glb header
-              this.renderableData.isGltfBinary = gltfByteBuffer[0] == 0x67
-                      && gltfByteBuffer[1] == 0x6C
-                      && gltfByteBuffer[2] == 0x54
-                      && gltfByteBuffer[3] == 0x46;
-              this.renderableData.gltfByteBuffer = ByteBuffer.wrap(gltfByteBuffer);
+            result -> {
+              this.renderableData.isGltfBinary = result.isGltfBinary;
+              this.renderableData.gltfByteBuffer = result.gltfByteBuffer;
+              this.renderableData.prefetchedResources = result.resources;
               return renderable;
             },
-            ThreadPools.getMainExecutor());
+            ThreadPools.getMainExecutor(FrameBudgetedExecutor.DEFAULT_PRIORITY));
   }
 
   @NonNull
@@ -66,6 +66,7 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
   private final T renderable;
   private final RenderableInternalData renderableData;
   @Nullable private final Uri renderableUri;
+  @Nullable private final DecodedBitmapCache decodedBitmapCache;
 
   private ModelDef modelDef;
   private ModelInstanceDef modelInstanceDef;
@@ -92,7 +93,14 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
   private static final int BYTES_PER_SHORT = 2;
   private static final int BYTES_PER_INT = 4;
 
-  LoadRenderableFromSfbTask(T renderable, @Nullable Uri renderableUri) {
+  /**
+   * @param decodedBitmapCache caches the decoded textures of the SFB on disk, or null to always
+   *     decode them
+   */
+  LoadRenderableFromSfbTask(
+      T renderable,
+      @Nullable Uri renderableUri,
+      @Nullable DecodedBitmapCache decodedBitmapCache) {
     this.renderable = renderable;
     IRenderableInternalData data = renderable.getRenderableData();
     if (data instanceof RenderableInternalData) {
@@ -101,6 +109,7 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
       throw new IllegalStateException("Expected task type " + TAG);
     }
     this.renderableUri = renderableUri;
+    this.decodedBitmapCache = decodedBitmapCache;
   }
 
   /**
@@ -109,13 +118,30 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
    */
   public CompletableFuture<T> downloadAndProcessRenderable(
       Callable<InputStream> inputStreamCreator) {
+    return loadAndProcessRenderable(
+        () -> SceneformBufferUtils.inputStreamToByteBuffer(inputStreamCreator));
+  }
+
+  /**
+   * Loads the {@link Renderable} from a buffer that holds the whole SFB. When the buffer is direct,
+   * for example because the file was memory mapped, the geometry is handed to Filament straight
+   * from it without being copied.
+   *
+   * @param bufferCreator supplies {@link Renderable} in serialized format
+   * @return {@link CompletableFuture} for a new {@link Renderable}
+   */
+  public CompletableFuture<T> loadAndProcessRenderable(Callable<ByteBuffer> bufferCreator) {
 
     CompletableFuture<T> result =
         CompletableFuture.supplyAsync(
-                // Download byte buffer via thread pool
+                // Load byte buffer via thread pool
                 () -> {
-                  ByteBuffer assetData =
-                      SceneformBufferUtils.inputStreamToByteBuffer(inputStreamCreator);
+                  ByteBuffer assetData;
+                  try {
+                    assetData = bufferCreator.call();
+                  } catch (Exception e) {
+                    throw new CompletionException(e);
+                  }
 
                   // Parse byte buffer via thread pool
                   SceneformBundleDef sfb = byteBufferToSfb(assetData);
@@ -132,7 +158,7 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
                   // Load textures and wait for them to finish.
                   return loadTexturesAsync(sfb);
                 },
-                ThreadPools.getMainExecutor())
+                ThreadPools.getMainExecutor(FrameBudgetedExecutor.DEFAULT_PRIORITY))
             .thenApplyAsync(
                 sfb -> {
                   // Fill in the material parameters. could be done on another thread, but kept here
@@ -140,7 +166,7 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
                   buildMaterialParameters(sfb);
                   return setupFilament(sfb);
                 },
-                ThreadPools.getMainExecutor());
+                ThreadPools.getMainExecutor(FrameBudgetedExecutor.DEFAULT_PRIORITY));
 
     result.exceptionally(
         // Log Exception if there was one.
@@ -232,7 +258,14 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
             .indexCount(indexCount)
             .bufferType(indexType)
             .build(engine.getFilamentEngine());
-    indexBuffer.setBuffer(engine.getFilamentEngine(), indexBufferData);
+    ByteBuffer indexData = indexBufferData;
+    indexBuffer.setBuffer(
+        engine.getFilamentEngine(),
+        indexData,
+        0,
+        indexData.remaining(),
+        ThreadPools.getMainExecutor(),
+        () -> SceneformBufferUtils.releaseBuffer(indexData));
     renderableData.setIndexBuffer(indexBuffer);
 
     VertexBuffer.Builder vertexBufferBuilder =
@@ -260,7 +293,15 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
     }
 
     VertexBuffer vertexBuffer = vertexBufferBuilder.build(engine.getFilamentEngine());
-    vertexBuffer.setBufferAt(engine.getFilamentEngine(), 0, vertexBufferData);
+    ByteBuffer vertexData = vertexBufferData;
+    vertexBuffer.setBufferAt(
+        engine.getFilamentEngine(),
+        0,
+        vertexData,
+        0,
+        vertexData.remaining(),
+        ThreadPools.getMainExecutor(),
+        () -> SceneformBufferUtils.releaseBuffer(vertexData));
     renderableData.setVertexBuffer(vertexBuffer);
 
     setupAnimation();
@@ -363,31 +404,28 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
     int bytesPerVertex = LullModel.getByteCountPerVertex(modelInstanceDef);
     vertexCount = vertexDataCount / bytesPerVertex;
 
-    // TODO: Fix crash in filament when using flatbuffer buffers directly.
+    // Filament can only read from direct buffers. Flatbuffers loaded into the Java heap are copied
+    // into pooled buffers that are released once uploaded, but slices of a memory mapped flatbuffer
+    // are handed over as they are.
+    ByteBuffer indexData;
     if (modelInstanceDef.indices32Length() > 0) {
       // 32 bit indices
       indexCount = modelInstanceDef.indices32Length();
       indexType = IndexBuffer.Builder.IndexType.UINT;
-      indexBufferData = ByteBuffer.allocateDirect(indexCount * BYTES_PER_INT);
-      indexBufferData.put(modelInstanceDef.indices32AsByteBuffer());
+      indexData = modelInstanceDef.indices32AsByteBuffer();
     } else if (modelInstanceDef.indices16Length() > 0) {
       // 16 bit indices
       indexCount = modelInstanceDef.indices16Length();
       indexType = IndexBuffer.Builder.IndexType.USHORT;
-      indexBufferData = ByteBuffer.allocateDirect(indexCount * BYTES_PER_SHORT);
-      indexBufferData.put(modelInstanceDef.indices16AsByteBuffer());
+      indexData = modelInstanceDef.indices16AsByteBuffer();
     } else {
       throw new AssertionError(
           "Model Instance geometry data is invalid (model has no index data).");
     }
-    indexBufferData.flip();
-
-    vertexBufferData = ByteBuffer.allocateDirect(vertexData.remaining());
+    indexBufferData = toDirectBuffer(indexData);
+    vertexBufferData = toDirectBuffer(vertexData);
     Preconditions.checkNotNull(vertexBufferData, "Failed to allocate geometry for FilamentModel.");
 
-    vertexBufferData.put(vertexData);
-    vertexBufferData.flip();
-
     // Calculate vertex stride
     vertexStride = 0;
     int vertexAttributeCount = modelInstanceDef.vertexAttributesLength();
@@ -399,6 +437,21 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
     }
   }
 
+  /**
+   * Returns a direct buffer holding the remaining bytes of the given buffer, sharing its content
+   * when it is already direct and copying it into a pooled buffer otherwise.
+   */
+  private static ByteBuffer toDirectBuffer(ByteBuffer data) {
+    if (data.isDirect()) {
+      return data.slice();
+    }
+
+    ByteBuffer directData = SceneformBufferUtils.acquireDirectBuffer(data.remaining());
+    directData.put(data);
+    directData.flip();
+    return directData;
+  }
+
   // TODO: Return a future for all texture loads, use theComposeAsync to
   // combine it in downloadAndProcessRenderable
   private CompletableFuture<SceneformBundleDef> loadTexturesAsync(SceneformBundleDef sfb) {
@@ -422,15 +475,22 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
       if (samplerDef.dataLength() != 0) {
         // loading texture from RCB
         ByteBuffer data = samplerDef.dataAsByteBuffer();
-        // BUG(b/74619992): An extra copy to input stream is made here to avoid a JNI crash
-        ByteArrayInputStream wrappedInputStream =
-            new ByteArrayInputStream(data.array(), data.arrayOffset(), data.capacity());
-        // position the stream to the image buffer
         boolean premultiplyAlpha = (usage == Texture.Usage.COLOR);
-        wrappedInputStream.skip(data.position());
+        InputStream wrappedInputStream;
+        if (data.hasArray()) {
+          // BUG(b/74619992): An extra copy to input stream is made here to avoid a JNI crash
+          ByteArrayInputStream arrayInputStream =
+              new ByteArrayInputStream(data.array(), data.arrayOffset(), data.capacity());
+          // position the stream to the image buffer
+          arrayInputStream.skip(data.position());
+          wrappedInputStream = arrayInputStream;
+        } else {
+          // Memory mapped bundles don't have a backing array, read the image from the mapping.
+          wrappedInputStream = SceneformBufferUtils.byteBufferToInputStream(data);
+        }
         // TODO: The registryId should be populated with a sha1sum
 
-        textureFuture =
+        Texture.Builder textureBuilder =
             Texture.builder()
                 .setUsage(usage)
                 .setSampler(samplerDefToSampler(samplerDef))
@@ -439,8 +499,12 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
                     () -> {
                       Preconditions.checkNotNull(wrappedInputStream);
                       return wrappedInputStream;
-                    })
-                .build();
+                    });
+        if (decodedBitmapCache != null) {
+          // Warm loads read the decoded pixels from disk instead of decoding the image.
+          textureBuilder.setDecodedBitmapCache(decodedBitmapCache, data);
+        }
+        textureFuture = textureBuilder.build();
       } else {
         throw new IllegalStateException("Unable to load texture, no sampler definition.");
       }
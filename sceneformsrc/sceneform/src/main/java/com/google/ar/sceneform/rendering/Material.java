@@ -24,6 +24,8 @@ import java.util.concurrent.CompletionException;
 @RequiresApi(api = Build.VERSION_CODES.N)
 public class Material {
   private static final String TAG = Material.class.getSimpleName();
+  // Rough size of a compiled material package, which can't be queried from Filament.
+  private static final long ESTIMATED_MATERIAL_SIZE_BYTES = 32 * 1024;
 
   private final MaterialParameters materialParameters = new MaterialParameters();
   @Nullable private final MaterialInternalData materialData;
@@ -292,6 +294,14 @@ public class Material {
     return internalMaterialInstance.getInstance();
   }
 
+  /**
+   * Returns an estimate of the memory used by the material, including the textures set as its
+   * parameters. Textures shared with other materials are counted for each of them.
+   */
+  long getEstimatedSizeBytes() {
+    return ESTIMATED_MATERIAL_SIZE_BYTES + materialParameters.getEstimatedTextureSizeBytes();
+  }
+
   @SuppressWarnings("initialization")
   private Material(MaterialInternalData materialData) {
     this.materialData = materialData;
@@ -457,9 +467,17 @@ public class Material {
       // For static-analysis check.
       Object registryId = this.registryId;
       if (registryId != null) {
-        // See if a material has already been registered by this id, if so re-use it.
         ResourceRegistry<Material> registry = ResourceManager.getInstance().getMaterialRegistry();
-        @Nullable CompletableFuture<Material> materialFuture = registry.get(registryId);
+        @Nullable CompletableFuture<Material> materialFuture;
+        if (sourceBuffer == null && existingMaterial == null) {
+          // Re-use a material already registered by this id, or register the one loaded now.
+          // Concurrent builds of the same id share a single load.
+          materialFuture = registry.getOrLoad(registryId, this::loadMaterial);
+        } else {
+          // See if a material has already been registered by this id, if so re-use it.
+          materialFuture = registry.get(registryId);
+        }
+
         if (materialFuture != null) {
           return materialFuture.thenApply(material -> material.makeCopy());
         }
@@ -499,6 +517,11 @@ public class Material {
         return result;
       }
 
+      return loadMaterial().thenApply(material -> material.makeCopy());
+    }
+
+    @SuppressWarnings("AndroidApiChecker") // CompletableFuture
+    private CompletableFuture<Material> loadMaterial() {
       // For static-analysis check. Must be final for the lambda to accept the parameter.
       final Callable<InputStream> inputStreamCallable = this.inputStreamCreator;
       if (inputStreamCallable == null) {
@@ -532,14 +555,9 @@ public class Material {
                     Material material = new Material(materialData);
                     return material;
                   },
-                  ThreadPools.getMainExecutor());
-
-      if (registryId != null) {
-        ResourceRegistry<Material> registry = ResourceManager.getInstance().getMaterialRegistry();
-        registry.register(registryId, result);
-      }
+                  ThreadPools.getMainExecutor(FrameBudgetedExecutor.DEFAULT_PRIORITY));
 
-      return result.thenApply(material -> material.makeCopy());
+      return result;
     }
 
     private void checkPreconditions() {
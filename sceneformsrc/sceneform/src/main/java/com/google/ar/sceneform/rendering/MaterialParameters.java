@@ -242,6 +242,17 @@ final class MaterialParameters {
     return null;
   }
 
+  /** Returns the estimated size of the textures set as parameters. */
+  long getEstimatedTextureSizeBytes() {
+    long sizeBytes = 0;
+    for (MaterialParameters.Parameter value : namedParameters.values()) {
+      if (value instanceof TextureParameter) {
+        sizeBytes += ((TextureParameter) value).texture.getEstimatedSizeBytes();
+      }
+    }
+    return sizeBytes;
+  }
+
   void applyTo(MaterialInstance materialInstance) {
     com.google.android.filament.Material material = materialInstance.getMaterial();
 
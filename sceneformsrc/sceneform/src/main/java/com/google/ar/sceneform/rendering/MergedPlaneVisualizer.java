@@ -0,0 +1,388 @@
+package com.google.ar.sceneform.rendering;
+
+import android.support.annotation.Nullable;
+import com.google.ar.core.Plane;
+import com.google.ar.core.TrackingState;
+import com.google.ar.sceneform.common.TransformProvider;
+import com.google.ar.sceneform.math.Matrix;
+import com.google.ar.sceneform.rendering.RenderableDefinition.Submesh;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Renders all of the ARCore planes with a single renderable, instead of one {@link
+ * PlaneVisualizer} per plane.
+ *
+ * <p>The polygons of the planes are transformed to world space on the CPU and written to ranges of
+ * one shared mesh. A plane keeps its range while its polygon fits in it, so that a change to a
+ * plane only uploads the range of that plane. The ranges are laid out again when a plane outgrows
+ * its range.
+ *
+ * <p>The shadow uses its own copy of the ranges, offset along the normal of each plane, since the
+ * planes don't share a common up direction.
+ *
+ * <p>The local coordinates of each vertex in its plane are stored in its uvs, and the alpha of the
+ * feathered edge in the alpha of its color. The materials must read them from there, instead of
+ * from the position like the default plane materials.
+ */
+class MergedPlaneVisualizer implements TransformProvider {
+  private static final int MATRIX_SIZE = 16;
+  // Each range has room for a few more points than the polygon of its plane.
+  private static final int MIN_EXTRA_BOUNDARY_VERTICES = 4;
+  // Distance between the plane and its shadow along the normal of the plane.
+  private static final float SHADOW_OFFSET = 0.005f;
+
+  /** The range of the shared mesh used by a plane. */
+  private static final class PlaneRange {
+    int vertexStart;
+    int boundaryCapacity;
+    int triangleStart;
+    int triangleCapacity;
+
+    // The polygon and the pose that the range was last written from.
+    float[] polygon = new float[0];
+    int polygonLength;
+    final float[] pose = new float[MATRIX_SIZE];
+  }
+
+  private final Renderer renderer;
+
+  // The vertices are already in world space.
+  private final Matrix worldModelMatrix = new Matrix();
+
+  private final LinkedHashMap<Plane, PlaneRange> planeRanges = new LinkedHashMap<>();
+  private final MeshBuilder mesh = new MeshBuilder();
+  private final RenderableDefinition renderableDefinition;
+  private final Submesh planeSubmesh;
+  private final Submesh shadowSubmesh;
+  private final float[] pose = new float[MATRIX_SIZE];
+  // Where the copy of the ranges used by the shadow starts in the mesh.
+  private int shadowVertexOffset;
+  private int shadowTriangleOffset;
+
+  @Nullable private ModelRenderable renderable;
+  @Nullable private RenderableInstance renderableInstance;
+
+  private boolean isAddedToScene = false;
+  private boolean isEnabled = true;
+  private boolean isShadowReceiver = true;
+  private boolean isVisible = true;
+  private boolean isLayoutDirty = false;
+  private boolean isRenderableDirty = true;
+
+  MergedPlaneVisualizer(Renderer renderer, Material planeMaterial, Material shadowMaterial) {
+    this.renderer = renderer;
+
+    planeSubmesh =
+        Submesh.builder()
+            .setTriangleIndices(mesh.getTriangleIndices())
+            .setMaterial(planeMaterial)
+            .build();
+    shadowSubmesh =
+        Submesh.builder()
+            .setTriangleIndices(mesh.getTriangleIndices())
+            .setMaterial(shadowMaterial)
+            .build();
+    renderableDefinition = RenderableDefinition.builder().setMesh(mesh).build();
+  }
+
+  Material getPlaneMaterial() {
+    return planeSubmesh.getMaterial();
+  }
+
+  void setEnabled(boolean enabled) {
+    isEnabled = enabled;
+    isRenderableDirty = true;
+  }
+
+  void setShadowReceiver(boolean shadowReceiver) {
+    isShadowReceiver = shadowReceiver;
+    isRenderableDirty = true;
+  }
+
+  void setVisible(boolean visible) {
+    isVisible = visible;
+    isRenderableDirty = true;
+  }
+
+  @Override
+  public Matrix getWorldModelMatrix() {
+    return worldModelMatrix;
+  }
+
+  List<Plane> getPlanes() {
+    return new ArrayList<>(planeRanges.keySet());
+  }
+
+  /** Updates the range of the plane if its polygon or its pose changed. */
+  void updatePlane(Plane plane) {
+    PlaneRange range = planeRanges.get(plane);
+    if (range == null) {
+      range = new PlaneRange();
+      planeRanges.put(plane, range);
+      isLayoutDirty = true;
+    }
+
+    // Planes that aren't tracking are hidden by writing an empty polygon.
+    @Nullable FloatBuffer boundary = null;
+    if (plane.getTrackingState() == TrackingState.TRACKING) {
+      boundary = plane.getPolygon();
+      plane.getCenterPose().toMatrix(pose, 0);
+    }
+
+    if (!isChanged(range, boundary)) {
+      return;
+    }
+
+    range.polygonLength = boundary != null ? boundary.limit() : 0;
+    if (range.polygon.length < range.polygonLength) {
+      range.polygon = new float[range.polygonLength];
+    }
+    if (boundary != null) {
+      boundary.rewind();
+      boundary.get(range.polygon, 0, range.polygonLength);
+      boundary.rewind();
+    }
+    System.arraycopy(pose, 0, range.pose, 0, MATRIX_SIZE);
+
+    if (range.polygonLength / 2 > range.boundaryCapacity) {
+      isLayoutDirty = true;
+    } else if (!isLayoutDirty) {
+      writePlane(range);
+    }
+    isRenderableDirty = true;
+  }
+
+  /** Removes the planes that were subsumed by another plane or that stopped tracking. */
+  void removeStoppedPlanes() {
+    Iterator<Map.Entry<Plane, PlaneRange>> iter = planeRanges.entrySet().iterator();
+    while (iter.hasNext()) {
+      Map.Entry<Plane, PlaneRange> entry = iter.next();
+      Plane plane = entry.getKey();
+      if (plane.getSubsumedBy() == null && plane.getTrackingState() != TrackingState.STOPPED) {
+        continue;
+      }
+
+      // The range stays empty until the ranges are laid out again.
+      iter.remove();
+      if (!isLayoutDirty) {
+        PlaneRange range = entry.getValue();
+        range.polygonLength = 0;
+        writePlane(range);
+      }
+      isRenderableDirty = true;
+    }
+  }
+
+  /** Uploads the changes of the planes to the renderable, called once per frame. */
+  void flush() {
+    if (isLayoutDirty) {
+      layoutRanges();
+      isLayoutDirty = false;
+      isRenderableDirty = true;
+    }
+
+    if (isRenderableDirty) {
+      updateRenderable();
+    }
+  }
+
+  void release() {
+    removeFromScene();
+
+    renderable = null;
+    renderableInstance = null;
+  }
+
+  @SuppressWarnings({"AndroidApiChecker", "FutureReturnValueIgnored"})
+  private void updateRenderable() {
+    isRenderableDirty = false;
+    List<Submesh> submeshes = renderableDefinition.getSubmeshes();
+    submeshes.clear();
+
+    // The plane is drawn before the shadow, see PlaneVisualizer.
+    if (isVisible) {
+      submeshes.add(planeSubmesh);
+    }
+
+    if (isShadowReceiver) {
+      submeshes.add(shadowSubmesh);
+    }
+
+    if (!isEnabled || submeshes.isEmpty() || mesh.getVertexCount() == 0) {
+      removeFromScene();
+      return;
+    }
+
+    if (renderable == null) {
+      try {
+        renderable = ModelRenderable.builder().setSource(renderableDefinition).build().get();
+        renderable.setShadowCaster(false);
+        // Creating a Renderable is immediate when using RenderableDefinition.
+      } catch (InterruptedException | ExecutionException ex) {
+        throw new AssertionError("Unable to create plane renderable.");
+      }
+      renderableInstance = renderable.createInstance(this);
+    } else {
+      renderable.updateFromDefinition(renderableDefinition);
+    }
+
+    if (renderableInstance != null && submeshes.size() > 1) {
+      renderableInstance.setBlendOrderAt(0, 0); // plane
+      renderableInstance.setBlendOrderAt(1, 1); // shadow
+    }
+
+    addToScene();
+  }
+
+  private void addToScene() {
+    if (isAddedToScene || renderableInstance == null) {
+      return;
+    }
+
+    renderer.addInstance(renderableInstance);
+    isAddedToScene = true;
+  }
+
+  private void removeFromScene() {
+    if (!isAddedToScene || renderableInstance == null) {
+      return;
+    }
+
+    renderer.removeInstance(renderableInstance);
+    isAddedToScene = false;
+  }
+
+  private boolean isChanged(PlaneRange range, @Nullable FloatBuffer boundary) {
+    int length = boundary != null ? boundary.limit() : 0;
+    if (length != range.polygonLength) {
+      return true;
+    }
+    if (boundary == null || length == 0) {
+      return false;
+    }
+
+    for (int i = 0; i < MATRIX_SIZE; i++) {
+      if (Math.abs(pose[i] - range.pose[i]) > PlaneVisualizer.POLYGON_EPSILON) {
+        return true;
+      }
+    }
+    for (int i = 0; i < length; i++) {
+      if (Math.abs(boundary.get(i) - range.polygon[i]) > PlaneVisualizer.POLYGON_EPSILON) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Rebuilds the mesh with a range for each plane, leaving room for the polygons to grow. The
+   * ranges of the planes are followed by a copy of them for the shadow.
+   */
+  private void layoutRanges() {
+    mesh.clear();
+    for (PlaneRange range : planeRanges.values()) {
+      int boundaryVertices = range.polygonLength / 2;
+      range.boundaryCapacity =
+          boundaryVertices + boundaryVertices / 2 + MIN_EXTRA_BOUNDARY_VERTICES;
+      range.vertexStart = mesh.getVertexCount();
+      addEmptyVertices(range.boundaryCapacity * 2);
+
+      // A polygon with n points has n - 2 interior triangles and 2n triangles along its edge.
+      range.triangleStart = mesh.getIndexCount() / 3;
+      range.triangleCapacity = range.boundaryCapacity * 3 - 2;
+      addEmptyTriangles(range.vertexStart, range.triangleCapacity);
+    }
+
+    shadowVertexOffset = mesh.getVertexCount();
+    shadowTriangleOffset = mesh.getIndexCount() / 3;
+    addEmptyVertices(shadowVertexOffset);
+    addEmptyTriangles(shadowVertexOffset, shadowTriangleOffset);
+
+    int planeIndexCount = shadowTriangleOffset * 3;
+    planeSubmesh.setTriangleIndices(mesh.getTriangleIndices(0, planeIndexCount));
+    shadowSubmesh.setTriangleIndices(
+        mesh.getTriangleIndices(planeIndexCount, mesh.getIndexCount()));
+
+    for (PlaneRange range : planeRanges.values()) {
+      writePlane(range);
+    }
+  }
+
+  private void addEmptyVertices(int count) {
+    for (int i = 0; i < count; i++) {
+      mesh.addVertex(0.0f, 0.0f, 0.0f);
+      mesh.setUvCoordinate(0.0f, 0.0f).setColor(1.0f, 1.0f, 1.0f, 0.0f);
+    }
+  }
+
+  private void addEmptyTriangles(int vertex, int count) {
+    for (int i = 0; i < count; i++) {
+      mesh.addTriangle(vertex, vertex, vertex);
+    }
+  }
+
+  /** Writes the feathered polygon of a plane to its range, in the same way as PlaneVisualizer. */
+  private void writePlane(PlaneRange range) {
+    writePolygon(range, 0, 0, 0.0f);
+    // The shadow is lifted off the plane so that it doesn't z-fight with the plane material.
+    writePolygon(range, shadowVertexOffset, shadowTriangleOffset, SHADOW_OFFSET);
+  }
+
+  private void writePolygon(
+      PlaneRange range, int vertexOffset, int triangleOffset, float normalOffset) {
+    int vertexStart = range.vertexStart + vertexOffset;
+    int boundaryVertices = range.polygonLength / 2;
+    int firstOuterVertex = vertexStart;
+    int firstInnerVertex = vertexStart + boundaryVertices;
+
+    for (int i = 0; i < boundaryVertices; i++) {
+      float x = range.polygon[i * 2];
+      float z = range.polygon[i * 2 + 1];
+      setVertex(firstOuterVertex + i, range.pose, x, z, normalOffset, 0.0f);
+
+      float scale = PlaneVisualizer.getFeatherScale(x, z);
+      setVertex(firstInnerVertex + i, range.pose, x * scale, z * scale, normalOffset, 1.0f);
+    }
+
+    int triangle = range.triangleStart + triangleOffset;
+    for (int i = 0; i < boundaryVertices - 2; ++i) {
+      mesh.setTriangle(
+          triangle++, firstInnerVertex, firstInnerVertex + i + 1, firstInnerVertex + i + 2);
+    }
+
+    for (int i = 0; i < boundaryVertices; ++i) {
+      int outerVertex1 = firstOuterVertex + i;
+      int outerVertex2 = firstOuterVertex + ((i + 1) % boundaryVertices);
+      int innerVertex1 = firstInnerVertex + i;
+      int innerVertex2 = firstInnerVertex + ((i + 1) % boundaryVertices);
+
+      mesh.setTriangle(triangle++, outerVertex1, outerVertex2, innerVertex1);
+      mesh.setTriangle(triangle++, innerVertex1, outerVertex2, innerVertex2);
+    }
+
+    // Collapse the triangles of the range that the polygon doesn't use.
+    int triangleEnd = range.triangleStart + triangleOffset + range.triangleCapacity;
+    while (triangle < triangleEnd) {
+      mesh.setTriangle(triangle++, vertexStart, vertexStart, vertexStart);
+    }
+  }
+
+  private void setVertex(
+      int vertex, float[] pose, float x, float z, float normalOffset, float alpha) {
+    // The polygon is in the XZ plane of the pose, which is stored in column major order. The Y
+    // axis of the pose is the normal of the plane.
+    mesh.setPosition(
+        vertex,
+        pose[0] * x + pose[4] * normalOffset + pose[8] * z + pose[12],
+        pose[1] * x + pose[5] * normalOffset + pose[9] * z + pose[13],
+        pose[2] * x + pose[6] * normalOffset + pose[10] * z + pose[14]);
+    mesh.setUvCoordinate(vertex, x, z);
+    mesh.setColor(vertex, 1.0f, 1.0f, 1.0f, alpha);
+  }
+}
@@ -0,0 +1,543 @@
+package com.google.ar.sceneform.rendering;
+
+import android.support.annotation.Nullable;
+import com.google.ar.sceneform.math.Vector3;
+import java.lang.ref.WeakReference;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Builds the geometry of a {@link RenderableDefinition} in primitive arrays. Used instead of lists
+ * of {@link Vertex} and triangle indices to construct large meshes dynamically, since it doesn't
+ * allocate an object per vertex or per index, and the arrays are copied straight into the buffers
+ * of the renderable.
+ *
+ * <p>Vertices are added with {@link #addVertex(float, float, float)}, which can be followed by
+ * calls setting the other attributes of the vertex. If any vertex has a given attribute, all of
+ * the vertices must have it.
+ *
+ * <pre>{@code
+ * MeshBuilder mesh = new MeshBuilder();
+ * int a = mesh.addVertex(0, 0, 0);
+ * mesh.setNormal(0, 0, 1).setUvCoordinate(0, 0);
+ * ...
+ * mesh.addTriangle(a, b, c);
+ *
+ * Submesh submesh =
+ *     Submesh.builder()
+ *         .setTriangleIndices(mesh.getTriangleIndices())
+ *         .setMaterial(material)
+ *         .build();
+ * RenderableDefinition definition =
+ *     RenderableDefinition.builder().setMesh(mesh).setSubmeshes(Arrays.asList(submesh)).build();
+ * }</pre>
+ *
+ * <p>A mesh can be cleared and built again, reusing its arrays, to update a renderable with {@link
+ * Renderable#updateFromDefinition(RenderableDefinition)}. To change a few vertices or triangles of
+ * a large mesh, edit them in place with methods such as {@link #setPosition(int, float, float,
+ * float)} instead. The mesh keeps track of the ranges that changed since it was last applied to
+ * the renderable, and only those ranges are uploaded to the GPU.
+ */
+public class MeshBuilder {
+  private static final int POSITION_SIZE = 3;
+  private static final int NORMAL_SIZE = 3;
+  private static final int UV_SIZE = 2;
+  private static final int COLOR_SIZE = 4;
+  private static final int INDICES_PER_TRIANGLE = 3;
+  private static final int DEFAULT_VERTEX_CAPACITY = 64;
+
+  private float[] positions;
+  private float[] normals = new float[0];
+  private float[] uvs = new float[0];
+  private float[] colors = new float[0];
+  private int[] indices;
+
+  private int vertexCount;
+  // The number of vertices that have each optional attribute.
+  private int normalCount;
+  private int uvCount;
+  private int colorCount;
+  private int indexCount;
+
+  // The ranges of vertices and indices changed since the mesh was last uploaded to syncedData.
+  private final DirtyRanges dirtyVertices = new DirtyRanges();
+  private final DirtyRanges dirtyIndices = new DirtyRanges();
+  // The renderable data that the mesh was last uploaded to, and where each range of triangle
+  // indices was placed in its index buffer.
+  @Nullable private WeakReference<IRenderableInternalData> syncedData;
+  @Nullable private int[] syncedIndexLayout;
+  // Incremented every time the mesh is uploaded, the renderable data records the version it got.
+  private int syncVersion;
+
+  public MeshBuilder() {
+    this(DEFAULT_VERTEX_CAPACITY, DEFAULT_VERTEX_CAPACITY * 2 * INDICES_PER_TRIANGLE);
+  }
+
+  /**
+   * Creates a mesh with room for the given number of vertices and indices, it grows as needed.
+   *
+   * @param vertexCapacity the expected number of vertices
+   * @param indexCapacity the expected number of triangle indices, three per triangle
+   */
+  public MeshBuilder(int vertexCapacity, int indexCapacity) {
+    positions = new float[Math.max(1, vertexCapacity) * POSITION_SIZE];
+    indices = new int[Math.max(INDICES_PER_TRIANGLE, indexCapacity)];
+  }
+
+  /**
+   * Adds a vertex with the given position.
+   *
+   * @return the index of the vertex, used to add triangles
+   */
+  public int addVertex(float x, float y, float z) {
+    positions = ensureCapacity(positions, (vertexCount + 1) * POSITION_SIZE);
+    int offset = vertexCount * POSITION_SIZE;
+    positions[offset] = x;
+    positions[offset + 1] = y;
+    positions[offset + 2] = z;
+    markVerticesDirty(vertexCount, vertexCount + 1);
+    return vertexCount++;
+  }
+
+  /** Adds a vertex with the given position. */
+  public int addVertex(Vector3 position) {
+    return addVertex(position.x, position.y, position.z);
+  }
+
+  /** Sets the normal of the last added vertex. */
+  public MeshBuilder setNormal(float x, float y, float z) {
+    normalCount = checkAttribute(normalCount, "normal");
+    normals = ensureCapacity(normals, vertexCount * NORMAL_SIZE);
+    int offset = (vertexCount - 1) * NORMAL_SIZE;
+    normals[offset] = x;
+    normals[offset + 1] = y;
+    normals[offset + 2] = z;
+    markVerticesDirty(vertexCount - 1, vertexCount);
+    return this;
+  }
+
+  /** Sets the normal of the last added vertex. */
+  public MeshBuilder setNormal(Vector3 normal) {
+    return setNormal(normal.x, normal.y, normal.z);
+  }
+
+  /** Sets the texture coordinate of the last added vertex. */
+  public MeshBuilder setUvCoordinate(float u, float v) {
+    uvCount = checkAttribute(uvCount, "UV Coordinate");
+    uvs = ensureCapacity(uvs, vertexCount * UV_SIZE);
+    int offset = (vertexCount - 1) * UV_SIZE;
+    uvs[offset] = u;
+    uvs[offset + 1] = v;
+    markVerticesDirty(vertexCount - 1, vertexCount);
+    return this;
+  }
+
+  /** Sets the color of the last added vertex. */
+  public MeshBuilder setColor(float r, float g, float b, float a) {
+    colorCount = checkAttribute(colorCount, "Color");
+    colors = ensureCapacity(colors, vertexCount * COLOR_SIZE);
+    int offset = (vertexCount - 1) * COLOR_SIZE;
+    colors[offset] = r;
+    colors[offset + 1] = g;
+    colors[offset + 2] = b;
+    colors[offset + 3] = a;
+    markVerticesDirty(vertexCount - 1, vertexCount);
+    return this;
+  }
+
+  /** Adds a triangle made of the vertices with the given indices, in counter-clockwise order. */
+  public MeshBuilder addTriangle(int a, int b, int c) {
+    indices = ensureCapacity(indices, indexCount + INDICES_PER_TRIANGLE);
+    indices[indexCount++] = a;
+    indices[indexCount++] = b;
+    indices[indexCount++] = c;
+    markIndicesDirty(indexCount - INDICES_PER_TRIANGLE, indexCount);
+    return this;
+  }
+
+  /** Moves an existing vertex. */
+  public MeshBuilder setPosition(int vertex, float x, float y, float z) {
+    checkVertex(vertex, vertexCount, "position");
+    int offset = vertex * POSITION_SIZE;
+    positions[offset] = x;
+    positions[offset + 1] = y;
+    positions[offset + 2] = z;
+    markVerticesDirty(vertex, vertex + 1);
+    return this;
+  }
+
+  /** Changes the normal of an existing vertex, which must already have one. */
+  public MeshBuilder setNormal(int vertex, float x, float y, float z) {
+    checkVertex(vertex, normalCount, "normal");
+    int offset = vertex * NORMAL_SIZE;
+    normals[offset] = x;
+    normals[offset + 1] = y;
+    normals[offset + 2] = z;
+    markVerticesDirty(vertex, vertex + 1);
+    return this;
+  }
+
+  /** Changes the texture coordinate of an existing vertex, which must already have one. */
+  public MeshBuilder setUvCoordinate(int vertex, float u, float v) {
+    checkVertex(vertex, uvCount, "UV Coordinate");
+    int offset = vertex * UV_SIZE;
+    uvs[offset] = u;
+    uvs[offset + 1] = v;
+    markVerticesDirty(vertex, vertex + 1);
+    return this;
+  }
+
+  /** Changes the color of an existing vertex, which must already have one. */
+  public MeshBuilder setColor(int vertex, float r, float g, float b, float a) {
+    checkVertex(vertex, colorCount, "Color");
+    int offset = vertex * COLOR_SIZE;
+    colors[offset] = r;
+    colors[offset + 1] = g;
+    colors[offset + 2] = b;
+    colors[offset + 3] = a;
+    markVerticesDirty(vertex, vertex + 1);
+    return this;
+  }
+
+  /**
+   * Replaces the vertices of an existing triangle.
+   *
+   * @param triangle the index of the triangle, in the order they were added
+   */
+  public MeshBuilder setTriangle(int triangle, int a, int b, int c) {
+    int offset = triangle * INDICES_PER_TRIANGLE;
+    if (triangle < 0 || offset >= indexCount) {
+      throw new IndexOutOfBoundsException("Triangle " + triangle + " is out of range.");
+    }
+    indices[offset] = a;
+    indices[offset + 1] = b;
+    indices[offset + 2] = c;
+    markIndicesDirty(offset, offset + INDICES_PER_TRIANGLE);
+    return this;
+  }
+
+  /** Removes all of the vertices and triangles, keeping the arrays to build the mesh again. */
+  public void clear() {
+    vertexCount = 0;
+    normalCount = 0;
+    uvCount = 0;
+    colorCount = 0;
+    indexCount = 0;
+  }
+
+  public int getVertexCount() {
+    return vertexCount;
+  }
+
+  public int getIndexCount() {
+    return indexCount;
+  }
+
+  /**
+   * Returns all of the triangle indices of the mesh, to pass to {@link
+   * RenderableDefinition.Submesh.Builder#setTriangleIndices(List)}. The list is backed by the mesh,
+   * so it reflects the triangles added later.
+   */
+  public List<Integer> getTriangleIndices() {
+    return new TriangleIndices(this, 0, -1);
+  }
+
+  /**
+   * Returns the triangle indices in the given range, to use different materials for different
+   * parts of the mesh. The list is backed by the mesh.
+   *
+   * @param start the first index of the range, a multiple of 3
+   * @param end the end of the range, exclusive
+   */
+  public List<Integer> getTriangleIndices(int start, int end) {
+    if (start < 0 || start > end) {
+      throw new IllegalArgumentException("Invalid range of triangle indices.");
+    }
+    return new TriangleIndices(this, start, end);
+  }
+
+  /** Returns true if only the dirty ranges need to be uploaded to the renderable data. */
+  boolean isSyncedWith(IRenderableInternalData data) {
+    return syncedData != null && syncedData.get() == data;
+  }
+
+  int getSyncVersion() {
+    return syncVersion;
+  }
+
+  @Nullable
+  int[] getSyncedIndexLayout() {
+    return syncedIndexLayout;
+  }
+
+  /** Records that the mesh was uploaded to the renderable data, clearing the dirty ranges. */
+  void markSynced(IRenderableInternalData data, @Nullable int[] indexLayout) {
+    if (!isSyncedWith(data)) {
+      syncedData = new WeakReference<>(data);
+    }
+    syncedIndexLayout = indexLayout;
+    syncVersion++;
+    dirtyVertices.clear();
+    dirtyIndices.clear();
+  }
+
+  /**
+   * Returns the vertices changed since the last upload. The ranges may extend past the vertices
+   * that still exist.
+   */
+  DirtyRanges getDirtyVertices() {
+    return dirtyVertices;
+  }
+
+  /**
+   * Returns the triangle indices changed since the last upload. The ranges may extend past the
+   * indices that still exist.
+   */
+  DirtyRanges getDirtyIndices() {
+    return dirtyIndices;
+  }
+
+  boolean hasNormals() {
+    return normalCount > 0;
+  }
+
+  boolean hasUvCoordinates() {
+    return uvCount > 0;
+  }
+
+  boolean hasColors() {
+    return colorCount > 0;
+  }
+
+  float[] getPositions() {
+    return positions;
+  }
+
+  float[] getNormals() {
+    return normals;
+  }
+
+  float[] getUvCoordinates() {
+    return uvs;
+  }
+
+  float[] getColors() {
+    return colors;
+  }
+
+  /** Throws if some of the vertices are missing an attribute that others have. */
+  void validateAttributes() {
+    validateAttribute(normalCount, "normal");
+    validateAttribute(uvCount, "UV Coordinate");
+    validateAttribute(colorCount, "Color");
+  }
+
+  void putPositions(FloatBuffer buffer) {
+    putPositions(buffer, 0, vertexCount);
+  }
+
+  void putPositions(FloatBuffer buffer, int start, int end) {
+    buffer.put(positions, start * POSITION_SIZE, (end - start) * POSITION_SIZE);
+  }
+
+  void putUvCoordinates(FloatBuffer buffer) {
+    putUvCoordinates(buffer, 0, vertexCount);
+  }
+
+  void putUvCoordinates(FloatBuffer buffer, int start, int end) {
+    buffer.put(uvs, start * UV_SIZE, (end - start) * UV_SIZE);
+  }
+
+  void putColors(FloatBuffer buffer) {
+    putColors(buffer, 0, vertexCount);
+  }
+
+  void putColors(FloatBuffer buffer, int start, int end) {
+    buffer.put(colors, start * COLOR_SIZE, (end - start) * COLOR_SIZE);
+  }
+
+  void putIndices(IntBuffer buffer, int start, int end) {
+    buffer.put(indices, start, end - start);
+  }
+
+  private void markVerticesDirty(int start, int end) {
+    dirtyVertices.add(start, end);
+  }
+
+  private void markIndicesDirty(int start, int end) {
+    dirtyIndices.add(start, end);
+  }
+
+  private static void checkVertex(int vertex, int attributeCount, String attributeName) {
+    if (vertex < 0 || vertex >= attributeCount) {
+      throw new IndexOutOfBoundsException(
+          "Vertex " + vertex + " is out of range or has no " + attributeName + ".");
+    }
+  }
+
+  private int checkAttribute(int attributeCount, String attributeName) {
+    if (vertexCount == 0) {
+      throw new IllegalStateException("Add a vertex before setting its " + attributeName + ".");
+    }
+    // Setting the attribute again for the same vertex replaces it.
+    if (attributeCount == vertexCount) {
+      return attributeCount;
+    }
+    if (attributeCount != vertexCount - 1) {
+      throw makeMissingAttributeException(attributeName);
+    }
+    return vertexCount;
+  }
+
+  private void validateAttribute(int attributeCount, String attributeName) {
+    if (attributeCount != 0 && attributeCount != vertexCount) {
+      throw makeMissingAttributeException(attributeName);
+    }
+  }
+
+  private static IllegalArgumentException makeMissingAttributeException(String attributeName) {
+    return new IllegalArgumentException(
+        "Missing "
+            + attributeName
+            + ": If any Vertex in a MeshBuilder has a "
+            + attributeName
+            + ", all vertices must have one.");
+  }
+
+  private static float[] ensureCapacity(float[] array, int capacity) {
+    if (array.length >= capacity) {
+      return array;
+    }
+    return Arrays.copyOf(array, Math.max(capacity, array.length * 2));
+  }
+
+  private static int[] ensureCapacity(int[] array, int capacity) {
+    if (array.length >= capacity) {
+      return array;
+    }
+    return Arrays.copyOf(array, Math.max(capacity, array.length * 2));
+  }
+
+  /**
+   * Sorted and disjoint ranges of a mesh that changed, so that edits to a few distant parts of a
+   * large mesh don't upload everything in between. Once there are more than {@link #MAX_RANGES}
+   * ranges the two closest ones are merged, which uploads the few elements between them instead of
+   * growing the list.
+   */
+  static final class DirtyRanges {
+    static final int MAX_RANGES = 8;
+
+    // One more than the maximum, for the range being added before the closest ones are merged.
+    private final int[] starts = new int[MAX_RANGES + 1];
+    private final int[] ends = new int[MAX_RANGES + 1];
+    private int count;
+
+    /** Adds the range from start to end, exclusive, merging it with the ranges it touches. */
+    void add(int start, int end) {
+      if (start >= end) {
+        return;
+      }
+
+      int first = 0;
+      while (first < count && ends[first] < start) {
+        first++;
+      }
+      int last = first;
+      while (last < count && starts[last] <= end) {
+        start = Math.min(start, starts[last]);
+        end = Math.max(end, ends[last]);
+        last++;
+      }
+
+      // The ranges from first to last are replaced by the new range.
+      int shift = 1 - (last - first);
+      System.arraycopy(starts, last, starts, last + shift, count - last);
+      System.arraycopy(ends, last, ends, last + shift, count - last);
+      starts[first] = start;
+      ends[first] = end;
+      count += shift;
+
+      if (count > MAX_RANGES) {
+        mergeClosestRanges();
+      }
+    }
+
+    void clear() {
+      count = 0;
+    }
+
+    int size() {
+      return count;
+    }
+
+    int getStart(int range) {
+      return starts[range];
+    }
+
+    /** Returns the end of the range, exclusive. */
+    int getEnd(int range) {
+      return ends[range];
+    }
+
+    private void mergeClosestRanges() {
+      int closest = 0;
+      for (int i = 1; i < count - 1; i++) {
+        if (starts[i + 1] - ends[i] < starts[closest + 1] - ends[closest]) {
+          closest = i;
+        }
+      }
+
+      ends[closest] = ends[closest + 1];
+      System.arraycopy(starts, closest + 2, starts, closest + 1, count - closest - 2);
+      System.arraycopy(ends, closest + 2, ends, closest + 1, count - closest - 2);
+      count--;
+    }
+  }
+
+  /**
+   * A range of the triangle indices of a mesh. Reading it through the {@link List} interface boxes
+   * the indices, the renderable copies the range with {@link #putIndices(IntBuffer)} instead.
+   */
+  static final class TriangleIndices extends AbstractList<Integer> implements RandomAccess {
+    private final MeshBuilder mesh;
+    private final int start;
+    // Negative for a range that extends to the last index of the mesh.
+    private final int end;
+
+    TriangleIndices(MeshBuilder mesh, int start, int end) {
+      this.mesh = mesh;
+      this.start = start;
+      this.end = end;
+    }
+
+    MeshBuilder getMesh() {
+      return mesh;
+    }
+
+    int getStart() {
+      return start;
+    }
+
+    @Override
+    public Integer get(int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException("Index " + index + " is out of range.");
+      }
+      return mesh.indices[start + index];
+    }
+
+    @Override
+    public int size() {
+      int rangeEnd = end < 0 ? mesh.indexCount : Math.min(end, mesh.indexCount);
+      return Math.max(0, rangeEnd - start);
+    }
+
+    void putIndices(IntBuffer buffer) {
+      buffer.put(mesh.indices, start, size());
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package com.google.ar.sceneform.rendering;
+
+import android.support.annotation.Nullable;
+import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.rendering.RenderableDefinition.LevelOfDetail;
+import com.google.ar.sceneform.rendering.RenderableDefinition.Submesh;
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Utility class used to generate the levels of detail of a {@link RenderableDefinition}.
+ *
+ * <p>Meshes are simplified by vertex clustering. The bounding box of the vertices is divided into a
+ * grid of cells, the vertices in each cell are merged into one of them and the triangles that
+ * collapse are dropped. The size of the cells is chosen so that the requested fraction of the
+ * triangles is kept. Vertices with normals facing in opposite directions are never merged, so that
+ * both sides of thin surfaces are preserved.
+ *
+ * <p>The levels only refer to the existing vertices, so they don't use any vertex memory.
+ */
+public final class MeshSimplifier {
+  private static final int INDICES_PER_TRIANGLE = 3;
+  private static final int MAX_GRID_RESOLUTION = 1024;
+  // Each cell is split by the octant of the normals.
+  private static final int NORMAL_OCTANTS = 8;
+
+  /**
+   * Generates levels of detail for the definition, each one keeping half the triangles of the
+   * previous one.
+   *
+   * @param definition the definition to simplify, it isn't modified
+   * @param screenCoverages the screen coverage of each level, in decreasing order
+   * @return the levels, to pass to {@link RenderableDefinition#setLevelsOfDetail(List)}
+   */
+  public static List<LevelOfDetail> generateLevelsOfDetail(
+      RenderableDefinition definition, float... screenCoverages) {
+    Preconditions.checkNotNull(definition, "Parameter \"definition\" was null.");
+    Preconditions.checkNotNull(screenCoverages, "Parameter \"screenCoverages\" was null.");
+
+    List<LevelOfDetail> levelsOfDetail = new ArrayList<>();
+    float triangleRatio = 1.0f;
+    for (float screenCoverage : screenCoverages) {
+      triangleRatio *= 0.5f;
+      levelsOfDetail.add(simplify(definition, triangleRatio, screenCoverage));
+    }
+    return levelsOfDetail;
+  }
+
+  /**
+   * Generates a single level of detail for the definition.
+   *
+   * @param definition the definition to simplify, it isn't modified
+   * @param triangleRatio the fraction of the triangles to keep, between 0 and 1
+   * @param screenCoverage the screen coverage below which the level is rendered
+   */
+  public static LevelOfDetail simplify(
+      RenderableDefinition definition, float triangleRatio, float screenCoverage) {
+    Preconditions.checkNotNull(definition, "Parameter \"definition\" was null.");
+    if (triangleRatio <= 0.0f || triangleRatio > 1.0f) {
+      throw new IllegalArgumentException("triangleRatio must be between 0 and 1.");
+    }
+
+    List<Submesh> submeshes = definition.getSubmeshes();
+    int triangleCount = 0;
+    for (int i = 0; i < submeshes.size(); i++) {
+      triangleCount += submeshes.get(i).getTriangleIndices().size() / INDICES_PER_TRIANGLE;
+    }
+    int targetTriangleCount = Math.max(1, (int) (triangleCount * triangleRatio));
+
+    // Find the finest grid that keeps no more than the target number of triangles.
+    List<List<Integer>> submeshTriangleIndices = null;
+    int low = 1;
+    int high = MAX_GRID_RESOLUTION;
+    while (low <= high) {
+      int resolution = (low + high) / 2;
+      List<List<Integer>> candidate =
+          collapseTriangles(submeshes, clusterVertices(definition, resolution));
+      if (countIndices(candidate) / INDICES_PER_TRIANGLE <= targetTriangleCount) {
+        submeshTriangleIndices = candidate;
+        low = resolution + 1;
+      } else {
+        high = resolution - 1;
+      }
+    }
+
+    // Even a single cell keeps too many triangles, use the coarsest grid.
+    if (submeshTriangleIndices == null) {
+      submeshTriangleIndices = collapseTriangles(submeshes, clusterVertices(definition, 1));
+    }
+
+    return LevelOfDetail.builder()
+        .setScreenCoverage(screenCoverage)
+        .setSubmeshTriangleIndices(submeshTriangleIndices)
+        .build();
+  }
+
+  /** Returns the index of the vertex that each vertex is merged into. */
+  private static int[] clusterVertices(RenderableDefinition definition, int resolution) {
+    int vertexCount = definition.getVertexCount();
+    int[] clusters = new int[vertexCount];
+    if (vertexCount == 0) {
+      return clusters;
+    }
+
+    Vector3 position = new Vector3();
+    Vector3 normal = new Vector3();
+    definition.getVertexPosition(0, position);
+    Vector3 min = new Vector3(position);
+    Vector3 max = new Vector3(position);
+    for (int i = 0; i < vertexCount; i++) {
+      definition.getVertexPosition(i, position);
+      min.set(Vector3.min(min, position));
+      max.set(Vector3.max(max, position));
+    }
+    Vector3 size = Vector3.subtract(max, min);
+    float cellSize = Math.max(size.x, Math.max(size.y, size.z)) / resolution;
+
+    HashMap<Long, Integer> cellVertices = new HashMap<>();
+    for (int i = 0; i < vertexCount; i++) {
+      definition.getVertexPosition(i, position);
+      long x = getCell(position.x - min.x, cellSize, resolution);
+      long y = getCell(position.y - min.y, cellSize, resolution);
+      long z = getCell(position.z - min.z, cellSize, resolution);
+      long cell = ((x * resolution + y) * resolution + z) * NORMAL_OCTANTS;
+      cell += getNormalOctant(definition.getVertexNormal(i, normal));
+
+      Integer cellVertex = cellVertices.get(cell);
+      if (cellVertex == null) {
+        cellVertex = i;
+        cellVertices.put(cell, cellVertex);
+      }
+      clusters[i] = cellVertex;
+    }
+    return clusters;
+  }
+
+  private static long getCell(float offset, float cellSize, int resolution) {
+    if (cellSize <= 0.0f) {
+      return 0;
+    }
+    return Math.min(resolution - 1, (long) (offset / cellSize));
+  }
+
+  private static int getNormalOctant(@Nullable Vector3 normal) {
+    if (normal == null) {
+      return 0;
+    }
+    return (normal.x < 0.0f ? 1 : 0) | (normal.y < 0.0f ? 2 : 0) | (normal.z < 0.0f ? 4 : 0);
+  }
+
+  /** Remaps the triangles to the merged vertices, dropping the ones that collapse. */
+  private static List<List<Integer>> collapseTriangles(List<Submesh> submeshes, int[] clusters) {
+    List<List<Integer>> submeshTriangleIndices = new ArrayList<>(submeshes.size());
+    for (int i = 0; i < submeshes.size(); i++) {
+      List<Integer> triangleIndices = submeshes.get(i).getTriangleIndices();
+      List<Integer> collapsedIndices = new ArrayList<>();
+      int indexCount = triangleIndices.size() - triangleIndices.size() % INDICES_PER_TRIANGLE;
+      for (int j = 0; j < indexCount; j += INDICES_PER_TRIANGLE) {
+        int a = clusters[triangleIndices.get(j)];
+        int b = clusters[triangleIndices.get(j + 1)];
+        int c = clusters[triangleIndices.get(j + 2)];
+        if (a != b && b != c && a != c) {
+          collapsedIndices.add(a);
+          collapsedIndices.add(b);
+          collapsedIndices.add(c);
+        }
+      }
+      submeshTriangleIndices.add(collapsedIndices);
+    }
+    return submeshTriangleIndices;
+  }
+
+  private static int countIndices(List<List<Integer>> submeshTriangleIndices) {
+    int count = 0;
+    for (int i = 0; i < submeshTriangleIndices.size(); i++) {
+      count += submeshTriangleIndices.get(i).size();
+    }
+    return count;
+  }
+}
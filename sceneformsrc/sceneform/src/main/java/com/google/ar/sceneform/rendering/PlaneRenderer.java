@@ -10,12 +10,16 @@ import com.google.ar.core.Trackable;
 import com.google.ar.core.TrackingState;
 
 import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Control rendering of ARCore planes.
@@ -52,9 +56,16 @@ public class PlaneRenderer {
 
   private static final float SPOTLIGHT_RADIUS = .5f;
 
+  /** Time spent generating the meshes of the planes that changed each frame. */
+  private static final long MESH_UPDATE_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
   private final Renderer renderer;
 
   private final Map<Plane, PlaneVisualizer> visualizerMap = new HashMap<>();
+  // Visualizers of the planes updated by ARCore that still need to be updated, oldest first.
+  private final LinkedHashSet<PlaneVisualizer> pendingVisualizers = new LinkedHashSet<>();
+  // Replaces the visualizers of the planes when merged rendering is enabled.
+  @Nullable private MergedPlaneVisualizer mergedVisualizer;
   private CompletableFuture<Material> planeMaterialFuture;
 
   private Material shadowMaterial;
@@ -77,6 +88,9 @@ public class PlaneRenderer {
       for (PlaneVisualizer visualizer : visualizerMap.values()) {
         visualizer.setEnabled(isEnabled);
       }
+      if (mergedVisualizer != null) {
+        mergedVisualizer.setEnabled(isEnabled);
+      }
     }
   }
 
@@ -97,6 +111,9 @@ public class PlaneRenderer {
       for (PlaneVisualizer visualizer : visualizerMap.values()) {
         visualizer.setShadowReceiver(isShadowReceiver);
       }
+      if (mergedVisualizer != null) {
+        mergedVisualizer.setShadowReceiver(isShadowReceiver);
+      }
     }
   }
 
@@ -118,6 +135,9 @@ public class PlaneRenderer {
       for (PlaneVisualizer visualizer : visualizerMap.values()) {
         visualizer.setVisible(isVisible);
       }
+      if (mergedVisualizer != null) {
+        mergedVisualizer.setVisible(isVisible);
+      }
     }
   }
 
@@ -126,6 +146,68 @@ public class PlaneRenderer {
     return isVisible;
   }
 
+  /**
+   * Draws all of the planes with a single renderable, instead of one renderable per plane. This
+   * reduces the number of draw calls and transform updates when many planes are tracked.
+   *
+   * <p>The vertices of the merged planes are in world space, so they can't be drawn with the
+   * default materials, which read the local coordinates and the alpha of the plane from the
+   * position. The given materials must read the local coordinates from the uvs and the alpha from
+   * the color instead, like sceneform_plane_merged_material.mat and
+   * sceneform_plane_merged_shadow_material.mat. The plane material receives the same parameters as
+   * the default one. Per-plane material overrides aren't used by merged rendering.
+   *
+   * @param planeMaterial the material used to draw the planes
+   * @param shadowMaterial the material used to draw the shadows on the planes
+   */
+  public void enableMergedRendering(Material planeMaterial, Material shadowMaterial) {
+    Preconditions.checkNotNull(planeMaterial, "Parameter \"planeMaterial\" was null.");
+    Preconditions.checkNotNull(shadowMaterial, "Parameter \"shadowMaterial\" was null.");
+
+    List<Plane> planes = new ArrayList<>(visualizerMap.keySet());
+    if (mergedVisualizer != null) {
+      planes.addAll(mergedVisualizer.getPlanes());
+      mergedVisualizer.release();
+    }
+
+    for (PlaneVisualizer visualizer : visualizerMap.values()) {
+      visualizer.release();
+    }
+    visualizerMap.clear();
+    pendingVisualizers.clear();
+
+    mergedVisualizer = new MergedPlaneVisualizer(renderer, planeMaterial, shadowMaterial);
+    mergedVisualizer.setShadowReceiver(isShadowReceiver);
+    mergedVisualizer.setVisible(isVisible);
+    mergedVisualizer.setEnabled(isEnabled);
+    for (Plane plane : planes) {
+      mergedVisualizer.updatePlane(plane);
+    }
+  }
+
+  /** Goes back to drawing each plane with its own renderable. */
+  public void disableMergedRendering() {
+    if (mergedVisualizer == null) {
+      return;
+    }
+
+    List<Plane> planes = mergedVisualizer.getPlanes();
+    mergedVisualizer.release();
+    mergedVisualizer = null;
+
+    @SuppressWarnings("nullness")
+    @Nullable
+    Material planeMaterial = planeMaterialFuture.getNow(null);
+    for (Plane plane : planes) {
+      pendingVisualizers.add(createPlaneVisualizer(plane, planeMaterial));
+    }
+  }
+
+  /** Returns true if all of the planes are drawn with a single renderable. */
+  public boolean isMergedRenderingEnabled() {
+    return mergedVisualizer != null;
+  }
+
   /** Returns default material instance used to render the planes. */
   public CompletableFuture<Material> getMaterial() {
     return planeMaterialFuture;
@@ -180,32 +262,42 @@ public class PlaneRenderer {
       planeMaterial.setFloat(MATERIAL_SPOTLIGHT_RADIUS, SPOTLIGHT_RADIUS);
     }
 
-    for (Plane plane : updatedPlanes) {
-      PlaneVisualizer planeVisualizer;
+    if (mergedVisualizer != null) {
+      Material mergedMaterial = mergedVisualizer.getPlaneMaterial();
+      mergedMaterial.setFloat3(MATERIAL_SPOTLIGHT_FOCUS_POINT, focusPoint);
+      mergedMaterial.setFloat(MATERIAL_SPOTLIGHT_RADIUS, SPOTLIGHT_RADIUS);
 
+      // Each plane only rewrites its own range of the merged mesh, which is uploaded once.
+      for (Plane plane : updatedPlanes) {
+        mergedVisualizer.updatePlane(plane);
+      }
+      mergedVisualizer.removeStoppedPlanes();
+      mergedVisualizer.flush();
+      return;
+    }
+
+    for (Plane plane : updatedPlanes) {
       // Find the plane visualizer if it already exists.
       // If not, create a new plane visualizer for this plane.
-      if (visualizerMap.containsKey(plane)) {
-        planeVisualizer = visualizerMap.get(plane);
-      } else {
-        planeVisualizer = new PlaneVisualizer(plane, renderer);
-        Material overrideMaterial = materialOverrides.get(plane);
-        if (overrideMaterial != null) {
-          planeVisualizer.setPlaneMaterial(overrideMaterial);
-        } else if (planeMaterial != null) {
-          planeVisualizer.setPlaneMaterial(planeMaterial);
-        }
-        if (shadowMaterial != null) {
-          planeVisualizer.setShadowMaterial(shadowMaterial);
-        }
-        planeVisualizer.setShadowReceiver(isShadowReceiver);
-        planeVisualizer.setVisible(isVisible);
-        planeVisualizer.setEnabled(isEnabled);
-        visualizerMap.put(plane, planeVisualizer);
+      PlaneVisualizer planeVisualizer = visualizerMap.get(plane);
+      if (planeVisualizer == null) {
+        planeVisualizer = createPlaneVisualizer(plane, planeMaterial);
       }
 
-      // Update the plane visualizer.
-      planeVisualizer.updatePlane();
+      pendingVisualizers.add(planeVisualizer);
+    }
+
+    // Update the plane visualizers. Once the budget is spent, the planes whose polygon changed
+    // keep their previous mesh and are updated in the next frames. The oldest one is always
+    // updated, so that every plane catches up.
+    long deadline = System.nanoTime() + MESH_UPDATE_BUDGET_NANOS;
+    boolean canUpdateMesh = true;
+    Iterator<PlaneVisualizer> pendingIter = pendingVisualizers.iterator();
+    while (pendingIter.hasNext()) {
+      if (pendingIter.next().updatePlane(canUpdateMesh)) {
+        pendingIter.remove();
+      }
+      canUpdateMesh = System.nanoTime() < deadline;
     }
 
     // Remove plane visualizers for old planes that are no longer tracking.
@@ -220,12 +312,31 @@ public class PlaneRenderer {
       // remove it.
       if (plane.getSubsumedBy() != null || plane.getTrackingState() == TrackingState.STOPPED) {
         planeVisualizer.release();
+        pendingVisualizers.remove(planeVisualizer);
         iter.remove();
         continue;
       }
     }
   }
 
+  private PlaneVisualizer createPlaneVisualizer(Plane plane, @Nullable Material planeMaterial) {
+    PlaneVisualizer planeVisualizer = new PlaneVisualizer(plane, renderer);
+    Material overrideMaterial = materialOverrides.get(plane);
+    if (overrideMaterial != null) {
+      planeVisualizer.setPlaneMaterial(overrideMaterial);
+    } else if (planeMaterial != null) {
+      planeVisualizer.setPlaneMaterial(planeMaterial);
+    }
+    if (shadowMaterial != null) {
+      planeVisualizer.setShadowMaterial(shadowMaterial);
+    }
+    planeVisualizer.setShadowReceiver(isShadowReceiver);
+    planeVisualizer.setVisible(isVisible);
+    planeVisualizer.setEnabled(isEnabled);
+    visualizerMap.put(plane, planeVisualizer);
+    return planeVisualizer;
+  }
+
   @SuppressWarnings({"AndroidApiChecker", "FutureReturnValueIgnored"})
   private void loadShadowMaterial() {
     Material.builder()
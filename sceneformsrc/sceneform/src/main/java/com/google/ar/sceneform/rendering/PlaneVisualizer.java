@@ -5,10 +5,8 @@ import com.google.ar.core.Plane;
 import com.google.ar.core.TrackingState;
 import com.google.ar.sceneform.common.TransformProvider;
 import com.google.ar.sceneform.math.Matrix;
-import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.RenderableDefinition.Submesh;
 import java.nio.FloatBuffer;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 
@@ -25,27 +23,35 @@ class PlaneVisualizer implements TransformProvider {
   private boolean isEnabled = false;
   private boolean isShadowReceiver = false;
   private boolean isVisible = false;
+  // Set when the submeshes or the mesh changed since the renderable was last updated.
+  private boolean isRenderableDirty = true;
 
   @Nullable private ModelRenderable planeRenderable = null;
   @Nullable private RenderableInstance planeRenderableInstance;
 
-  private final ArrayList<Vertex> vertices = new ArrayList<>();
-  private final ArrayList<Integer> triangleIndices = new ArrayList<>();
+  // Rebuilt every time the plane is updated, reusing its arrays.
+  private final MeshBuilder mesh = new MeshBuilder();
   private final RenderableDefinition renderableDefinition;
   @Nullable private Submesh planeSubmesh;
   @Nullable private Submesh shadowSubmesh;
 
-  private static final int VERTS_PER_BOUNDARY_VERT = 2;
-
   // Feather distance 0.2 meters.
   private static final float FEATHER_LENGTH = 0.2f;
 
   // Feather scale over the distance between plane center and vertices.
   private static final float FEATHER_SCALE = 0.2f;
 
+  // Polygons that moved by less than 1 millimeter keep their mesh.
+  static final float POLYGON_EPSILON = 0.001f;
+
+  // The polygon that the mesh was last generated from, the length is negative until then.
+  private float[] polygon = new float[0];
+  private int polygonLength = -1;
+
   public void setEnabled(boolean enabled) {
     if (isEnabled != enabled) {
       isEnabled = enabled;
+      isRenderableDirty = true;
       updatePlane();
     }
   }
@@ -53,6 +59,7 @@ class PlaneVisualizer implements TransformProvider {
   public void setShadowReceiver(boolean shadowReceiver) {
     if (isShadowReceiver != shadowReceiver) {
       isShadowReceiver = shadowReceiver;
+      isRenderableDirty = true;
       updatePlane();
     }
   }
@@ -60,6 +67,7 @@ class PlaneVisualizer implements TransformProvider {
   public void setVisible(boolean visible) {
     if (isVisible != visible) {
       isVisible = visible;
+      isRenderableDirty = true;
       updatePlane();
     }
   }
@@ -68,7 +76,7 @@ class PlaneVisualizer implements TransformProvider {
     this.plane = plane;
     this.renderer = renderer;
 
-    renderableDefinition = RenderableDefinition.builder().setVertices(vertices).build();
+    renderableDefinition = RenderableDefinition.builder().setMesh(mesh).build();
   }
 
   Plane getPlane() {
@@ -78,7 +86,10 @@ class PlaneVisualizer implements TransformProvider {
   void setShadowMaterial(Material material) {
     if (shadowSubmesh == null) {
       shadowSubmesh =
-          Submesh.builder().setTriangleIndices(triangleIndices).setMaterial(material).build();
+          Submesh.builder()
+              .setTriangleIndices(mesh.getTriangleIndices())
+              .setMaterial(material)
+              .build();
     } else {
       shadowSubmesh.setMaterial(material);
     }
@@ -91,7 +102,10 @@ class PlaneVisualizer implements TransformProvider {
   void setPlaneMaterial(Material material) {
     if (planeSubmesh == null) {
       planeSubmesh =
-          Submesh.builder().setTriangleIndices(triangleIndices).setMaterial(material).build();
+          Submesh.builder()
+              .setTriangleIndices(mesh.getTriangleIndices())
+              .setMaterial(material)
+              .build();
     } else {
       planeSubmesh.setMaterial(material);
     }
@@ -107,32 +121,55 @@ class PlaneVisualizer implements TransformProvider {
   }
 
   void updatePlane() {
+    updatePlane(true);
+  }
+
+  /**
+   * Updates the pose of the plane, and its mesh if the polygon of the plane changed.
+   *
+   * @param canUpdateMesh false to defer generating the mesh, the plane keeps its previous mesh
+   * @return false if the polygon changed and generating the mesh was deferred
+   */
+  boolean updatePlane(boolean canUpdateMesh) {
     if (!isEnabled || (!isVisible && !isShadowReceiver)) {
       removePlaneFromScene();
-      return;
+      return true;
     }
 
     if (plane.getTrackingState() != TrackingState.TRACKING) {
       removePlaneFromScene();
-      return;
+      return true;
     }
 
     // Set the transformation matrix to the pose of the plane.
     plane.getCenterPose().toMatrix(planeMatrix.data, 0);
 
-    // Calculate the mesh for the plane.
-    boolean success = updateRenderableDefinitionForPlane();
-    if (!success) {
+    // Calculate the mesh for the plane, unless its polygon is the same.
+    FloatBuffer boundary = plane.getPolygon();
+    if (isPolygonChanged(boundary)) {
+      if (!canUpdateMesh) {
+        return false;
+      }
+
+      updateRenderableDefinitionForPlane(boundary);
+      isRenderableDirty = true;
+    }
+
+    if (mesh.getVertexCount() == 0) {
       removePlaneFromScene();
-      return;
+      return true;
     }
 
-    updateRenderable();
+    if (isRenderableDirty || planeRenderable == null) {
+      updateRenderable();
+    }
     addPlaneToScene();
+    return true;
   }
 
   @SuppressWarnings({"AndroidApiChecker", "FutureReturnValueIgnored"})
   void updateRenderable() {
+    isRenderableDirty = false;
     List<Submesh> submeshes = renderableDefinition.getSubmeshes();
     submeshes.clear();
 
@@ -198,35 +235,59 @@ class PlaneVisualizer implements TransformProvider {
     isPlaneAddedToScene = false;
   }
 
-  private boolean updateRenderableDefinitionForPlane() {
-    FloatBuffer boundary = plane.getPolygon();
+  /** Returns the scale of the inner vertex generated for a point of the polygon of a plane. */
+  static float getFeatherScale(float x, float z) {
+    float magnitude = (float) Math.hypot(x, z);
+    float scale = 1.0f - FEATHER_SCALE;
+    if (magnitude != 0.0f) {
+      scale = 1.0f - Math.min(FEATHER_LENGTH / magnitude, FEATHER_SCALE);
+    }
+    return scale;
+  }
+
+  private boolean isPolygonChanged(@Nullable FloatBuffer boundary) {
+    int length = boundary != null ? boundary.limit() : 0;
+    if (length != polygonLength) {
+      return true;
+    }
+
+    for (int i = 0; i < length; i++) {
+      if (Math.abs(boundary.get(i) - polygon[i]) > POLYGON_EPSILON) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Generates the mesh from the polygon of the plane, the mesh is empty if it has no vertices. */
+  private void updateRenderableDefinitionForPlane(@Nullable FloatBuffer boundary) {
+    mesh.clear();
+
+    // Keep the polygon to compare it with the next ones.
+    polygonLength = boundary != null ? boundary.limit() : 0;
+    if (polygon.length < polygonLength) {
+      polygon = new float[polygonLength];
+    }
 
     if (boundary == null) {
-      return false;
+      return;
     }
 
+    boundary.rewind();
+    boundary.get(polygon, 0, polygonLength);
     boundary.rewind();
     int boundaryVertices = boundary.limit() / 2;
 
     if (boundaryVertices == 0) {
-      return false;
+      return;
     }
 
-    int numVertices = boundaryVertices * VERTS_PER_BOUNDARY_VERT;
-    vertices.clear();
-    vertices.ensureCapacity(numVertices);
-
-    int numIndices = (boundaryVertices * 6) + ((boundaryVertices - 2) * 3);
-    triangleIndices.clear();
-    triangleIndices.ensureCapacity(numIndices);
-
-    Vector3 normal = Vector3.up();
-
     // Copy the perimeter vertices into the vertex buffer and add in the y-coordinate.
     while (boundary.hasRemaining()) {
       float x = boundary.get();
       float z = boundary.get();
-      vertices.add(Vertex.builder().setPosition(new Vector3(x, 0.0f, z)).setNormal(normal).build());
+      mesh.addVertex(x, 0.0f, z);
+      mesh.setNormal(0.0f, 1.0f, 0.0f);
     }
 
     // Generate the interior vertices.
@@ -235,17 +296,9 @@ class PlaneVisualizer implements TransformProvider {
       float x = boundary.get();
       float z = boundary.get();
 
-      float magnitude = (float) Math.hypot(x, z);
-      float scale = 1.0f - FEATHER_SCALE;
-      if (magnitude != 0.0f) {
-        scale = 1.0f - Math.min(FEATHER_LENGTH / magnitude, FEATHER_SCALE);
-      }
-
-      vertices.add(
-          Vertex.builder()
-              .setPosition(new Vector3(x * scale, 1.0f, z * scale))
-              .setNormal(normal)
-              .build());
+      float scale = getFeatherScale(x, z);
+      mesh.addVertex(x * scale, 1.0f, z * scale);
+      mesh.setNormal(0.0f, 1.0f, 0.0f);
     }
 
     int firstOuterVertex = 0;
@@ -253,9 +306,7 @@ class PlaneVisualizer implements TransformProvider {
 
     // Generate triangle (4, 5, 6) and (4, 6, 7).
     for (int i = 0; i < boundaryVertices - 2; ++i) {
-      triangleIndices.add(firstInnerVertex);
-      triangleIndices.add(firstInnerVertex + i + 1);
-      triangleIndices.add(firstInnerVertex + i + 2);
+      mesh.addTriangle(firstInnerVertex, firstInnerVertex + i + 1, firstInnerVertex + i + 2);
     }
 
     // Generate triangle (0, 1, 4), (4, 1, 5), (5, 1, 2), (5, 2, 6), (6, 2, 3), (6, 3, 7)
@@ -266,15 +317,8 @@ class PlaneVisualizer implements TransformProvider {
       int innerVertex1 = firstInnerVertex + i;
       int innerVertex2 = firstInnerVertex + ((i + 1) % boundaryVertices);
 
-      triangleIndices.add(outerVertex1);
-      triangleIndices.add(outerVertex2);
-      triangleIndices.add(innerVertex1);
-
-      triangleIndices.add(innerVertex1);
-      triangleIndices.add(outerVertex2);
-      triangleIndices.add(innerVertex2);
+      mesh.addTriangle(outerVertex1, outerVertex2, innerVertex1);
+      mesh.addTriangle(innerVertex1, outerVertex2, innerVertex2);
     }
-
-    return true;
   }
 }
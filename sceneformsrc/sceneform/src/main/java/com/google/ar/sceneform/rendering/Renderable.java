@@ -7,6 +7,8 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 
+import com.google.android.filament.IndexBuffer;
+import com.google.android.filament.VertexBuffer;
 import com.google.ar.sceneform.collision.Box;
 import com.google.ar.sceneform.collision.CollisionShape;
 import com.google.ar.sceneform.common.TransformProvider;
@@ -17,6 +19,7 @@ import com.google.ar.sceneform.utilities.ChangeId;
 import com.google.ar.sceneform.utilities.LoadHelper;
 import com.google.ar.sceneform.utilities.Preconditions;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -50,6 +53,8 @@ public abstract class Renderable {
   public static final int RENDER_PRIORITY_LAST = 7;
   // Allow stale data two weeks old by default.
   private static final long DEFAULT_MAX_STALE_CACHE = TimeUnit.DAYS.toSeconds(14);
+  // Size of a vertex with a position, tangent frame and texture coordinates, used for estimates.
+  private static final int ESTIMATED_VERTEX_SIZE_BYTES = 36;
 
   /** @hide */
   @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
@@ -230,6 +235,28 @@ public abstract class Renderable {
     return renderableData;
   }
 
+  /**
+   * Returns an estimate of the memory used by the renderable, including its geometry and the
+   * textures of its materials.
+   */
+  long getEstimatedSizeBytes() {
+    long sizeBytes = 0;
+    IRenderableInternalData renderableData = getRenderableData();
+    VertexBuffer vertexBuffer = renderableData.getVertexBuffer();
+    if (vertexBuffer != null) {
+      sizeBytes += (long) vertexBuffer.getVertexCount() * ESTIMATED_VERTEX_SIZE_BYTES;
+    }
+    IndexBuffer indexBuffer = renderableData.getIndexBuffer();
+    if (indexBuffer != null) {
+      sizeBytes += (long) indexBuffer.getIndexCount() * Integer.BYTES;
+    }
+
+    for (int i = 0; i < materialBindings.size(); i++) {
+      sizeBytes += materialBindings.get(i).getEstimatedSizeBytes();
+    }
+    return sizeBytes;
+  }
+
   ArrayList<Material> getMaterialBindings() {
     return materialBindings;
   }
@@ -303,9 +330,12 @@ public abstract class Renderable {
 
     @Nullable private Uri sourceUri = null;
     @Nullable private Callable<InputStream> inputStreamCreator = null;
+    // Memory maps local sources so that SFBs don't need to be copied into the Java heap.
+    @Nullable private Callable<ByteBuffer> mappedBufferCreator = null;
     @Nullable private RenderableDefinition definition = null;
     private boolean isGltf = false;
     private boolean isFilamentAsset = false;
+    private boolean isDecodedTextureCacheEnabled = false;
     @Nullable private LoadGltfListener loadGltfListener;
     @Nullable private Function<String, Uri> uriResolver = null;
     @Nullable private byte[] materialsBytes = null;
@@ -317,6 +347,7 @@ public abstract class Renderable {
       Preconditions.checkNotNull(inputStreamCreator);
       this.sourceUri = null;
       this.inputStreamCreator = inputStreamCreator;
+      this.mappedBufferCreator = null;
       this.context = context;
       return getSelf();
     }
@@ -332,6 +363,7 @@ public abstract class Renderable {
 
     public B setSource(Context context, int resource) {
       this.inputStreamCreator = LoadHelper.fromResource(context, resource);
+      this.mappedBufferCreator = LoadHelper.mappedBufferFromResource(context, resource);
       this.context = context;
 
       Uri uri = LoadHelper.resourceToUri(context, resource);
@@ -345,6 +377,7 @@ public abstract class Renderable {
       this.definition = definition;
       registryId = null;
       sourceUri = null;
+      mappedBufferCreator = null;
       return getSelf();
     }
 
@@ -366,6 +399,19 @@ public abstract class Renderable {
       return getSelf();
     }
 
+    /**
+     * Sets whether the textures decoded while loading an SFB are stored in the cache directory of
+     * the application, so that later loads of the same images, including after the application
+     * restarts, don't decode them again. Disabled by default. Only used with a source that has a
+     * {@link Context}.
+     *
+     * <p>The cache uses up to 128 MB of storage, the least recently used images are removed first.
+     */
+    public B setDecodedTextureCacheEnabled(boolean isDecodedTextureCacheEnabled) {
+      this.isDecodedTextureCacheEnabled = isDecodedTextureCacheEnabled;
+      return getSelf();
+    }
+
     
 
 
@@ -402,21 +448,34 @@ public abstract class Renderable {
       // For static-analysis check.
       Object registryId = this.registryId;
       if (registryId != null) {
-        // See if a renderable has already been registered by this id, if so re-use it.
         ResourceRegistry<T> registry = getRenderableRegistry();
-        CompletableFuture<T> renderableFuture = registry.get(registryId);
+        CompletableFuture<T> renderableFuture;
+        if (definition == null) {
+          // Re-use a renderable already registered by this id, or register the one loaded now.
+          // Concurrent builds of the same id share a single load.
+          renderableFuture = registry.getOrLoad(registryId, this::loadRenderable);
+        } else {
+          // See if a renderable has already been registered by this id, if so re-use it.
+          renderableFuture = registry.get(registryId);
+        }
+
         if (renderableFuture != null) {
           return renderableFuture.thenApply(
               renderable -> getRenderableClass().cast(renderable.makeCopy()));
         }
       }
 
-      T renderable = makeRenderable();
-
       if (definition != null) {
-        return CompletableFuture.completedFuture(renderable);
+        return CompletableFuture.completedFuture(makeRenderable());
       }
 
+      return loadRenderable()
+          .thenApply(resultRenderable -> getRenderableClass().cast(resultRenderable.makeCopy()));
+    }
+
+    private CompletableFuture<T> loadRenderable() {
+      T renderable = makeRenderable();
+
       // For static-analysis check.
       Callable<InputStream> inputStreamCreator = this.inputStreamCreator;
       if (inputStreamCreator == null) {
@@ -443,22 +502,26 @@ public abstract class Renderable {
           throw new AssertionError("Gltf Renderable.Builder must have a valid context.");
         }
       } else {
+        DecodedBitmapCache decodedBitmapCache =
+            isDecodedTextureCacheEnabled && context != null
+                ? DecodedBitmapCache.getInstance(context)
+                : null;
         LoadRenderableFromSfbTask<T> loader =
-            new LoadRenderableFromSfbTask<>(renderable, sourceUri);
-        result = loader.downloadAndProcessRenderable(inputStreamCreator);
-      }
-
-      if (registryId != null) {
-        ResourceRegistry<T> registry = getRenderableRegistry();
-        registry.register(registryId, result);
+            new LoadRenderableFromSfbTask<>(renderable, sourceUri, decodedBitmapCache);
+        Callable<ByteBuffer> mappedBufferCreator = this.mappedBufferCreator;
+        if (mappedBufferCreator != null) {
+          result = loader.loadAndProcessRenderable(mappedBufferCreator);
+        } else {
+          // Remote sources are streamed into the Java heap.
+          result = loader.downloadAndProcessRenderable(inputStreamCreator);
+        }
       }
 
       FutureHelper.logOnException(
           getRenderableClass().getSimpleName(),
           result,
           "Unable to load Renderable registryId='" + registryId + "'");
-      return result.thenApply(
-          resultRenderable -> getRenderableClass().cast(resultRenderable.makeCopy()));
+      return result;
     }
 
     protected void checkPreconditions() {
@@ -488,6 +551,7 @@ public abstract class Renderable {
       this.inputStreamCreator =
           LoadHelper.fromUri(
               context, Preconditions.checkNotNull(this.sourceUri), connectionProperties);
+      this.mappedBufferCreator = LoadHelper.mappedBufferFromUri(context, sourceUri);
       return getSelf();
     }
 
@@ -12,6 +12,8 @@ import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.Vertex.UvCoordinate;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
 import com.google.ar.sceneform.utilities.Preconditions;
+import com.google.ar.sceneform.utilities.SceneformBufferUtils;
+import java.nio.Buffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
@@ -26,7 +28,14 @@ import java.util.List;
  * @see ViewRenderable.Builder
  */
 public class RenderableDefinition {
+  // Only used on the main thread while applying a definition.
   private static final Matrix scratchMatrix = new Matrix();
+  private static final Vector3 scratchNormal = new Vector3();
+  private static final Vector3 scratchTangent = new Vector3();
+  private static final Vector3 scratchBitangent = new Vector3();
+  private static final Quaternion scratchQuaternion = new Quaternion();
+  private static final Vector3 UP = Vector3.up();
+  private static final Vector3 RIGHT = Vector3.right();
 
   /**
    * Represents a Submesh for a RenderableDefinition. Each RenderableDefinition may have multiple
@@ -99,10 +108,75 @@ public class RenderableDefinition {
     }
   }
 
+  /**
+   * Represents a reduced level of detail for a RenderableDefinition. It holds different triangle
+   * indices for each of the submeshes, which refer to the same vertices and are drawn with the same
+   * materials.
+   *
+   * <p>A level is rendered once the bounding sphere of the renderable covers less than its screen
+   * coverage, which is a fraction of the height of the screen.
+   *
+   * @see MeshSimplifier
+   */
+  public static class LevelOfDetail {
+    private float screenCoverage;
+    private List<List<Integer>> submeshTriangleIndices;
+
+    public void setScreenCoverage(float screenCoverage) {
+      this.screenCoverage = screenCoverage;
+    }
+
+    public float getScreenCoverage() {
+      return screenCoverage;
+    }
+
+    /** Sets the triangle indices of each submesh, in the same order as the submeshes. */
+    public void setSubmeshTriangleIndices(List<List<Integer>> submeshTriangleIndices) {
+      this.submeshTriangleIndices = submeshTriangleIndices;
+    }
+
+    public List<List<Integer>> getSubmeshTriangleIndices() {
+      return submeshTriangleIndices;
+    }
+
+    private LevelOfDetail(Builder builder) {
+      screenCoverage = builder.screenCoverage;
+      submeshTriangleIndices = Preconditions.checkNotNull(builder.submeshTriangleIndices);
+    }
+
+    public static Builder builder() {
+      return new Builder();
+    }
+
+    /** Factory class for {@link LevelOfDetail}. */
+    public static final class Builder {
+      private float screenCoverage;
+      @Nullable private List<List<Integer>> submeshTriangleIndices;
+
+      public Builder setScreenCoverage(float screenCoverage) {
+        this.screenCoverage = screenCoverage;
+        return this;
+      }
+
+      public Builder setSubmeshTriangleIndices(List<List<Integer>> submeshTriangleIndices) {
+        this.submeshTriangleIndices = submeshTriangleIndices;
+        return this;
+      }
+
+      public LevelOfDetail build() {
+        return new LevelOfDetail(this);
+      }
+    }
+  }
+
   private List<Vertex> vertices;
+  // Replaces the vertices when the geometry is built with a MeshBuilder.
+  @Nullable private MeshBuilder mesh;
   private List<Submesh> submeshes;
+  private List<LevelOfDetail> levelsOfDetail;
 
   private static final int BYTES_PER_FLOAT = Float.SIZE / 8;
+  private static final int BYTES_PER_INT = Integer.SIZE / 8;
   private static final int POSITION_SIZE = 3; // x, y, z
   private static final int UV_SIZE = 2;
   private static final int TANGENTS_SIZE = 4; // quaternion
@@ -110,12 +184,103 @@ public class RenderableDefinition {
 
   public void setVertices(List<Vertex> vertices) {
     this.vertices = vertices;
+    mesh = null;
   }
 
   List<Vertex> getVertices() {
     return vertices;
   }
 
+  /**
+   * Sets the vertices from a {@link MeshBuilder}, replacing any list of {@link Vertex}. The mesh is
+   * read when the definition is applied to a renderable, so it can be reused to update it.
+   */
+  public void setMesh(MeshBuilder mesh) {
+    this.mesh = Preconditions.checkNotNull(mesh, "Parameter \"mesh\" was null.");
+    vertices = new ArrayList<>();
+  }
+
+  @Nullable
+  public MeshBuilder getMesh() {
+    return mesh;
+  }
+
+  int getVertexCount() {
+    return mesh != null ? mesh.getVertexCount() : vertices.size();
+  }
+
+  void getVertexPosition(int index, Vector3 dest) {
+    if (mesh != null) {
+      float[] positions = mesh.getPositions();
+      int offset = index * POSITION_SIZE;
+      dest.set(positions[offset], positions[offset + 1], positions[offset + 2]);
+    } else {
+      dest.set(vertices.get(index).getPosition());
+    }
+  }
+
+  /** Returns null if the vertices don't have normals. */
+  @Nullable
+  Vector3 getVertexNormal(int index, Vector3 dest) {
+    if (mesh != null) {
+      if (!mesh.hasNormals()) {
+        return null;
+      }
+      float[] normals = mesh.getNormals();
+      int offset = index * POSITION_SIZE;
+      dest.set(normals[offset], normals[offset + 1], normals[offset + 2]);
+      return dest;
+    }
+    Vector3 normal = vertices.get(index).getNormal();
+    if (normal == null) {
+      return null;
+    }
+    dest.set(normal);
+    return dest;
+  }
+
+  /** Returns null if the vertices don't have uv coordinates. */
+  @Nullable
+  UvCoordinate getVertexUvCoordinate(int index, UvCoordinate dest) {
+    if (mesh != null) {
+      if (!mesh.hasUvCoordinates()) {
+        return null;
+      }
+      float[] uvs = mesh.getUvCoordinates();
+      int offset = index * UV_SIZE;
+      dest.x = uvs[offset];
+      dest.y = uvs[offset + 1];
+      return dest;
+    }
+    UvCoordinate uvCoordinate = vertices.get(index).getUvCoordinate();
+    if (uvCoordinate == null) {
+      return null;
+    }
+    dest.x = uvCoordinate.x;
+    dest.y = uvCoordinate.y;
+    return dest;
+  }
+
+  /** Returns null if the vertices don't have colors. */
+  @Nullable
+  Color getVertexColor(int index, Color dest) {
+    if (mesh != null) {
+      if (!mesh.hasColors()) {
+        return null;
+      }
+      float[] colors = mesh.getColors();
+      int offset = index * COLOR_SIZE;
+      dest.set(colors[offset], colors[offset + 1], colors[offset + 2], colors[offset + 3]);
+      return dest;
+    }
+    Color color = vertices.get(index).getColor();
+    if (color == null) {
+      return null;
+    }
+    dest.set(color);
+    return dest;
+  }
+
   public void setSubmeshes(List<Submesh> submeshes) {
     this.submeshes = submeshes;
   }
@@ -124,15 +289,40 @@ public class RenderableDefinition {
     return submeshes;
   }
 
+  /**
+   * Sets the reduced levels of detail, ordered from the most to the least detailed one. The screen
+   * coverage of each level must be lower than the one of the previous level.
+   */
+  public void setLevelsOfDetail(List<LevelOfDetail> levelsOfDetail) {
+    this.levelsOfDetail = levelsOfDetail;
+  }
+
+  public List<LevelOfDetail> getLevelsOfDetail() {
+    return levelsOfDetail;
+  }
+
   void applyDefinitionToData(
       // TODO: Split into RenderableInternalSfbData & RenderableInternalDefinitionData
       IRenderableInternalData data,
       ArrayList<Material> materialBindings,
       ArrayList<String> materialNames) {
     AndroidPreconditions.checkUiThread();
-
-    applyDefinitionToDataIndexBuffer(data);
-    applyDefinitionToDataVertexBuffer(data);
+    validateLevelsOfDetail();
+
+    // A mesh that was already uploaded to this data only uploads the ranges that changed.
+    @Nullable int[] meshIndexLayout = mesh != null ? getMeshIndexLayout(mesh) : null;
+    if (mesh != null
+        && meshIndexLayout != null
+        && canApplyMeshChanges(mesh, data, meshIndexLayout)) {
+      applyMeshChangesToData(mesh, data, meshIndexLayout);
+    } else {
+      data.setSyncedMesh(null, 0);
+      applyDefinitionToDataIndexBuffer(data);
+      applyDefinitionToDataVertexBuffer(data);
+      if (mesh != null) {
+        markMeshSynced(mesh, data, meshIndexLayout);
+      }
+    }
 
     // Update/Add mesh data.
     int indexStart = 0;
@@ -161,6 +351,227 @@ public class RenderableDefinition {
     while (data.getMeshes().size() > submeshes.size()) {
       data.getMeshes().remove(data.getMeshes().size() - 1);
     }
+
+    // Update the levels of detail, their indices follow the ones of the submeshes.
+    List<RenderableInternalData.LevelOfDetailData> levelsOfDetailData = data.getLevelsOfDetail();
+    levelsOfDetailData.clear();
+    for (int i = 0; i < levelsOfDetail.size(); i++) {
+      LevelOfDetail levelOfDetail = levelsOfDetail.get(i);
+      RenderableInternalData.LevelOfDetailData levelOfDetailData =
+          new RenderableInternalData.LevelOfDetailData();
+      levelOfDetailData.screenCoverage = levelOfDetail.getScreenCoverage();
+
+      for (List<Integer> triangleIndices : levelOfDetail.getSubmeshTriangleIndices()) {
+        RenderableInternalData.MeshData meshData = new RenderableInternalData.MeshData();
+        meshData.indexStart = indexStart;
+        meshData.indexEnd = indexStart + triangleIndices.size();
+        indexStart = meshData.indexEnd;
+        levelOfDetailData.meshes.add(meshData);
+      }
+
+      levelsOfDetailData.add(levelOfDetailData);
+    }
+  }
+
+  private void validateLevelsOfDetail() {
+    float previousScreenCoverage = Float.POSITIVE_INFINITY;
+    for (int i = 0; i < levelsOfDetail.size(); i++) {
+      LevelOfDetail levelOfDetail = levelsOfDetail.get(i);
+      if (levelOfDetail.getSubmeshTriangleIndices().size() != submeshes.size()) {
+        throw new IllegalArgumentException(
+            "LevelOfDetail "
+                + i
+                + " must have triangle indices for each of the "
+                + submeshes.size()
+                + " submeshes.");
+      }
+
+      float screenCoverage = levelOfDetail.getScreenCoverage();
+      if (screenCoverage <= 0.0f || screenCoverage >= previousScreenCoverage) {
+        throw new IllegalArgumentException(
+            "LevelOfDetail "
+                + i
+                + " must have a positive screen coverage lower than the previous level.");
+      }
+      previousScreenCoverage = screenCoverage;
+    }
+  }
+
+  /**
+   * Returns where the triangle indices of each submesh are in the mesh, as pairs of start and size.
+   * Returns null if some of the indices don't come from the mesh, since changes to them can't be
+   * tracked.
+   */
+  @Nullable
+  private int[] getMeshIndexLayout(MeshBuilder mesh) {
+    if (!levelsOfDetail.isEmpty()) {
+      return null;
+    }
+
+    int[] layout = new int[submeshes.size() * 2];
+    for (int i = 0; i < submeshes.size(); i++) {
+      List<Integer> triangleIndices = submeshes.get(i).getTriangleIndices();
+      if (!(triangleIndices instanceof MeshBuilder.TriangleIndices)) {
+        return null;
+      }
+
+      MeshBuilder.TriangleIndices meshIndices = (MeshBuilder.TriangleIndices) triangleIndices;
+      if (meshIndices.getMesh() != mesh) {
+        return null;
+      }
+      layout[i * 2] = meshIndices.getStart();
+      layout[i * 2 + 1] = meshIndices.size();
+    }
+    return layout;
+  }
+
+  private static boolean canApplyMeshChanges(
+      MeshBuilder mesh, IRenderableInternalData data, int[] indexLayout) {
+    // Both the mesh and the data must agree that the data holds the latest upload of the mesh,
+    // another definition may have been applied to the data since then.
+    if (!mesh.isSyncedWith(data)
+        || data.getSyncedMesh() != mesh
+        || data.getSyncedMeshVersion() != mesh.getSyncVersion()
+        || mesh.getVertexCount() == 0) {
+      return false;
+    }
+
+    // The indices of each submesh must still start at the same place in the index buffer, only the
+    // last submesh may have a different number of indices.
+    @Nullable int[] syncedIndexLayout = mesh.getSyncedIndexLayout();
+    if (syncedIndexLayout == null || syncedIndexLayout.length != indexLayout.length) {
+      return false;
+    }
+    int numIndices = 0;
+    for (int i = 0; i < indexLayout.length; i++) {
+      boolean isLastSize = i == indexLayout.length - 1;
+      if (!isLastSize && indexLayout[i] != syncedIndexLayout[i]) {
+        return false;
+      }
+      if (i % 2 == 1) {
+        numIndices += indexLayout[i];
+      }
+    }
+
+    IndexBuffer indexBuffer = data.getIndexBuffer();
+    VertexBuffer vertexBuffer = data.getVertexBuffer();
+    if (indexBuffer == null
+        || indexBuffer.getIndexCount() < numIndices
+        || vertexBuffer == null
+        || vertexBuffer.getVertexCount() < mesh.getVertexCount()) {
+      return false;
+    }
+
+    // The vertex buffer must have the same attributes.
+    mesh.validateAttributes();
+    return mesh.hasNormals() == (data.getRawTangentsBuffer() != null)
+        && mesh.hasUvCoordinates() == (data.getRawUvBuffer() != null)
+        && mesh.hasColors() == (data.getRawColorBuffer() != null);
+  }
+
+  /**
+   * Uploads the vertices and indices that changed since the mesh was last applied to the data. Each
+   * range is copied to its own staging buffer from the pool, which is released once Filament has
+   * uploaded it, so a range can change again while the previous upload is still pending.
+   */
+  private static void applyMeshChangesToData(
+      MeshBuilder mesh, IRenderableInternalData data, int[] indexLayout) {
+    IndexBuffer indexBuffer = Preconditions.checkNotNull(data.getIndexBuffer());
+    VertexBuffer vertexBuffer = Preconditions.checkNotNull(data.getVertexBuffer());
+    IEngine engine = EngineInstance.getEngine();
+
+    // The same indices of the mesh may be used by several submeshes.
+    MeshBuilder.DirtyRanges dirtyIndices = mesh.getDirtyIndices();
+    for (int dirty = 0; dirty < dirtyIndices.size(); dirty++) {
+      int dirtyIndexStart = dirtyIndices.getStart(dirty);
+      int dirtyIndexEnd = Math.min(dirtyIndices.getEnd(dirty), mesh.getIndexCount());
+      int bufferOffset = 0;
+      for (int i = 0; i < indexLayout.length; i += 2) {
+        int rangeStart = indexLayout[i];
+        int rangeEnd = rangeStart + indexLayout[i + 1];
+        int start = Math.max(dirtyIndexStart, rangeStart);
+        int end = Math.min(dirtyIndexEnd, rangeEnd);
+        if (start < end) {
+          IntBuffer stagingBuffer = SceneformBufferUtils.acquireIntBuffer(end - start);
+          mesh.putIndices(stagingBuffer, start, end);
+          stagingBuffer.rewind();
+          indexBuffer.setBuffer(
+              engine.getFilamentEngine(),
+              stagingBuffer,
+              (bufferOffset + start - rangeStart) * BYTES_PER_INT,
+              end - start,
+              ThreadPools.getMainExecutor(),
+              releaseWhenUploaded(stagingBuffer));
+        }
+        bufferOffset += rangeEnd - rangeStart;
+      }
+    }
+
+    MeshBuilder.DirtyRanges dirtyVertices = mesh.getDirtyVertices();
+    for (int dirty = 0; dirty < dirtyVertices.size(); dirty++) {
+      int start = dirtyVertices.getStart(dirty);
+      int end = Math.min(dirtyVertices.getEnd(dirty), mesh.getVertexCount());
+      if (start < end) {
+        applyMeshVerticesToData(mesh, vertexBuffer, start, end);
+      }
+    }
+
+    // The bounds may shrink when vertices move, so they are computed from all of the positions.
+    Vector3 minAabb = new Vector3();
+    Vector3 maxAabb = new Vector3();
+    computeMeshAabb(mesh, minAabb, maxAabb);
+    setAabb(data, minAabb, maxAabb);
+
+    markMeshSynced(mesh, data, indexLayout);
+  }
+
+  private static void applyMeshVerticesToData(
+      MeshBuilder mesh, VertexBuffer vertexBuffer, int start, int end) {
+    int count = end - start;
+    int bufferIndex = 0;
+    FloatBuffer positionBuffer = SceneformBufferUtils.acquireFloatBuffer(count * POSITION_SIZE);
+    mesh.putPositions(positionBuffer, start, end);
+    setVertexBufferRange(vertexBuffer, bufferIndex, positionBuffer, start * POSITION_SIZE);
+
+    if (mesh.hasNormals()) {
+      bufferIndex++;
+      FloatBuffer tangentsBuffer = SceneformBufferUtils.acquireFloatBuffer(count * TANGENTS_SIZE);
+      putMeshTangents(mesh, tangentsBuffer, start, end);
+      setVertexBufferRange(vertexBuffer, bufferIndex, tangentsBuffer, start * TANGENTS_SIZE);
+    }
+
+    if (mesh.hasUvCoordinates()) {
+      bufferIndex++;
+      FloatBuffer uvBuffer = SceneformBufferUtils.acquireFloatBuffer(count * UV_SIZE);
+      mesh.putUvCoordinates(uvBuffer, start, end);
+      setVertexBufferRange(vertexBuffer, bufferIndex, uvBuffer, start * UV_SIZE);
+    }
+
+    if (mesh.hasColors()) {
+      bufferIndex++;
+      FloatBuffer colorBuffer = SceneformBufferUtils.acquireFloatBuffer(count * COLOR_SIZE);
+      mesh.putColors(colorBuffer, start, end);
+      setVertexBufferRange(vertexBuffer, bufferIndex, colorBuffer, start * COLOR_SIZE);
+    }
+  }
+
+  private static void markMeshSynced(
+      MeshBuilder mesh, IRenderableInternalData data, @Nullable int[] indexLayout) {
+    mesh.markSynced(data, indexLayout);
+    data.setSyncedMesh(mesh, mesh.getSyncVersion());
+  }
+
+  private static void setVertexBufferRange(
+      VertexBuffer vertexBuffer, int bufferIndex, FloatBuffer stagingBuffer, int floatOffset) {
+    stagingBuffer.rewind();
+    vertexBuffer.setBufferAt(
+        EngineInstance.getEngine().getFilamentEngine(),
+        bufferIndex,
+        stagingBuffer,
+        floatOffset * BYTES_PER_FLOAT,
+        stagingBuffer.limit(),
+        ThreadPools.getMainExecutor(),
+        releaseWhenUploaded(stagingBuffer));
   }
 
   private void applyDefinitionToDataIndexBuffer(IRenderableInternalData data) {
@@ -170,11 +581,18 @@ public class RenderableDefinition {
       Submesh submesh = submeshes.get(i);
       numIndices += submesh.getTriangleIndices().size();
     }
+    for (int i = 0; i < levelsOfDetail.size(); i++) {
+      for (List<Integer> triangleIndices : levelsOfDetail.get(i).getSubmeshTriangleIndices()) {
+        numIndices += triangleIndices.size();
+      }
+    }
 
     // Create the raw index buffer if needed.
     IntBuffer rawIndexBuffer = data.getRawIndexBuffer();
+    IntBuffer replacedIndexBuffer = null;
     if (rawIndexBuffer == null || rawIndexBuffer.capacity() < numIndices) {
-      rawIndexBuffer = IntBuffer.allocate(numIndices);
+      replacedIndexBuffer = rawIndexBuffer;
+      rawIndexBuffer = SceneformBufferUtils.acquireIntBuffer(numIndices);
       data.setRawIndexBuffer(rawIndexBuffer);
     } else {
       rawIndexBuffer.rewind();
@@ -182,10 +600,11 @@ public class RenderableDefinition {
 
     // Fill the index buffer with the data.
     for (int i = 0; i < submeshes.size(); i++) {
-      Submesh submesh = submeshes.get(i);
-      List<Integer> triangleIndices = submesh.getTriangleIndices();
-      for (int j = 0; j < triangleIndices.size(); j++) {
-        rawIndexBuffer.put(triangleIndices.get(j));
+      putTriangleIndices(submeshes.get(i).getTriangleIndices(), rawIndexBuffer);
+    }
+    for (int i = 0; i < levelsOfDetail.size(); i++) {
+      for (List<Integer> triangleIndices : levelsOfDetail.get(i).getSubmeshTriangleIndices()) {
+        putTriangleIndices(triangleIndices, rawIndexBuffer);
       }
     }
     rawIndexBuffer.rewind();
@@ -206,26 +625,44 @@ public class RenderableDefinition {
       data.setIndexBuffer(indexBuffer);
     }
 
-    indexBuffer.setBuffer(engine.getFilamentEngine(), rawIndexBuffer, 0, numIndices);
+    indexBuffer.setBuffer(
+        engine.getFilamentEngine(),
+        rawIndexBuffer,
+        0,
+        numIndices,
+        ThreadPools.getMainExecutor(),
+        releaseWhenUploaded(replacedIndexBuffer));
   }
 
   private void applyDefinitionToDataVertexBuffer(IRenderableInternalData data) {
-    if (vertices.isEmpty()) {
+    int numVertices = getVertexCount();
+    if (numVertices == 0) {
       throw new IllegalArgumentException("RenderableDescription must have at least one vertex.");
     }
 
-    int numVertices = vertices.size();
-    Vertex firstVertex = vertices.get(0);
-
     // Determine which attributes this VertexBuffer needs.
     EnumSet<VertexAttribute> descriptionAttributes = EnumSet.of(VertexAttribute.POSITION);
-    if (firstVertex.getNormal() != null) {
+    boolean hasNormals;
+    boolean hasUvCoordinates;
+    boolean hasColors;
+    if (mesh != null) {
+      mesh.validateAttributes();
+      hasNormals = mesh.hasNormals();
+      hasUvCoordinates = mesh.hasUvCoordinates();
+      hasColors = mesh.hasColors();
+    } else {
+      Vertex firstVertex = vertices.get(0);
+      hasNormals = firstVertex.getNormal() != null;
+      hasUvCoordinates = firstVertex.getUvCoordinate() != null;
+      hasColors = firstVertex.getColor() != null;
+    }
+    if (hasNormals) {
       descriptionAttributes.add(VertexAttribute.TANGENTS);
     }
-    if (firstVertex.getUvCoordinate() != null) {
+    if (hasUvCoordinates) {
       descriptionAttributes.add(VertexAttribute.UV0);
     }
-    if (firstVertex.getColor() != null) {
+    if (hasColors) {
       descriptionAttributes.add(VertexAttribute.COLOR);
     }
 
@@ -260,8 +697,10 @@ public class RenderableDefinition {
 
     // Create position Buffer if needed.
     FloatBuffer positionBuffer = data.getRawPositionBuffer();
+    FloatBuffer replacedPositionBuffer = null;
     if (positionBuffer == null || positionBuffer.capacity() < numVertices * POSITION_SIZE) {
-      positionBuffer = FloatBuffer.allocate(numVertices * POSITION_SIZE);
+      replacedPositionBuffer = positionBuffer;
+      positionBuffer = SceneformBufferUtils.acquireFloatBuffer(numVertices * POSITION_SIZE);
       data.setRawPositionBuffer(positionBuffer);
     } else {
       positionBuffer.rewind();
@@ -269,9 +708,11 @@ public class RenderableDefinition {
 
     // Create tangents Buffer if needed.
     FloatBuffer tangentsBuffer = data.getRawTangentsBuffer();
+    FloatBuffer replacedTangentsBuffer = null;
     if (descriptionAttributes.contains(VertexAttribute.TANGENTS)
         && (tangentsBuffer == null || tangentsBuffer.capacity() < numVertices * TANGENTS_SIZE)) {
-      tangentsBuffer = FloatBuffer.allocate(numVertices * TANGENTS_SIZE);
+      replacedTangentsBuffer = tangentsBuffer;
+      tangentsBuffer = SceneformBufferUtils.acquireFloatBuffer(numVertices * TANGENTS_SIZE);
       data.setRawTangentsBuffer(tangentsBuffer);
     } else if (tangentsBuffer != null) {
       tangentsBuffer.rewind();
@@ -279,9 +720,11 @@ public class RenderableDefinition {
 
     // Create uv Buffer if needed.
     FloatBuffer uvBuffer = data.getRawUvBuffer();
+    FloatBuffer replacedUvBuffer = null;
     if (descriptionAttributes.contains(VertexAttribute.UV0)
         && (uvBuffer == null || uvBuffer.capacity() < numVertices * UV_SIZE)) {
-      uvBuffer = FloatBuffer.allocate(numVertices * UV_SIZE);
+      replacedUvBuffer = uvBuffer;
+      uvBuffer = SceneformBufferUtils.acquireFloatBuffer(numVertices * UV_SIZE);
       data.setRawUvBuffer(uvBuffer);
     } else if (uvBuffer != null) {
       uvBuffer.rewind();
@@ -289,18 +732,105 @@ public class RenderableDefinition {
 
     // Create color Buffer if needed.
     FloatBuffer colorBuffer = data.getRawColorBuffer();
+    FloatBuffer replacedColorBuffer = null;
     if (descriptionAttributes.contains(VertexAttribute.COLOR)
         && (colorBuffer == null || colorBuffer.capacity() < numVertices * COLOR_SIZE)) {
-      colorBuffer = FloatBuffer.allocate(numVertices * COLOR_SIZE);
+      replacedColorBuffer = colorBuffer;
+      colorBuffer = SceneformBufferUtils.acquireFloatBuffer(numVertices * COLOR_SIZE);
       data.setRawColorBuffer(colorBuffer);
     } else if (colorBuffer != null) {
       colorBuffer.rewind();
     }
 
-    // Variables for calculating the Aabb of the renderable.
+    // Update the raw buffers and calculate the Aabb of the renderable.
     Vector3 minAabb = new Vector3();
     Vector3 maxAabb = new Vector3();
-    Vector3 firstPosition = firstVertex.getPosition();
+    if (mesh != null) {
+      putMeshAttributes(
+          mesh, positionBuffer, tangentsBuffer, uvBuffer, colorBuffer, minAabb, maxAabb);
+    } else {
+      putVertexAttributes(positionBuffer, tangentsBuffer, uvBuffer, colorBuffer, minAabb, maxAabb);
+    }
+
+    // Set the Aabb in the renderable data.
+    setAabb(data, minAabb, maxAabb);
+
+    if (vertexBuffer == null) {
+      throw new AssertionError("VertexBuffer is null.");
+    }
+
+    IEngine engine = EngineInstance.getEngine();
+    positionBuffer.rewind();
+    int bufferIndex = 0;
+    vertexBuffer.setBufferAt(
+        engine.getFilamentEngine(),
+        bufferIndex,
+        positionBuffer,
+        0,
+        numVertices * POSITION_SIZE,
+        ThreadPools.getMainExecutor(),
+        releaseWhenUploaded(replacedPositionBuffer));
+
+    if (tangentsBuffer != null) {
+      tangentsBuffer.rewind();
+      bufferIndex++;
+      vertexBuffer.setBufferAt(
+          engine.getFilamentEngine(),
+          bufferIndex,
+          tangentsBuffer,
+          0,
+          numVertices * TANGENTS_SIZE,
+          ThreadPools.getMainExecutor(),
+          releaseWhenUploaded(replacedTangentsBuffer));
+    }
+
+    if (uvBuffer != null) {
+      uvBuffer.rewind();
+      bufferIndex++;
+      vertexBuffer.setBufferAt(
+          engine.getFilamentEngine(),
+          bufferIndex,
+          uvBuffer,
+          0,
+          numVertices * UV_SIZE,
+          ThreadPools.getMainExecutor(),
+          releaseWhenUploaded(replacedUvBuffer));
+    }
+
+    if (colorBuffer != null) {
+      colorBuffer.rewind();
+      bufferIndex++;
+      vertexBuffer.setBufferAt(
+          engine.getFilamentEngine(),
+          bufferIndex,
+          colorBuffer,
+          0,
+          numVertices * COLOR_SIZE,
+          ThreadPools.getMainExecutor(),
+          releaseWhenUploaded(replacedColorBuffer));
+    }
+  }
+
+  private static void putTriangleIndices(List<Integer> triangleIndices, IntBuffer buffer) {
+    // Indices from a MeshBuilder are copied without unboxing each one.
+    if (triangleIndices instanceof MeshBuilder.TriangleIndices) {
+      ((MeshBuilder.TriangleIndices) triangleIndices).putIndices(buffer);
+      return;
+    }
+
+    for (int i = 0; i < triangleIndices.size(); i++) {
+      buffer.put(triangleIndices.get(i));
+    }
+  }
+
+  private void putVertexAttributes(
+      FloatBuffer positionBuffer,
+      @Nullable FloatBuffer tangentsBuffer,
+      @Nullable FloatBuffer uvBuffer,
+      @Nullable FloatBuffer colorBuffer,
+      Vector3 minAabb,
+      Vector3 maxAabb) {
+    Vector3 firstPosition = vertices.get(0).getPosition();
     minAabb.set(firstPosition);
     maxAabb.set(firstPosition);
 
@@ -325,8 +855,8 @@ public class RenderableDefinition {
                   + "RenderableDescription has a normal, all vertices must have one.");
         }
 
-        Quaternion tangent = normalToTangent(normal);
-        addQuaternionToBuffer(tangent, tangentsBuffer);
+        normalToTangent(normal, scratchQuaternion);
+        addQuaternionToBuffer(scratchQuaternion, tangentsBuffer);
       }
 
       // Uv attribute.
@@ -353,48 +883,94 @@ public class RenderableDefinition {
         addColorToBuffer(color, colorBuffer);
       }
     }
+  }
 
-    // Set the Aabb in the renderable data.
-    Vector3 extentsAabb = Vector3.subtract(maxAabb, minAabb).scaled(0.5f);
-    Vector3 centerAabb = Vector3.add(minAabb, extentsAabb);
-    data.setExtentsAabb(extentsAabb);
-    data.setCenterAabb(centerAabb);
-
-    if (vertexBuffer == null) {
-      throw new AssertionError("VertexBuffer is null.");
-    }
-
-    IEngine engine = EngineInstance.getEngine();
-    positionBuffer.rewind();
-    int bufferIndex = 0;
-    vertexBuffer.setBufferAt(
-        engine.getFilamentEngine(), bufferIndex, positionBuffer, 0, numVertices * POSITION_SIZE);
+  /** Copies the arrays of the mesh into the raw buffers in bulk. */
+  private static void putMeshAttributes(
+      MeshBuilder mesh,
+      FloatBuffer positionBuffer,
+      @Nullable FloatBuffer tangentsBuffer,
+      @Nullable FloatBuffer uvBuffer,
+      @Nullable FloatBuffer colorBuffer,
+      Vector3 minAabb,
+      Vector3 maxAabb) {
+    computeMeshAabb(mesh, minAabb, maxAabb);
+    mesh.putPositions(positionBuffer);
 
     if (tangentsBuffer != null) {
-      tangentsBuffer.rewind();
-      bufferIndex++;
-      vertexBuffer.setBufferAt(
-          engine.getFilamentEngine(), bufferIndex, tangentsBuffer, 0, numVertices * TANGENTS_SIZE);
+      if (!mesh.hasNormals()) {
+        throw new IllegalArgumentException(
+            "Missing normal: If any Vertex in a "
+                + "RenderableDescription has a normal, all vertices must have one.");
+      }
+
+      putMeshTangents(mesh, tangentsBuffer, 0, mesh.getVertexCount());
     }
 
     if (uvBuffer != null) {
-      uvBuffer.rewind();
-      bufferIndex++;
-      vertexBuffer.setBufferAt(
-          engine.getFilamentEngine(), bufferIndex, uvBuffer, 0, numVertices * UV_SIZE);
+      mesh.putUvCoordinates(uvBuffer);
     }
 
     if (colorBuffer != null) {
-      colorBuffer.rewind();
-      bufferIndex++;
-      vertexBuffer.setBufferAt(
-          engine.getFilamentEngine(), bufferIndex, colorBuffer, 0, numVertices * COLOR_SIZE);
+      mesh.putColors(colorBuffer);
     }
   }
 
+  private static void computeMeshAabb(MeshBuilder mesh, Vector3 minAabb, Vector3 maxAabb) {
+    float[] positions = mesh.getPositions();
+    float minX = positions[0];
+    float minY = positions[1];
+    float minZ = positions[2];
+    float maxX = minX;
+    float maxY = minY;
+    float maxZ = minZ;
+    for (int i = 0; i < mesh.getVertexCount() * POSITION_SIZE; i += POSITION_SIZE) {
+      minX = Math.min(minX, positions[i]);
+      minY = Math.min(minY, positions[i + 1]);
+      minZ = Math.min(minZ, positions[i + 2]);
+      maxX = Math.max(maxX, positions[i]);
+      maxY = Math.max(maxY, positions[i + 1]);
+      maxZ = Math.max(maxZ, positions[i + 2]);
+    }
+    minAabb.set(minX, minY, minZ);
+    maxAabb.set(maxX, maxY, maxZ);
+  }
+
+  private static void putMeshTangents(MeshBuilder mesh, FloatBuffer buffer, int start, int end) {
+    float[] normals = mesh.getNormals();
+    for (int i = start * POSITION_SIZE; i < end * POSITION_SIZE; i += POSITION_SIZE) {
+      scratchNormal.set(normals[i], normals[i + 1], normals[i + 2]);
+      normalToTangent(scratchNormal, scratchQuaternion);
+      addQuaternionToBuffer(scratchQuaternion, buffer);
+    }
+  }
+
+  private static void setAabb(IRenderableInternalData data, Vector3 minAabb, Vector3 maxAabb) {
+    Vector3 extentsAabb = Vector3.subtract(maxAabb, minAabb).scaled(0.5f);
+    Vector3 centerAabb = Vector3.add(minAabb, extentsAabb);
+    data.setExtentsAabb(extentsAabb);
+    data.setCenterAabb(centerAabb);
+  }
+
+  /**
+   * Returns a callback that releases a raw buffer replaced by a larger one, or null if nothing was
+   * replaced. It is passed to the upload of the new buffer, which Filament only completes after
+   * every earlier upload that read from the old buffer. Staging buffers are released the same way
+   * once their own upload completes.
+   */
+  @Nullable
+  private static Runnable releaseWhenUploaded(@Nullable Buffer replacedBuffer) {
+    if (replacedBuffer == null) {
+      return null;
+    }
+    return () -> SceneformBufferUtils.releaseBuffer(replacedBuffer);
+  }
+
   private RenderableDefinition(Builder builder) {
-    vertices = Preconditions.checkNotNull(builder.vertices);
+    mesh = builder.mesh;
+    vertices = mesh != null ? new ArrayList<>() : Preconditions.checkNotNull(builder.vertices);
     submeshes = Preconditions.checkNotNull(builder.submeshes);
+    levelsOfDetail = Preconditions.checkNotNull(builder.levelsOfDetail);
   }
 
   public static Builder builder() {
@@ -477,20 +1053,24 @@ public class RenderableDefinition {
     buffer.put(color.a);
   }
 
-  private static Quaternion normalToTangent(Vector3 normal) {
-    Vector3 tangent;
-    Vector3 bitangent;
+  /** Computes the tangent frame of a vertex from its normal without allocating. */
+  private static void normalToTangent(Vector3 normal, Quaternion destTangent) {
+    Vector3 tangent = scratchTangent;
+    Vector3 bitangent = scratchBitangent;
 
     // Calculate basis vectors (+x = tangent, +y = bitangent, +z = normal).
-    tangent = Vector3.cross(Vector3.up(), normal);
+    Vector3.cross(UP, normal, tangent);
 
     // Uses almostEqualRelativeAndAbs for equality checks that account for float inaccuracy.
     if (MathHelper.almostEqualRelativeAndAbs(Vector3.dot(tangent, tangent), 0.0f)) {
-      bitangent = Vector3.cross(normal, Vector3.right()).normalized();
-      tangent = Vector3.cross(bitangent, normal).normalized();
+      Vector3.cross(normal, RIGHT, bitangent);
+      bitangent.normalized(bitangent);
+      Vector3.cross(bitangent, normal, tangent);
+      tangent.normalized(tangent);
     } else {
-      tangent.set(tangent.normalized());
-      bitangent = Vector3.cross(normal, tangent).normalized();
+      tangent.normalized(tangent);
+      Vector3.cross(normal, tangent, bitangent);
+      bitangent.normalized(bitangent);
     }
 
     // Rotation of a 4x4 Transformation Matrix is represented by the top-left 3x3 elements.
@@ -509,18 +1089,25 @@ public class RenderableDefinition {
     scratchMatrix.data[rowThree + 1] = normal.y;
     scratchMatrix.data[rowThree + 2] = normal.z;
 
-    Quaternion orientationQuaternion = new Quaternion();
-    scratchMatrix.extractQuaternion(orientationQuaternion);
-    return orientationQuaternion;
+    scratchMatrix.extractQuaternion(destTangent);
   }
 
   /** Factory class for {@link RenderableDefinition}. */
   public static final class Builder {
     @Nullable private List<Vertex> vertices;
+    @Nullable private MeshBuilder mesh;
     @Nullable private List<Submesh> submeshes = new ArrayList<>();
+    @Nullable private List<LevelOfDetail> levelsOfDetail = new ArrayList<>();
 
     public Builder setVertices(List<Vertex> vertices) {
       this.vertices = vertices;
+      mesh = null;
+      return this;
+    }
+
+    /** @see RenderableDefinition#setMesh(MeshBuilder) */
+    public Builder setMesh(MeshBuilder mesh) {
+      this.mesh = mesh;
       return this;
     }
 
@@ -529,6 +1116,12 @@ public class RenderableDefinition {
       return this;
     }
 
+    /** @see RenderableDefinition#setLevelsOfDetail(List) */
+    public Builder setLevelsOfDetail(List<LevelOfDetail> levelsOfDetail) {
+      this.levelsOfDetail = levelsOfDetail;
+      return this;
+    }
+
     public RenderableDefinition build() {
       return new RenderableDefinition(this);
     }
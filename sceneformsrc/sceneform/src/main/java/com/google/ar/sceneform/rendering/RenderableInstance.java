@@ -8,9 +8,11 @@ import com.google.android.filament.Engine;
 import com.google.android.filament.Entity;
 import com.google.android.filament.EntityInstance;
 import com.google.android.filament.EntityManager;
+import com.google.android.filament.IndexBuffer;
 
 import com.google.android.filament.RenderableManager;
 import com.google.android.filament.TransformManager;
+import com.google.android.filament.VertexBuffer;
 import com.google.android.filament.gltfio.AssetLoader;
 import com.google.android.filament.gltfio.FilamentAsset;
 import com.google.android.filament.gltfio.ResourceLoader;
@@ -20,16 +22,22 @@ import com.google.ar.sceneform.collision.Box;
 import com.google.ar.sceneform.common.TransformProvider;
 import com.google.ar.sceneform.math.Matrix;
 import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.rendering.RenderableInternalData.LevelOfDetailData;
+import com.google.ar.sceneform.rendering.RenderableInternalData.MeshData;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
 import com.google.ar.sceneform.utilities.ChangeId;
 import com.google.ar.sceneform.utilities.LoadHelper;
 import com.google.ar.sceneform.utilities.Preconditions;
 import com.google.ar.sceneform.utilities.SceneformBufferUtils;
 import java.io.InputStream;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 
 import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.function.Function;
 
@@ -62,12 +70,28 @@ public class RenderableInstance {
 
   private static final String TAG = RenderableInstance.class.getSimpleName();
 
+  // A level of detail is only replaced by a less detailed one once the screen coverage falls this
+  // fraction below its threshold, so that the levels don't flicker when it hovers around it.
+  private static final float LEVEL_OF_DETAIL_HYSTERESIS = 0.1f;
+
+  // Only used on the main thread while culling and picking the level of detail.
+  private static final Matrix scratchMatrix = new Matrix();
+  private static final Vector3 scratchCenter = new Vector3();
+  private static final Vector3 scratchBoundsCenter = new Vector3();
+  private static final Vector3 scratchBoundsExtents = new Vector3();
+  private static final Vector3 scratchScale = new Vector3();
+  private static final Vector3 scratchCameraPosition = new Vector3();
+
   private final TransformProvider transformProvider;
   private final Renderable renderable;
   @Nullable private Renderer attachedRenderer;
   @Entity private int entity = 0;
   @Entity private int childEntity = 0;
   int renderableId = ChangeId.EMPTY_ID;
+  // The level of detail being rendered, 0 being the full detail.
+  private int levelOfDetail = 0;
+  // Whether the per frame updates are skipped because the instance is out of view.
+  private boolean isCulled = false;
 
   
 
@@ -76,6 +100,9 @@ public class RenderableInstance {
   
   @Nullable
   FilamentAsset filamentAsset;
+  // Bounding box of the filament asset, read once since the asset doesn't change once created.
+  private final Vector3 assetBoundsCenter = new Vector3();
+  private final Vector3 assetBoundsExtents = new Vector3();
 
   @Nullable private SkinningModifier skinningModifier;
 
@@ -130,10 +157,12 @@ public class RenderableInstance {
         throw new IllegalStateException("Failed to load gltf");
       }
 
+      com.google.android.filament.Box box = createdAsset.getBoundingBox();
+      float[] halfExtent = box.getHalfExtent();
+      float[] center = box.getCenter();
+      assetBoundsCenter.set(center[0], center[1], center[2]);
+      assetBoundsExtents.set(halfExtent[0], halfExtent[1], halfExtent[2]);
       if (renderable.collisionShape == null) {
-        com.google.android.filament.Box box = createdAsset.getBoundingBox();
-        float[] halfExtent = box.getHalfExtent();
-        float[] center = box.getCenter();
         renderable.collisionShape =
             new Box(
                 new Vector3(halfExtent[0], halfExtent[1], halfExtent[2]).scaled(2.0f),
@@ -141,7 +170,15 @@ public class RenderableInstance {
       }
 
       Function<String, Uri> urlResolver = renderableData.urlResolver;
+      Map<String, Buffer> prefetchedResources = renderableData.prefetchedResources;
       for (String uri : createdAsset.getResourceUris()) {
+        Buffer prefetchedResource =
+            prefetchedResources != null ? prefetchedResources.get(uri) : null;
+        if (prefetchedResource != null) {
+          renderableData.resourceLoader.addResourceData(uri, prefetchedResource);
+          continue;
+        }
+        // Only resources that failed to download or weren't found in the JSON are fetched here.
         if (urlResolver == null) {
           Log.e(TAG, "Failed to download uri " + uri + " no url resolver.");
           continue;
@@ -274,6 +311,7 @@ public class RenderableInstance {
       IRenderableInternalData renderableInternalData = renderable.getRenderableData();
       setupSkeleton(renderableInternalData);
       renderableInternalData.buildInstanceData(renderable, getRenderedEntity());
+      levelOfDetail = 0;
       renderableId = changeId.get();
       // First time we're rendering, so always update the skinning even if we aren't animating and
       // there is no skinModifier.
@@ -285,6 +323,138 @@ public class RenderableInstance {
     }
   }
 
+  /**
+   * Returns the level of detail being rendered, 0 being the full detail and each following level
+   * being one of the levels of detail of the {@link RenderableDefinition}.
+   *
+   * @hide
+   */
+  public int getLevelOfDetail() {
+    return levelOfDetail;
+  }
+
+  /**
+   * Picks the level of detail to render from the fraction of the screen height covered by the
+   * bounding sphere of the renderable. Must be called after {@link #prepareForDraw()}.
+   *
+   * @hide
+   */
+  public void updateLevelOfDetail(CameraProvider camera) {
+    List<LevelOfDetailData> levelsOfDetail = renderable.getRenderableData().getLevelsOfDetail();
+    if (levelsOfDetail.isEmpty()) {
+      return;
+    }
+
+    float screenCoverage = getScreenCoverage(camera);
+    int newLevelOfDetail = 0;
+    for (int i = 0; i < levelsOfDetail.size(); i++) {
+      float threshold = levelsOfDetail.get(i).screenCoverage;
+      if (i >= levelOfDetail) {
+        threshold *= 1.0f - LEVEL_OF_DETAIL_HYSTERESIS;
+      }
+      if (screenCoverage < threshold) {
+        newLevelOfDetail = i + 1;
+      }
+    }
+
+    if (newLevelOfDetail != levelOfDetail) {
+      setLevelOfDetail(newLevelOfDetail);
+    }
+  }
+
+  private float getScreenCoverage(CameraProvider camera) {
+    float radius = getWorldBoundingSphere(getWorldModelMatrix(), scratchCenter);
+
+    camera.getWorldModelMatrix().decomposeTranslation(scratchCameraPosition);
+    // Reuses the camera position for the offset, so that no vector is allocated per frame.
+    Vector3.subtract(scratchCenter, scratchCameraPosition, scratchCameraPosition);
+    float distance = scratchCameraPosition.length();
+    if (distance <= radius) {
+      return Float.POSITIVE_INFINITY;
+    }
+
+    // The projection maps half of the view height at a distance of 1 to 1 in clip space.
+    return radius * camera.getProjectionMatrix().data[5] / distance;
+  }
+
+  /**
+   * Computes the bounding sphere of the renderable in world space from its bounding box.
+   *
+   * @param worldModelMatrix the matrix returned by {@link #getWorldModelMatrix()}
+   * @param destCenter receives the center of the sphere
+   * @return the radius of the sphere
+   */
+  float getWorldBoundingSphere(Matrix worldModelMatrix, Vector3 destCenter) {
+    if (filamentAsset != null) {
+      scratchBoundsCenter.set(assetBoundsCenter);
+      scratchBoundsExtents.set(assetBoundsExtents);
+    } else {
+      IRenderableInternalData renderableData = renderable.getRenderableData();
+      scratchBoundsCenter.set(renderableData.getCenterAabb());
+      scratchBoundsExtents.set(renderableData.getExtentsAabb());
+    }
+
+    Matrix modelMatrix = worldModelMatrix;
+    Matrix relativeTransform = getRelativeTransform();
+    if (relativeTransform != null) {
+      Matrix.multiply(worldModelMatrix, relativeTransform, scratchMatrix);
+      modelMatrix = scratchMatrix;
+    }
+
+    modelMatrix.transformPoint(scratchBoundsCenter, destCenter);
+    modelMatrix.decomposeScale(scratchScale);
+    float maxScale =
+        Math.max(
+            Math.abs(scratchScale.x), Math.max(Math.abs(scratchScale.y), Math.abs(scratchScale.z)));
+    return scratchBoundsExtents.length() * maxScale;
+  }
+
+  /**
+   * Returns true if the renderer skipped the last update of the instance because it is outside of
+   * the view of the camera.
+   *
+   * @hide
+   */
+  public boolean isCulled() {
+    return isCulled;
+  }
+
+  /**
+   * Marks the instance as out of view. Culled instances stay in the filament scene, which culls
+   * them on its own, but skip the per frame updates until they are back in view.
+   */
+  void setCulled(boolean culled) {
+    isCulled = culled;
+  }
+
+  private void setLevelOfDetail(int newLevelOfDetail) {
+    IRenderableInternalData renderableData = renderable.getRenderableData();
+    ArrayList<MeshData> meshes =
+        newLevelOfDetail == 0
+            ? renderableData.getMeshes()
+            : renderableData.getLevelsOfDetail().get(newLevelOfDetail - 1).meshes;
+    @Nullable VertexBuffer vertexBuffer = renderableData.getVertexBuffer();
+    @Nullable IndexBuffer indexBuffer = renderableData.getIndexBuffer();
+    RenderableManager renderableManager = EngineInstance.getEngine().getRenderableManager();
+    @EntityInstance int renderableInstance = renderableManager.getInstance(getRenderedEntity());
+    if (vertexBuffer == null || indexBuffer == null || renderableInstance == 0) {
+      return;
+    }
+
+    for (int mesh = 0; mesh < meshes.size(); mesh++) {
+      MeshData meshData = meshes.get(mesh);
+      renderableManager.setGeometryAt(
+          renderableInstance,
+          mesh,
+          RenderableManager.PrimitiveType.TRIANGLES,
+          vertexBuffer,
+          indexBuffer,
+          meshData.indexStart,
+          meshData.indexEnd - meshData.indexStart);
+    }
+    levelOfDetail = newLevelOfDetail;
+  }
+
   
   private void attachFilamentAssetToRenderer() {
     FilamentAsset currentFilamentAsset = filamentAsset;
@@ -301,6 +471,7 @@ public class RenderableInstance {
   public void attachToRenderer(Renderer renderer) {
     renderer.addInstance(this);
     attachedRenderer = renderer;
+    isCulled = false;
     renderable.attachToRenderer(renderer);
     attachFilamentAssetToRenderer();
   }
@@ -325,6 +496,7 @@ public class RenderableInstance {
       detachFilamentAssetFromRenderer();
       rendererToDetach.removeInstance(this);
       renderable.detatchFromRenderer();
+      isCulled = false;
     }
   }
 
@@ -13,6 +13,7 @@ import com.google.android.filament.VertexBuffer;
 
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
+import com.google.ar.sceneform.utilities.SceneformBufferUtils;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
@@ -36,6 +37,14 @@ class RenderableInternalData implements IRenderableInternalData {
     int indexEnd;
   }
 
+  /** Represents the meshes rendered at a reduced level of detail. */
+  static class LevelOfDetailData {
+    // Used once the renderable covers less than this fraction of the screen height.
+    float screenCoverage;
+    // The meshes to render, in the same order as the meshes of the full level of detail.
+    final ArrayList<MeshData> meshes = new ArrayList<>();
+  }
+
   // Geometry data.
   private final Vector3 centerAabb = Vector3.zero();
   private final Vector3 extentsAabb = Vector3.zero();
@@ -44,19 +53,28 @@ class RenderableInternalData implements IRenderableInternalData {
   private float transformScale = 1f;
   private final Vector3 transformOffset = Vector3.zero();
 
-  // Raw buffers.
-  @Nullable private IntBuffer rawIndexBuffer;
-  @Nullable private FloatBuffer rawPositionBuffer;
-  @Nullable private FloatBuffer rawTangentsBuffer;
-  @Nullable private FloatBuffer rawUvBuffer;
-  @Nullable private FloatBuffer rawColorBuffer;
+  // Raw buffers, held separately so that they can be released after this object is collected.
+  private final RawBuffers rawBuffers = new RawBuffers();
 
   // Filament Geometry buffers.
   @Nullable private IndexBuffer indexBuffer;
   @Nullable private VertexBuffer vertexBuffer;
 
+  // The mesh that the buffers were last uploaded from.
+  @Nullable private MeshBuilder syncedMesh;
+  private int syncedMeshVersion;
+
   // Represents the set of meshes to render.
   private final ArrayList<MeshData> meshes = new ArrayList<>();
+  // Reduced levels of detail, ordered from the most to the least detailed one.
+  private final ArrayList<LevelOfDetailData> levelsOfDetail = new ArrayList<>();
+
+  @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
+  RenderableInternalData() {
+    ResourceManager.getInstance()
+        .getRenderableInternalDataCleanupRegistry()
+        .register(this, rawBuffers);
+  }
 
   
 
@@ -112,6 +130,11 @@ class RenderableInternalData implements IRenderableInternalData {
     return meshes;
   }
 
+  @Override
+  public ArrayList<LevelOfDetailData> getLevelsOfDetail() {
+    return levelsOfDetail;
+  }
+
   @Override
   public void setIndexBuffer(@Nullable IndexBuffer indexBuffer) {
     this.indexBuffer = indexBuffer;
@@ -136,57 +159,74 @@ class RenderableInternalData implements IRenderableInternalData {
 
   @Override
   public void setRawIndexBuffer(@Nullable IntBuffer rawIndexBuffer) {
-    this.rawIndexBuffer = rawIndexBuffer;
+    rawBuffers.rawIndexBuffer = rawIndexBuffer;
   }
 
   @Override
   @Nullable
   public IntBuffer getRawIndexBuffer() {
-    return rawIndexBuffer;
+    return rawBuffers.rawIndexBuffer;
   }
 
   @Override
   public void setRawPositionBuffer(@Nullable FloatBuffer rawPositionBuffer) {
-    this.rawPositionBuffer = rawPositionBuffer;
+    rawBuffers.rawPositionBuffer = rawPositionBuffer;
   }
 
   @Override
   @Nullable
   public FloatBuffer getRawPositionBuffer() {
-    return rawPositionBuffer;
+    return rawBuffers.rawPositionBuffer;
   }
 
   @Override
   public void setRawTangentsBuffer(@Nullable FloatBuffer rawTangentsBuffer) {
-    this.rawTangentsBuffer = rawTangentsBuffer;
+    rawBuffers.rawTangentsBuffer = rawTangentsBuffer;
   }
 
   @Override
   @Nullable
   public FloatBuffer getRawTangentsBuffer() {
-    return rawTangentsBuffer;
+    return rawBuffers.rawTangentsBuffer;
   }
 
   @Override
   public void setRawUvBuffer(@Nullable FloatBuffer rawUvBuffer) {
-    this.rawUvBuffer = rawUvBuffer;
+    rawBuffers.rawUvBuffer = rawUvBuffer;
   }
 
   @Override
   @Nullable
   public FloatBuffer getRawUvBuffer() {
-    return rawUvBuffer;
+    return rawBuffers.rawUvBuffer;
   }
 
   @Override
   public void setRawColorBuffer(@Nullable FloatBuffer rawColorBuffer) {
-    this.rawColorBuffer = rawColorBuffer;
+    rawBuffers.rawColorBuffer = rawColorBuffer;
   }
 
   @Override
   @Nullable
   public FloatBuffer getRawColorBuffer() {
-    return rawColorBuffer;
+    return rawBuffers.rawColorBuffer;
+  }
+
+  @Override
+  public void setSyncedMesh(@Nullable MeshBuilder mesh, int version) {
+    syncedMesh = mesh;
+    syncedMeshVersion = version;
+  }
+
+  @Override
+  @Nullable
+  public MeshBuilder getSyncedMesh() {
+    return syncedMesh;
+  }
+
+  @Override
+  public int getSyncedMeshVersion() {
+    return syncedMeshVersion;
   }
 
   
@@ -316,6 +356,10 @@ class RenderableInternalData implements IRenderableInternalData {
   public void dispose() {
     AndroidPreconditions.checkUiThread();
 
+    // The raw buffers belong to the pool rather than the engine, so they are released even when
+    // the engine is already gone.
+    rawBuffers.release();
+
     IEngine engine = EngineInstance.getEngine();
     if (engine == null || !engine.isValid()) {
       return;
@@ -331,4 +375,35 @@ class RenderableInternalData implements IRenderableInternalData {
       indexBuffer = null;
     }
   }
+
+  /**
+   * The direct buffers that the geometry is uploaded from. They are returned to the pool they were
+   * acquired from when the data is disposed, or by the cleanup registry once the data is garbage
+   * collected.
+   */
+  private static final class RawBuffers implements Runnable {
+    @Nullable IntBuffer rawIndexBuffer;
+    @Nullable FloatBuffer rawPositionBuffer;
+    @Nullable FloatBuffer rawTangentsBuffer;
+    @Nullable FloatBuffer rawUvBuffer;
+    @Nullable FloatBuffer rawColorBuffer;
+
+    @Override
+    public void run() {
+      release();
+    }
+
+    void release() {
+      SceneformBufferUtils.releaseBuffer(rawIndexBuffer);
+      SceneformBufferUtils.releaseBuffer(rawPositionBuffer);
+      SceneformBufferUtils.releaseBuffer(rawTangentsBuffer);
+      SceneformBufferUtils.releaseBuffer(rawUvBuffer);
+      SceneformBufferUtils.releaseBuffer(rawColorBuffer);
+      rawIndexBuffer = null;
+      rawPositionBuffer = null;
+      rawTangentsBuffer = null;
+      rawUvBuffer = null;
+      rawColorBuffer = null;
+    }
+  }
 }
@@ -11,13 +11,16 @@ import com.google.android.filament.gltfio.ResourceLoader;
 
 
 import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.rendering.RenderableInternalData.LevelOfDetailData;
 import com.google.ar.sceneform.rendering.RenderableInternalData.MeshData;
 import java.nio.Buffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 
 import java.util.List;
+import java.util.Map;
 
 import java.util.function.Function;
 
@@ -30,6 +33,9 @@ public class RenderableInternalFilamentAssetData implements IRenderableInternalD
   boolean isGltfBinary;
   ResourceLoader resourceLoader;
   @Nullable Function<String, Uri> urlResolver;
+  // External resources fetched while loading, keyed by the uri used in the glTF file. Kept so
+  // that every instance of the renderable can reuse them.
+  @Nullable Map<String, Buffer> prefetchedResources;
   static MaterialProvider materialProvider;
 
   static MaterialProvider getMaterialProvider() {
@@ -94,6 +100,12 @@ public class RenderableInternalFilamentAssetData implements IRenderableInternalD
     return new ArrayList<>();
   }
 
+  @Override
+  public List<LevelOfDetailData> getLevelsOfDetail() {
+    // Not Implemented, shared so that checking for levels every frame doesn't allocate.
+    return Collections.emptyList();
+  }
+
   public ArrayList<Integer> getMaterialBindingIds() {
     // Not Implemented
     return new ArrayList<>();
@@ -183,6 +195,24 @@ public class RenderableInternalFilamentAssetData implements IRenderableInternalD
     return null;
   }
 
+  @Override
+  public void setSyncedMesh(@Nullable MeshBuilder mesh, int version) {
+    // Not Implemented
+  }
+
+  @Nullable
+  @Override
+  public MeshBuilder getSyncedMesh() {
+    // Not Implemented
+    return null;
+  }
+
+  @Override
+  public int getSyncedMeshVersion() {
+    // Not Implemented
+    return 0;
+  }
+
   @Override
   public void setAnimationNames(@NonNull List<String> animationNames) {
     // Not Implemented
@@ -17,6 +17,9 @@ import com.google.android.filament.View.DynamicResolutionOptions;
 import com.google.android.filament.Viewport;
 import com.google.android.filament.android.UiHelper;
 
+import com.google.ar.sceneform.collision.Frustum;
+import com.google.ar.sceneform.math.Matrix;
+import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
 import com.google.ar.sceneform.utilities.EnvironmentalHdrParameters;
 import com.google.ar.sceneform.utilities.Preconditions;
@@ -74,6 +77,14 @@ public class Renderer implements UiHelper.RendererCallback {
 
   private final double[] cameraProjectionMatrix = new double[16];
 
+  // Frustum culling of the renderable instances.
+  private boolean isFrustumCullingEnabled = true;
+  private final Frustum frustum = new Frustum();
+  private final Matrix viewMatrix = new Matrix();
+  private final Matrix viewProjectionMatrix = new Matrix();
+  private final Vector3 boundingSphereCenter = new Vector3();
+  private int culledInstanceCount;
+
   private EnvironmentalHdrParameters environmentalHdrParameters =
       EnvironmentalHdrParameters.makeDefault();
 
@@ -260,10 +271,10 @@ public class Renderer implements UiHelper.RendererCallback {
     }
 
     if (filamentHelper.isReadyToRender() || EngineInstance.isHeadlessMode()) {
-      updateInstances();
+      CameraProvider cameraProvider = this.cameraProvider;
+      updateInstances(cameraProvider);
       updateLights();
 
-      CameraProvider cameraProvider = this.cameraProvider;
       if (cameraProvider != null) {
         final float[] projectionMatrixData = cameraProvider.getProjectionMatrix().data;
         for (int i = 0; i < 16; ++i) {
@@ -587,16 +598,48 @@ public class Renderer implements UiHelper.RendererCallback {
     return 1.0f / (1.2f * e);
   }
 
-  private void updateInstances() {
+  private void updateInstances(@Nullable CameraProvider cameraProvider) {
     final IEngine engine = EngineInstance.getEngine();
     final TransformManager transformManager = engine.getTransformManager();
     transformManager.openLocalTransformTransaction();
 
+    boolean cullInstances = isFrustumCullingEnabled && cameraProvider != null;
+    if (cameraProvider != null && isFrustumCullingEnabled) {
+      // The view matrix is derived the same way as the one of the filament camera.
+      Matrix.invert(cameraProvider.getWorldModelMatrix(), viewMatrix);
+      Matrix.multiply(cameraProvider.getProjectionMatrix(), viewMatrix, viewProjectionMatrix);
+      frustum.setViewProjection(viewProjectionMatrix);
+    }
+
+    culledInstanceCount = 0;
     for (RenderableInstance renderableInstance : renderableInstances) {
+      Matrix worldModelMatrix = renderableInstance.getWorldModelMatrix();
+
+      // Instances out of view stay in the scene, filament culls them as well, but skip the per
+      // frame updates. The transform is still set once when leaving the view, so that filament
+      // doesn't keep drawing the instance where it was last seen.
+      boolean isCulled = false;
+      if (cullInstances) {
+        float radius =
+            renderableInstance.getWorldBoundingSphere(worldModelMatrix, boundingSphereCenter);
+        isCulled = !frustum.intersectsSphere(boundingSphereCenter, radius);
+      }
+      boolean wasCulled = renderableInstance.isCulled();
+      renderableInstance.setCulled(isCulled);
+      if (isCulled) {
+        culledInstanceCount++;
+        if (!wasCulled) {
+          renderableInstance.setModelMatrix(transformManager, worldModelMatrix.data);
+        }
+        continue;
+      }
+
       renderableInstance.prepareForDraw();
+      renderableInstance.setModelMatrix(transformManager, worldModelMatrix.data);
 
-      float[] transform = renderableInstance.getWorldModelMatrix().data;
-      renderableInstance.setModelMatrix(transformManager, transform);
+      if (cameraProvider != null) {
+        renderableInstance.updateLevelOfDetail(cameraProvider);
+      }
     }
 
     transformManager.commitLocalTransformTransaction();
@@ -608,6 +651,58 @@ public class Renderer implements UiHelper.RendererCallback {
     }
   }
 
+  /**
+   * Returns the number of renderable instances currently added to the renderer.
+   *
+   * @hide
+   */
+  public int getRenderableInstanceCount() {
+    return renderableInstances.size();
+  }
+
+  /**
+   * Returns the number of renderable instances whose updates were skipped during the last frame
+   * because they were outside of the view of the camera.
+   *
+   * @hide
+   */
+  public int getCulledInstanceCount() {
+    return culledInstanceCount;
+  }
+
+  /**
+   * Returns the number of renderable instances that were in view during the last frame.
+   *
+   * @hide
+   */
+  public int getVisibleInstanceCount() {
+    return renderableInstances.size() - culledInstanceCount;
+  }
+
+  /**
+   * Sets whether the per frame updates of renderable instances outside of the view of the camera
+   * are skipped. Enabled by default.
+   *
+   * @hide
+   */
+  public void setFrustumCullingEnabled(boolean enabled) {
+    isFrustumCullingEnabled = enabled;
+  }
+
+  /** @hide */
+  public boolean isFrustumCullingEnabled() {
+    return isFrustumCullingEnabled;
+  }
+
+  /**
+   * Returns the number of light instances currently added to the renderer.
+   *
+   * @hide
+   */
+  public int getLightInstanceCount() {
+    return lightInstances.size();
+  }
+
   /**
    * Releases rendering resources ready for garbage collection
    *
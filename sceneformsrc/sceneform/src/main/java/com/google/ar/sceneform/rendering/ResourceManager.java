@@ -16,11 +16,19 @@ import java.util.ArrayList;
 public class ResourceManager {
   @Nullable private static ResourceManager instance = null;
 
+  // Budgets for keeping recently used resources loaded after they are no longer referenced.
+  private static final long DEFAULT_MAX_RETAINED_TEXTURE_BYTES = 32 << 20;
+  private static final long DEFAULT_MAX_RETAINED_MATERIAL_BYTES = 4 << 20;
+  private static final long DEFAULT_MAX_RETAINED_MODEL_RENDERABLE_BYTES = 64 << 20;
+
   private final ArrayList<ResourceHolder> resourceHolders = new ArrayList<>();
-  private final ResourceRegistry<Texture> textureRegistry = new ResourceRegistry<>();
-  private final ResourceRegistry<Material> materialRegistry = new ResourceRegistry<>();
+  private final ResourceRegistry<Texture> textureRegistry =
+      new ResourceRegistry<>(Texture::getEstimatedSizeBytes, DEFAULT_MAX_RETAINED_TEXTURE_BYTES);
+  private final ResourceRegistry<Material> materialRegistry =
+      new ResourceRegistry<>(Material::getEstimatedSizeBytes, DEFAULT_MAX_RETAINED_MATERIAL_BYTES);
   private final ResourceRegistry<ModelRenderable> modelRenderableRegistry =
-      new ResourceRegistry<>();
+      new ResourceRegistry<>(
+          ModelRenderable::getEstimatedSizeBytes, DEFAULT_MAX_RETAINED_MODEL_RENDERABLE_BYTES);
 
   
   private final ResourceRegistry<ViewRenderable> viewRenderableRegistry = new ResourceRegistry<>();
@@ -31,6 +39,8 @@ public class ResourceManager {
   private final CleanupRegistry<Material> materialCleanupRegistry = new CleanupRegistry<>();
   private final CleanupRegistry<RenderableInstance> renderableInstanceCleanupRegistry =
       new CleanupRegistry<>();
+  private final CleanupRegistry<RenderableInternalData> renderableInternalDataCleanupRegistry =
+      new CleanupRegistry<>();
   private final CleanupRegistry<Texture> textureCleanupRegistry = new CleanupRegistry<>();
 
   ResourceRegistry<Texture> getTextureRegistry() {
@@ -66,6 +76,10 @@ public class ResourceManager {
     return renderableInstanceCleanupRegistry;
   }
 
+  CleanupRegistry<RenderableInternalData> getRenderableInternalDataCleanupRegistry() {
+    return renderableInternalDataCleanupRegistry;
+  }
+
   CleanupRegistry<Texture> getTextureCleanupRegistry() {
     return textureCleanupRegistry;
   }
@@ -78,6 +92,43 @@ public class ResourceManager {
     return resourcesInUse;
   }
 
+  /**
+   * Returns the total number of tracked resources that have been released after being garbage
+   * collected.
+   */
+  public long getReclaimedResourceCount() {
+    long reclaimedCount = 0;
+    for (int i = 0; i < resourceHolders.size(); i++) {
+      ResourceHolder resourceHolder = resourceHolders.get(i);
+      if (resourceHolder instanceof CleanupRegistry) {
+        reclaimedCount += ((CleanupRegistry<?>) resourceHolder).getReclaimedCount();
+      }
+    }
+    return reclaimedCount;
+  }
+
+  /**
+   * Sets the budgets of estimated bytes for keeping recently used resources loaded after they are
+   * no longer referenced, so that loading them again by registry id is free. A budget of 0
+   * disables retention for that type of resource.
+   */
+  public void setMaxRetainedBytes(
+      long maxTextureBytes, long maxMaterialBytes, long maxModelRenderableBytes) {
+    textureRegistry.setMaxRetainedBytes(maxTextureBytes);
+    materialRegistry.setMaxRetainedBytes(maxMaterialBytes);
+    modelRenderableRegistry.setMaxRetainedBytes(maxModelRenderableBytes);
+  }
+
+  /**
+   * Stops keeping unreferenced resources loaded so that they can be garbage collected, for example
+   * from {@link android.content.ComponentCallbacks2#onTrimMemory(int)}.
+   */
+  public void trimRetainedResources() {
+    textureRegistry.trimRetainedResources();
+    materialRegistry.trimRetainedResources();
+    modelRenderableRegistry.trimRetainedResources();
+  }
+
   /** Forcibly deletes all tracked references */
   public void destroyAllResources() {
     for (ResourceHolder resourceHolder : resourceHolders) {
@@ -106,6 +157,7 @@ public class ResourceManager {
     addResourceHolder(externalTextureCleanupRegistry);
     addResourceHolder(materialCleanupRegistry);
     addResourceHolder(renderableInstanceCleanupRegistry);
+    addResourceHolder(renderableInternalDataCleanupRegistry);
     addResourceHolder(textureCleanupRegistry);
   }
 
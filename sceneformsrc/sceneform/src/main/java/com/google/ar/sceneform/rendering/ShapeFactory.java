@@ -5,9 +5,7 @@ import android.support.annotation.Nullable;
 import android.support.annotation.RequiresApi;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.RenderableDefinition.Submesh;
-import com.google.ar.sceneform.rendering.Vertex.UvCoordinate;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -49,71 +47,51 @@ public final class ShapeFactory {
     Vector3 left = Vector3.left();
     Vector3 right = Vector3.right();
 
-    Vertex.UvCoordinate uv00 = new Vertex.UvCoordinate(0.0f, 0.0f);
-    Vertex.UvCoordinate uv10 = new Vertex.UvCoordinate(1.0f, 0.0f);
-    Vertex.UvCoordinate uv01 = new Vertex.UvCoordinate(0.0f, 1.0f);
-    Vertex.UvCoordinate uv11 = new Vertex.UvCoordinate(1.0f, 1.0f);
-
-    ArrayList<Vertex> vertices =
-        new ArrayList<>(
-            Arrays.asList(
-                // Bottom
-                Vertex.builder().setPosition(p0).setNormal(down).setUvCoordinate(uv01).build(),
-                Vertex.builder().setPosition(p1).setNormal(down).setUvCoordinate(uv11).build(),
-                Vertex.builder().setPosition(p2).setNormal(down).setUvCoordinate(uv10).build(),
-                Vertex.builder().setPosition(p3).setNormal(down).setUvCoordinate(uv00).build(),
-                // Left
-                Vertex.builder().setPosition(p7).setNormal(left).setUvCoordinate(uv01).build(),
-                Vertex.builder().setPosition(p4).setNormal(left).setUvCoordinate(uv11).build(),
-                Vertex.builder().setPosition(p0).setNormal(left).setUvCoordinate(uv10).build(),
-                Vertex.builder().setPosition(p3).setNormal(left).setUvCoordinate(uv00).build(),
-                // Front
-                Vertex.builder().setPosition(p4).setNormal(front).setUvCoordinate(uv01).build(),
-                Vertex.builder().setPosition(p5).setNormal(front).setUvCoordinate(uv11).build(),
-                Vertex.builder().setPosition(p1).setNormal(front).setUvCoordinate(uv10).build(),
-                Vertex.builder().setPosition(p0).setNormal(front).setUvCoordinate(uv00).build(),
-                // Back
-                Vertex.builder().setPosition(p6).setNormal(back).setUvCoordinate(uv01).build(),
-                Vertex.builder().setPosition(p7).setNormal(back).setUvCoordinate(uv11).build(),
-                Vertex.builder().setPosition(p3).setNormal(back).setUvCoordinate(uv10).build(),
-                Vertex.builder().setPosition(p2).setNormal(back).setUvCoordinate(uv00).build(),
-                // Right
-                Vertex.builder().setPosition(p5).setNormal(right).setUvCoordinate(uv01).build(),
-                Vertex.builder().setPosition(p6).setNormal(right).setUvCoordinate(uv11).build(),
-                Vertex.builder().setPosition(p2).setNormal(right).setUvCoordinate(uv10).build(),
-                Vertex.builder().setPosition(p1).setNormal(right).setUvCoordinate(uv00).build(),
-                // Top
-                Vertex.builder().setPosition(p7).setNormal(up).setUvCoordinate(uv01).build(),
-                Vertex.builder().setPosition(p6).setNormal(up).setUvCoordinate(uv11).build(),
-                Vertex.builder().setPosition(p5).setNormal(up).setUvCoordinate(uv10).build(),
-                Vertex.builder().setPosition(p4).setNormal(up).setUvCoordinate(uv00).build()));
+    // Corners of each side, each one gets the uvs (0, 1), (1, 1), (1, 0) and (0, 0) in order.
+    Vector3[] normals = {down, left, front, back, right, up};
+    Vector3[][] corners = {
+      {p0, p1, p2, p3}, // Bottom
+      {p7, p4, p0, p3}, // Left
+      {p4, p5, p1, p0}, // Front
+      {p6, p7, p3, p2}, // Back
+      {p5, p6, p2, p1}, // Right
+      {p7, p6, p5, p4} // Top
+    };
 
     final int numSides = 6;
     final int verticesPerSide = 4;
     final int trianglesPerSide = 2;
 
-    ArrayList<Integer> triangleIndices =
-        new ArrayList<>(numSides * trianglesPerSide * COORDS_PER_TRIANGLE);
+    MeshBuilder mesh =
+        new MeshBuilder(
+            numSides * verticesPerSide, numSides * trianglesPerSide * COORDS_PER_TRIANGLE);
+    for (int i = 0; i < numSides; i++) {
+      mesh.addVertex(corners[i][0]);
+      mesh.setNormal(normals[i]).setUvCoordinate(0.0f, 1.0f);
+      mesh.addVertex(corners[i][1]);
+      mesh.setNormal(normals[i]).setUvCoordinate(1.0f, 1.0f);
+      mesh.addVertex(corners[i][2]);
+      mesh.setNormal(normals[i]).setUvCoordinate(1.0f, 0.0f);
+      mesh.addVertex(corners[i][3]);
+      mesh.setNormal(normals[i]).setUvCoordinate(0.0f, 0.0f);
+    }
+
     for (int i = 0; i < numSides; i++) {
       // First triangle for this side.
-      triangleIndices.add(3 + verticesPerSide * i);
-      triangleIndices.add(1 + verticesPerSide * i);
-      triangleIndices.add(0 + verticesPerSide * i);
+      mesh.addTriangle(3 + verticesPerSide * i, 1 + verticesPerSide * i, 0 + verticesPerSide * i);
 
       // Second triangle for this side.
-      triangleIndices.add(3 + verticesPerSide * i);
-      triangleIndices.add(2 + verticesPerSide * i);
-      triangleIndices.add(1 + verticesPerSide * i);
+      mesh.addTriangle(3 + verticesPerSide * i, 2 + verticesPerSide * i, 1 + verticesPerSide * i);
     }
 
     Submesh submesh =
-        Submesh.builder().setTriangleIndices(triangleIndices).setMaterial(material).build();
+        Submesh.builder()
+            .setTriangleIndices(mesh.getTriangleIndices())
+            .setMaterial(material)
+            .build();
 
     RenderableDefinition renderableDefinition =
-        RenderableDefinition.builder()
-            .setVertices(vertices)
-            .setSubmeshes(Arrays.asList(submesh))
-            .build();
+        RenderableDefinition.builder().setMesh(mesh).setSubmeshes(Arrays.asList(submesh)).build();
 
     CompletableFuture<ModelRenderable> future =
         ModelRenderable.builder().setSource(renderableDefinition).build();
@@ -149,7 +127,8 @@ public final class ShapeFactory {
     final int slices = 24;
 
     // Create Vertices.
-    ArrayList<Vertex> vertices = new ArrayList<>((slices + 1) * stacks + 2);
+    int numVertices = (slices + 1) * (stacks + 1);
+    MeshBuilder mesh = new MeshBuilder(numVertices, numVertices * 2 * COORDS_PER_TRIANGLE);
     float pi = (float) Math.PI;
     float doublePi = pi * 2.0f;
 
@@ -163,30 +142,19 @@ public final class ShapeFactory {
         float sinTheta = (float) Math.sin(theta);
         float cosTheta = (float) Math.cos(theta);
 
-        Vector3 position = new Vector3(sinPhi * cosTheta, cosPhi, sinPhi * sinTheta).scaled(radius);
-        Vector3 normal = position.normalized();
-        position = Vector3.add(position, center);
-        Vertex.UvCoordinate uvCoordinate =
-            new Vertex.UvCoordinate(
-                1.0f - ((float) slice / slices), 1.0f - ((float) stack / stacks));
-
-        Vertex vertex =
-            Vertex.builder()
-                .setPosition(position)
-                .setNormal(normal)
-                .setUvCoordinate(uvCoordinate)
-                .build();
-
-        vertices.add(vertex);
+        // The direction from the center is already normalized.
+        float normalX = sinPhi * cosTheta;
+        float normalY = cosPhi;
+        float normalZ = sinPhi * sinTheta;
+
+        mesh.addVertex(
+            normalX * radius + center.x, normalY * radius + center.y, normalZ * radius + center.z);
+        mesh.setNormal(normalX, normalY, normalZ)
+            .setUvCoordinate(1.0f - ((float) slice / slices), 1.0f - ((float) stack / stacks));
       }
     }
 
     // Create triangles.
-    int numFaces = vertices.size();
-    int numTriangles = numFaces * 2;
-    int numIndices = numTriangles * 3;
-    ArrayList<Integer> triangleIndices = new ArrayList<>(numIndices);
-
     int v = 0;
     for (int stack = 0; stack < stacks; stack++) {
       for (int slice = 0; slice < slices; slice++) {
@@ -197,27 +165,23 @@ public final class ShapeFactory {
         int next = slice + 1;
 
         if (!topCap) {
-          triangleIndices.add(v + slice);
-          triangleIndices.add(v + next);
-          triangleIndices.add(v + slice + slices + 1);
+          mesh.addTriangle(v + slice, v + next, v + slice + slices + 1);
         }
 
         if (!bottomCap) {
-          triangleIndices.add(v + next);
-          triangleIndices.add(v + next + slices + 1);
-          triangleIndices.add(v + slice + slices + 1);
+          mesh.addTriangle(v + next, v + next + slices + 1, v + slice + slices + 1);
         }
       }
       v += slices + 1;
     }
 
     Submesh submesh =
-        Submesh.builder().setTriangleIndices(triangleIndices).setMaterial(material).build();
-    RenderableDefinition renderableDefinition =
-        RenderableDefinition.builder()
-            .setVertices(vertices)
-            .setSubmeshes(Arrays.asList(submesh))
+        Submesh.builder()
+            .setTriangleIndices(mesh.getTriangleIndices())
+            .setMaterial(material)
             .build();
+    RenderableDefinition renderableDefinition =
+        RenderableDefinition.builder().setMesh(mesh).setSubmeshes(Arrays.asList(submesh)).build();
 
     CompletableFuture<ModelRenderable> future =
         ModelRenderable.builder().setSource(renderableDefinition).build();
@@ -258,86 +222,39 @@ public final class ShapeFactory {
     float theta = 0;
     float uStep = (float) 1.0 / numberOfSides;
 
-    ArrayList<Vertex> vertices = new ArrayList<>((numberOfSides + 1) * 4);
-    ArrayList<Vertex> lowerCapVertices = new ArrayList<>(numberOfSides + 1);
-    ArrayList<Vertex> upperCapVertices = new ArrayList<>(numberOfSides + 1);
-    ArrayList<Vertex> upperEdgeVertices = new ArrayList<>(numberOfSides + 1);
-
-    // Generate vertices along the sides of the cylinder.
+    float[] cosThetas = new float[numberOfSides + 1];
+    float[] sinThetas = new float[numberOfSides + 1];
     for (int side = 0; side <= numberOfSides; side++) {
-      float cosTheta = (float) Math.cos(theta);
-      float sinTheta = (float) Math.sin(theta);
-
-      // Calculate edge vertices along bottom of cylinder
-      Vector3 lowerPosition = new Vector3(radius * cosTheta, -halfHeight, radius * sinTheta);
-      Vector3 normal = new Vector3(lowerPosition.x, 0, lowerPosition.z).normalized();
-      lowerPosition = Vector3.add(lowerPosition, center);
-      UvCoordinate uvCoordinate = new UvCoordinate(uStep * side, 0);
-
-      Vertex vertex =
-          Vertex.builder()
-              .setPosition(lowerPosition)
-              .setNormal(normal)
-              .setUvCoordinate(uvCoordinate)
-              .build();
-      vertices.add(vertex);
-
-      // Create a copy of lower vertex with bottom-facing normals for cap.
-      vertex =
-          Vertex.builder()
-              .setPosition(lowerPosition)
-              .setNormal(Vector3.down())
-              .setUvCoordinate(new UvCoordinate((cosTheta + 1f) / 2, (sinTheta + 1f) / 2))
-              .build();
-      lowerCapVertices.add(vertex);
-
-      // Calculate edge vertices along top of cylinder
-      Vector3 upperPosition = new Vector3(radius * cosTheta, halfHeight, radius * sinTheta);
-      normal = new Vector3(upperPosition.x, 0, upperPosition.z).normalized();
-      upperPosition = Vector3.add(upperPosition, center);
-      uvCoordinate = new UvCoordinate(uStep * side, 1);
-
-      vertex =
-          Vertex.builder()
-              .setPosition(upperPosition)
-              .setNormal(normal)
-              .setUvCoordinate(uvCoordinate)
-              .build();
-      upperEdgeVertices.add(vertex);
-
-      // Create a copy of upper vertex with up-facing normals for cap.
-      vertex =
-          Vertex.builder()
-              .setPosition(upperPosition)
-              .setNormal(Vector3.up())
-              .setUvCoordinate(new UvCoordinate((cosTheta + 1f) / 2, (sinTheta + 1f) / 2))
-              .build();
-      upperCapVertices.add(vertex);
-
+      cosThetas[side] = (float) Math.cos(theta);
+      sinThetas[side] = (float) Math.sin(theta);
       theta += thetaIncrement;
     }
-    vertices.addAll(upperEdgeVertices);
-
-    // Generate vertices for the centers of the caps of the cylinder.
-    final int lowerCenterIndex = vertices.size();
-    vertices.add(
-        Vertex.builder()
-            .setPosition(Vector3.add(center, new Vector3(0, -halfHeight, 0)))
-            .setNormal(Vector3.down())
-            .setUvCoordinate(new UvCoordinate(.5f, .5f))
-            .build());
-    vertices.addAll(lowerCapVertices);
-
-    final int upperCenterIndex = vertices.size();
-    vertices.add(
-        Vertex.builder()
-            .setPosition(Vector3.add(center, new Vector3(0, halfHeight, 0)))
-            .setNormal(Vector3.up())
-            .setUvCoordinate(new UvCoordinate(.5f, .5f))
-            .build());
-    vertices.addAll(upperCapVertices);
-
-    ArrayList<Integer> triangleIndices = new ArrayList<>();
+
+    int numVertices = (numberOfSides + 1) * 4 + 2;
+    MeshBuilder mesh = new MeshBuilder(numVertices, numberOfSides * 4 * COORDS_PER_TRIANGLE);
+
+    // Generate edge vertices along the bottom and then the top of the cylinder.
+    for (int side = 0; side <= numberOfSides; side++) {
+      mesh.addVertex(
+          radius * cosThetas[side] + center.x,
+          -halfHeight + center.y,
+          radius * sinThetas[side] + center.z);
+      mesh.setNormal(cosThetas[side], 0, sinThetas[side]).setUvCoordinate(uStep * side, 0);
+    }
+    for (int side = 0; side <= numberOfSides; side++) {
+      mesh.addVertex(
+          radius * cosThetas[side] + center.x,
+          halfHeight + center.y,
+          radius * sinThetas[side] + center.z);
+      mesh.setNormal(cosThetas[side], 0, sinThetas[side]).setUvCoordinate(uStep * side, 1);
+    }
+
+    // Generate the vertices of the caps of the cylinder, starting with their centers.
+    final int lowerCenterIndex = mesh.getVertexCount();
+    addCylinderCap(mesh, radius, -halfHeight, center, cosThetas, sinThetas, Vector3.down());
+
+    final int upperCenterIndex = mesh.getVertexCount();
+    addCylinderCap(mesh, radius, halfHeight, center, cosThetas, sinThetas, Vector3.up());
 
     // Create triangles for each side
     for (int side = 0; side < numberOfSides; side++) {
@@ -347,34 +264,26 @@ public final class ShapeFactory {
       int topRight = side + numberOfSides + 2;
 
       // First triangle of side.
-      triangleIndices.add(bottomLeft);
-      triangleIndices.add(topRight);
-      triangleIndices.add(bottomRight);
+      mesh.addTriangle(bottomLeft, topRight, bottomRight);
 
       // Second triangle of side.
-      triangleIndices.add(bottomLeft);
-      triangleIndices.add(topLeft);
-      triangleIndices.add(topRight);
+      mesh.addTriangle(bottomLeft, topLeft, topRight);
 
       // Add bottom cap triangle.
-      triangleIndices.add(lowerCenterIndex);
-      triangleIndices.add(lowerCenterIndex + side + 1);
-      triangleIndices.add(lowerCenterIndex + side + 2);
+      mesh.addTriangle(lowerCenterIndex, lowerCenterIndex + side + 1, lowerCenterIndex + side + 2);
 
       // Add top cap triangle.
-      triangleIndices.add(upperCenterIndex);
-      triangleIndices.add(upperCenterIndex + side + 2);
-      triangleIndices.add(upperCenterIndex + side + 1);
+      mesh.addTriangle(upperCenterIndex, upperCenterIndex + side + 2, upperCenterIndex + side + 1);
     }
 
     Submesh submesh =
-        Submesh.builder().setTriangleIndices(triangleIndices).setMaterial(material).build();
+        Submesh.builder()
+            .setTriangleIndices(mesh.getTriangleIndices())
+            .setMaterial(material)
+            .build();
 
     RenderableDefinition renderableDefinition =
-        RenderableDefinition.builder()
-            .setVertices(vertices)
-            .setSubmeshes(Arrays.asList(submesh))
-            .build();
+        RenderableDefinition.builder().setMesh(mesh).setSubmeshes(Arrays.asList(submesh)).build();
 
     CompletableFuture<ModelRenderable> future =
         ModelRenderable.builder().setSource(renderableDefinition).build();
@@ -392,4 +301,22 @@ public final class ShapeFactory {
 
     return result;
   }
+
+  private static void addCylinderCap(
+      MeshBuilder mesh,
+      float radius,
+      float y,
+      Vector3 center,
+      float[] cosThetas,
+      float[] sinThetas,
+      Vector3 normal) {
+    mesh.addVertex(center.x, y + center.y, center.z);
+    mesh.setNormal(normal).setUvCoordinate(.5f, .5f);
+    for (int side = 0; side < cosThetas.length; side++) {
+      mesh.addVertex(
+          radius * cosThetas[side] + center.x, y + center.y, radius * sinThetas[side] + center.z);
+      mesh.setNormal(normal)
+          .setUvCoordinate((cosThetas[side] + 1f) / 2, (sinThetas[side] + 1f) / 2);
+    }
+  }
 }
@@ -15,8 +15,10 @@ import com.google.ar.sceneform.utilities.AndroidPreconditions;
 import com.google.ar.sceneform.utilities.LoadHelper;
 import com.google.ar.sceneform.utilities.Preconditions;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /** Represents a reference to a texture. */
 @SuppressWarnings({"AndroidApiChecker", "FutureReturnValueIgnored"}) // CompletableFuture
@@ -72,6 +74,20 @@ public class Texture {
     return Preconditions.checkNotNull(textureData).getFilamentTexture();
   }
 
+  /**
+   * Returns an estimate of the GPU memory used by the texture, assuming four bytes per texel and a
+   * full mip chain when the texture has mip levels.
+   */
+  long getEstimatedSizeBytes() {
+    com.google.android.filament.Texture filamentTexture = getFilamentTexture();
+    long sizeBytes = (long) filamentTexture.getWidth(0) * filamentTexture.getHeight(0) * 4;
+    if (filamentTexture.getLevels() > 1) {
+      // The mip levels add up to a third of the base level.
+      sizeBytes += sizeBytes / 3;
+    }
+    return sizeBytes;
+  }
+
   private static com.google.android.filament.Texture.InternalFormat getInternalFormatForUsage(
       Usage usage) {
     com.google.android.filament.Texture.InternalFormat format;
@@ -105,6 +121,11 @@ public class Texture {
 
     private Sampler sampler = Sampler.builder().build();
 
+    private int loadPriority = TextureLoader.DEFAULT_PRIORITY;
+
+    @Nullable private DecodedBitmapCache decodedBitmapCache = null;
+    @Nullable private ByteBuffer encodedImage = null;
+
     private static final int MAX_BITMAP_SIZE = 4096;
 
     /** Constructor for asynchronous building. The sourceBuffer will be read later. */
@@ -259,6 +280,33 @@ public class Texture {
       return this;
     }
 
+    /**
+     * Sets the priority of loading the {@link Texture} relative to other textures. Textures with a
+     * higher priority are decoded and uploaded first, for example so that the textures of visible
+     * models are ready sooner. Defaults to 0.
+     *
+     * @param loadPriority the priority of loading the texture
+     * @return {@link Builder} for chaining setup calls.
+     * @hide
+     */
+    public Builder setLoadPriority(int loadPriority) {
+      this.loadPriority = loadPriority;
+      return this;
+    }
+
+    /**
+     * Stores the bitmap decoded from the source in an on-disk cache, so that later loads of the
+     * same image skip decoding it.
+     *
+     * @param decodedBitmapCache the cache to read the bitmap from and store it in
+     * @param encodedImage the encoded image that the source reads from, used as the key
+     */
+    Builder setDecodedBitmapCache(DecodedBitmapCache decodedBitmapCache, ByteBuffer encodedImage) {
+      this.decodedBitmapCache = decodedBitmapCache;
+      this.encodedImage = encodedImage;
+      return this;
+    }
+
     /**
      * Creates a new {@link Texture} based on the parameters set previously
      *
@@ -267,81 +315,83 @@ public class Texture {
     public CompletableFuture<Texture> build() {
       AndroidPreconditions.checkUiThread();
       Object registryId = this.registryId;
+      CompletableFuture<Texture> result;
       if (registryId != null) {
-        // See if a texture has already been registered by this id, if so re-use it.
+        // Re-use a texture already registered by this id, or register the one loaded now.
         ResourceRegistry<Texture> registry = ResourceManager.getInstance().getTextureRegistry();
-        @Nullable CompletableFuture<Texture> textureFuture = registry.get(registryId);
-        if (textureFuture != null) {
-          return textureFuture;
-        }
+        result = registry.getOrLoad(registryId, this::load);
+      } else {
+        result = load();
       }
 
+      FutureHelper.logOnException(
+          TAG, result, "Unable to load Texture registryId='" + registryId + "'");
+      return result;
+    }
+
+    private CompletableFuture<Texture> load() {
       if (textureInternalData != null && registryId != null) {
         throw new IllegalStateException("Builder must not set both a bitmap and filament texture");
       }
 
-      CompletableFuture<Texture> result;
       if (this.textureInternalData != null) {
-        result = CompletableFuture.completedFuture(new Texture(this.textureInternalData));
-      } else {
-        CompletableFuture<Bitmap> bitmapFuture;
-        if (inputStreamCreator != null) {
-          bitmapFuture = makeBitmap(inputStreamCreator, inPremultiplied);
-        } else if (bitmap != null) {
-          bitmapFuture = CompletableFuture.completedFuture(bitmap);
-        } else {
-          throw new IllegalStateException("Texture must have a source.");
+        return CompletableFuture.completedFuture(new Texture(this.textureInternalData));
+      }
+
+      // Decoding and uploading are scheduled by the texture pipeline.
+      Sampler sampler = this.sampler;
+      Usage usage = this.usage;
+      Function<Bitmap, Texture> uploader =
+          loadedBitmap -> {
+            TextureInternalData textureData =
+                makeTextureData(loadedBitmap, sampler, usage, MIP_LEVELS_TO_GENERATE);
+            return new Texture(textureData);
+          };
+
+      Callable<InputStream> inputStreamCreator = this.inputStreamCreator;
+      boolean inPremultiplied = this.inPremultiplied;
+      if (inputStreamCreator != null) {
+        Callable<Bitmap> decoder = () -> decodeBitmap(inputStreamCreator, inPremultiplied);
+        DecodedBitmapCache decodedBitmapCache = this.decodedBitmapCache;
+        ByteBuffer encodedImage = this.encodedImage;
+        if (decodedBitmapCache != null && encodedImage != null) {
+          Callable<Bitmap> uncachedDecoder = decoder;
+          decoder =
+              () -> decodedBitmapCache.getOrDecode(encodedImage, inPremultiplied, uncachedDecoder);
         }
+        return TextureLoader.getInstance().load(decoder, uploader, loadPriority);
+      } else if (bitmap != null) {
+        return TextureLoader.getInstance().upload(bitmap, uploader, loadPriority);
+      } else {
+        throw new IllegalStateException("Texture must have a source.");
+      }
+    }
 
-        result =
-            bitmapFuture.thenApplyAsync(
-                loadedBitmap -> {
-                  TextureInternalData textureData =
-                      makeTextureData(loadedBitmap, sampler, usage, MIP_LEVELS_TO_GENERATE);
-                  return new Texture(textureData);
-                },
-                ThreadPools.getMainExecutor());
+    private static Bitmap decodeBitmap(
+        Callable<InputStream> inputStreamCreator, boolean inPremultiplied) {
+      // Read the texture file.
+      final BitmapFactory.Options options = new BitmapFactory.Options();
+      options.inScaled = false;
+      options.inPremultiplied = inPremultiplied;
+      Bitmap bitmap;
+
+      // Open and read the texture file.
+      try (InputStream inputStream = inputStreamCreator.call()) {
+        bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
       }
 
-      if (registryId != null) {
-        ResourceRegistry<Texture> registry = ResourceManager.getInstance().getTextureRegistry();
-        registry.register(registryId, result);
+      if (bitmap == null) {
+        throw new IllegalStateException(
+            "Failed to decode the texture bitmap. The InputStream was not a valid bitmap.");
       }
 
-      FutureHelper.logOnException(
-          TAG, result, "Unable to load Texture registryId='" + registryId + "'");
-      return result;
-    }
+      if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+        throw new IllegalStateException("Texture must use ARGB8 format.");
+      }
 
-    private static CompletableFuture<Bitmap> makeBitmap(
-        Callable<InputStream> inputStreamCreator, boolean inPremultiplied) {
-      return CompletableFuture.supplyAsync(
-          () -> {
-            // Read the texture file.
-            final BitmapFactory.Options options = new BitmapFactory.Options();
-            options.inScaled = false;
-            options.inPremultiplied = inPremultiplied;
-            Bitmap bitmap;
-
-            // Open and read the texture file.
-            try (InputStream inputStream = inputStreamCreator.call()) {
-              bitmap = BitmapFactory.decodeStream(inputStream, null, options);
-            } catch (Exception e) {
-              throw new IllegalStateException(e);
-            }
-
-            if (bitmap == null) {
-              throw new IllegalStateException(
-                  "Failed to decode the texture bitmap. The InputStream was not a valid bitmap.");
-            }
-
-            if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
-              throw new IllegalStateException("Texture must use ARGB8 format.");
-            }
-
-            return bitmap;
-          },
-          ThreadPools.getThreadPoolExecutor());
+      return bitmap;
     }
 
     private static TextureInternalData makeTextureData(
@@ -0,0 +1,207 @@
+package com.google.ar.sceneform.rendering;
+
+import android.graphics.Bitmap;
+import android.os.Process;
+import android.support.annotation.Nullable;
+import com.google.ar.sceneform.utilities.DurationHistogram;
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Pipeline that turns texture sources into textures in two stages.
+ *
+ * <p>Bitmaps are decoded on a small dedicated pool of background threads instead of the shared
+ * thread pool, so that loading many textures at once doesn't starve other loads. The decoded
+ * bitmaps are then uploaded to Filament on the main thread through {@link
+ * ThreadPools#getMainExecutor(int)}, which runs the queued work for up to a fixed time budget per
+ * frame. Uploads that don't fit in the budget are carried over to the next frame instead of
+ * stalling the current one.
+ *
+ * <p>Each request has a priority. Requests with a higher priority are decoded and uploaded first,
+ * for example so that textures of visible models are ready before the others. Requests with the
+ * same priority are handled in the order in which they were made.
+ *
+ * <p>The time spent in each stage is recorded for profiling, see {@link #getDecodeHistogram()} and
+ * {@link #getUploadHistogram()}.
+ *
+ * @hide
+ */
+@SuppressWarnings("AndroidApiChecker") // CompletableFuture
+public class TextureLoader {
+  /** Default priority of a texture request. */
+  public static final int DEFAULT_PRIORITY = 0;
+
+  private static final int MAX_DECODE_THREADS = 4;
+  private static final long DECODE_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+  @Nullable private static TextureLoader instance = null;
+
+  private final ThreadPoolExecutor decodeExecutor;
+  private final AtomicLong nextSequence = new AtomicLong();
+
+  // Per stage timings, only recorded on the main thread.
+  private final DurationHistogram decodeWaitHistogram = new DurationHistogram();
+  private final DurationHistogram decodeHistogram = new DurationHistogram();
+  private final DurationHistogram uploadWaitHistogram = new DurationHistogram();
+  private final DurationHistogram uploadHistogram = new DurationHistogram();
+
+  public static TextureLoader getInstance() {
+    if (instance == null) {
+      instance = new TextureLoader();
+    }
+
+    return instance;
+  }
+
+  private TextureLoader() {
+    int threadCount =
+        Math.max(1, Math.min(MAX_DECODE_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+    AtomicInteger threadNumber = new AtomicInteger();
+    decodeExecutor =
+        new ThreadPoolExecutor(
+            threadCount,
+            threadCount,
+            DECODE_THREAD_KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new PriorityBlockingQueue<>(),
+            runnable -> {
+              Thread thread =
+                  new Thread(
+                      () -> {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                      },
+                      "SceneformTextureDecode-" + threadNumber.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    decodeExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  /** Returns the time a request waited for a decode thread. */
+  public DurationHistogram getDecodeWaitHistogram() {
+    return decodeWaitHistogram;
+  }
+
+  /** Returns the time spent decoding a bitmap. */
+  public DurationHistogram getDecodeHistogram() {
+    return decodeHistogram;
+  }
+
+  /** Returns the time a decoded bitmap waited to be uploaded. */
+  public DurationHistogram getUploadWaitHistogram() {
+    return uploadWaitHistogram;
+  }
+
+  /** Returns the time spent uploading a bitmap on the main thread. */
+  public DurationHistogram getUploadHistogram() {
+    return uploadHistogram;
+  }
+
+  /**
+   * Decodes a bitmap on a decode thread, then turns it into the result on the main thread within
+   * the per frame upload budget.
+   *
+   * @param decoder decodes the bitmap, called on a decode thread
+   * @param uploader creates the result from the decoded bitmap, called on the main thread
+   * @param priority requests with a higher priority are handled first
+   */
+  <T> CompletableFuture<T> load(
+      Callable<Bitmap> decoder, Function<Bitmap, T> uploader, int priority) {
+    Preconditions.checkNotNull(decoder, "Parameter \"decoder\" was null.");
+    Preconditions.checkNotNull(uploader, "Parameter \"uploader\" was null.");
+
+    Request<T> request = new Request<>(uploader, priority, nextSequence.getAndIncrement());
+    request.decoder = decoder;
+    decodeExecutor.execute(request);
+    return request.result;
+  }
+
+  /**
+   * Turns an already decoded bitmap into the result on the main thread within the per frame upload
+   * budget.
+   */
+  <T> CompletableFuture<T> upload(Bitmap bitmap, Function<Bitmap, T> uploader, int priority) {
+    Preconditions.checkNotNull(bitmap, "Parameter \"bitmap\" was null.");
+    Preconditions.checkNotNull(uploader, "Parameter \"uploader\" was null.");
+
+    Request<T> request = new Request<>(uploader, priority, nextSequence.getAndIncrement());
+    request.bitmap = bitmap;
+    request.decodedNanos = request.queuedNanos;
+    scheduleUpload(request);
+    return request.result;
+  }
+
+  private void scheduleUpload(Request<?> request) {
+    ThreadPools.getMainExecutor(request.priority).execute(() -> upload(request));
+  }
+
+  private void upload(Request<?> request) {
+    long uploadStartNanos = System.nanoTime();
+    if (request.decoder != null) {
+      decodeWaitHistogram.recordNanoseconds(request.decodeStartNanos - request.queuedNanos);
+      decodeHistogram.recordNanoseconds(request.decodedNanos - request.decodeStartNanos);
+    }
+    uploadWaitHistogram.recordNanoseconds(uploadStartNanos - request.decodedNanos);
+
+    request.upload();
+    uploadHistogram.recordNanoseconds(System.nanoTime() - uploadStartNanos);
+  }
+
+  /** A single texture moving through the pipeline. */
+  private final class Request<T> implements Runnable, Comparable<Request<?>> {
+    private final Function<Bitmap, T> uploader;
+    private final int priority;
+    private final long sequence;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final long queuedNanos = System.nanoTime();
+    @Nullable private Callable<Bitmap> decoder;
+    @Nullable private Bitmap bitmap;
+    private long decodeStartNanos;
+    private long decodedNanos;
+
+    Request(Function<Bitmap, T> uploader, int priority, long sequence) {
+      this.uploader = uploader;
+      this.priority = priority;
+      this.sequence = sequence;
+    }
+
+    /** Decodes the bitmap on a decode thread. */
+    @Override
+    public void run() {
+      decodeStartNanos = System.nanoTime();
+      try {
+        bitmap = Preconditions.checkNotNull(decoder).call();
+      } catch (Throwable throwable) {
+        result.completeExceptionally(throwable);
+        return;
+      }
+      decodedNanos = System.nanoTime();
+      scheduleUpload(this);
+    }
+
+    void upload() {
+      try {
+        result.complete(uploader.apply(Preconditions.checkNotNull(bitmap)));
+      } catch (Throwable throwable) {
+        result.completeExceptionally(throwable);
+      }
+      bitmap = null;
+    }
+
+    @Override
+    public int compareTo(Request<?> other) {
+      if (priority != other.priority) {
+        return Integer.compare(other.priority, priority);
+      }
+      return Long.compare(sequence, other.sequence);
+    }
+  }
+}
@@ -3,6 +3,7 @@ package com.google.ar.sceneform.rendering;
 import android.os.AsyncTask;
 import android.os.Handler;
 import android.os.Looper;
+import android.support.annotation.Nullable;
 import java.util.concurrent.Executor;
 
 /**
@@ -12,6 +13,8 @@ import java.util.concurrent.Executor;
  */
 public class ThreadPools {
   private static Executor mainExecutor;
+  private static boolean isMainExecutorSet;
+  @Nullable private static FrameBudgetedExecutor frameBudgetedExecutor;
   private static Executor threadPoolExecutor;
 
   private ThreadPools() {}
@@ -32,9 +35,43 @@ public class ThreadPools {
     return mainExecutor;
   }
 
+  /**
+   * {@link Executor} for the main thread work of loading resources, such as uploading textures and
+   * geometry. The work is spread across frames by the {@link #getFrameBudgetedExecutor()}, and work
+   * with a higher priority is run before work with a lower priority.
+   *
+   * <p>If a main executor was set with {@link #setMainExecutor(Executor)}, it is returned instead
+   * and the priority is ignored.
+   */
+  public static Executor getMainExecutor(int priority) {
+    if (isMainExecutorSet) {
+      return getMainExecutor();
+    }
+    return getFrameBudgetedExecutor().withPriority(priority);
+  }
+
+  /** Returns the {@link FrameBudgetedExecutor} that runs the main thread work of loading. */
+  public static FrameBudgetedExecutor getFrameBudgetedExecutor() {
+    if (frameBudgetedExecutor == null) {
+      frameBudgetedExecutor = new FrameBudgetedExecutor();
+    }
+    return frameBudgetedExecutor;
+  }
+
+  /**
+   * Runs the loading work queued for the current frame within the frame budget. Called on the main
+   * thread at the start of every frame.
+   */
+  public static void runMainExecutorFrame(long frameTimeNanos) {
+    if (frameBudgetedExecutor != null) {
+      frameBudgetedExecutor.runFrame(frameTimeNanos);
+    }
+  }
+
   /** @param executor provides access to the main thread. */
   public static void setMainExecutor(Executor executor) {
     mainExecutor = executor;
+    isMainExecutorSet = executor != null;
   }
 
   /** Default background {@link Executor} for async operations including file reading. */
@@ -4,15 +4,26 @@ import android.support.annotation.GuardedBy;
 import android.support.annotation.Nullable;
 import com.google.ar.sceneform.utilities.Preconditions;
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * ResourceRegistry keeps track of resources that have been loaded and are in the process of being
- * loaded. The registry maintains only weak references and doesn't prevent resources from being
- * collected.
+ * loaded. The registry maintains weak references to all of the loaded resources.
+ *
+ * <p>Optionally, the most recently used resources are also kept strongly reachable up to a budget
+ * of estimated bytes, so that a resource that is briefly unreferenced isn't collected and loaded
+ * again the next time it is requested. The least recently used resources are evicted from the
+ * budget first, after which they are only weakly referenced again.
+ *
+ * <p>The registry is backed by a concurrent map, so looking up and registering resources doesn't
+ * block other threads. Only changes to the retained resources and lookups of retained resources,
+ * which move them to the most recently used end, are serialized.
  *
  * @hide
  */
@@ -21,13 +32,49 @@ import java.util.concurrent.CompletableFuture;
 public class ResourceRegistry<T> implements ResourceHolder {
   private static final String TAG = ResourceRegistry.class.getSimpleName();
 
-  private final Object lock = new Object();
+  /** Estimates the memory used by a resource, to account for it in the retention budget. */
+  public interface SizeEstimator<T> {
+    long estimateSizeBytes(T resource);
+  }
+
+  @Nullable private final SizeEstimator<T> sizeEstimator;
+
+  private final ConcurrentHashMap<Object, Entry<T>> entries = new ConcurrentHashMap<>();
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  private final Object retentionLock = new Object();
+
+  // The retained resources by entry, in access order so that the eldest is the least recently used.
+  @GuardedBy("retentionLock")
+  private final LinkedHashMap<Entry<T>, T> retainedResources =
+      new LinkedHashMap<>(16, 0.75f, /* accessOrder= */ true);
+
+  @GuardedBy("retentionLock")
+  private long maxRetainedBytes;
 
-  @GuardedBy("lock")
-  private final Map<Object, WeakReference<T>> registry = new HashMap<>();
+  @GuardedBy("retentionLock")
+  private long retainedBytes;
 
-  @GuardedBy("lock")
-  private final Map<Object, CompletableFuture<T>> futureRegistry = new HashMap<>();
+  @GuardedBy("retentionLock")
+  private long evictionCount;
+
+  /** Creates a registry that only keeps weak references to the resources. */
+  public ResourceRegistry() {
+    this.sizeEstimator = null;
+  }
+
+  /**
+   * Creates a registry that keeps the most recently used resources strongly reachable.
+   *
+   * @param sizeEstimator estimates the memory used by a resource
+   * @param maxRetainedBytes the budget of estimated bytes for the retained resources
+   */
+  public ResourceRegistry(SizeEstimator<T> sizeEstimator, long maxRetainedBytes) {
+    this.sizeEstimator =
+        Preconditions.checkNotNull(sizeEstimator, "Parameter 'sizeEstimator' was null.");
+    this.maxRetainedBytes = maxRetainedBytes;
+  }
 
   /**
    * Returns a future to a resource previously registered with the same id. If resource has not yet
@@ -38,21 +85,85 @@ public class ResourceRegistry<T> implements ResourceHolder {
   public CompletableFuture<T> get(Object id) {
     Preconditions.checkNotNull(id, "Parameter 'id' was null.");
 
-    synchronized (lock) {
-      // If the resource has already finished loading, return a completed future to that resource.
-      WeakReference<T> reference = registry.get(id);
-      if (reference != null) {
-        T resource = reference.get();
-        if (resource != null) {
-          return CompletableFuture.completedFuture(resource);
-        } else {
-          registry.remove(id);
+    Entry<T> entry = entries.get(id);
+    if (entry != null) {
+      CompletableFuture<T> futureResource = lookUp(entry);
+      if (futureResource != null) {
+        hitCount.incrementAndGet();
+        return futureResource;
+      }
+
+      // The resource was garbage collected.
+      if (entries.remove(id, entry)) {
+        discard(entry);
+      }
+    }
+
+    missCount.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Returns a future to the resource registered with the id, or registers the future returned by
+   * the loader if there isn't one. When several threads request the same id at once, the loader is
+   * only called by one of them and the others share its future.
+   *
+   * <p>The loader is called on the calling thread without holding any lock. If it throws, the id
+   * is unregistered, the callers sharing the load are completed exceptionally and the exception is
+   * rethrown.
+   */
+  public CompletableFuture<T> getOrLoad(Object id, Supplier<CompletableFuture<T>> loader) {
+    Preconditions.checkNotNull(id, "Parameter 'id' was null.");
+    Preconditions.checkNotNull(loader, "Parameter 'loader' was null.");
+
+    while (true) {
+      Entry<T> entry = entries.get(id);
+      if (entry != null) {
+        CompletableFuture<T> futureResource = lookUp(entry);
+        if (futureResource != null) {
+          hitCount.incrementAndGet();
+          return futureResource;
         }
       }
 
-      // If the resource is in the process of loading, return the future directly.
-      // If the id is not registered, this will be null.
-      return futureRegistry.get(id);
+      // Claim the id before loading, so that concurrent callers wait for this load.
+      CompletableFuture<T> futureResource = new CompletableFuture<>();
+      Entry<T> loadingEntry = new Entry<>(futureResource);
+      boolean claimed =
+          entry == null
+              ? entries.putIfAbsent(id, loadingEntry) == null
+              : entries.replace(id, entry, loadingEntry);
+      if (!claimed) {
+        // Another thread changed the entry first, look it up again.
+        continue;
+      }
+
+      if (entry != null) {
+        discard(entry);
+      }
+      missCount.incrementAndGet();
+
+      trackCompletion(id, loadingEntry, futureResource);
+
+      CompletableFuture<T> loadedResource;
+      try {
+        loadedResource = Preconditions.checkNotNull(loader.get());
+      } catch (RuntimeException | Error throwable) {
+        futureResource.completeExceptionally(throwable);
+        throw throwable;
+      }
+
+      @SuppressWarnings({"FutureReturnValueIgnored", "unused"})
+      CompletableFuture<T> forwardFuture =
+          loadedResource.whenComplete(
+              (result, throwable) -> {
+                if (throwable != null) {
+                  futureResource.completeExceptionally(throwable);
+                } else {
+                  futureResource.complete(result);
+                }
+              });
+      return futureResource;
     }
   }
 
@@ -76,72 +187,213 @@ public class ResourceRegistry<T> implements ResourceHolder {
       @SuppressWarnings("nullness")
       T resource = Preconditions.checkNotNull(futureResource.getNow(null));
 
-      synchronized (lock) {
-        registry.put(id, new WeakReference<>(resource));
+      Entry<T> entry = new Entry<>(null);
+      entry.reference = new WeakReference<>(resource);
+      replace(id, entry);
+      retain(entry, resource, estimateSizeBytes(resource));
+      return;
+    }
+
+    Entry<T> entry = new Entry<>(futureResource);
+    replace(id, entry);
+    trackCompletion(id, entry, futureResource);
+  }
 
-        // If the id was previously registered in the futureRegistry, make sure it is removed.
-        futureRegistry.remove(id);
+  /**
+   * Removes all cache entries. Cancels any in progress futures. cancel does not interrupt work in
+   * progress. It only prevents the final stage from starting.
+   */
+  @Override
+  public void destroyAllResources() {
+    Iterator<Entry<T>> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      Entry<T> entry = iterator.next();
+      iterator.remove();
+      discard(entry);
+
+      CompletableFuture<T> futureResource = entry.futureResource;
+      if (futureResource != null && !futureResource.isDone()) {
+        futureResource.cancel(true);
       }
+    }
+  }
 
-      return;
+  @Override
+  public long reclaimReleasedResources() {
+    // Resources held in registry are also held by other ResourceHolders.  Return zero for this one
+    // and do
+    // counting in the other holders.
+    return 0;
+  }
+
+  /**
+   * Sets the budget of estimated bytes for the resources kept strongly reachable, evicting the
+   * least recently used resources that no longer fit. Has no effect if the registry was created
+   * without a {@link SizeEstimator}.
+   */
+  public void setMaxRetainedBytes(long maxRetainedBytes) {
+    synchronized (retentionLock) {
+      this.maxRetainedBytes = maxRetainedBytes;
+      evictToFit(maxRetainedBytes);
     }
+  }
 
-    synchronized (lock) {
-      futureRegistry.put(id, futureResource);
+  /** Stops keeping all of the resources strongly reachable, for example when memory is low. */
+  public void trimRetainedResources() {
+    synchronized (retentionLock) {
+      evictToFit(0);
+    }
+  }
+
+  /** Returns the estimated bytes used by the resources kept strongly reachable. */
+  public long getRetainedBytes() {
+    synchronized (retentionLock) {
+      return retainedBytes;
+    }
+  }
 
-      // If the id was previously registered in the completed registry, make sure it is removed.
-      registry.remove(id);
+  /** Returns the number of resources kept strongly reachable. */
+  public int getRetainedCount() {
+    synchronized (retentionLock) {
+      return retainedResources.size();
+    }
+  }
+
+  /** Returns the number of lookups that found a registered resource. */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /** Returns the number of lookups that didn't find a registered resource. */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /** Returns the number of resources evicted to fit in the retention budget. */
+  public long getEvictionCount() {
+    synchronized (retentionLock) {
+      return evictionCount;
+    }
+  }
+
+  /** Returns a future to the resource of the entry, or null if it was garbage collected. */
+  @Nullable
+  private CompletableFuture<T> lookUp(Entry<T> entry) {
+    // The reference is set before the future is cleared, so it is visible once the future isn't.
+    CompletableFuture<T> futureResource = entry.futureResource;
+    if (futureResource != null) {
+      return futureResource;
     }
 
+    WeakReference<T> reference = entry.reference;
+    T resource = reference != null ? reference.get() : null;
+    if (resource == null) {
+      return null;
+    }
+
+    if (entry.isRetained) {
+      synchronized (retentionLock) {
+        // Mark the resource as the most recently used one.
+        retainedResources.get(entry);
+      }
+    }
+    return CompletableFuture.completedFuture(resource);
+  }
+
+  private void replace(Object id, Entry<T> entry) {
+    Entry<T> previousEntry = entries.put(id, entry);
+    if (previousEntry != null) {
+      discard(previousEntry);
+    }
+  }
+
+  /**
+   * Keeps a weak reference to the resource once the future completes, or removes the entry if it
+   * fails, unless the entry was replaced in the meantime.
+   */
+  private void trackCompletion(Object id, Entry<T> entry, CompletableFuture<T> futureResource) {
     @SuppressWarnings({"FutureReturnValueIgnored", "unused"})
     CompletableFuture<Void> registerFuture =
         futureResource.handle(
             (result, throwable) -> {
-              synchronized (this) {
-                // Check to make sure that the future in the registry is this future.
-                // Otherwise, this id has already been overwritten with another resource.
-                synchronized (lock) {
-                  CompletableFuture<T> futureReference = futureRegistry.get(id);
-                  if (futureReference == futureResource) {
-                    futureRegistry.remove(id);
-                    if (throwable == null) {
-                      // Only add a reference if there was no exception.
-                      registry.put(id, new WeakReference<>(result));
-                    }
-                  }
-                }
+              if (throwable == null) {
+                // Only add a reference if there was no exception.
+                entry.reference = new WeakReference<>(result);
+                retain(entry, result, estimateSizeBytes(result));
+                entry.futureResource = null;
+              } else if (entries.remove(id, entry)) {
+                discard(entry);
               }
               return null;
             });
   }
 
-  /**
-   * Removes all cache entries. Cancels any in progress futures. cancel does not interrupt work in
-   * progress. It only prevents the final stage from starting.
-   */
-  @Override
-  public void destroyAllResources() {
-    synchronized (lock) {
-      Iterator<Map.Entry<Object, CompletableFuture<T>>> iterator =
-          futureRegistry.entrySet().iterator();
-      while (iterator.hasNext()) {
-        Map.Entry<Object, CompletableFuture<T>> entry = iterator.next();
-        iterator.remove();
-        CompletableFuture<T> futureResource = entry.getValue();
-        if (!futureResource.isDone()) {
-          futureResource.cancel(true);
-        }
+  /** Marks an entry that was removed from the map, releasing its resource from the budget. */
+  private void discard(Entry<T> entry) {
+    synchronized (retentionLock) {
+      entry.isDiscarded = true;
+      release(entry);
+    }
+  }
+
+  private long estimateSizeBytes(T resource) {
+    SizeEstimator<T> sizeEstimator = this.sizeEstimator;
+    return sizeEstimator != null ? sizeEstimator.estimateSizeBytes(resource) : 0;
+  }
+
+  private void retain(Entry<T> entry, T resource, long sizeBytes) {
+    if (sizeEstimator == null) {
+      return;
+    }
+
+    synchronized (retentionLock) {
+      if (entry.isDiscarded || sizeBytes > maxRetainedBytes) {
+        return;
       }
 
-      registry.clear();
+      release(entry);
+      retainedResources.put(entry, resource);
+      entry.retainedSizeBytes = sizeBytes;
+      entry.isRetained = true;
+      retainedBytes += sizeBytes;
+      evictToFit(maxRetainedBytes);
     }
   }
 
-  @Override
-  public long reclaimReleasedResources() {
-    // Resources held in registry are also held by other ResourceHolders.  Return zero for this one
-    // and do
-    // counting in the other holders.
-    return 0;
+  @GuardedBy("retentionLock")
+  private void release(Entry<T> entry) {
+    if (retainedResources.remove(entry) != null) {
+      entry.isRetained = false;
+      retainedBytes -= entry.retainedSizeBytes;
+    }
+  }
+
+  @GuardedBy("retentionLock")
+  private void evictToFit(long maxBytes) {
+    Iterator<Map.Entry<Entry<T>, T>> iterator = retainedResources.entrySet().iterator();
+    while (retainedBytes > maxBytes && iterator.hasNext()) {
+      Entry<T> entry = iterator.next().getKey();
+      iterator.remove();
+      entry.isRetained = false;
+      retainedBytes -= entry.retainedSizeBytes;
+      evictionCount++;
+    }
+  }
+
+  /** The state of a registered id. */
+  private static final class Entry<T> {
+    // Set while the resource is loading, cleared once the resource is referenced.
+    @Nullable volatile CompletableFuture<T> futureResource;
+    @Nullable volatile WeakReference<T> reference;
+    // Whether the resource is in retainedResources, read without the lock to skip it on lookups.
+    volatile boolean isRetained;
+
+    // Guarded by retentionLock.
+    long retainedSizeBytes;
+    boolean isDiscarded;
+
+    Entry(@Nullable CompletableFuture<T> futureResource) {
+      this.futureResource = futureResource;
+    }
   }
 }
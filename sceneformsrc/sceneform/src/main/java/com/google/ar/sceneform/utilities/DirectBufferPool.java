@@ -0,0 +1,274 @@
+package com.google.ar.sceneform.utilities;
+
+import android.support.annotation.Nullable;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * Pool of direct buffers in native byte order used to upload geometry to Filament.
+ *
+ * <p>Buffers are grouped in power of two size classes, so a released buffer can be reused by any
+ * later request of up to the same size. Direct memory is otherwise only freed when the buffer
+ * object is garbage collected, which can take a long time since the buffer objects are small.
+ * Released buffers are retained up to a fixed total size, beyond which they are dropped. Requests
+ * larger than the biggest size class are allocated exactly and never retained.
+ *
+ * <p>Every acquired buffer, including the float, int and short views, must be released exactly
+ * once after Filament has finished reading from it, and must not be used afterwards. Acquired
+ * buffers are only tracked weakly, so a buffer that is dropped without being released is still
+ * freed by the garbage collector, it just isn't reused. All of the methods are thread safe.
+ *
+ * @hide
+ */
+public class DirectBufferPool {
+  private static final int MIN_SIZE_CLASS_SHIFT = 8; // 256 bytes.
+  private static final int MAX_SIZE_CLASS_SHIFT = 24; // 16 MB.
+  private static final long DEFAULT_MAX_RETAINED_BYTES = 32 << 20;
+
+  @SuppressWarnings("unchecked") // Generic array creation.
+  private final ArrayDeque<ByteBuffer>[] freeBuffers =
+      new ArrayDeque[MAX_SIZE_CLASS_SHIFT - MIN_SIZE_CLASS_SHIFT + 1];
+
+  // Every acquired buffer or view that hasn't been released or garbage collected yet.
+  private final HashMap<OutstandingBuffer, OutstandingBuffer> outstandingBuffers =
+      new HashMap<>();
+  private final ReferenceQueue<Buffer> collectedBuffers = new ReferenceQueue<>();
+  private final long maxRetainedBytes;
+
+  private long hitCount;
+  private long missCount;
+  private long collectedCount;
+  private long outstandingBytes;
+  private long retainedBytes;
+
+  public DirectBufferPool() {
+    this(DEFAULT_MAX_RETAINED_BYTES);
+  }
+
+  /** @param maxRetainedBytes maximum total size of the released buffers kept for reuse */
+  public DirectBufferPool(long maxRetainedBytes) {
+    this.maxRetainedBytes = maxRetainedBytes;
+    for (int i = 0; i < freeBuffers.length; i++) {
+      freeBuffers[i] = new ArrayDeque<>();
+    }
+  }
+
+  /**
+   * Returns a direct buffer in native byte order with a limit of {@code byteCount} bytes. The
+   * capacity of the buffer may be larger.
+   */
+  public synchronized ByteBuffer acquire(int byteCount) {
+    ByteBuffer buffer = acquireBacking(byteCount);
+    track(buffer, buffer);
+    return buffer;
+  }
+
+  /** Returns a direct float buffer with a limit of {@code floatCount} floats. */
+  public synchronized FloatBuffer acquireFloatBuffer(int floatCount) {
+    ByteBuffer backing = acquireBacking(floatCount * Float.BYTES);
+    FloatBuffer buffer = backing.asFloatBuffer();
+    track(buffer, backing);
+    return buffer;
+  }
+
+  /** Returns a direct int buffer with a limit of {@code intCount} ints. */
+  public synchronized IntBuffer acquireIntBuffer(int intCount) {
+    ByteBuffer backing = acquireBacking(intCount * Integer.BYTES);
+    IntBuffer buffer = backing.asIntBuffer();
+    track(buffer, backing);
+    return buffer;
+  }
+
+  /** Returns a direct short buffer with a limit of {@code shortCount} shorts. */
+  public synchronized ShortBuffer acquireShortBuffer(int shortCount) {
+    ByteBuffer backing = acquireBacking(shortCount * Short.BYTES);
+    ShortBuffer buffer = backing.asShortBuffer();
+    track(buffer, backing);
+    return buffer;
+  }
+
+  /**
+   * Returns a buffer acquired from this pool so that its memory can be reused. Buffers that weren't
+   * acquired from this pool, or were already released, are ignored.
+   *
+   * @return true if the buffer belonged to the pool
+   */
+  public synchronized boolean release(Buffer buffer) {
+    Preconditions.checkNotNull(buffer, "Parameter \"buffer\" was null.");
+    expungeCollectedBuffers();
+    OutstandingBuffer outstandingBuffer =
+        outstandingBuffers.remove(new OutstandingBuffer(buffer, null, null));
+    if (outstandingBuffer == null) {
+      return false;
+    }
+
+    // The buffer is reachable, so the direct buffer backing it is as well.
+    ByteBuffer backing =
+        Preconditions.checkNotNull(Preconditions.checkNotNull(outstandingBuffer.backing).get());
+    int capacity = backing.capacity();
+    outstandingBytes -= capacity;
+
+    int sizeClass = sizeClassOf(capacity);
+    if (sizeClass >= 0
+        && Integer.bitCount(capacity) == 1
+        && retainedBytes + capacity <= maxRetainedBytes) {
+      // Undo any changes made by the user of the buffer.
+      backing.clear();
+      backing.order(ByteOrder.nativeOrder());
+      freeBuffers[sizeClass].push(backing);
+      retainedBytes += capacity;
+    }
+    return true;
+  }
+
+  /** Returns the fraction of requests served with a previously released buffer. */
+  public synchronized float getHitRate() {
+    long requestCount = hitCount + missCount;
+    return requestCount == 0 ? 0.0f : (float) hitCount / requestCount;
+  }
+
+  /** Returns the number of requests served with a previously released buffer. */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /** Returns the number of requests that required a new allocation. */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Returns the number of acquired buffers that were garbage collected without being released, so
+   * their memory couldn't be reused.
+   */
+  public synchronized long getCollectedCount() {
+    expungeCollectedBuffers();
+    return collectedCount;
+  }
+
+  /** Returns the total capacity of the buffers that have been acquired but not released. */
+  public synchronized long getOutstandingBytes() {
+    expungeCollectedBuffers();
+    return outstandingBytes;
+  }
+
+  /** Returns the total capacity of the released buffers kept for reuse. */
+  public synchronized long getRetainedBytes() {
+    return retainedBytes;
+  }
+
+  /** Drops all of the released buffers kept for reuse. */
+  public synchronized void trim() {
+    for (ArrayDeque<ByteBuffer> buffers : freeBuffers) {
+      buffers.clear();
+    }
+    retainedBytes = 0;
+  }
+
+  private void track(Buffer buffer, ByteBuffer backing) {
+    expungeCollectedBuffers();
+    OutstandingBuffer outstandingBuffer =
+        new OutstandingBuffer(buffer, backing, collectedBuffers);
+    outstandingBuffers.put(outstandingBuffer, outstandingBuffer);
+  }
+
+  /** Stops tracking the buffers that were garbage collected without being released. */
+  private void expungeCollectedBuffers() {
+    OutstandingBuffer collected = (OutstandingBuffer) collectedBuffers.poll();
+    while (collected != null) {
+      if (outstandingBuffers.remove(collected) != null) {
+        outstandingBytes -= collected.capacity;
+        collectedCount++;
+      }
+      collected = (OutstandingBuffer) collectedBuffers.poll();
+    }
+  }
+
+  private ByteBuffer acquireBacking(int byteCount) {
+    if (byteCount < 0) {
+      throw new IllegalArgumentException("Buffer size must not be negative: " + byteCount);
+    }
+
+    int sizeClass = sizeClassFor(byteCount);
+    ByteBuffer buffer = null;
+    if (sizeClass >= 0) {
+      buffer = freeBuffers[sizeClass].poll();
+    }
+
+    if (buffer != null) {
+      hitCount++;
+      retainedBytes -= buffer.capacity();
+    } else {
+      missCount++;
+      int capacity = sizeClass >= 0 ? 1 << (sizeClass + MIN_SIZE_CLASS_SHIFT) : byteCount;
+      buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    outstandingBytes += buffer.capacity();
+    buffer.limit(byteCount);
+    return buffer;
+  }
+
+  /** Returns the smallest size class that fits the byte count, or -1 if it is too large. */
+  private static int sizeClassFor(int byteCount) {
+    if (byteCount > (1 << MAX_SIZE_CLASS_SHIFT)) {
+      return -1;
+    }
+
+    int shift = 32 - Integer.numberOfLeadingZeros(Math.max(byteCount, 1) - 1);
+    return Math.max(shift, MIN_SIZE_CLASS_SHIFT) - MIN_SIZE_CLASS_SHIFT;
+  }
+
+  /** Returns the size class of a buffer with the given capacity, or -1 if it isn't pooled. */
+  private static int sizeClassOf(int capacity) {
+    int shift = 31 - Integer.numberOfLeadingZeros(capacity);
+    if (shift < MIN_SIZE_CLASS_SHIFT || shift > MAX_SIZE_CLASS_SHIFT) {
+      return -1;
+    }
+    return shift - MIN_SIZE_CLASS_SHIFT;
+  }
+
+  /**
+   * Weak reference to an acquired buffer or view, compared by the identity of the buffer. The
+   * direct buffer backing it is also only referenced weakly, since it can be the buffer itself.
+   */
+  private static final class OutstandingBuffer extends WeakReference<Buffer> {
+    private final int hashCode;
+    @Nullable private final WeakReference<ByteBuffer> backing;
+    private final int capacity;
+
+    /** The backing is null for the keys only used to look up a buffer. */
+    OutstandingBuffer(
+        Buffer buffer, @Nullable ByteBuffer backing, @Nullable ReferenceQueue<Buffer> queue) {
+      super(buffer, queue);
+      this.hashCode = System.identityHashCode(buffer);
+      this.backing = backing == null ? null : new WeakReference<>(backing);
+      this.capacity = backing == null ? 0 : backing.capacity();
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof OutstandingBuffer)) {
+        return false;
+      }
+      Buffer buffer = get();
+      return buffer != null && buffer == ((OutstandingBuffer) other).get();
+    }
+  }
+}
@@ -0,0 +1,252 @@
+package com.google.ar.sceneform.utilities;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Size-bounded cache of binary blobs stored as files in a directory.
+ *
+ * <p>Entries are read back by memory mapping them, so that large blobs can be used without copying
+ * them into the Java heap. Every entry is written to a temporary file first and then renamed, so a
+ * crash never leaves a partially written entry behind.
+ *
+ * <p>Entries are stored in a subdirectory named after the format version. When the version
+ * changes, the entries of all other versions are deleted. Once the total size of the entries
+ * exceeds the budget, the least recently used ones are deleted. Use is tracked with the modified
+ * time of the files, so it persists across launches.
+ *
+ * <p>All of the methods are thread safe.
+ *
+ * @hide
+ */
+public class DiskCache {
+  private static final String TAG = DiskCache.class.getSimpleName();
+  private static final String VERSION_DIRECTORY_PREFIX = "v";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final File rootDirectory;
+  private final File directory;
+  private final long maxSizeBytes;
+
+  // Computed when the cache is first used.
+  private boolean isInitialized;
+  private long sizeBytes;
+
+  /**
+   * @param rootDirectory the directory holding the cache, usually a subdirectory of the cache
+   *     directory of the application
+   * @param version the version of the format of the entries
+   * @param maxSizeBytes the maximum total size of the entries
+   */
+  public DiskCache(File rootDirectory, int version, long maxSizeBytes) {
+    this.rootDirectory =
+        Preconditions.checkNotNull(rootDirectory, "Parameter \"rootDirectory\" was null.");
+    this.directory = new File(rootDirectory, VERSION_DIRECTORY_PREFIX + version);
+    this.maxSizeBytes = maxSizeBytes;
+  }
+
+  /**
+   * Returns the entry stored with the key memory mapped, or null if there isn't one.
+   *
+   * @param key the key of the entry, see {@link #hashKey(ByteBuffer)}
+   */
+  @Nullable
+  public ByteBuffer get(String key) {
+    File file = getFile(key);
+    synchronized (this) {
+      initialize();
+      if (!file.isFile()) {
+        return null;
+      }
+
+      // Mark the entry as the most recently used one.
+      file.setLastModified(System.currentTimeMillis());
+    }
+
+    try {
+      return SceneformBufferUtils.mapFile(file);
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to read cache entry " + key, e);
+      return null;
+    }
+  }
+
+  /**
+   * Stores the remaining bytes of the buffer with the key, replacing any previous entry. Entries
+   * larger than the size of the cache aren't stored.
+   *
+   * @return true if the entry was stored
+   */
+  public boolean put(String key, ByteBuffer data) {
+    File file = getFile(key);
+    long entrySizeBytes = data.remaining();
+    if (entrySizeBytes > maxSizeBytes) {
+      return false;
+    }
+
+    synchronized (this) {
+      initialize();
+    }
+
+    File tempFile;
+    try {
+      tempFile = File.createTempFile("entry-" + key, TEMP_FILE_SUFFIX, directory);
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to create cache entry " + key, e);
+      return false;
+    }
+
+    try (FileOutputStream outputStream = new FileOutputStream(tempFile);
+        FileChannel channel = outputStream.getChannel()) {
+      ByteBuffer source = data.duplicate();
+      while (source.hasRemaining()) {
+        channel.write(source);
+      }
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to write cache entry " + key, e);
+      tempFile.delete();
+      return false;
+    }
+
+    synchronized (this) {
+      long previousSizeBytes = file.length();
+      if (!tempFile.renameTo(file)) {
+        tempFile.delete();
+        return false;
+      }
+
+      sizeBytes += entrySizeBytes - previousSizeBytes;
+      trimToSize();
+    }
+    return true;
+  }
+
+  /** Returns the total size of the entries in bytes. */
+  public synchronized long getSizeBytes() {
+    initialize();
+    return sizeBytes;
+  }
+
+  /** Deletes all of the entries. */
+  public synchronized void clear() {
+    initialize();
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    sizeBytes = 0;
+  }
+
+  /**
+   * Returns a key derived from the SHA-1 hash of the remaining bytes of the buffer, so that
+   * identical content shares a single entry.
+   */
+  public static String hashKey(ByteBuffer data) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError("SHA-1 is not supported.", e);
+    }
+    digest.update(data.duplicate());
+
+    byte[] hash = digest.digest();
+    char[] key = new char[hash.length * 2];
+    for (int i = 0; i < hash.length; i++) {
+      key[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+      key[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xF];
+    }
+    return new String(key);
+  }
+
+  private File getFile(String key) {
+    Preconditions.checkNotNull(key, "Parameter \"key\" was null.");
+    if (!key.matches("[0-9a-zA-Z_.-]+") || key.endsWith(TEMP_FILE_SUFFIX)) {
+      throw new IllegalArgumentException("Invalid cache key: " + key);
+    }
+    return new File(directory, key);
+  }
+
+  /** Creates the directory, deletes stale versions and computes the size of the entries. */
+  private void initialize() {
+    if (isInitialized) {
+      return;
+    }
+    isInitialized = true;
+
+    File[] versionDirectories = rootDirectory.listFiles();
+    if (versionDirectories != null) {
+      for (File versionDirectory : versionDirectories) {
+        if (!versionDirectory.equals(directory)) {
+          deleteRecursively(versionDirectory);
+        }
+      }
+    }
+
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      Log.w(TAG, "Failed to create cache directory " + directory);
+    }
+
+    sizeBytes = 0;
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        if (file.getName().endsWith(TEMP_FILE_SUFFIX)) {
+          // Left behind by a write that didn't finish.
+          file.delete();
+        } else {
+          sizeBytes += file.length();
+        }
+      }
+    }
+  }
+
+  /** Deletes the least recently used entries until the cache fits in its budget. */
+  private void trimToSize() {
+    if (sizeBytes <= maxSizeBytes) {
+      return;
+    }
+
+    File[] files = directory.listFiles((dir, name) -> !name.endsWith(TEMP_FILE_SUFFIX));
+    if (files == null) {
+      return;
+    }
+
+    long[] lastModified = new long[files.length];
+    Integer[] order = new Integer[files.length];
+    for (int i = 0; i < files.length; i++) {
+      lastModified[i] = files[i].lastModified();
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Long.compare(lastModified[a], lastModified[b]));
+
+    for (int i = 0; i < order.length && sizeBytes > maxSizeBytes; i++) {
+      File file = files[order[i]];
+      long length = file.length();
+      if (file.delete()) {
+        sizeBytes -= length;
+      }
+    }
+  }
+
+  private static void deleteRecursively(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+    file.delete();
+  }
+}
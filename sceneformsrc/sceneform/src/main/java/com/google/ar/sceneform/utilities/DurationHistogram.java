@@ -0,0 +1,102 @@
+package com.google.ar.sceneform.utilities;
+
+import java.util.Arrays;
+
+/**
+ * Records durations into a fixed set of logarithmic buckets so that percentiles can be read without
+ * storing the individual samples. Recording a sample doesn't allocate.
+ *
+ * <p>Each power of two microseconds is split into 16 buckets, so a percentile is reported with a
+ * relative error of at most 1/16. Durations below one microsecond are recorded as zero and
+ * durations above roughly an hour are clamped.
+ *
+ * @hide
+ */
+public class DurationHistogram {
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 31;
+  private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+  private static final long NANOSECONDS_PER_MICROSECOND = 1000;
+  private static final double MICROSECONDS_TO_MILLISECONDS = 0.001;
+
+  private final long[] counts = new long[BUCKET_COUNT];
+  private long sampleCount;
+  private long maxMicroseconds;
+
+  /** Records a duration, in nanoseconds. */
+  public void recordNanoseconds(long nanoseconds) {
+    long microseconds = Math.max(nanoseconds, 0) / NANOSECONDS_PER_MICROSECOND;
+    counts[bucketIndex(microseconds)]++;
+    sampleCount++;
+    maxMicroseconds = Math.max(maxMicroseconds, microseconds);
+  }
+
+  /** Returns the number of durations recorded since the histogram was created or reset. */
+  public long getSampleCount() {
+    return sampleCount;
+  }
+
+  /**
+   * Returns the duration in milliseconds that the given percentage of the recorded durations don't
+   * exceed, or 0 if nothing was recorded.
+   *
+   * @param percentile the percentage of samples, between 0 and 100
+   */
+  public double getPercentileMilliseconds(double percentile) {
+    if (sampleCount == 0) {
+      return 0.0;
+    }
+
+    double clampedPercentile = Math.min(Math.max(percentile, 0.0), 100.0);
+    long rank = Math.max(1, (long) Math.ceil(clampedPercentile / 100.0 * sampleCount));
+
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        long upperBound = Math.min(bucketUpperBound(i), maxMicroseconds);
+        return upperBound * MICROSECONDS_TO_MILLISECONDS;
+      }
+    }
+
+    return maxMicroseconds * MICROSECONDS_TO_MILLISECONDS;
+  }
+
+  /** Returns the longest recorded duration in milliseconds, or 0 if nothing was recorded. */
+  public double getMaxMilliseconds() {
+    return maxMicroseconds * MICROSECONDS_TO_MILLISECONDS;
+  }
+
+  /** Removes all of the recorded durations. */
+  public void reset() {
+    Arrays.fill(counts, 0);
+    sampleCount = 0;
+    maxMicroseconds = 0;
+  }
+
+  private static int bucketIndex(long microseconds) {
+    if (microseconds < SUB_BUCKET_COUNT) {
+      return (int) microseconds;
+    }
+
+    if (microseconds >= (1L << (MAX_EXPONENT + 1))) {
+      return BUCKET_COUNT - 1;
+    }
+
+    int exponent = 63 - Long.numberOfLeadingZeros(microseconds);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (microseconds >> shift) & (SUB_BUCKET_COUNT - 1);
+    return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  private static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    long subBucket = index % SUB_BUCKET_COUNT;
+    return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+  }
+}
@@ -2,6 +2,7 @@ package com.google.ar.sceneform.utilities;
 
 import android.content.ContentResolver;
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 import android.content.res.Resources;
 import android.net.Uri;
@@ -15,6 +16,7 @@ import android.util.Log;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
@@ -22,6 +24,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Callable;
@@ -124,6 +127,59 @@ public class LoadHelper {
     return remoteUriToInputStreamCreator(sourceUri, requestProperty);
   }
 
+  /**
+   * Creates a source that memory maps an Android resource, so that it can be used without copying
+   * it into the Java heap. Compressed resources can't be mapped and are read into a buffer instead.
+   */
+  public static Callable<ByteBuffer> mappedBufferFromResource(Context context, int resId) {
+    Callable<InputStream> inputStreamCreator = fromResource(context, resId);
+    return () -> {
+      AssetFileDescriptor descriptor;
+      try {
+        descriptor = context.getResources().openRawResourceFd(resId);
+      } catch (Resources.NotFoundException e) {
+        // The resource is compressed, so it has to be decompressed into a buffer.
+        descriptor = null;
+      }
+      if (descriptor == null) {
+        return SceneformBufferUtils.inputStreamToByteBuffer(inputStreamCreator);
+      }
+      return SceneformBufferUtils.mapAssetFileDescriptor(descriptor);
+    };
+  }
+
+  /**
+   * Creates a source that memory maps the contents of a local Uri, so that it can be used without
+   * copying it into the Java heap. Compressed assets and resources can't be mapped and are read
+   * into a buffer instead.
+   *
+   * @return the source, or null for Uris that must be streamed such as remote Uris
+   */
+  @Nullable
+  public static Callable<ByteBuffer> mappedBufferFromUri(Context context, Uri sourceUri) {
+    Preconditions.checkNotNull(sourceUri, "Parameter \"sourceUri\" was null.");
+    Preconditions.checkNotNull(context, "Parameter \"context\" was null.");
+    if (isFileAsset(sourceUri)) {
+      return fileUriToMappedBufferCreator(context, sourceUri);
+    } else if (isAndroidResource(sourceUri)) {
+      Callable<InputStream> inputStreamCreator =
+          androidResourceUriToInputStreamCreator(context, sourceUri);
+      return () -> {
+        AssetFileDescriptor descriptor;
+        try {
+          descriptor = context.getContentResolver().openAssetFileDescriptor(sourceUri, "r");
+        } catch (FileNotFoundException e) {
+          descriptor = null;
+        }
+        if (descriptor == null) {
+          return SceneformBufferUtils.inputStreamToByteBuffer(inputStreamCreator);
+        }
+        return SceneformBufferUtils.mapAssetFileDescriptor(descriptor);
+      };
+    }
+    return null;
+  }
+
   /**
    * Generates a Uri from an Android resource.
    *
@@ -184,23 +240,9 @@ public class LoadHelper {
   }
 
   /** Creates an inputStream to read from asset file */
-  // TODO: Fix nullness violation: dereference of possibly-null reference
-  // sourceUri.getPath()
-  @SuppressWarnings("nullness:dereference.of.nullable")
   private static Callable<InputStream> fileUriToInputStreamCreator(Context context, Uri sourceUri) {
     AssetManager assetManager = context.getAssets();
-    String filename;
-    if (sourceUri.getAuthority() == null) {
-      filename = sourceUri.getPath();
-    } else if (sourceUri.getPath().isEmpty()) {
-      filename = sourceUri.getAuthority();
-    } else {
-      filename = sourceUri.getAuthority() + sourceUri.getPath();
-    }
-
-    // Remove "android_asset/" from URI paths like "file:///android_asset/...".
-    // TODO: Fix nullness violation: incompatible types in argument.
-    @SuppressWarnings("nullness:argument.type.incompatible")
+    String filename = getFilename(sourceUri);
     String scrubbedFilename = removeAndroidAssetPath(filename);
 
     return () -> {
@@ -214,6 +256,42 @@ public class LoadHelper {
     };
   }
 
+  /** Creates a source that memory maps an asset file or a file from storage. */
+  private static Callable<ByteBuffer> fileUriToMappedBufferCreator(Context context, Uri sourceUri) {
+    AssetManager assetManager = context.getAssets();
+    String filename = getFilename(sourceUri);
+    String scrubbedFilename = removeAndroidAssetPath(filename);
+
+    return () -> {
+      if (assetExists(assetManager, scrubbedFilename)) {
+        try {
+          return SceneformBufferUtils.mapAssetFileDescriptor(
+              assetManager.openFd(scrubbedFilename));
+        } catch (FileNotFoundException e) {
+          // The asset is compressed, so it has to be decompressed into a buffer.
+          return SceneformBufferUtils.inputStreamToByteBuffer(
+              () -> assetManager.open(scrubbedFilename));
+        }
+      } else {
+        // Map file from storage or other non asset location.
+        return SceneformBufferUtils.mapFile(new File(filename));
+      }
+    };
+  }
+
+  // TODO: Fix nullness violation: dereference of possibly-null reference
+  // sourceUri.getPath()
+  @SuppressWarnings({"nullness:dereference.of.nullable", "nullness:return.type.incompatible"})
+  private static String getFilename(Uri sourceUri) {
+    if (sourceUri.getAuthority() == null) {
+      return sourceUri.getPath();
+    } else if (sourceUri.getPath().isEmpty()) {
+      return sourceUri.getAuthority();
+    } else {
+      return sourceUri.getAuthority() + sourceUri.getPath();
+    }
+  }
+
   private static String removeAndroidAssetPath(String filename) {
     // Remove "android_asset/" from URI paths like "file:///android_asset/...".
     String scrubbedFilename = filename;
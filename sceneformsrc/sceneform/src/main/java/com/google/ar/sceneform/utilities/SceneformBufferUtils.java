@@ -1,13 +1,21 @@
 package com.google.ar.sceneform.utilities;
 
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 import android.support.annotation.Nullable;
 import android.util.Log;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionException;
 
@@ -19,9 +27,48 @@ import java.util.concurrent.CompletionException;
 public final class SceneformBufferUtils {
   private static final String TAG = SceneformBufferUtils.class.getSimpleName();
   private static final int DEFAULT_BLOCK_SIZE = 8192;
+  private static final DirectBufferPool bufferPool = new DirectBufferPool();
 
   private SceneformBufferUtils() {}
 
+  /**
+   * Returns the pool used for the direct buffers that hold geometry while it is uploaded to
+   * Filament, for example to read its hit rate and the number of outstanding bytes.
+   */
+  public static DirectBufferPool getBufferPool() {
+    return bufferPool;
+  }
+
+  /** Acquires a direct buffer of {@code byteCount} bytes from the pool. */
+  public static ByteBuffer acquireDirectBuffer(int byteCount) {
+    return bufferPool.acquire(byteCount);
+  }
+
+  /** Acquires a direct buffer of {@code floatCount} floats from the pool. */
+  public static FloatBuffer acquireFloatBuffer(int floatCount) {
+    return bufferPool.acquireFloatBuffer(floatCount);
+  }
+
+  /** Acquires a direct buffer of {@code intCount} ints from the pool. */
+  public static IntBuffer acquireIntBuffer(int intCount) {
+    return bufferPool.acquireIntBuffer(intCount);
+  }
+
+  /** Acquires a direct buffer of {@code shortCount} shorts from the pool. */
+  public static ShortBuffer acquireShortBuffer(int shortCount) {
+    return bufferPool.acquireShortBuffer(shortCount);
+  }
+
+  /**
+   * Returns a buffer to the {@link #getBufferPool() pool} once nothing reads from it anymore.
+   * Buffers that weren't acquired from the pool are ignored.
+   */
+  public static void releaseBuffer(@Nullable Buffer buffer) {
+    if (buffer != null) {
+      bufferPool.release(buffer);
+    }
+  }
+
   @Nullable
   public static ByteBuffer readFile(AssetManager assets, String path) {
     // TODO: this method/class may be replaceable by SourceBytes
@@ -113,6 +160,44 @@ public final class SceneformBufferUtils {
     return result;
   }
 
+  /**
+   * Maps the contents of a file into memory. The returned buffer is direct and backed by the page
+   * cache instead of the Java heap, and remains valid after the file has been closed.
+   */
+  public static ByteBuffer mapFile(File file) throws IOException {
+    try (FileInputStream inputStream = new FileInputStream(file);
+        FileChannel channel = inputStream.getChannel()) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  /**
+   * Maps the region of a file described by an {@link AssetFileDescriptor} into memory, then closes
+   * the descriptor. Only uncompressed assets and resources can be opened as a file descriptor.
+   */
+  public static ByteBuffer mapAssetFileDescriptor(AssetFileDescriptor descriptor)
+      throws IOException {
+    try (FileInputStream inputStream = new FileInputStream(descriptor.getFileDescriptor());
+        FileChannel channel = inputStream.getChannel()) {
+      long startOffset = descriptor.getStartOffset();
+      long length = descriptor.getLength();
+      if (length == AssetFileDescriptor.UNKNOWN_LENGTH) {
+        length = channel.size() - startOffset;
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, startOffset, length);
+    } finally {
+      descriptor.close();
+    }
+  }
+
+  /**
+   * Creates an {@link InputStream} that reads the remaining bytes of a buffer without copying
+   * them. Works for direct buffers, which don't have a backing array.
+   */
+  public static InputStream byteBufferToInputStream(ByteBuffer buffer) {
+    return new ByteBufferInputStream(buffer.slice());
+  }
+
   public static byte[] inputStreamCallableToByteArray(Callable<InputStream> inputStreamCreator)
       throws Exception {
     try (InputStream input = inputStreamCreator.call()) {
@@ -127,4 +212,43 @@ public final class SceneformBufferUtils {
     copy(input, output);
     return output.toByteArray();
   }
+
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public long skip(long count) {
+      int skipped = (int) Math.max(0, Math.min(count, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
 }
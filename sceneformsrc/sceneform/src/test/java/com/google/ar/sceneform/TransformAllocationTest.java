@@ -0,0 +1,167 @@
+package com.google.ar.sceneform;
+
+import static org.junit.Assert.assertTrue;
+
+import com.google.ar.sceneform.math.Matrix;
+import com.google.ar.sceneform.math.Quaternion;
+import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.utilities.AndroidPreconditions;
+import java.lang.reflect.Method;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Counts the bytes allocated by the math overloads that write into a destination and by the
+ * per-frame transform paths of {@link Node}.
+ */
+public class TransformAllocationTest {
+  private static final int ITERATIONS = 20_000;
+
+  private final Vector3 a = new Vector3(1.0f, 2.0f, 3.0f);
+  private final Vector3 b = new Vector3(-4.0f, 0.5f, 2.0f);
+  private final Vector3 vectorDest = new Vector3();
+  private final Vector3 up = Vector3.up();
+  private final Quaternion rotation = Quaternion.axisAngle(new Vector3(0.2f, 1.0f, 0.3f), 40.0f);
+  private final Quaternion otherRotation = Quaternion.axisAngle(Vector3.right(), -75.0f);
+  private final Quaternion quaternionDest = new Quaternion();
+  private final Matrix matrix = new Matrix();
+
+  private Node parent;
+  private Node child;
+
+  @Before
+  public void setUp() {
+    AndroidPreconditions.setUnderTesting(true);
+
+    matrix.makeTrs(a, rotation, new Vector3(2.0f, 2.0f, 2.0f));
+
+    parent = new Node();
+    parent.setLocalPosition(a);
+    parent.setLocalRotation(rotation);
+    parent.setLocalScale(new Vector3(2.0f, 1.0f, 0.5f));
+    child = new Node();
+    child.setParent(parent);
+    child.setLocalPosition(b);
+  }
+
+  @After
+  public void tearDown() {
+    AndroidPreconditions.setUnderTesting(false);
+  }
+
+  @Test
+  public void allocatingGetter_isCounted() throws Exception {
+    long allocatedBytes = measureAllocatedBytes(() -> child.getForward());
+
+    assertTrue("The counter missed " + ITERATIONS + " allocations.", allocatedBytes >= ITERATIONS);
+  }
+
+  @Test
+  public void vectorOverloads_dontAllocate() throws Exception {
+    assertNoAllocations(
+        () -> {
+          Vector3.add(a, b, vectorDest);
+          Vector3.subtract(vectorDest, b, vectorDest);
+          Vector3.cross(a, b, vectorDest);
+          Vector3.min(a, b, vectorDest);
+          Vector3.max(a, b, vectorDest);
+          Vector3.lerp(a, b, 0.25f, vectorDest);
+          a.normalized(vectorDest);
+          a.scaled(2.0f, vectorDest);
+          a.negated(vectorDest);
+        });
+  }
+
+  @Test
+  public void quaternionOverloads_dontAllocate() throws Exception {
+    assertNoAllocations(
+        () -> {
+          Quaternion.multiply(rotation, otherRotation, quaternionDest);
+          Quaternion.axisAngle(b, 30.0f, quaternionDest);
+          Quaternion.rotationBetweenVectors(a, b, quaternionDest);
+          Quaternion.lookRotation(a, up, quaternionDest);
+          Quaternion.rotateVector(rotation, a, vectorDest);
+          Quaternion.inverseRotateVector(rotation, vectorDest, vectorDest);
+          rotation.normalized(quaternionDest);
+          rotation.inverted(quaternionDest);
+        });
+  }
+
+  @Test
+  public void matrixOverloads_dontAllocate() throws Exception {
+    assertNoAllocations(
+        () -> {
+          matrix.transformPoint(a, vectorDest);
+          matrix.transformDirection(vectorDest, vectorDest);
+        });
+  }
+
+  @Test
+  public void nodeGetterOverloads_dontAllocate() throws Exception {
+    assertNoAllocations(
+        () -> {
+          child.getLocalPosition(vectorDest);
+          child.getLocalRotation(quaternionDest);
+          child.getWorldPosition(vectorDest);
+          child.getWorldRotation(quaternionDest);
+          child.getForward(vectorDest);
+          child.getBack(vectorDest);
+          child.getRight(vectorDest);
+          child.getLeft(vectorDest);
+          child.getUp(vectorDest);
+          child.getDown(vectorDest);
+          child.localToWorldPoint(a, vectorDest);
+          child.worldToLocalPoint(vectorDest, vectorDest);
+          child.localToWorldDirection(a, vectorDest);
+          child.worldToLocalDirection(vectorDest, vectorDest);
+        });
+  }
+
+  @Test
+  public void nodeWorldSetters_dontAllocate() throws Exception {
+    Vector3 scale = new Vector3(1.5f, 1.5f, 1.5f);
+    assertNoAllocations(
+        () -> {
+          child.setWorldPosition(a);
+          child.setWorldRotation(rotation);
+          child.setWorldScale(scale);
+          child.getWorldPosition(vectorDest);
+        });
+  }
+
+  private static void assertNoAllocations(Runnable runnable) throws Exception {
+    long allocatedBytes = measureAllocatedBytes(runnable);
+
+    // Reading the counter allocates a little, but far less than one object per iteration.
+    assertTrue(
+        "Allocated " + allocatedBytes + " bytes in " + ITERATIONS + " iterations.",
+        allocatedBytes < ITERATIONS);
+  }
+
+  /** Returns the bytes allocated by the current thread while running the runnable repeatedly. */
+  private static long measureAllocatedBytes(Runnable runnable) throws Exception {
+    // Let the JIT compile the code first, so that only the steady state is measured.
+    for (int i = 0; i < ITERATIONS; i++) {
+      runnable.run();
+    }
+
+    long startBytes = getAllocatedBytes();
+    for (int i = 0; i < ITERATIONS; i++) {
+      runnable.run();
+    }
+    return getAllocatedBytes() - startBytes;
+  }
+
+  private static long getAllocatedBytes() throws Exception {
+    // The management API isn't part of the Android SDK, so it is looked up on the test JVM.
+    Object threadBean =
+        Class.forName("java.lang.management.ManagementFactory")
+            .getMethod("getThreadMXBean")
+            .invoke(null);
+    Method getThreadAllocatedBytes =
+        Class.forName("com.sun.management.ThreadMXBean")
+            .getMethod("getThreadAllocatedBytes", long.class);
+    return (long) getThreadAllocatedBytes.invoke(threadBean, Thread.currentThread().getId());
+  }
+}
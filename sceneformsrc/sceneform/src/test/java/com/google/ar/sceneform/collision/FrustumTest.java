@@ -0,0 +1,96 @@
+package com.google.ar.sceneform.collision;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.ar.sceneform.math.Matrix;
+import com.google.ar.sceneform.math.Vector3;
+import org.junit.Test;
+
+public class FrustumTest {
+  private static final float NEAR = 0.1f;
+  private static final float FAR = 100.0f;
+
+  @Test
+  public void identity_matchesClipCube() {
+    Frustum frustum = new Frustum();
+    frustum.setViewProjection(new Matrix());
+
+    assertTrue(frustum.intersectsSphere(new Vector3(0.0f, 0.0f, 0.0f), 0.1f));
+    assertTrue(frustum.intersectsSphere(new Vector3(1.5f, 0.0f, 0.0f), 1.0f));
+    assertFalse(frustum.intersectsSphere(new Vector3(3.0f, 0.0f, 0.0f), 1.0f));
+    assertFalse(frustum.intersectsSphere(new Vector3(0.0f, -3.0f, 0.0f), 1.0f));
+    assertFalse(frustum.intersectsSphere(new Vector3(0.0f, 0.0f, 3.0f), 1.0f));
+  }
+
+  @Test
+  public void intersectsSphere_comparesRadiusToDistance() {
+    Frustum frustum = new Frustum();
+    frustum.setViewProjection(createPerspective());
+
+    // The right plane goes through the origin at 45 degrees, the center is sqrt(2) away from it.
+    Vector3 center = new Vector3(2.0f, 0.0f, 0.0f);
+    assertFalse(frustum.intersectsSphere(center, 1.4f));
+    assertTrue(frustum.intersectsSphere(center, 1.42f));
+  }
+
+  @Test
+  public void perspective_cullsOutsideOfView() {
+    Frustum frustum = new Frustum();
+    frustum.setViewProjection(createPerspective());
+
+    assertTrue(frustum.intersectsSphere(new Vector3(0.0f, 0.0f, -10.0f), 1.0f));
+    assertTrue(frustum.intersectsSphere(new Vector3(9.0f, -9.0f, -10.0f), 0.5f));
+    // Behind the camera.
+    assertFalse(frustum.intersectsSphere(new Vector3(0.0f, 0.0f, 10.0f), 1.0f));
+    // Beyond the far plane.
+    assertFalse(frustum.intersectsSphere(new Vector3(0.0f, 0.0f, -FAR - 2.0f), 1.0f));
+    // Outside of the field of view.
+    assertFalse(frustum.intersectsSphere(new Vector3(20.0f, 0.0f, -10.0f), 1.0f));
+    assertFalse(frustum.intersectsSphere(new Vector3(0.0f, 20.0f, -10.0f), 1.0f));
+  }
+
+  @Test
+  public void perspective_largeSphereAroundCamera_isInView() {
+    Frustum frustum = new Frustum();
+    frustum.setViewProjection(createPerspective());
+
+    assertTrue(frustum.intersectsSphere(new Vector3(0.0f, 0.0f, 5.0f), 10.0f));
+  }
+
+  @Test
+  public void viewProjection_usesWorldSpace() {
+    // The camera is moved back by 10 units, the view matrix is the inverse of its transform.
+    Matrix cameraTransform = new Matrix();
+    cameraTransform.makeTranslation(new Vector3(0.0f, 0.0f, 10.0f));
+    Matrix view = new Matrix();
+    Matrix.invert(cameraTransform, view);
+    Matrix viewProjection = new Matrix();
+    Matrix.multiply(createPerspective(), view, viewProjection);
+
+    Frustum frustum = new Frustum();
+    frustum.setViewProjection(viewProjection);
+
+    assertTrue(frustum.intersectsSphere(new Vector3(0.0f, 0.0f, 0.0f), 1.0f));
+    assertFalse(frustum.intersectsSphere(new Vector3(0.0f, 0.0f, 15.0f), 1.0f));
+    assertFalse(frustum.intersectsSphere(new Vector3(20.0f, 0.0f, 0.0f), 1.0f));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void intersectsSphere_nullCenter_throws() {
+    new Frustum().intersectsSphere(null, 1.0f);
+  }
+
+  /** Returns a perspective projection with a 90 degree field of view and a square aspect ratio. */
+  private static Matrix createPerspective() {
+    Matrix projection = new Matrix();
+    float[] data = projection.data;
+    data[0] = 1.0f;
+    data[5] = 1.0f;
+    data[10] = -(FAR + NEAR) / (FAR - NEAR);
+    data[11] = -1.0f;
+    data[14] = -2.0f * FAR * NEAR / (FAR - NEAR);
+    data[15] = 0.0f;
+    return projection;
+  }
+}
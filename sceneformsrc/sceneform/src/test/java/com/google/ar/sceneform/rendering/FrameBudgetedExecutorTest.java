@@ -0,0 +1,126 @@
+package com.google.ar.sceneform.rendering;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FrameBudgetedExecutorTest {
+  private static final long FRAME_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+
+  private long nowNanos;
+  private long frameTimeNanos;
+  private FrameBudgetedExecutor executor;
+  private final List<String> runOrder = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    // Without a handler the work is only run by runFrame, driven by the fake clock below.
+    executor = new FrameBudgetedExecutor(() -> nowNanos, null);
+    executor.setFrameBudget(4, TimeUnit.MILLISECONDS);
+  }
+
+  @Test
+  public void runFrame_runsTasksUntilBudgetIsUsed() {
+    for (int i = 0; i < 10; i++) {
+      executor.execute(task("task" + i, 1));
+    }
+
+    runFrame();
+    assertEquals(4, runOrder.size());
+    assertEquals(6, executor.getPendingTaskCount());
+
+    runFrame();
+    assertEquals(8, runOrder.size());
+
+    runFrame();
+    assertEquals(10, runOrder.size());
+    assertEquals(0, executor.getPendingTaskCount());
+  }
+
+  @Test
+  public void runFrame_taskOverBudget_stillRunsOneTaskPerFrame() {
+    executor.execute(task("slow0", 10));
+    executor.execute(task("slow1", 10));
+
+    runFrame();
+    assertEquals(Arrays.asList("slow0"), runOrder);
+
+    runFrame();
+    assertEquals(Arrays.asList("slow0", "slow1"), runOrder);
+  }
+
+  @Test
+  public void runFrame_zeroBudget_runsSingleTask() {
+    executor.setFrameBudget(0, TimeUnit.MILLISECONDS);
+    executor.execute(task("a", 0));
+    executor.execute(task("b", 0));
+
+    runFrame();
+
+    assertEquals(Arrays.asList("a"), runOrder);
+  }
+
+  @Test
+  public void runFrame_runsHigherPriorityFirstAndEqualPriorityInOrder() {
+    executor.execute(task("low", 0), -1);
+    executor.execute(task("default0", 0));
+    executor.execute(task("high", 0), 5);
+    executor.withPriority(5).execute(task("high2", 0));
+    executor.execute(task("default1", 0));
+
+    runFrame();
+
+    assertEquals(Arrays.asList("high", "high2", "default0", "default1", "low"), runOrder);
+  }
+
+  @Test
+  public void runFrame_sameFrameTime_isIgnored() {
+    executor.execute(task("a", 5));
+    executor.execute(task("b", 5));
+
+    runFrame();
+    executor.runFrame(frameTimeNanos);
+
+    assertEquals(Arrays.asList("a"), runOrder);
+  }
+
+  @Test
+  public void runFrame_taskQueuedByTask_runsInSameFrameWithinBudget() {
+    executor.execute(
+        () -> {
+          runOrder.add("outer");
+          executor.execute(task("inner", 1));
+        });
+
+    runFrame();
+
+    assertEquals(Arrays.asList("outer", "inner"), runOrder);
+  }
+
+  @Test
+  public void runFrame_emptyQueue_doesNothing() {
+    runFrame();
+
+    assertEquals(0, runOrder.size());
+    assertEquals(0, executor.getPendingTaskCount());
+  }
+
+  /** Returns a task that records its name and advances the clock by the given milliseconds. */
+  private Runnable task(String name, long durationMillis) {
+    return () -> {
+      runOrder.add(name);
+      nowNanos += TimeUnit.MILLISECONDS.toNanos(durationMillis);
+    };
+  }
+
+  private void runFrame() {
+    frameTimeNanos += FRAME_INTERVAL_NANOS;
+    nowNanos = Math.max(nowNanos, frameTimeNanos);
+    executor.runFrame(frameTimeNanos);
+  }
+}
@@ -0,0 +1,178 @@
+package com.google.ar.sceneform.rendering;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import com.google.ar.sceneform.math.Matrix;
+import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.rendering.RenderableDefinition.Submesh;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class GeometryBatchTest {
+  private final Material material = mock(Material.class);
+  private final GeometryBatch batch = new GeometryBatch(material);
+  private final MeshBuilder mesh = batch.getMesh();
+
+  @Test
+  public void add_offsetsIndicesByVertexStart() {
+    batch.add("triangle", createTriangle(false), new Matrix());
+    batch.add("quad", createQuad(), new Matrix());
+
+    assertEquals(7, mesh.getVertexCount());
+    assertIndices(0, 1, 2, 3, 4, 5, 3, 5, 6);
+  }
+
+  @Test
+  public void add_transformsPositions() {
+    Matrix transform = new Matrix();
+    transform.makeTranslation(new Vector3(1.0f, 2.0f, 3.0f));
+
+    batch.add("triangle", createTriangle(false), transform);
+
+    float[] expected = {1.0f, 2.0f, 3.0f, 2.0f, 2.0f, 3.0f, 1.0f, 3.0f, 3.0f};
+    assertArrayEquals(expected, Arrays.copyOf(mesh.getPositions(), expected.length), 1e-6f);
+  }
+
+  @Test
+  public void remove_collapsesTrianglesOfItsRange() {
+    batch.add("triangle", createTriangle(false), new Matrix());
+    batch.add("quad", createQuad(), new Matrix());
+
+    assertTrue(batch.remove("triangle"));
+
+    assertEquals(7, mesh.getVertexCount());
+    assertIndices(0, 0, 0, 3, 4, 5, 3, 5, 6);
+  }
+
+  @Test
+  public void add_sameKey_appendsNewRange() {
+    batch.add("triangle", createTriangle(false), new Matrix());
+    batch.add("quad", createQuad(), new Matrix());
+
+    batch.add("triangle", createTriangle(false), new Matrix());
+
+    assertEquals(2, batch.getMemberCount());
+    assertEquals(10, mesh.getVertexCount());
+    assertIndices(0, 0, 0, 3, 4, 5, 3, 5, 6, 7, 8, 9);
+  }
+
+  @Test
+  public void setTransform_marksOnlyItsRangeDirty() {
+    batch.add("triangle", createTriangle(false), new Matrix());
+    batch.add("quad", createQuad(), new Matrix());
+    mesh.getDirtyVertices().clear();
+    mesh.getDirtyIndices().clear();
+
+    Matrix transform = new Matrix();
+    transform.makeTranslation(new Vector3(0.0f, 1.0f, 0.0f));
+    batch.setTransform("quad", transform);
+
+    assertEquals(1, mesh.getDirtyVertices().size());
+    assertEquals(3, mesh.getDirtyVertices().getStart(0));
+    assertEquals(7, mesh.getDirtyVertices().getEnd(0));
+    assertEquals(0, mesh.getDirtyIndices().size());
+  }
+
+  @Test
+  public void update_afterRemovingAllGeometry_compactsMesh() {
+    batch.add("triangle", createTriangle(false), new Matrix());
+    batch.add("quad", createQuad(), new Matrix());
+    batch.remove("triangle");
+    batch.remove("quad");
+
+    assertNull(batch.update());
+
+    assertEquals(0, mesh.getVertexCount());
+    assertEquals(0, mesh.getIndexCount());
+  }
+
+  @Test
+  public void add_otherAttributesThanRemovedGeometry_compactsMesh() {
+    batch.add("triangle", createTriangle(false), new Matrix());
+    batch.remove("triangle");
+
+    batch.add("lit", createTriangle(true), new Matrix());
+
+    assertEquals(3, mesh.getVertexCount());
+    assertTrue(mesh.hasNormals());
+    assertIndices(0, 1, 2);
+  }
+
+  @Test
+  public void add_otherAttributesThanCurrentGeometry_throws() {
+    batch.add("triangle", createTriangle(false), new Matrix());
+
+    try {
+      batch.add("lit", createTriangle(true), new Matrix());
+      fail();
+    } catch (IllegalArgumentException expected) {
+      // The geometry of the other keys is kept.
+    }
+
+    assertEquals(1, batch.getMemberCount());
+    assertIndices(0, 1, 2);
+  }
+
+  private void assertIndices(int... expected) {
+    List<Integer> indices = mesh.getTriangleIndices();
+    int[] actual = new int[indices.size()];
+    for (int i = 0; i < actual.length; i++) {
+      actual[i] = indices.get(i);
+    }
+    assertArrayEquals(expected, actual);
+  }
+
+  private RenderableDefinition createTriangle(boolean hasNormals) {
+    List<Vertex> vertices =
+        createVertices(
+            hasNormals,
+            new Vector3(0.0f, 0.0f, 0.0f),
+            new Vector3(1.0f, 0.0f, 0.0f),
+            new Vector3(0.0f, 1.0f, 0.0f));
+    return RenderableDefinition.builder()
+        .setVertices(vertices)
+        .setSubmeshes(Arrays.asList(createSubmesh(0, 1, 2)))
+        .build();
+  }
+
+  /** Returns a quad with a submesh for each of its triangles. */
+  private RenderableDefinition createQuad() {
+    List<Vertex> vertices =
+        createVertices(
+            false,
+            new Vector3(0.0f, 0.0f, 0.0f),
+            new Vector3(1.0f, 0.0f, 0.0f),
+            new Vector3(1.0f, 1.0f, 0.0f),
+            new Vector3(0.0f, 1.0f, 0.0f));
+    return RenderableDefinition.builder()
+        .setVertices(vertices)
+        .setSubmeshes(Arrays.asList(createSubmesh(0, 1, 2), createSubmesh(0, 2, 3)))
+        .build();
+  }
+
+  private static List<Vertex> createVertices(boolean hasNormals, Vector3... positions) {
+    List<Vertex> vertices = new ArrayList<>();
+    for (Vector3 position : positions) {
+      Vertex.Builder builder = Vertex.builder().setPosition(position);
+      if (hasNormals) {
+        builder.setNormal(Vector3.forward());
+      }
+      vertices.add(builder.build());
+    }
+    return vertices;
+  }
+
+  private Submesh createSubmesh(Integer... indices) {
+    return Submesh.builder()
+        .setTriangleIndices(Arrays.asList(indices))
+        .setMaterial(material)
+        .build();
+  }
+}
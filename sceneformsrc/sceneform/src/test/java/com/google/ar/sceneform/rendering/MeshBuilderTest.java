@@ -0,0 +1,109 @@
+package com.google.ar.sceneform.rendering;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.ar.sceneform.rendering.MeshBuilder.DirtyRanges;
+import org.junit.Test;
+
+public class MeshBuilderTest {
+
+  @Test
+  public void dirtyRanges_keepsDistantRangesApart() {
+    DirtyRanges ranges = new DirtyRanges();
+
+    ranges.add(100, 110);
+    ranges.add(0, 10);
+    ranges.add(1000, 1010);
+
+    assertRanges(ranges, 0, 10, 100, 110, 1000, 1010);
+  }
+
+  @Test
+  public void dirtyRanges_mergesOverlappingAndAdjacentRanges() {
+    DirtyRanges ranges = new DirtyRanges();
+
+    ranges.add(0, 10);
+    ranges.add(20, 30);
+    ranges.add(40, 50);
+    ranges.add(10, 20);
+    ranges.add(45, 60);
+
+    assertRanges(ranges, 0, 30, 40, 60);
+  }
+
+  @Test
+  public void dirtyRanges_rangeSpanningSeveral_replacesThem() {
+    DirtyRanges ranges = new DirtyRanges();
+    ranges.add(0, 10);
+    ranges.add(20, 30);
+    ranges.add(40, 50);
+    ranges.add(60, 70);
+
+    ranges.add(25, 45);
+
+    assertRanges(ranges, 0, 10, 20, 50, 60, 70);
+  }
+
+  @Test
+  public void dirtyRanges_ignoresEmptyRanges() {
+    DirtyRanges ranges = new DirtyRanges();
+
+    ranges.add(5, 5);
+
+    assertEquals(0, ranges.size());
+  }
+
+  @Test
+  public void dirtyRanges_overMaximum_mergesClosestRanges() {
+    DirtyRanges ranges = new DirtyRanges();
+    for (int i = 0; i < DirtyRanges.MAX_RANGES; i++) {
+      ranges.add(i * 100, i * 100 + 1);
+    }
+
+    // Only 2 elements away from the range at 300.
+    ranges.add(303, 304);
+
+    assertEquals(DirtyRanges.MAX_RANGES, ranges.size());
+    assertEquals(300, ranges.getStart(3));
+    assertEquals(304, ranges.getEnd(3));
+    assertEquals(400, ranges.getStart(4));
+  }
+
+  @Test
+  public void dirtyRanges_clear_removesAllRanges() {
+    DirtyRanges ranges = new DirtyRanges();
+    ranges.add(0, 10);
+
+    ranges.clear();
+
+    assertEquals(0, ranges.size());
+  }
+
+  @Test
+  public void editInPlace_marksOnlyEditedRanges() {
+    MeshBuilder mesh = new MeshBuilder();
+    for (int i = 0; i < 100; i++) {
+      mesh.addVertex(0.0f, 0.0f, 0.0f);
+    }
+    for (int i = 0; i < 50; i++) {
+      mesh.addTriangle(0, 1, 2);
+    }
+    mesh.getDirtyVertices().clear();
+    mesh.getDirtyIndices().clear();
+
+    mesh.setPosition(3, 1.0f, 0.0f, 0.0f);
+    mesh.setPosition(90, 1.0f, 0.0f, 0.0f);
+    mesh.setTriangle(40, 3, 4, 5);
+
+    assertRanges(mesh.getDirtyVertices(), 3, 4, 90, 91);
+    assertRanges(mesh.getDirtyIndices(), 120, 123);
+  }
+
+  private static void assertRanges(DirtyRanges ranges, int... startsAndEnds) {
+    assertEquals(startsAndEnds.length / 2, ranges.size());
+    for (int i = 0; i < ranges.size(); i++) {
+      assertEquals(startsAndEnds[i * 2], ranges.getStart(i));
+      assertEquals(startsAndEnds[i * 2 + 1], ranges.getEnd(i));
+    }
+  }
+}
@@ -0,0 +1,185 @@
+package com.google.ar.sceneform.rendering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.rendering.RenderableDefinition.LevelOfDetail;
+import com.google.ar.sceneform.rendering.RenderableDefinition.Submesh;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class MeshSimplifierTest {
+  private static final int GRID_SIZE = 17;
+
+  private final Material material = mock(Material.class);
+
+  @Test
+  public void simplify_fullRatio_keepsAllTriangles() {
+    RenderableDefinition definition = createGrid(Vector3.up());
+
+    LevelOfDetail level = MeshSimplifier.simplify(definition, 1.0f, 0.5f);
+
+    assertEquals(0.5f, level.getScreenCoverage(), 0.0f);
+    assertEquals(countTriangles(definition), countTriangles(level));
+  }
+
+  @Test
+  public void simplify_keepsAtMostRequestedFraction() {
+    RenderableDefinition definition = createGrid(Vector3.up());
+    int triangleCount = countTriangles(definition);
+
+    LevelOfDetail level = MeshSimplifier.simplify(definition, 0.25f, 0.1f);
+
+    int simplifiedCount = countTriangles(level);
+    assertTrue(simplifiedCount > 0);
+    assertTrue(simplifiedCount <= triangleCount / 4);
+    assertValidTriangles(definition, level);
+  }
+
+  @Test
+  public void simplify_keepsSubmeshOrder() {
+    List<Vertex> vertices = createGridVertices(Vector3.up());
+    List<Integer> indices = createGridIndices(0);
+    int half = indices.size() / 2 - indices.size() / 2 % 3;
+    RenderableDefinition definition =
+        RenderableDefinition.builder()
+            .setVertices(vertices)
+            .setSubmeshes(
+                Arrays.asList(
+                    createSubmesh(indices.subList(0, half)),
+                    createSubmesh(indices.subList(half, indices.size()))))
+            .build();
+
+    LevelOfDetail level = MeshSimplifier.simplify(definition, 0.5f, 0.1f);
+
+    assertEquals(2, level.getSubmeshTriangleIndices().size());
+    assertValidTriangles(definition, level);
+  }
+
+  @Test
+  public void simplify_doesNotMergeVerticesWithOppositeNormals() {
+    // A two sided surface: the same grid facing up and facing down.
+    List<Vertex> vertices = new ArrayList<>(createGridVertices(Vector3.up()));
+    vertices.addAll(createGridVertices(Vector3.down()));
+    List<Integer> indices = new ArrayList<>(createGridIndices(0));
+    indices.addAll(createGridIndices(GRID_SIZE * GRID_SIZE));
+    RenderableDefinition definition =
+        RenderableDefinition.builder()
+            .setVertices(vertices)
+            .setSubmeshes(Arrays.asList(createSubmesh(indices)))
+            .build();
+
+    LevelOfDetail level = MeshSimplifier.simplify(definition, 0.1f, 0.1f);
+
+    int upTriangles = 0;
+    int downTriangles = 0;
+    List<Integer> simplifiedIndices = level.getSubmeshTriangleIndices().get(0);
+    for (int i = 0; i < simplifiedIndices.size(); i += 3) {
+      boolean isUp = simplifiedIndices.get(i) < GRID_SIZE * GRID_SIZE;
+      for (int j = 1; j < 3; j++) {
+        assertEquals(isUp, simplifiedIndices.get(i + j) < GRID_SIZE * GRID_SIZE);
+      }
+      if (isUp) {
+        upTriangles++;
+      } else {
+        downTriangles++;
+      }
+    }
+    assertTrue(upTriangles > 0);
+    assertEquals(upTriangles, downTriangles);
+  }
+
+  @Test
+  public void generateLevelsOfDetail_halvesTrianglesPerLevel() {
+    RenderableDefinition definition = createGrid(Vector3.up());
+
+    List<LevelOfDetail> levels = MeshSimplifier.generateLevelsOfDetail(definition, 0.5f, 0.25f);
+
+    assertEquals(2, levels.size());
+    assertEquals(0.5f, levels.get(0).getScreenCoverage(), 0.0f);
+    assertEquals(0.25f, levels.get(1).getScreenCoverage(), 0.0f);
+    assertTrue(countTriangles(levels.get(0)) <= countTriangles(definition) / 2);
+    assertTrue(countTriangles(levels.get(1)) <= countTriangles(definition) / 4);
+    assertNotEquals(0, countTriangles(levels.get(1)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void simplify_invalidRatio_throws() {
+    MeshSimplifier.simplify(createGrid(Vector3.up()), 0.0f, 0.1f);
+  }
+
+  /** Returns a flat square grid in the XZ plane with all of the normals pointing the same way. */
+  private RenderableDefinition createGrid(Vector3 normal) {
+    return RenderableDefinition.builder()
+        .setVertices(createGridVertices(normal))
+        .setSubmeshes(Arrays.asList(createSubmesh(createGridIndices(0))))
+        .build();
+  }
+
+  private static List<Vertex> createGridVertices(Vector3 normal) {
+    List<Vertex> vertices = new ArrayList<>();
+    float spacing = 1.0f / (GRID_SIZE - 1);
+    for (int z = 0; z < GRID_SIZE; z++) {
+      for (int x = 0; x < GRID_SIZE; x++) {
+        vertices.add(
+            Vertex.builder()
+                .setPosition(new Vector3(x * spacing, 0.0f, z * spacing))
+                .setNormal(normal)
+                .build());
+      }
+    }
+    return vertices;
+  }
+
+  private static List<Integer> createGridIndices(int firstIndex) {
+    List<Integer> indices = new ArrayList<>();
+    for (int z = 0; z < GRID_SIZE - 1; z++) {
+      for (int x = 0; x < GRID_SIZE - 1; x++) {
+        int corner = firstIndex + z * GRID_SIZE + x;
+        indices.addAll(Arrays.asList(corner, corner + GRID_SIZE, corner + 1));
+        indices.addAll(Arrays.asList(corner + 1, corner + GRID_SIZE, corner + GRID_SIZE + 1));
+      }
+    }
+    return indices;
+  }
+
+  private Submesh createSubmesh(List<Integer> indices) {
+    return Submesh.builder().setTriangleIndices(indices).setMaterial(material).build();
+  }
+
+  private static int countTriangles(RenderableDefinition definition) {
+    int count = 0;
+    for (Submesh submesh : definition.getSubmeshes()) {
+      count += submesh.getTriangleIndices().size() / 3;
+    }
+    return count;
+  }
+
+  private static int countTriangles(LevelOfDetail level) {
+    int count = 0;
+    for (List<Integer> indices : level.getSubmeshTriangleIndices()) {
+      count += indices.size() / 3;
+    }
+    return count;
+  }
+
+  /** Checks that the triangles refer to existing vertices and none of them is degenerate. */
+  private static void assertValidTriangles(RenderableDefinition definition, LevelOfDetail level) {
+    int vertexCount = definition.getVertices().size();
+    for (List<Integer> indices : level.getSubmeshTriangleIndices()) {
+      assertEquals(0, indices.size() % 3);
+      for (int i = 0; i < indices.size(); i += 3) {
+        int a = indices.get(i);
+        int b = indices.get(i + 1);
+        int c = indices.get(i + 2);
+        assertTrue(a < vertexCount && b < vertexCount && c < vertexCount);
+        assertTrue(a != b && b != c && a != c);
+      }
+    }
+  }
+}
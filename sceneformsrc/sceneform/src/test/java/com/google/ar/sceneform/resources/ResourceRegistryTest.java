@@ -0,0 +1,265 @@
+package com.google.ar.sceneform.resources;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class ResourceRegistryTest {
+
+  /** Resource whose estimated size is given explicitly. */
+  private static final class Resource {
+    final long sizeBytes;
+
+    Resource(long sizeBytes) {
+      this.sizeBytes = sizeBytes;
+    }
+  }
+
+  private static ResourceRegistry<Resource> createRegistry(long maxRetainedBytes) {
+    return new ResourceRegistry<>(resource -> resource.sizeBytes, maxRetainedBytes);
+  }
+
+  @Test
+  public void register_completedResource_isRetainedWithinBudget() {
+    ResourceRegistry<Resource> registry = createRegistry(100);
+
+    registry.register("a", CompletableFuture.completedFuture(new Resource(40)));
+    registry.register("b", CompletableFuture.completedFuture(new Resource(40)));
+
+    assertEquals(2, registry.getRetainedCount());
+    assertEquals(80, registry.getRetainedBytes());
+    assertEquals(0, registry.getEvictionCount());
+  }
+
+  @Test
+  public void register_overBudget_evictsLeastRecentlyUsed() {
+    ResourceRegistry<Resource> registry = createRegistry(100);
+    Resource a = new Resource(40);
+    Resource b = new Resource(30);
+    registry.register("a", CompletableFuture.completedFuture(a));
+    registry.register("b", CompletableFuture.completedFuture(b));
+
+    // Using "a" makes "b" the least recently used resource, so it is the one evicted.
+    assertNotNull(registry.get("a"));
+    registry.register("c", CompletableFuture.completedFuture(new Resource(40)));
+
+    assertEquals(2, registry.getRetainedCount());
+    assertEquals(80, registry.getRetainedBytes());
+    assertEquals(1, registry.getEvictionCount());
+
+    // Evicted resources are still registered while they are referenced elsewhere.
+    assertSame(b, registry.get("b").getNow(null));
+  }
+
+  @Test
+  public void register_resourceLargerThanBudget_isNotRetained() {
+    ResourceRegistry<Resource> registry = createRegistry(100);
+
+    registry.register("a", CompletableFuture.completedFuture(new Resource(40)));
+    registry.register("huge", CompletableFuture.completedFuture(new Resource(101)));
+
+    assertEquals(1, registry.getRetainedCount());
+    assertEquals(40, registry.getRetainedBytes());
+    assertEquals(0, registry.getEvictionCount());
+  }
+
+  @Test
+  public void register_sameId_releasesReplacedResource() {
+    ResourceRegistry<Resource> registry = createRegistry(100);
+
+    registry.register("a", CompletableFuture.completedFuture(new Resource(40)));
+    registry.register("a", CompletableFuture.completedFuture(new Resource(30)));
+
+    assertEquals(1, registry.getRetainedCount());
+    assertEquals(30, registry.getRetainedBytes());
+  }
+
+  @Test
+  public void setMaxRetainedBytes_evictsUntilResourcesFit() {
+    ResourceRegistry<Resource> registry = createRegistry(100);
+    registry.register("a", CompletableFuture.completedFuture(new Resource(30)));
+    registry.register("b", CompletableFuture.completedFuture(new Resource(30)));
+    registry.register("c", CompletableFuture.completedFuture(new Resource(30)));
+
+    registry.setMaxRetainedBytes(50);
+
+    assertEquals(1, registry.getRetainedCount());
+    assertEquals(30, registry.getRetainedBytes());
+    assertEquals(2, registry.getEvictionCount());
+  }
+
+  @Test
+  public void trimRetainedResources_releasesAll() {
+    ResourceRegistry<Resource> registry = createRegistry(100);
+    registry.register("a", CompletableFuture.completedFuture(new Resource(30)));
+    registry.register("b", CompletableFuture.completedFuture(new Resource(30)));
+
+    registry.trimRetainedResources();
+
+    assertEquals(0, registry.getRetainedCount());
+    assertEquals(0, registry.getRetainedBytes());
+  }
+
+  @Test
+  public void getOrLoad_retainsResourceOnceLoaded() {
+    ResourceRegistry<Resource> registry = createRegistry(100);
+    CompletableFuture<Resource> load = new CompletableFuture<>();
+
+    CompletableFuture<Resource> future = registry.getOrLoad("a", () -> load);
+    assertEquals(0, registry.getRetainedCount());
+    load.complete(new Resource(40));
+
+    assertSame(load.getNow(null), future.getNow(null));
+    assertEquals(1, registry.getRetainedCount());
+    assertEquals(40, registry.getRetainedBytes());
+  }
+
+  @Test
+  public void get_retainedResource_survivesGarbageCollection() throws InterruptedException {
+    ResourceRegistry<Resource> registry = createRegistry(100);
+    registry.register("a", CompletableFuture.completedFuture(new Resource(40)));
+
+    System.gc();
+    Thread.sleep(10);
+
+    assertNotNull(registry.get("a"));
+    assertEquals(1, registry.getHitCount());
+  }
+
+  @Test
+  public void get_withoutSizeEstimator_retainsNothing() {
+    ResourceRegistry<Resource> registry = new ResourceRegistry<>();
+    Resource resource = new Resource(40);
+
+    registry.register("a", CompletableFuture.completedFuture(resource));
+
+    assertSame(resource, registry.get("a").getNow(null));
+    assertEquals(0, registry.getRetainedCount());
+    assertNull(registry.get("b"));
+    assertEquals(1, registry.getMissCount());
+  }
+
+  @Test
+  public void getOrLoad_concurrentRequests_loadEachIdOnce() throws Exception {
+    ResourceRegistry<Resource> registry = createRegistry(1 << 20);
+    int idCount = 200;
+    ConcurrentHashMap<Integer, AtomicInteger> loadCounts = new ConcurrentHashMap<>();
+    // Keeps every loaded resource reachable, so that no entry is collected and loaded again.
+    ConcurrentHashMap<Integer, Resource> loadedResources = new ConcurrentHashMap<>();
+
+    int threadCount = 8;
+    // Makes every thread request the same id at the same time.
+    CyclicBarrier barrier = new CyclicBarrier(threadCount);
+
+    List<List<Resource>> resultsPerThread =
+        runConcurrently(
+            threadCount,
+            random -> {
+              List<Resource> results = new ArrayList<>();
+              for (int i = 0; i < idCount; i++) {
+                int id = i;
+                barrier.await();
+                CompletableFuture<Resource> future =
+                    registry.getOrLoad(
+                        id,
+                        () -> {
+                          loadCounts.computeIfAbsent(id, key -> new AtomicInteger());
+                          loadCounts.get(id).incrementAndGet();
+                          Resource resource = new Resource(16);
+                          loadedResources.put(id, resource);
+                          return CompletableFuture.completedFuture(resource);
+                        });
+                results.add(future.get());
+              }
+              return results;
+            });
+
+    assertEquals(idCount, loadCounts.size());
+    for (int id = 0; id < idCount; id++) {
+      assertEquals(1, loadCounts.get(id).get());
+      for (List<Resource> results : resultsPerThread) {
+        assertSame(loadedResources.get(id), results.get(id));
+      }
+    }
+    assertEquals(idCount, registry.getMissCount());
+    assertEquals(idCount * 16, registry.getRetainedBytes());
+  }
+
+  @Test
+  public void getOrLoad_concurrentEviction_keepsBudgetConsistent() throws Exception {
+    int resourceSize = 10;
+    ResourceRegistry<Resource> registry = createRegistry(50 * resourceSize);
+
+    runConcurrently(
+        8,
+        random -> {
+          for (int i = 0; i < 5_000; i++) {
+            int id = random.nextInt(500);
+            if (i % 500 == 0) {
+              registry.setMaxRetainedBytes((1 + random.nextInt(100)) * resourceSize);
+            } else if (i % 777 == 0) {
+              registry.trimRetainedResources();
+            }
+            registry
+                .getOrLoad(id, () -> CompletableFuture.completedFuture(new Resource(resourceSize)))
+                .get();
+          }
+          return null;
+        });
+
+    registry.setMaxRetainedBytes(50 * resourceSize);
+    long retainedBytes = registry.getRetainedBytes();
+    assertTrue(retainedBytes >= 0 && retainedBytes <= 50 * resourceSize);
+    assertEquals(registry.getRetainedCount() * (long) resourceSize, retainedBytes);
+  }
+
+  /** Work run by each thread of a stress test, given a random generator seeded per thread. */
+  private interface StressWork<R> {
+    R run(Random random) throws Exception;
+  }
+
+  /** Starts the work on all threads at once and returns the result of each thread. */
+  private static <R> List<R> runConcurrently(int threadCount, StressWork<R> work)
+      throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<R>> futures = new ArrayList<>();
+      for (int i = 0; i < threadCount; i++) {
+        Random random = new Random(i);
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return work.run(random);
+                }));
+      }
+      start.countDown();
+
+      List<R> results = new ArrayList<>();
+      for (Future<R> future : futures) {
+        results.add(future.get(30, TimeUnit.SECONDS));
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package com.google.ar.sceneform.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import org.junit.Test;
+
+public class DirectBufferPoolTest {
+
+  @Test
+  public void acquire_returnsDirectBufferInNativeOrder() {
+    DirectBufferPool pool = new DirectBufferPool();
+
+    ByteBuffer buffer = pool.acquire(1000);
+
+    assertTrue(buffer.isDirect());
+    assertEquals(ByteOrder.nativeOrder(), buffer.order());
+    assertEquals(1000, buffer.limit());
+    assertEquals(1024, buffer.capacity());
+    assertEquals(1024, pool.getOutstandingBytes());
+  }
+
+  @Test
+  public void acquire_afterRelease_reusesBufferOfSameSizeClass() {
+    DirectBufferPool pool = new DirectBufferPool();
+    ByteBuffer first = pool.acquire(600);
+
+    assertTrue(pool.release(first));
+    ByteBuffer second = pool.acquire(1000);
+
+    assertSame(first, second);
+    assertEquals(1000, second.limit());
+    assertEquals(1, pool.getHitCount());
+    assertEquals(1, pool.getMissCount());
+    assertEquals(0.5f, pool.getHitRate(), 0.0f);
+  }
+
+  @Test
+  public void acquire_largerSizeClass_allocatesNewBuffer() {
+    DirectBufferPool pool = new DirectBufferPool();
+    ByteBuffer small = pool.acquire(256);
+    pool.release(small);
+
+    ByteBuffer large = pool.acquire(257);
+
+    assertNotSame(small, large);
+    assertEquals(512, large.capacity());
+    assertEquals(0, pool.getHitCount());
+  }
+
+  @Test
+  public void release_view_returnsBackingBufferToPool() {
+    DirectBufferPool pool = new DirectBufferPool();
+    FloatBuffer floats = pool.acquireFloatBuffer(100);
+    assertEquals(100, floats.limit());
+
+    assertTrue(pool.release(floats));
+
+    assertEquals(0, pool.getOutstandingBytes());
+    assertEquals(512, pool.getRetainedBytes());
+    pool.acquireIntBuffer(128);
+    assertEquals(1, pool.getHitCount());
+  }
+
+  @Test
+  public void release_resetsPositionAndByteOrder() {
+    DirectBufferPool pool = new DirectBufferPool();
+    ByteBuffer buffer = pool.acquire(256);
+    ByteOrder otherOrder =
+        ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN
+            ? ByteOrder.LITTLE_ENDIAN
+            : ByteOrder.BIG_ENDIAN;
+    buffer.order(otherOrder);
+    buffer.putInt(42);
+    pool.release(buffer);
+
+    ByteBuffer reused = pool.acquire(256);
+
+    assertSame(buffer, reused);
+    assertEquals(0, reused.position());
+    assertEquals(ByteOrder.nativeOrder(), reused.order());
+  }
+
+  @Test
+  public void release_twiceOrForeignBuffer_isIgnored() {
+    DirectBufferPool pool = new DirectBufferPool();
+    ByteBuffer buffer = pool.acquire(256);
+
+    assertTrue(pool.release(buffer));
+    assertFalse(pool.release(buffer));
+    assertFalse(pool.release(ByteBuffer.allocateDirect(256)));
+    assertEquals(256, pool.getRetainedBytes());
+  }
+
+  @Test
+  public void release_beyondMaxRetainedBytes_dropsBuffer() {
+    DirectBufferPool pool = new DirectBufferPool(1024);
+    ByteBuffer first = pool.acquire(1024);
+    ByteBuffer second = pool.acquire(1024);
+
+    pool.release(first);
+    pool.release(second);
+
+    assertEquals(1024, pool.getRetainedBytes());
+    assertEquals(0, pool.getOutstandingBytes());
+  }
+
+  @Test
+  public void release_bufferLargerThanSizeClasses_isNotRetained() {
+    DirectBufferPool pool = new DirectBufferPool(Long.MAX_VALUE);
+    int byteCount = (16 << 20) + 1;
+    ByteBuffer buffer = pool.acquire(byteCount);
+    assertEquals(byteCount, buffer.capacity());
+
+    assertTrue(pool.release(buffer));
+
+    assertEquals(0, pool.getRetainedBytes());
+  }
+
+  @Test
+  public void trim_dropsRetainedBuffers() {
+    DirectBufferPool pool = new DirectBufferPool();
+    pool.release(pool.acquire(256));
+
+    pool.trim();
+
+    assertEquals(0, pool.getRetainedBytes());
+    pool.acquire(256);
+    assertEquals(0, pool.getHitCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void acquire_negativeSize_throws() {
+    new DirectBufferPool().acquire(-1);
+  }
+
+  @Test
+  public void acquire_bufferDroppedWithoutRelease_isCollected() throws InterruptedException {
+    DirectBufferPool pool = new DirectBufferPool();
+    WeakReference<FloatBuffer> dropped = new WeakReference<>(pool.acquireFloatBuffer(64));
+
+    for (int i = 0; i < 50 && pool.getCollectedCount() == 0; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    assertEquals(null, dropped.get());
+    assertEquals(1, pool.getCollectedCount());
+    assertEquals(0, pool.getOutstandingBytes());
+  }
+}
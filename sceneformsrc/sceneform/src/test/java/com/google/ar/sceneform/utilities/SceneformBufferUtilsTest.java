@@ -0,0 +1,131 @@
+package com.google.ar.sceneform.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the peak heap memory of loading a model file. Mapping the file must not copy it to the
+ * heap, while streaming it holds the file more than once.
+ */
+public class SceneformBufferUtilsTest {
+  private static final int FILE_SIZE = 8 * 1024 * 1024;
+  // Mapping allocates a few small objects, far less than the contents of the file.
+  private static final long MAX_MAPPED_HEAP_BYTES = FILE_SIZE / 64;
+
+  private File file;
+
+  @Before
+  public void setUp() throws Exception {
+    file = File.createTempFile("model", ".sfb");
+    byte[] block = new byte[4096];
+    try (FileOutputStream output = new FileOutputStream(file)) {
+      for (int offset = 0; offset < FILE_SIZE; offset += block.length) {
+        for (int i = 0; i < block.length; i++) {
+          block[i] = contentAt(offset + i);
+        }
+        output.write(block);
+      }
+    }
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void mapFile_doesNotCopyFileToHeap() throws Exception {
+    ByteBuffer[] mapped = new ByteBuffer[1];
+
+    long allocatedBytes =
+        measureAllocatedBytes(
+            () -> {
+              mapped[0] = SceneformBufferUtils.mapFile(file);
+              return null;
+            });
+
+    assertTrue("Allocated " + allocatedBytes + " bytes", allocatedBytes < MAX_MAPPED_HEAP_BYTES);
+    ByteBuffer buffer = mapped[0];
+    assertTrue(buffer.isDirect());
+    assertEquals(FILE_SIZE, buffer.remaining());
+    for (int offset = 0; offset < FILE_SIZE; offset += FILE_SIZE / 16 - 1) {
+      assertEquals(contentAt(offset), buffer.get(offset));
+    }
+  }
+
+  @Test
+  public void inputStreamToByteBuffer_holdsFileSeveralTimes() throws Exception {
+    // The streaming path kept for remote sources, measured so that the test above stays
+    // meaningful: the same measurement must see the copies made by streaming.
+    long allocatedBytes =
+        measureAllocatedBytes(
+            () -> SceneformBufferUtils.inputStreamToByteBuffer(() -> new FileInputStream(file)));
+
+    assertTrue("Allocated " + allocatedBytes + " bytes", allocatedBytes >= 2L * FILE_SIZE);
+  }
+
+  @Test
+  public void byteBufferToInputStream_readsMappedFileWithoutCopying() throws Exception {
+    ByteBuffer buffer = SceneformBufferUtils.mapFile(file);
+    byte[] block = new byte[4096];
+    boolean[] matches = {true};
+
+    long allocatedBytes =
+        measureAllocatedBytes(
+            () -> {
+              try (InputStream input = SceneformBufferUtils.byteBufferToInputStream(buffer)) {
+                int offset = 0;
+                int count;
+                while ((count = input.read(block, 0, block.length)) > 0) {
+                  for (int i = 0; i < count; i++) {
+                    matches[0] &= block[i] == contentAt(offset + i);
+                  }
+                  offset += count;
+                }
+                matches[0] &= offset == FILE_SIZE;
+              }
+              return null;
+            });
+
+    assertTrue(matches[0]);
+    assertTrue("Allocated " + allocatedBytes + " bytes", allocatedBytes < MAX_MAPPED_HEAP_BYTES);
+    // The stream reads a view of the buffer, the buffer itself can be read again.
+    assertEquals(0, buffer.position());
+  }
+
+  private static byte contentAt(int offset) {
+    return (byte) (offset * 31 + (offset >> 8));
+  }
+
+  private interface Work {
+    Object run() throws Exception;
+  }
+
+  private static long measureAllocatedBytes(Work work) throws Exception {
+    long start = getAllocatedBytes();
+    work.run();
+    return getAllocatedBytes() - start;
+  }
+
+  private static long getAllocatedBytes() throws Exception {
+    // The management API isn't part of the Android SDK, so it is looked up on the test JVM.
+    Object threadBean =
+        Class.forName("java.lang.management.ManagementFactory")
+            .getMethod("getThreadMXBean")
+            .invoke(null);
+    Method getThreadAllocatedBytes =
+        Class.forName("com.sun.management.ThreadMXBean")
+            .getMethod("getThreadAllocatedBytes", long.class);
+    return (long) getThreadAllocatedBytes.invoke(threadBean, Thread.currentThread().getId());
+  }
+}
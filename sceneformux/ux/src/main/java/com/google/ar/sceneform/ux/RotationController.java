@@ -27,6 +27,11 @@ public class RotationController extends BaseTransformationController<TwistGestur
   // Rate that the node rotates in degrees per degree of twisting.
   private float rotationRateDegrees = 2.5f;
 
+  // Reused for every twist event to avoid allocations.
+  private final Vector3 up = Vector3.up();
+  private final Quaternion rotationDelta = new Quaternion();
+  private final Quaternion localRotation = new Quaternion();
+
   public RotationController(
       BaseTransformableNode transformableNode, TwistGestureRecognizer gestureRecognizer) {
     super(transformableNode, gestureRecognizer);
@@ -48,10 +53,10 @@ public class RotationController extends BaseTransformationController<TwistGestur
   @Override
   public void onContinueTransformation(TwistGesture gesture) {
     float rotationAmount = -gesture.getDeltaRotationDegrees() * rotationRateDegrees;
-    Quaternion rotationDelta = new Quaternion(Vector3.up(), rotationAmount);
-    Quaternion localrotation = getTransformableNode().getLocalRotation();
-    localrotation = Quaternion.multiply(localrotation, rotationDelta);
-    getTransformableNode().setLocalRotation(localrotation);
+    Quaternion.axisAngle(up, rotationAmount, rotationDelta);
+    getTransformableNode().getLocalRotation(localRotation);
+    Quaternion.multiply(localRotation, rotationDelta, localRotation);
+    getTransformableNode().setLocalRotation(localRotation);
   }
 
   @Override
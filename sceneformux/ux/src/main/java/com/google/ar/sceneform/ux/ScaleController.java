@@ -38,6 +38,9 @@ public class ScaleController extends BaseTransformationController<PinchGesture>
 
   private float currentScaleRatio;
 
+  // Reused every frame to set the scale of the node without allocating.
+  private final Vector3 finalScale = new Vector3();
+
   private static final float ELASTIC_RATIO_LIMIT = 0.8f;
   private static final float LERP_SPEED = 8.0f;
 
@@ -94,7 +97,7 @@ public class ScaleController extends BaseTransformationController<PinchGesture>
     float t = MathHelper.clamp(frameTime.getDeltaSeconds() * LERP_SPEED, 0, 1);
     currentScaleRatio = MathHelper.lerp(currentScaleRatio, getClampedScaleRatio(), t);
     float finalScaleValue = getFinalScale();
-    Vector3 finalScale = new Vector3(finalScaleValue, finalScaleValue, finalScaleValue);
+    finalScale.set(finalScaleValue, finalScaleValue, finalScaleValue);
     getTransformableNode().setLocalScale(finalScale);
   }
 
@@ -108,7 +111,7 @@ public class ScaleController extends BaseTransformationController<PinchGesture>
     currentScaleRatio += gesture.gapDeltaInches() * sensitivity;
 
     float finalScaleValue = getFinalScale();
-    Vector3 finalScale = new Vector3(finalScaleValue, finalScaleValue, finalScaleValue);
+    finalScale.set(finalScaleValue, finalScaleValue, finalScaleValue);
     getTransformableNode().setLocalScale(finalScale);
 
     if (currentScaleRatio < -ELASTIC_RATIO_LIMIT
@@ -32,7 +32,6 @@ import com.google.ar.sceneform.Scene;
 import com.google.ar.sceneform.math.MathHelper;
 import com.google.ar.sceneform.math.Quaternion;
 import com.google.ar.sceneform.math.Vector3;
-import com.google.ar.sceneform.utilities.Preconditions;
 import java.util.EnumSet;
 import java.util.List;
 
@@ -43,11 +42,24 @@ import java.util.List;
  */
 public class TranslationController extends BaseTransformationController<DragGesture> {
   @Nullable private HitResult lastArHitResult;
-  @Nullable private Vector3 desiredLocalPosition;
-  @Nullable private Quaternion desiredLocalRotation;
+  private final Vector3 desiredLocalPosition = new Vector3();
+  private final Quaternion desiredLocalRotation = new Quaternion();
+  private boolean hasDesiredLocalPosition;
+  private boolean hasDesiredLocalRotation;
 
   private final Vector3 initialForwardInLocal = new Vector3();
 
+  // Reused for every drag event and every frame while the node moves to its desired pose.
+  private final Vector3 localPosition = new Vector3();
+  private final Quaternion localRotation = new Quaternion();
+  private final Vector3 positionDifference = new Vector3();
+  private final Quaternion inverseParentRotation = new Quaternion();
+  private final Vector3 up = new Vector3();
+  private final Vector3 rotatedUp = new Vector3();
+  private final Vector3 forward = new Vector3();
+  private final Quaternion upRotation = new Quaternion();
+  private final Quaternion forwardRotation = new Quaternion();
+
   private EnumSet<Plane.Type> allowedPlaneTypes = EnumSet.allOf(Plane.Type.class);
 
   private static final float LERP_SPEED = 12.0f;
@@ -82,7 +94,7 @@ public class TranslationController extends BaseTransformationController<DragGest
   public boolean isTransforming() {
     // As long as the transformable node is still interpolating towards the final pose, this
     // controller is still transforming.
-    return super.isTransforming() || desiredLocalRotation != null || desiredLocalPosition != null;
+    return super.isTransforming() || hasDesiredLocalRotation || hasDesiredLocalPosition;
   }
 
   @Override
@@ -101,12 +113,10 @@ public class TranslationController extends BaseTransformationController<DragGest
       return false;
     }
 
-    Vector3 initialForwardInWorld = transformableNode.getForward();
+    transformableNode.getForward(initialForwardInLocal);
     Node parent = transformableNode.getParent();
     if (parent != null) {
-      initialForwardInLocal.set(parent.worldToLocalDirection(initialForwardInWorld));
-    } else {
-      initialForwardInLocal.set(initialForwardInWorld);
+      parent.worldToLocalDirection(initialForwardInLocal, initialForwardInLocal);
     }
 
     return true;
@@ -138,19 +148,19 @@ public class TranslationController extends BaseTransformationController<DragGest
       if (trackable instanceof Plane) {
         Plane plane = (Plane) trackable;
         if (plane.isPoseInPolygon(pose) && allowedPlaneTypes.contains(plane.getType())) {
-          desiredLocalPosition = new Vector3(pose.tx(), pose.ty(), pose.tz());
-          desiredLocalRotation = new Quaternion(pose.qx(), pose.qy(), pose.qz(), pose.qw());
+          desiredLocalPosition.set(pose.tx(), pose.ty(), pose.tz());
+          desiredLocalRotation.set(pose.qx(), pose.qy(), pose.qz(), pose.qw());
           Node parent = getTransformableNode().getParent();
-          if (parent != null && desiredLocalPosition != null && desiredLocalRotation != null) {
-            desiredLocalPosition = parent.worldToLocalPoint(desiredLocalPosition);
-            desiredLocalRotation =
-                Quaternion.multiply(
-                    parent.getWorldRotation().inverted(),
-                    Preconditions.checkNotNull(desiredLocalRotation));
+          if (parent != null) {
+            parent.worldToLocalPoint(desiredLocalPosition, desiredLocalPosition);
+            parent.getWorldRotation(inverseParentRotation);
+            inverseParentRotation.inverted(inverseParentRotation);
+            Quaternion.multiply(inverseParentRotation, desiredLocalRotation, desiredLocalRotation);
           }
 
-          desiredLocalRotation =
-              calculateFinalDesiredLocalRotation(Preconditions.checkNotNull(desiredLocalRotation));
+          calculateFinalDesiredLocalRotation(desiredLocalRotation, desiredLocalRotation);
+          hasDesiredLocalPosition = true;
+          hasDesiredLocalRotation = true;
           lastArHitResult = hit;
           break;
         }
@@ -180,9 +190,8 @@ public class TranslationController extends BaseTransformationController<DragGest
       Quaternion finalDesiredWorldRotation = worldRotation;
 
       // Since we change the anchor, we need to update the initialForwardInLocal into the new
-      // coordinate space. Local variable for nullness analysis.
-      Quaternion desiredLocalRotation = this.desiredLocalRotation;
-      if (desiredLocalRotation != null) {
+      // coordinate space.
+      if (hasDesiredLocalRotation) {
         getTransformableNode().setLocalRotation(desiredLocalRotation);
         finalDesiredWorldRotation = getTransformableNode().getWorldRotation();
       }
@@ -199,8 +208,11 @@ public class TranslationController extends BaseTransformationController<DragGest
       getTransformableNode().setWorldPosition(worldPosition);
     }
 
-    desiredLocalPosition = Vector3.zero();
-    desiredLocalRotation = calculateFinalDesiredLocalRotation(Quaternion.identity());
+    desiredLocalPosition.setZero();
+    desiredLocalRotation.setIdentity();
+    calculateFinalDesiredLocalRotation(desiredLocalRotation, desiredLocalRotation);
+    hasDesiredLocalPosition = true;
+    hasDesiredLocalRotation = true;
   }
 
   private AnchorNode getAnchorNodeOrDie() {
@@ -213,40 +225,37 @@ public class TranslationController extends BaseTransformationController<DragGest
   }
 
   private void updatePosition(FrameTime frameTime) {
-    // Store in local variable for nullness static analysis.
-    Vector3 desiredLocalPosition = this.desiredLocalPosition;
-    if (desiredLocalPosition == null) {
+    if (!hasDesiredLocalPosition) {
       return;
     }
 
-    Vector3 localPosition = getTransformableNode().getLocalPosition();
+    getTransformableNode().getLocalPosition(localPosition);
     float lerpFactor = MathHelper.clamp(frameTime.getDeltaSeconds() * LERP_SPEED, 0, 1);
-    localPosition = Vector3.lerp(localPosition, desiredLocalPosition, lerpFactor);
+    Vector3.lerp(localPosition, desiredLocalPosition, lerpFactor, localPosition);
 
-    float lengthDiff = Math.abs(Vector3.subtract(desiredLocalPosition, localPosition).length());
+    Vector3.subtract(desiredLocalPosition, localPosition, positionDifference);
+    float lengthDiff = Math.abs(positionDifference.length());
     if (lengthDiff <= POSITION_LENGTH_THRESHOLD) {
-      localPosition = desiredLocalPosition;
-      this.desiredLocalPosition = null;
+      localPosition.set(desiredLocalPosition);
+      hasDesiredLocalPosition = false;
     }
 
     getTransformableNode().setLocalPosition(localPosition);
   }
 
   private void updateRotation(FrameTime frameTime) {
-    // Store in local variable for nullness static analysis.
-    Quaternion desiredLocalRotation = this.desiredLocalRotation;
-    if (desiredLocalRotation == null) {
+    if (!hasDesiredLocalRotation) {
       return;
     }
 
-    Quaternion localRotation = getTransformableNode().getLocalRotation();
+    getTransformableNode().getLocalRotation(localRotation);
     float lerpFactor = MathHelper.clamp(frameTime.getDeltaSeconds() * LERP_SPEED, 0, 1);
-    localRotation = Quaternion.slerp(localRotation, desiredLocalRotation, lerpFactor);
+    Quaternion.slerp(localRotation, desiredLocalRotation, lerpFactor, localRotation);
 
     float dot = Math.abs(dotQuaternion(localRotation, desiredLocalRotation));
     if (dot >= ROTATION_DOT_THRESHOLD) {
-      localRotation = desiredLocalRotation;
-      this.desiredLocalRotation = null;
+      localRotation.set(desiredLocalRotation);
+      hasDesiredLocalRotation = false;
     }
 
     getTransformableNode().setLocalRotation(localRotation);
@@ -256,19 +265,23 @@ public class TranslationController extends BaseTransformationController<DragGest
    * When translating, the up direction of the node must match the up direction of the plane from
    * the hit result. However, we also need to make sure that the original forward direction of the
    * node is respected.
+   *
+   * @param dest receives the final rotation, may be desiredLocalRotation
    */
-  private Quaternion calculateFinalDesiredLocalRotation(Quaternion desiredLocalRotation) {
+  private void calculateFinalDesiredLocalRotation(
+      Quaternion desiredLocalRotation, Quaternion dest) {
     // Get a rotation just to the up direction.
     // Otherwise, the node will spin around as you rotate.
-    Vector3 rotatedUp = Quaternion.rotateVector(desiredLocalRotation, Vector3.up());
-    desiredLocalRotation = Quaternion.rotationBetweenVectors(Vector3.up(), rotatedUp);
+    up.setUp();
+    Quaternion.rotateVector(desiredLocalRotation, up, rotatedUp);
+    Quaternion.rotationBetweenVectors(up, rotatedUp, upRotation);
 
     // Adjust the rotation to make sure the node maintains the same forward direction.
-    Quaternion forwardInLocal =
-        Quaternion.rotationBetweenVectors(Vector3.forward(), initialForwardInLocal);
-    desiredLocalRotation = Quaternion.multiply(desiredLocalRotation, forwardInLocal);
+    forward.setForward();
+    Quaternion.rotationBetweenVectors(forward, initialForwardInLocal, forwardRotation);
+    Quaternion.multiply(upRotation, forwardRotation, dest);
 
-    return desiredLocalRotation.normalized();
+    dest.normalize();
   }
 
   private static float dotQuaternion(Quaternion lhs, Quaternion rhs) {